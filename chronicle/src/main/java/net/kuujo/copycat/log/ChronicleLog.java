@@ -246,6 +246,18 @@ public class ChronicleLog extends FileLog {
     return this;
   }
 
+  @Override
+  public ChronicleLog withGroupCommit(boolean groupCommit) {
+    setGroupCommit(groupCommit);
+    return this;
+  }
+
+  @Override
+  public ChronicleLog withCacheSize(long cacheSize) {
+    setCacheSize(cacheSize);
+    return this;
+  }
+
   @Override
   public LogManager getLogManager(String name) {
     return new ChronicleLogManager(name, this);
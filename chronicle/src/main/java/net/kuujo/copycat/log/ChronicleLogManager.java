@@ -26,6 +26,7 @@ import java.nio.file.StandardCopyOption;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Chronicle based Copycat log.
@@ -54,11 +55,9 @@ public class ChronicleLogManager extends AbstractLogManager {
     Map<Long, LogSegment> segments = new HashMap<>();
     base.getAbsoluteFile().getParentFile().mkdirs();
     for (File file : config.getDirectory().listFiles(File::isFile)) {
-      if (file.getName().startsWith(base.getName() + "-")
-        && !segments.containsKey(Long.valueOf(file.getName().substring(0,
-          file.getName().indexOf(".", base.getName().length()))))) {
+      if (file.getName().startsWith(base.getName() + "-") && file.getName().endsWith(".data")) {
         try {
-          long id = Long.valueOf(file.getName().substring(0, file.getName().indexOf(".", base.getName().length()))).longValue();
+          long id = Long.valueOf(file.getName().substring(base.getName().length() + 1, file.getName().indexOf(".", base.getName().length()))).longValue();
           // First, look for an existing history file for the log.
           File historyLogFile = new File(base.getParent(), String.format("%s-%d.history.log", base.getName(), id));
           File historyIndexFile = new File(base.getParent(), String.format("%s-%d.history.index", base.getName(), id));
@@ -71,7 +70,11 @@ public class ChronicleLogManager extends AbstractLogManager {
             indexFile.delete();
           }
 
-          long firstIndex = firstEntryIndex(file);
+          // Read the first index from the segment index if possible to avoid opening the chronicle.
+          Long firstIndex = ChronicleSegmentIndex.readFirstIndex(new File(base.getParent(), String.format("%s-%d.entries", base.getName(), id)));
+          if (firstIndex == null) {
+            firstIndex = firstEntryIndex(new File(base.getParent(), String.format("%s-%d", base.getName(), id)));
+          }
 
           // Once we've cleaned up the history, add the segment to the log.
           if (!segments.containsKey(id)) {
@@ -90,11 +93,30 @@ public class ChronicleLogManager extends AbstractLogManager {
     return new ChronicleLogSegment(this, id, firstIndex);
   }
 
+  @Override
+  protected int entryHeaderSize() {
+    return ChronicleLogSegment.ENTRY_INFO_LEN;
+  }
+
+  @Override
+  TermIndex createTermIndex() {
+    return new TermIndex(new File(base.getAbsoluteFile().getParentFile(), base.getName() + ".terms"));
+  }
+
+  /**
+   * Chronicle appenders cannot be flushed concurrently with writes, so group commits are not supported and the log is
+   * always flushed synchronously.
+   */
+  @Override
+  public CompletableFuture<Long> flush(long index, boolean force) {
+    flush(force);
+    return CompletableFuture.completedFuture(index);
+  }
+
   long firstEntryIndex(File file) throws IOException {
-    try (IndexedChronicle chronicle = new IndexedChronicle(file.getAbsolutePath())) {
-      ExcerptTailer tailer = chronicle.createTailer();
-      try (ExcerptTailer t = tailer.toStart()) {
-        return t.readLong();
+    try (IndexedChronicle chronicle = new IndexedChronicle(file.getAbsolutePath(), chronicleConfig)) {
+      try (ExcerptTailer t = chronicle.createTailer()) {
+        return t.nextIndex() ? t.readLong() : 1;
       }
     }
   }
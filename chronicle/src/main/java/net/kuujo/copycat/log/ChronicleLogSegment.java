@@ -22,23 +22,30 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Chronicle based log segment.
  *
+ * The location of each entry in the chronicle, along with the segment's entry count and size, is stored in a
+ * {@link ChronicleSegmentIndex} so that entries can be read and the segment can be opened without scanning the
+ * chronicle.
+ *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class ChronicleLogSegment extends AbstractLogSegment {
   private static final byte DELETED = 0;
   private static final byte ACTIVE = 1;
   /* Size of index + status + length data */
-  private static final int ENTRY_INFO_LEN = 13;
+  static final int ENTRY_INFO_LEN = 13;
 
   private final ChronicleLogManager parent;
   /* The base path to chronicle files */
   private final File basePath;
   private final File dataFile;
   private final File indexFile;
+  private final ChronicleSegmentIndex index;
   private Chronicle chronicle;
   private Excerpt excerpt;
   private ExcerptAppender appender;
@@ -53,6 +60,7 @@ public class ChronicleLogSegment extends AbstractLogSegment {
     this.basePath = new File(parent.base.getParent(), String.format("%s-%d", parent.base.getName(), id));
     this.dataFile = new File(parent.base.getParent(), String.format("%s-%d.data", parent.base.getName(), id));
     this.indexFile = new File(parent.base.getParent(), String.format("%s-%d.index", parent.base.getName(), id));
+    this.index = new ChronicleSegmentIndex(new File(parent.base.getParent(), String.format("%s-%d.entries", parent.base.getName(), id)));
   }
 
   @Override
@@ -78,17 +86,34 @@ public class ChronicleLogSegment extends AbstractLogSegment {
     excerpt = chronicle.createExcerpt();
     appender = chronicle.createAppender();
     tailer = chronicle.createTailer();
+    index.open(firstIndex);
+
+    if (!index.isValid(chronicle.lastWrittenIndex())) {
+      rebuildIndex();
+    }
+    entries = index.entries();
+    size = index.size();
+    lastIndex = entries > 0 ? firstIndex + entries - 1 : null;
+  }
 
-    if (chronicle.size() > 0) {
-      try (ExcerptTailer t = tailer.toStart()) {
-        do {
-          long index = t.readLong();
-          if (t.readByte() == ACTIVE) {
-            lastIndex = index;
-          }
-        } while (t.nextIndex());
+  /**
+   * Rebuilds the segment index from the chronicle.
+   */
+  private void rebuildIndex() throws IOException {
+    long entries = 0;
+    long size = 0;
+    try (ExcerptTailer t = chronicle.createTailer()) {
+      while (t.nextIndex()) {
+        long index = t.readLong();
+        if (t.readByte() == ACTIVE) {
+          this.index.excerpt(index - firstIndex, t.index());
+          entries = index - firstIndex + 1;
+          size += t.readInt() + ENTRY_INFO_LEN;
+        }
+        t.finish();
       }
     }
+    index.update(entries, size, chronicle.lastWrittenIndex());
   }
 
   @Override
@@ -126,15 +151,37 @@ public class ChronicleLogSegment extends AbstractLogSegment {
     appender.write(entry);
     appender.finish();
     lastIndex = index;
-    size += entry.capacity() + ENTRY_INFO_LEN;
+    size += entry.limit() + ENTRY_INFO_LEN;
     entries++;
+    try {
+      this.index.excerpt(index - firstIndex, appender.lastWrittenIndex());
+    } catch (IOException e) {
+      throw new LogException(e, "Failed to update segment index");
+    }
+    this.index.update(entries, size, appender.lastWrittenIndex());
     return index;
   }
 
+  /**
+   * Appends a batch of entries to the segment.
+   *
+   * Chronicle writes each entry as a separate excerpt to the memory mapped chronicle, so appending a batch of entries
+   * does not require any additional system calls.
+   */
+  @Override
+  public List<Long> appendEntries(List<ByteBuffer> entries) {
+    assertIsOpen();
+    List<Long> indexes = new ArrayList<>(entries.size());
+    for (ByteBuffer entry : entries) {
+      indexes.add(appendEntry(entry));
+    }
+    return indexes;
+  }
+
   @Override
   public Long firstIndex() {
     assertIsOpen();
-    return chronicle.size() == 0 ? null : firstIndex;
+    return entries == 0 ? null : firstIndex;
   }
 
   @Override
@@ -153,16 +200,15 @@ public class ChronicleLogSegment extends AbstractLogSegment {
   public ByteBuffer getEntry(long index) {
     assertIsOpen();
     assertContainsIndex(index);
-    if (tailer.index(index - firstIndex)) {
-      do {
-        ByteBuffer entry = extractEntry(tailer, index);
-        if (entry != null) {
-          entry.flip();
-          return entry;
-        }
-      } while (tailer.nextIndex());
+    if (tailer.index(this.index.excerpt(index - firstIndex))) {
+      ByteBuffer entry = extractEntry(tailer, index);
+      tailer.finish();
+      if (entry != null) {
+        entry.flip();
+        return entry;
+      }
     }
-    return null;
+    throw new LogException("Segment index is inconsistent with entry %d", index);
   }
 
   /**
@@ -187,21 +233,31 @@ public class ChronicleLogSegment extends AbstractLogSegment {
   @Override
   public void removeAfter(long index) {
     assertIsOpen();
+    if (isEmpty() || index >= lastIndex) {
+      return;
+    }
+
+    this.index.invalidate();
     if (index < firstIndex) {
       chronicle.clear();
       size = 0;
       entries = 0;
-    } else if (excerpt.index(index - firstIndex)) {
-      while (excerpt.nextIndex()) {
-        if (excerpt.readLong() > index) {
+      lastIndex = null;
+    } else {
+      // Mark each removed entry deleted by locating its excerpt in the segment index.
+      for (long i = index + 1; i <= lastIndex; i++) {
+        if (excerpt.index(this.index.excerpt(i - firstIndex))) {
+          excerpt.readLong();
           excerpt.writeByte(DELETED);
           int entrySize = excerpt.readInt();
           size -= (entrySize + ENTRY_INFO_LEN);
           entries--;
+          excerpt.finish();
         }
       }
+      lastIndex = index;
     }
-    lastIndex = index;
+    this.index.update(entries, size, chronicle.lastWrittenIndex());
   }
 
   @Override
@@ -209,6 +265,7 @@ public class ChronicleLogSegment extends AbstractLogSegment {
     assertIsOpen();
     excerpt.flush();
     appender.flush();
+    index.flush();
   }
 
   @Override
@@ -216,6 +273,7 @@ public class ChronicleLogSegment extends AbstractLogSegment {
     assertIsOpen();
     try {
       chronicle.close();
+      index.close();
     } finally {
       chronicle = null;
       excerpt = null;
@@ -239,5 +297,6 @@ public class ChronicleLogSegment extends AbstractLogSegment {
 
     dataFile.delete();
     indexFile.delete();
+    index.delete();
   }
 }
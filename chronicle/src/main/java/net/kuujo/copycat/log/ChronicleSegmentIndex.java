@@ -0,0 +1,194 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Chronicle segment index.
+ *
+ * Entries removed from a chronicle segment are marked deleted rather than removed from the chronicle, so the excerpt
+ * at which an entry is stored cannot be computed from the entry's index. The segment index is a memory mapped sidecar
+ * file that maps the offset of each entry in the segment to the index of the excerpt at which it's stored, along with
+ * the segment's first index, entry count, and size. The index records the last excerpt written to the chronicle when
+ * it was last updated, so if the index is out of date when the segment is opened it's rebuilt from the chronicle.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+class ChronicleSegmentIndex {
+  private static final int FIRST_INDEX_POSITION = 0;
+  private static final int ENTRIES_POSITION = 8;
+  private static final int SIZE_POSITION = 16;
+  private static final int LAST_EXCERPT_POSITION = 24;
+  private static final int HEADER_SIZE = 32;
+  private static final int INITIAL_CAPACITY = 1024;
+  private static final long INVALID = Long.MIN_VALUE;
+  private final File file;
+  private FileChannel channel;
+  private MappedByteBuffer buffer;
+
+  ChronicleSegmentIndex(File file) {
+    this.file = file;
+  }
+
+  /**
+   * Reads the first index of the segment from an existing index file.
+   *
+   * @param file The index file.
+   * @return The first index of the segment or {@code null} if the index file does not exist.
+   */
+  static Long readFirstIndex(File file) throws IOException {
+    if (!file.exists() || file.length() < HEADER_SIZE) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(8);
+      channel.read(header, FIRST_INDEX_POSITION);
+      header.flip();
+      return header.getLong();
+    }
+  }
+
+  /**
+   * Opens the index, creating the index file if it doesn't exist.
+   *
+   * @param firstIndex The first index of the segment.
+   */
+  void open(long firstIndex) throws IOException {
+    boolean exists = file.exists() && file.length() >= HEADER_SIZE;
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    map(Math.max(channel.size(), HEADER_SIZE + INITIAL_CAPACITY * 8));
+    if (!exists) {
+      buffer.putLong(FIRST_INDEX_POSITION, firstIndex);
+      update(0, 0, INVALID);
+    }
+  }
+
+  /**
+   * Maps the index file with the given capacity.
+   */
+  private void map(long capacity) throws IOException {
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+  }
+
+  /**
+   * Returns whether the index is up to date with the given last excerpt written to the chronicle.
+   *
+   * @param lastExcerpt The index of the last excerpt written to the chronicle.
+   * @return Whether the index is up to date.
+   */
+  boolean isValid(long lastExcerpt) {
+    long indexedExcerpt = buffer.getLong(LAST_EXCERPT_POSITION);
+    return indexedExcerpt != INVALID && indexedExcerpt == lastExcerpt;
+  }
+
+  /**
+   * Returns the number of entries in the segment.
+   */
+  long entries() {
+    return buffer.getLong(ENTRIES_POSITION);
+  }
+
+  /**
+   * Returns the size of the segment.
+   */
+  long size() {
+    return buffer.getLong(SIZE_POSITION);
+  }
+
+  /**
+   * Returns the index of the excerpt at which the entry at the given offset is stored.
+   *
+   * @param offset The offset of the entry in the segment.
+   * @return The index of the excerpt at which the entry is stored.
+   */
+  long excerpt(long offset) {
+    return buffer.getLong(position(offset));
+  }
+
+  /**
+   * Sets the index of the excerpt at which the entry at the given offset is stored.
+   *
+   * @param offset The offset of the entry in the segment.
+   * @param excerpt The index of the excerpt at which the entry is stored.
+   */
+  void excerpt(long offset, long excerpt) throws IOException {
+    int position = position(offset);
+    if (position + 8 > buffer.capacity()) {
+      map(Math.max((long) buffer.capacity() * 2, position + 8));
+    }
+    buffer.putLong(position, excerpt);
+  }
+
+  /**
+   * Returns the position of the given offset in the index file.
+   */
+  private static int position(long offset) {
+    return (int) (HEADER_SIZE + offset * 8);
+  }
+
+  /**
+   * Updates the segment's entry count and size.
+   *
+   * @param entries The number of entries in the segment.
+   * @param size The size of the segment.
+   * @param lastExcerpt The index of the last excerpt written to the chronicle.
+   */
+  void update(long entries, long size, long lastExcerpt) {
+    buffer.putLong(ENTRIES_POSITION, entries);
+    buffer.putLong(SIZE_POSITION, size);
+    buffer.putLong(LAST_EXCERPT_POSITION, lastExcerpt);
+  }
+
+  /**
+   * Marks the index out of date until it's next updated.
+   *
+   * Entries are marked deleted in the chronicle after the index is invalidated so that the index is rebuilt from the
+   * chronicle if the segment fails while removing entries.
+   */
+  void invalidate() {
+    buffer.putLong(LAST_EXCERPT_POSITION, INVALID);
+  }
+
+  /**
+   * Flushes the index to disk.
+   */
+  void flush() {
+    buffer.force();
+  }
+
+  /**
+   * Closes the index.
+   */
+  void close() throws IOException {
+    buffer = null;
+    channel.close();
+    channel = null;
+  }
+
+  /**
+   * Deletes the index file.
+   */
+  void delete() {
+    file.delete();
+  }
+
+}
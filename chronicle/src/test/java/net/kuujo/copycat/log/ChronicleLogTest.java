@@ -41,6 +41,17 @@ public class ChronicleLogTest extends AbstractLogTest {
     assertEquals(log.getSegmentInterval(), 60000);
   }
 
+  /**
+   * Tests that the term index is reloaded correctly after entries have been truncated and compacted.
+   */
+  public void testReopenTermIndexAfterCompaction() throws Throwable {
+    testGetTerm();
+    log.close();
+
+    log.open();
+    assertTruncatedTerms();
+  }
+
   @AfterTest
   protected void cleanLogDir() throws IOException {
     Path directory = Paths.get("target/test-logs/");
@@ -33,6 +33,8 @@ import java.util.Map;
  */
 public class AsyncMapConfig extends ResourceConfig<AsyncMapConfig> {
   private static final String ASYNC_MAP_CONSISTENCY = "consistency";
+  private static final String ASYNC_MAP_CLEANER_INTERVAL = "cleaner.interval";
+  private static final String ASYNC_MAP_TOMBSTONE_RETENTION = "cleaner.tombstone-retention";
 
   private static final String DEFAULT_CONFIGURATION = "map-defaults";
   private static final String CONFIGURATION = "map";
@@ -111,6 +113,70 @@ public class AsyncMapConfig extends ResourceConfig<AsyncMapConfig> {
     return this;
   }
 
+  /**
+   * Sets the interval at which the log cleaner removes superseded map commands from the log.
+   *
+   * @param interval The interval at which the log is cleaned in milliseconds.
+   * @throws java.lang.IllegalArgumentException If the interval is not positive
+   */
+  public void setCleanerInterval(long interval) {
+    this.config = config.withValue(ASYNC_MAP_CLEANER_INTERVAL, ConfigValueFactory.fromAnyRef(Assert.arg(interval, interval > 0, "cleaner interval must be positive")));
+  }
+
+  /**
+   * Returns the interval at which the log cleaner removes superseded map commands from the log.
+   *
+   * @return The interval at which the log is cleaned in milliseconds.
+   */
+  public long getCleanerInterval() {
+    return new StateLogConfig(toMap()).getCleanerInterval();
+  }
+
+  /**
+   * Sets the interval at which the log cleaner removes superseded map commands from the log, returning the
+   * configuration for method chaining.
+   *
+   * @param interval The interval at which the log is cleaned in milliseconds.
+   * @return The map configuration.
+   * @throws java.lang.IllegalArgumentException If the interval is not positive
+   */
+  public AsyncMapConfig withCleanerInterval(long interval) {
+    setCleanerInterval(interval);
+    return this;
+  }
+
+  /**
+   * Sets the minimum number of entries for which removals of keys are retained in the log.
+   *
+   * @param retention The tombstone retention in entries.
+   * @throws java.lang.IllegalArgumentException If the retention is negative
+   */
+  public void setTombstoneRetention(long retention) {
+    this.config = config.withValue(ASYNC_MAP_TOMBSTONE_RETENTION, ConfigValueFactory.fromAnyRef(Assert.arg(retention, retention >= 0, "tombstone retention must not be negative")));
+  }
+
+  /**
+   * Returns the minimum number of entries for which removals of keys are retained in the log.
+   *
+   * @return The tombstone retention in entries.
+   */
+  public long getTombstoneRetention() {
+    return new StateLogConfig(toMap()).getTombstoneRetention();
+  }
+
+  /**
+   * Sets the minimum number of entries for which removals of keys are retained in the log, returning the configuration for method
+   * chaining.
+   *
+   * @param retention The tombstone retention in entries.
+   * @return The map configuration.
+   * @throws java.lang.IllegalArgumentException If the retention is negative
+   */
+  public AsyncMapConfig withTombstoneRetention(long retention) {
+    setTombstoneRetention(retention);
+    return this;
+  }
+
   @Override
   public CoordinatedResourceConfig resolve(ClusterConfig cluster) {
     return new StateLogConfig(toMap())
@@ -16,6 +16,7 @@
 package net.kuujo.copycat.collections.internal.map;
 
 import net.kuujo.copycat.state.Command;
+import net.kuujo.copycat.state.Compaction;
 import net.kuujo.copycat.state.Initializer;
 import net.kuujo.copycat.state.Query;
 import net.kuujo.copycat.state.StateContext;
@@ -62,11 +63,11 @@ public interface MapState<K, V> extends Map<K, V> {
   V get(Object key);
 
   @Override
-  @Command
+  @Command(key = 0, compaction = Compaction.OVERWRITE)
   V put(K key, V value);
 
   @Override
-  @Command
+  @Command(key = 0, compaction = Compaction.TOMBSTONE)
   V remove(Object key);
 
   @Override
@@ -98,35 +99,35 @@ public interface MapState<K, V> extends Map<K, V> {
   void replaceAll(BiFunction<? super K, ? super V, ? extends V> function);
 
   @Override
-  @Command
+  @Command(key = 0, compaction = Compaction.UPDATE)
   V putIfAbsent(K key, V value);
 
   @Override
-  @Command
+  @Command(key = 0, compaction = Compaction.UPDATE)
   boolean remove(Object key, Object value);
 
   @Override
-  @Command
+  @Command(key = 0, compaction = Compaction.UPDATE)
   boolean replace(K key, V oldValue, V newValue);
 
   @Override
-  @Command
+  @Command(key = 0, compaction = Compaction.UPDATE)
   V replace(K key, V value);
 
   @Override
-  @Command
+  @Command(key = 0, compaction = Compaction.UPDATE)
   V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction);
 
   @Override
-  @Command
+  @Command(key = 0, compaction = Compaction.UPDATE)
   V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction);
 
   @Override
-  @Command
+  @Command(key = 0, compaction = Compaction.UPDATE)
   V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction);
 
   @Override
-  @Command
+  @Command(key = 0, compaction = Compaction.UPDATE)
   V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction);
 
 }
@@ -42,9 +42,17 @@ public class CoordinatedResourceConfig extends AbstractConfigurable {
   private static final String RESOURCE_TYPE = "type";
   private static final String RESOURCE_ELECTION_TIMEOUT = "election.timeout";
   private static final String RESOURCE_HEARTBEAT_INTERVAL = "heartbeat.interval";
+  private static final String RESOURCE_REPLICATION_WINDOW = "replication.window";
+  private static final String RESOURCE_COMMIT_BATCH_SIZE = "commit.batch.size";
+  private static final String RESOURCE_COMMIT_LINGER = "commit.linger";
+  private static final String RESOURCE_LEASE_CLOCK_DRIFT = "lease.clock-drift";
   private static final String RESOURCE_REPLICAS = "replicas";
   private static final String RESOURCE_LOG = "log";
   private static final String RESOURCE_SERIALIZER = "serializer";
+  private static final int DEFAULT_REPLICATION_WINDOW = 4;
+  private static final int DEFAULT_COMMIT_BATCH_SIZE = 1024;
+  private static final long DEFAULT_COMMIT_LINGER = 0;
+  private static final long DEFAULT_LEASE_CLOCK_DRIFT = 50;
 
   private Serializer defaultSerializer = new KryoSerializer();
   private Executor defaultExecutor;
@@ -249,6 +257,130 @@ public class CoordinatedResourceConfig extends AbstractConfigurable {
     return this;
   }
 
+  /**
+   * Sets the resource replication window.
+   *
+   * @param window The maximum number of in-flight append requests per replica.
+   * @throws java.lang.IllegalArgumentException If the replication window is not positive
+   */
+  public void setReplicationWindow(int window) {
+    this.config = config.withValue(RESOURCE_REPLICATION_WINDOW, ConfigValueFactory.fromAnyRef(Assert.arg(window, window > 0, "replication window must be positive")));
+  }
+
+  /**
+   * Returns the resource replication window.
+   *
+   * @return The maximum number of in-flight append requests per replica.
+   */
+  public int getReplicationWindow() {
+    return config.hasPath(RESOURCE_REPLICATION_WINDOW) ? config.getInt(RESOURCE_REPLICATION_WINDOW) : DEFAULT_REPLICATION_WINDOW;
+  }
+
+  /**
+   * Sets the resource replication window, returning the resource configuration for method chaining.
+   *
+   * @param window The maximum number of in-flight append requests per replica.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the replication window is not positive
+   */
+  public CoordinatedResourceConfig withReplicationWindow(int window) {
+    setReplicationWindow(window);
+    return this;
+  }
+
+  /**
+   * Sets the resource commit batch size.
+   *
+   * @param batchSize The maximum number of commits in a batch.
+   * @throws java.lang.IllegalArgumentException If the batch size is not positive
+   */
+  public void setCommitBatchSize(int batchSize) {
+    this.config = config.withValue(RESOURCE_COMMIT_BATCH_SIZE, ConfigValueFactory.fromAnyRef(Assert.arg(batchSize, batchSize > 0, "batch size must be positive")));
+  }
+
+  /**
+   * Returns the resource commit batch size.
+   *
+   * @return The maximum number of commits in a batch.
+   */
+  public int getCommitBatchSize() {
+    return config.hasPath(RESOURCE_COMMIT_BATCH_SIZE) ? config.getInt(RESOURCE_COMMIT_BATCH_SIZE) : DEFAULT_COMMIT_BATCH_SIZE;
+  }
+
+  /**
+   * Sets the resource commit batch size, returning the resource configuration for method chaining.
+   *
+   * @param batchSize The maximum number of commits in a batch.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the batch size is not positive
+   */
+  public CoordinatedResourceConfig withCommitBatchSize(int batchSize) {
+    setCommitBatchSize(batchSize);
+    return this;
+  }
+
+  /**
+   * Sets the resource commit linger time.
+   *
+   * @param linger The commit linger time in microseconds.
+   * @throws java.lang.IllegalArgumentException If the linger time is negative
+   */
+  public void setCommitLinger(long linger) {
+    this.config = config.withValue(RESOURCE_COMMIT_LINGER, ConfigValueFactory.fromAnyRef(Assert.arg(linger, linger >= 0, "linger must not be negative")));
+  }
+
+  /**
+   * Returns the resource commit linger time.
+   *
+   * @return The commit linger time in microseconds.
+   */
+  public long getCommitLinger() {
+    return config.hasPath(RESOURCE_COMMIT_LINGER) ? config.getLong(RESOURCE_COMMIT_LINGER) : DEFAULT_COMMIT_LINGER;
+  }
+
+  /**
+   * Sets the resource commit linger time, returning the resource configuration for method chaining.
+   *
+   * @param linger The commit linger time in microseconds.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the linger time is negative
+   */
+  public CoordinatedResourceConfig withCommitLinger(long linger) {
+    setCommitLinger(linger);
+    return this;
+  }
+
+  /**
+   * Sets the resource lease clock drift.
+   *
+   * @param clockDrift The lease clock drift in milliseconds.
+   * @throws java.lang.IllegalArgumentException If the clock drift is negative
+   */
+  public void setLeaseClockDrift(long clockDrift) {
+    this.config = config.withValue(RESOURCE_LEASE_CLOCK_DRIFT, ConfigValueFactory.fromAnyRef(Assert.arg(clockDrift, clockDrift >= 0, "clock drift must not be negative")));
+  }
+
+  /**
+   * Returns the resource lease clock drift.
+   *
+   * @return The lease clock drift in milliseconds.
+   */
+  public long getLeaseClockDrift() {
+    return config.hasPath(RESOURCE_LEASE_CLOCK_DRIFT) ? config.getLong(RESOURCE_LEASE_CLOCK_DRIFT) : DEFAULT_LEASE_CLOCK_DRIFT;
+  }
+
+  /**
+   * Sets the resource lease clock drift, returning the resource configuration for method chaining.
+   *
+   * @param clockDrift The lease clock drift in milliseconds.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the clock drift is negative
+   */
+  public CoordinatedResourceConfig withLeaseClockDrift(long clockDrift) {
+    setLeaseClockDrift(clockDrift);
+    return this;
+  }
+
   /**
    * Sets the set of replicas for the resource.
    *
@@ -250,8 +250,12 @@ public class DefaultClusterCoordinator implements ClusterCoordinator {
    * Resource router.
    */
   private static class ResourceRouter implements Router {
-    private static final int PROTOCOL_ID = 1;
-    private final Serializer serializer = new KryoSerializer();
+    // Version 1 of the protocol serialized log entries with Kryo's field serializer, which can't serialize direct or
+    // memory mapped buffers and can't access the fields of heap buffers on Java 9 and later. Version 2 serializes log
+    // entries by content. The formats are incompatible, so the protocol ID identifies the version, and requests from
+    // members that use a different version fail because no handler is registered for them.
+    private static final int PROTOCOL_ID = 2;
+    private final Serializer serializer = new KryoSerializer().withSerializeBuffers(true);
     private final Executor executor;
 
     private ResourceRouter(Executor executor) {
@@ -15,32 +15,81 @@
  */
 package net.kuujo.copycat.log;
 
+import net.kuujo.copycat.util.concurrent.NamedThreadFactory;
 import net.kuujo.copycat.util.internal.Assert;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
 
 /**
  * Abstract log. Not threadsafe.
  *
+ * When group commits are enabled, flushes requested via {@link #flush(long)} are performed on a background thread.
+ * Entries may be appended to the current segment while the segment is being flushed, so segments must support
+ * flushing concurrently with writes.
+ *
+ * When the log is opened, existing segments are opened in parallel.
+ *
+ * Sealed segments can be rewritten via {@link #rewrite(long, java.util.function.BiFunction)}. Rewritten segments are
+ * assigned new ids, so segment ids are unique but do not necessarily increase with segment indexes. Ids are never
+ * reused while the log is open, even once the segments to which they were assigned are removed. To rewrite segments
+ * in the background, {@link #rewriteSegment(LogSegment, java.util.function.BiFunction)} may be called on any thread,
+ * and the rewritten segment is then swapped in via {@link #replaceSegment(LogSegment, LogSegment)}.
+ *
+ * Segments that are removed from the head of the log by compaction or rewritten are closed and deleted in the
+ * background by the log's {@link SegmentJanitor} to avoid blocking the thread on which the log is written.
+ *
+ * The term of each entry is indexed by a run-length {@link TermIndex} as entries are appended, so terms can be looked
+ * up via {@link #getTerm(long)} without reading entries. Rewriters must preserve the terms of rewritten entries.
+ *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public abstract class AbstractLogManager extends AbstractLoggable implements LogManager {
   private final Logger LOGGER = LoggerFactory.getLogger(getClass());
   private Log config;
+  private final int segmentSize;
+  private final long segmentInterval;
+  private final boolean flushOnWrite;
+  private final long flushInterval;
+  private final boolean groupCommit;
+  private final LogCache cache;
+  private final SegmentJanitor janitor = new SegmentJanitor();
+  private TermIndex terms;
   protected final TreeMap<Long, LogSegment> segments = new TreeMap<>();
-  protected LogSegment currentSegment;
-  private long nextSegmentId;
+  protected volatile LogSegment currentSegment;
+  private final AtomicLong nextSegmentId = new AtomicLong();
   private long lastFlush;
+  private final Object flushLock = new Object();
+  private ExecutorService flushExecutor;
+  private CompletableFuture<Void> nextFlushFuture;
+  private boolean flushing;
 
   protected AbstractLogManager(Log config) {
     this.config = config.copy();
+    // Configuration values are read on every write to the log, so cache them rather than querying the configuration.
+    this.segmentSize = this.config.getSegmentSize();
+    this.segmentInterval = this.config.getSegmentInterval();
+    this.flushOnWrite = this.config.isFlushOnWrite();
+    this.flushInterval = this.config.getFlushInterval();
+    this.groupCommit = this.config.isGroupCommit();
+    this.cache = this.config.getCacheSize() > 0 ? new LogCache(this.config.getCacheSize()) : null;
   }
 
   @Override
@@ -48,6 +97,24 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
     return config;
   }
 
+  /**
+   * Returns the log entry cache.
+   *
+   * @return The log entry cache or {@code null} if the cache is disabled.
+   */
+  public LogCache cache() {
+    return cache;
+  }
+
+  /**
+   * Returns the log segment janitor.
+   *
+   * @return The janitor which closes and deletes segments removed from the log.
+   */
+  public SegmentJanitor janitor() {
+    return janitor;
+  }
+
   /**
    * Loads all log segments.
    *
@@ -64,13 +131,44 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
    */
   protected abstract LogSegment createSegment(long segmentId, long firstIndex);
 
+  /**
+   * Returns the number of bytes segments store with each entry in addition to the entry itself.
+   *
+   * @return The size of each entry's header in bytes.
+   */
+  protected int entryHeaderSize() {
+    return 0;
+  }
+
+  /**
+   * Creates the log's term index.
+   *
+   * By default, the term index is held in memory and rebuilt from the log's entries each time the log is opened.
+   *
+   * @return The log's term index.
+   */
+  TermIndex createTermIndex() {
+    return new TermIndex();
+  }
+
   /**
    * Deletes a log segment.
    *
+   * The segment is removed from the log and retired to the segment janitor to be closed and deleted in the background.
+   *
    * @param firstIndex The first index of the segment to delete
    */
   protected void deleteSegment(long firstIndex) {
-    segments.remove(firstIndex);
+    LogSegment segment = segments.remove(firstIndex);
+    if (segment != null) {
+      if (cache != null) {
+        cache.remove(firstIndex, segment.lastIndex() != null ? segment.lastIndex() : firstIndex);
+      }
+      janitor.retire(segment);
+      if (!segments.isEmpty()) {
+        terms.compact(segments.firstKey());
+      }
+    }
   }
 
   /**
@@ -127,9 +225,20 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
     assertIsNotOpen();
 
     // Load existing log segments from disk.
-    for (LogSegment segment : loadSegments()) {
-      segment.open();
-      segments.put(segment.firstIndex(), segment);
+    Collection<LogSegment> loadedSegments = loadSegments();
+    openSegments(loadedSegments);
+    for (LogSegment segment : loadedSegments) {
+      nextSegmentId.accumulateAndGet(segment.id(), Math::max);
+      long index = startIndex(segment);
+      LogSegment existingSegment = segments.get(index);
+      if (existingSegment != null) {
+        LogSegment resolvedSegment = resolveSegments(existingSegment, segment);
+        LogSegment discardedSegment = resolvedSegment == segment ? existingSegment : segment;
+        discardedSegment.close();
+        discardedSegment.delete();
+        segment = resolvedSegment;
+      }
+      segments.put(index, segment);
     }
 
     // If a segment doesn't already exist, create an initial segment starting at index 1.
@@ -140,6 +249,105 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
     }
 
     clean();
+    loadTerms();
+  }
+
+  /**
+   * Loads the log's term index, rebuilding the index from the log's entries if it could not be loaded.
+   *
+   * Runs are recorded after entries are appended, so a crash may leave entries at the end of the log without a run.
+   * Terms only increase through the log, so the index is missing a run if the term of the last entry doesn't match.
+   */
+  private void loadTerms() throws IOException {
+    terms = createTermIndex();
+    Long lastIndex = lastIndex();
+    if (!terms.load(firstIndex(), lastIndex) || (lastIndex != null && terms.lookup(lastIndex) != TermIndex.term(lastSegment().getEntry(lastIndex)))) {
+      terms.delete();
+      for (LogSegment segment : segments.values()) {
+        Long segmentLastIndex = segment.lastIndex();
+        if (segmentLastIndex != null) {
+          for (long index = segment.firstIndex(); index <= segmentLastIndex; index++) {
+            ByteBuffer entry = segment.getEntry(index);
+            if (entry != null) {
+              terms.put(index, entry);
+            }
+          }
+        }
+      }
+      terms.save();
+    }
+  }
+
+  /**
+   * Opens the given segments, opening segments in parallel if there are multiple segments to open.
+   */
+  private void openSegments(Collection<LogSegment> segments) throws IOException {
+    if (segments.size() <= 1) {
+      for (LogSegment segment : segments) {
+        segment.open();
+      }
+      return;
+    }
+
+    int threads = Math.min(segments.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new NamedThreadFactory("copycat-log-loader-%d"));
+    try {
+      List<Future<?>> futures = new ArrayList<>(segments.size());
+      for (LogSegment segment : segments) {
+        futures.add(executor.submit(() -> {
+          segment.open();
+          return null;
+        }));
+      }
+
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while opening segments");
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+          } else if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+          }
+          throw new LogException(e.getCause(), "Failed to open segment");
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Returns the index at which the given segment starts.
+   *
+   * Empty segments have no first index, so empty segments are keyed by the index of the first entry to be appended to
+   * the segment.
+   */
+  private static long startIndex(LogSegment segment) {
+    Long firstIndex = segment.firstIndex();
+    if (firstIndex != null) {
+      return firstIndex;
+    } else if (segment instanceof AbstractLogSegment) {
+      return ((AbstractLogSegment) segment).firstIndex;
+    }
+    throw new LogException("Cannot determine the first index of empty segment %d", segment.id());
+  }
+
+  /**
+   * Resolves two segments that start at the same index.
+   *
+   * Segments are rewritten to a new segment with a greater id which replaces the original segment, so if the log
+   * crashed while rewriting a segment both segments may exist. The rewritten segment is used only if it was written in
+   * full, otherwise the original segment is used.
+   */
+  private static LogSegment resolveSegments(LogSegment a, LogSegment b) {
+    LogSegment original = a.id() < b.id() ? a : b;
+    LogSegment rewritten = original == a ? b : a;
+    Long lastIndex = original.lastIndex();
+    return lastIndex == null || (rewritten.lastIndex() != null && rewritten.lastIndex() >= lastIndex) ? rewritten : original;
   }
 
   /**
@@ -150,13 +358,15 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
    * each segment agree with other segments in the log. If not, remove all segments that appear prior to any index gap.
    */
   private void clean() throws IOException {
+    Long firstIndex = null;
     Long lastIndex = null;
     Long compactIndex = null;
-    for (LogSegment segment : segments.values()) {
-      if (lastIndex == null || segment.firstIndex() > lastIndex + 1) {
-        compactIndex = segment.firstIndex();
+    for (Map.Entry<Long, LogSegment> entry : segments.entrySet()) {
+      if (lastIndex != null && entry.getKey() > lastIndex + 1) {
+        compactIndex = firstIndex;
       }
-      lastIndex = segment.lastIndex();
+      firstIndex = entry.getKey();
+      lastIndex = entry.getValue().lastIndex() != null ? entry.getValue().lastIndex() : entry.getKey() - 1;
     }
 
     if (compactIndex != null) {
@@ -192,7 +402,53 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
   public long appendEntry(ByteBuffer entry) throws IOException {
     assertIsOpen();
     checkRollOver();
-    return currentSegment.appendEntry(entry);
+    long index = currentSegment.appendEntry(entry);
+    terms.index(index, entry);
+    if (cache != null) {
+      cache.putEntry(index, entry);
+    }
+    return index;
+  }
+
+  @Override
+  public List<Long> appendEntries(List<ByteBuffer> entries) throws IOException {
+    Assert.isNotNull(entries, "entries");
+    assertIsOpen();
+    List<Long> indexes = new ArrayList<>(entries.size());
+    int offset = 0;
+    while (offset < entries.size()) {
+      checkRollOver();
+
+      // Append as many entries as can be written to the current segment before the segment must be rolled over.
+      long size = currentSegment.size() + entryHeaderSize() + entries.get(offset).limit();
+      int count = 1;
+      while (offset + count < entries.size() && size < segmentSize) {
+        size += entryHeaderSize() + entries.get(offset + count).limit();
+        count++;
+      }
+
+      List<ByteBuffer> batch = entries.subList(offset, offset + count);
+      List<Long> batchIndexes = currentSegment.appendEntries(batch);
+      for (int i = 0; i < batch.size(); i++) {
+        terms.index(batchIndexes.get(i), batch.get(i));
+      }
+      if (cache != null) {
+        for (int i = 0; i < batch.size(); i++) {
+          cache.putEntry(batchIndexes.get(i), batch.get(i));
+        }
+      }
+      indexes.addAll(batchIndexes);
+      offset += count;
+    }
+    return indexes;
+  }
+
+  /**
+   * Returns the index of the next entry to be appended to the current segment.
+   */
+  private long nextIndex() {
+    Long lastIndex = currentSegment.lastIndex();
+    return lastIndex != null ? lastIndex + 1 : startIndex(currentSegment);
   }
 
   @Override
@@ -218,30 +474,55 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
   }
 
   /**
-   * Returns the entry for the {@code index} by checking the current segment first, then looking up
+   * Returns the entry for the {@code index} by checking the entry cache and the current segment first, then looking up
    * the correct segment.
    */
   @Override
   @SuppressWarnings("resource")
   public ByteBuffer getEntry(long index) {
     assertIsOpen();
+    if (cache != null) {
+      ByteBuffer entry = cache.getEntry(index);
+      if (entry != null) {
+        return entry;
+      }
+    }
+
     LogSegment segment = currentSegment.containsIndex(index) ? currentSegment : segment(index);
-    return segment.getEntry(index);
+    ByteBuffer entry = segment.getEntry(index);
+    if (cache != null && entry != null) {
+      cache.putEntry(index, entry);
+    }
+    return entry;
+  }
+
+  @Override
+  public long getTerm(long index) {
+    assertIsOpen();
+    Assert.index(index, containsIndex(index), "Invalid log index %d", index);
+    return terms.lookup(index);
   }
 
   @Override
   public void removeAfter(long index) {
     assertIsOpen();
     assertContainsIndex(index + 1);
+    if (cache != null) {
+      cache.removeAfter(index);
+    }
     Long segmentIndex = segments.floorKey(index < 1 ? 1 : index);
     // Segments to inspect for removal
     Collection<LogSegment> removalSegments = segments.tailMap(segmentIndex).values();
     for (Iterator<LogSegment> i = removalSegments.iterator(); i.hasNext();) {
       LogSegment segment = i.next();
       if (index < segment.firstIndex()) {
+        try {
+          segment.close();
+        } catch (IOException e) {
+          throw new LogException(e, "Failed to close segment");
+        }
         segment.delete();
         i.remove();
-        nextSegmentId--;
       } else {
         segment.removeAfter(index);
       }
@@ -257,13 +538,25 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
         throw new LogException(e, "Failed to open new segment");
       }
     }
+
+    // Record the truncation in the term index once entries have been removed from the log. If the log fails before the
+    // truncation is recorded, runs that extend beyond the end of the log are removed when the index is loaded.
+    try {
+      terms.truncate(index);
+    } catch (IOException e) {
+      throw new LogException(e, "Failed to truncate term index");
+    }
   }
 
   @Override
   public void rollOver(long index) throws IOException {
+    if (cache != null) {
+      cache.removeAfter(index - 1);
+    }
+
     // If the current segment is empty then just remove it.
     if (currentSegment.isEmpty()) {
-      segments.remove(currentSegment.firstIndex());
+      segments.remove(startIndex(currentSegment));
       currentSegment.close();
       currentSegment.delete();
       currentSegment = null;
@@ -271,7 +564,7 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
       currentSegment.flush();
     }
 
-    currentSegment = createSegment(++nextSegmentId, index);
+    currentSegment = createSegment(nextSegmentId.incrementAndGet(), index);
     LOGGER.debug("Rolling over to new segment at new index {}", index);
 
     // Open the new segment.
@@ -285,49 +578,212 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
 
   @Override
   public void compact(long index) throws IOException {
-    Assert.index(index, index >= firstIndex() && index <= lastIndex(), "%s is invalid for the log", index);
+    Long lastIndex = lastIndex();
+    Assert.index(index, index >= segments.firstKey() && index <= (lastIndex != null ? lastIndex : segments.lastKey()), "%s is invalid for the log", index);
     Assert.arg(index, segments.containsKey(index), "%s must be the first index of a segment", index);
-    Assert.arg(index, index != lastSegment().firstIndex(), "%s the last segment cannot be compacted", index);
+    Assert.arg(index, index != segments.lastKey(), "%s the last segment cannot be compacted", index);
     
     // Iterate through all segments in the log. If a segment's first index matches the given index or its last index
     // is less than the given index then remove/close/delete the segment.
     for (Iterator<Map.Entry<Long, LogSegment>> iterator = segments.entrySet().iterator(); iterator.hasNext();) {
       Map.Entry<Long, LogSegment> entry = iterator.next();
       LogSegment segment = entry.getValue();
-      boolean matchesSegment = index == segment.firstIndex();
+      boolean matchesSegment = index == entry.getKey();
       if (matchesSegment || (segment.lastIndex() != null && index > segment.lastIndex())) {
         iterator.remove();
-        try {
-          segment.close();
-          segment.delete();
-        } catch (IOException e) {
-        }
-        
+        janitor.retire(segment);
+
         if (matchesSegment)
           break;
       }
     }
+
+    if (cache != null) {
+      cache.removeBefore(segments.firstKey());
+    }
+    terms.compact(segments.firstKey());
+  }
+
+  @Override
+  public void removeSegment(long index) {
+    assertIsOpen();
+    Assert.arg(index, segments.containsKey(index), "%s must be the first index of a segment", index);
+    Assert.arg(index, index != segments.lastKey(), "%s the last segment cannot be removed", index);
+    deleteSegment(index);
+  }
+
+  @Override
+  public boolean tierSegment(long index) {
+    assertIsOpen();
+    Assert.arg(index, segments.containsKey(index), "%s must be the first index of a segment", index);
+    Assert.arg(index, index != segments.lastKey(), "%s the last segment cannot be moved", index);
+    return false;
+  }
+
+  @Override
+  public void rewrite(long index, BiFunction<Long, ByteBuffer, ByteBuffer> rewriter) throws IOException {
+    assertIsOpen();
+    Assert.isNotNull(rewriter, "rewriter");
+    Assert.arg(index, segments.containsKey(index), "%s must be the first index of a segment", index);
+    Assert.arg(index, index != segments.lastKey(), "%s the last segment cannot be rewritten", index);
+    LogSegment segment = segments.get(index);
+    if (!segment.isEmpty()) {
+      replaceSegment(segment, rewriteSegment(segment, rewriter));
+    }
+  }
+
+  @Override
+  public LogSegment rewriteSegment(LogSegment segment, BiFunction<Long, ByteBuffer, ByteBuffer> rewriter) throws IOException {
+    Assert.isNotNull(segment, "segment");
+    Assert.isNotNull(rewriter, "rewriter");
+    Long index = segment.firstIndex();
+    Assert.arg(segment, index != null, "%s is empty", segment);
+
+    // Write the rewritten entries to a new segment and flush the segment before replacing the existing segment. If the
+    // log crashes before the existing segment is deleted, the complete rewritten segment replaces it on startup.
+    long lastIndex = segment.lastIndex();
+    LogSegment rewrittenSegment = createSegment(nextSegmentId.incrementAndGet(), index);
+    try {
+      rewrittenSegment.open();
+      for (long i = index; i <= lastIndex; i++) {
+        ByteBuffer entry = segment.getEntry(i);
+        ByteBuffer rewrittenEntry = rewriter.apply(i, entry);
+        rewrittenSegment.appendEntry(rewrittenEntry != null ? rewrittenEntry : entry);
+      }
+      rewrittenSegment.flush();
+    } catch (IOException | RuntimeException e) {
+      try {
+        rewrittenSegment.close();
+      } catch (IOException ignore) {
+      }
+      rewrittenSegment.delete();
+      throw e;
+    }
+    return rewrittenSegment;
+  }
+
+  @Override
+  public boolean replaceSegment(LogSegment segment, LogSegment rewrittenSegment) throws IOException {
+    assertIsOpen();
+    Assert.isNotNull(segment, "segment");
+    Assert.isNotNull(rewrittenSegment, "rewrittenSegment");
+    Long index = segment.isOpen() ? segment.firstIndex() : null;
+    if (index == null || segments.get(index) != segment || segment == currentSegment
+      || !Objects.equals(segment.lastIndex(), rewrittenSegment.lastIndex())) {
+      janitor.retire(rewrittenSegment);
+      LOGGER.debug("Discarded rewritten segment {}", rewrittenSegment.id());
+      return false;
+    }
+
+    segments.put(index, rewrittenSegment);
+    janitor.retire(segment);
+    if (cache != null) {
+      cache.remove(index, rewrittenSegment.lastIndex());
+    }
+    LOGGER.debug("Rewrote segment {} to segment {}", segment.id(), rewrittenSegment.id());
+    return true;
   }
 
   @Override
   public void flush() {
+    flush(flushOnWrite);
+  }
+
+  @Override
+  public void flush(boolean force) {
     assertIsOpen();
-    // Only flush the current segment is flush-on-write is enabled or the flush timeout has passed since the last flush.
+    // Only flush the current segment if the flush is forced or the flush interval has passed since the last flush.
     // Flushes will be attempted each time the algorithm is done writing entries to the log.
-    if (config.isFlushOnWrite()) {
-      currentSegment.flush();
-    } else if (System.currentTimeMillis() - lastFlush > config.getFlushInterval()) {
+    if (force || System.currentTimeMillis() - lastFlush > flushInterval) {
       currentSegment.flush();
       lastFlush = System.currentTimeMillis();
     }
   }
 
+  @Override
+  public CompletableFuture<Long> flush(long index) {
+    return flush(index, flushOnWrite);
+  }
+
+  @Override
+  public CompletableFuture<Long> flush(long index, boolean force) {
+    assertIsOpen();
+    if (!force || !groupCommit) {
+      flush(force);
+      return CompletableFuture.completedFuture(index);
+    }
+
+    // If a flush is already in progress, the entry will be flushed along with all other entries appended during the
+    // flush once the in progress flush completes.
+    synchronized (flushLock) {
+      if (nextFlushFuture == null) {
+        nextFlushFuture = new CompletableFuture<>();
+      }
+      CompletableFuture<Long> future = nextFlushFuture.thenApply(v -> index);
+      if (!flushing) {
+        groupFlush();
+      }
+      return future;
+    }
+  }
+
+  /**
+   * Flushes the current segment in the background, completing all flushes requested prior to the group flush.
+   */
+  private void groupFlush() {
+    CompletableFuture<Void> future = nextFlushFuture;
+    nextFlushFuture = null;
+    flushing = true;
+    if (flushExecutor == null) {
+      flushExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("copycat-log-flush-%d"));
+    }
+
+    flushExecutor.execute(() -> {
+      // Segments prior to the current segment are flushed when the log is rolled over, so only the current segment
+      // needs to be flushed in order to flush all entries appended prior to the group flush.
+      try {
+        LogSegment segment = currentSegment;
+        if (segment != null) {
+          segment.flush();
+        }
+        future.complete(null);
+      } catch (Exception e) {
+        future.completeExceptionally(e);
+      }
+
+      synchronized (flushLock) {
+        flushing = false;
+        if (nextFlushFuture != null) {
+          groupFlush();
+        }
+      }
+    });
+  }
+
   @Override
   public synchronized void close() throws IOException {
+    synchronized (flushLock) {
+      if (nextFlushFuture != null) {
+        nextFlushFuture.completeExceptionally(new LogException("Log closed"));
+        nextFlushFuture = null;
+      }
+      if (flushExecutor != null) {
+        flushExecutor.shutdown();
+        flushExecutor = null;
+      }
+    }
+
     for (LogSegment segment : segments.values())
       segment.close();
     segments.clear();
     currentSegment = null;
+    if (cache != null) {
+      cache.clear();
+    }
+    janitor.close();
+    if (terms != null) {
+      terms.close();
+    }
   }
 
   @Override
@@ -337,9 +793,17 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
 
   @Override
   public void delete() {
+    janitor.close();
     for (LogSegment segment : segments.values())
       segment.delete();
     segments.clear();
+    if (cache != null) {
+      cache.clear();
+    }
+    if (terms == null) {
+      terms = createTermIndex();
+    }
+    terms.delete();
   }
 
   @Override
@@ -353,7 +817,7 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
    * @throws IOException If the segment could not be opened.
    */
   private void createInitialSegment() throws IOException {
-    currentSegment = createSegment(++nextSegmentId, 1);
+    currentSegment = createSegment(nextSegmentId.incrementAndGet(), 1);
     currentSegment.open();
     segments.put(Long.valueOf(1), currentSegment);
   }
@@ -368,11 +832,10 @@ public abstract class AbstractLogManager extends AbstractLoggable implements Log
     if (lastIndex == null)
       return;
 
-    boolean segmentSizeExceeded = currentSegment.size() >= config.getSegmentSize();
-    boolean segmentExpired = config.getSegmentInterval() < Long.MAX_VALUE
-      && System.currentTimeMillis() > currentSegment.timestamp() + config.getSegmentInterval();
-
-    if (segmentSizeExceeded || segmentExpired) {
+    // Only check the segment timestamp if a segment interval is configured in order to avoid querying the system clock
+    // on every write to the log.
+    if (currentSegment.size() >= segmentSize
+      || (segmentInterval < Long.MAX_VALUE && System.currentTimeMillis() > currentSegment.timestamp() + segmentInterval)) {
       rollOver(lastIndex + 1);
     }
   }
@@ -1,6 +1,9 @@
 package net.kuujo.copycat.log;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 
 /**
  * Base LogSegment implementation.
@@ -26,6 +29,38 @@ public abstract class AbstractLogSegment extends AbstractLoggable implements Log
     return id;
   }
 
+  /**
+   * Reads a range of entries by copying each entry into the given buffer.
+   */
+  @Override
+  public List<ByteBuffer> readEntries(long fromIndex, long toIndex, ByteBuffer buffer) {
+    assertIsOpen();
+    assertContainsIndex(fromIndex);
+    List<ByteBuffer> entries = new ArrayList<>();
+    buffer.clear();
+    for (long index = fromIndex; index <= toIndex && containsIndex(index); index++) {
+      ByteBuffer entry = getEntry(index).duplicate();
+      entry.rewind();
+      if (entry.remaining() > buffer.remaining()) {
+        break;
+      }
+      int position = buffer.position();
+      buffer.put(entry);
+      entries.add(slice(buffer, position, buffer.position()));
+    }
+    return entries;
+  }
+
+  /**
+   * Returns a view of the given range of the given buffer.
+   */
+  protected static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+    ByteBuffer slice = buffer.duplicate();
+    slice.limit(end);
+    slice.position(start);
+    return slice.slice();
+  }
+
   @Override
   public String toString() {
     return String.format("%s..%s", firstIndex(), lastIndex());
@@ -18,18 +18,31 @@ package net.kuujo.copycat.log;
 import net.kuujo.copycat.util.internal.Assert;
 
 import java.nio.ByteBuffer;
-import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * In-memory log segment.
  *
+ * Entries are copied into slabs of direct memory, and the location of each entry is stored in primitive arrays indexed
+ * by the entry's offset in the segment. This allows in-memory logs to hold large numbers of entries without creating
+ * objects per entry, and entries are located in constant time. Slabs start small and double in size up to
+ * {@link #MAX_SLAB_SIZE} as the segment grows. Entries are returned as read-only views of the slabs.
+ *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class BufferedLogSegment extends AbstractLogSegment {
+  static final int INITIAL_SLAB_SIZE = 4 * 1024;
+  static final int MAX_SLAB_SIZE = 1024 * 1024;
+  private static final int INITIAL_CAPACITY = 64;
   private final BufferedLogManager parent;
   private long timestamp;
-  private TreeMap<Long, ByteBuffer> log;
-  private int size;
+  private List<ByteBuffer> slabs;
+  private long[] positions;
+  private int[] lengths;
+  private int entries;
+  private long size;
 
   BufferedLogSegment(BufferedLogManager parent, long id, long firstIndex) {
     super(id, firstIndex);
@@ -49,8 +62,11 @@ public class BufferedLogSegment extends AbstractLogSegment {
   @Override
   public void open() {
     assertIsNotOpen();
-    if (log == null) {
-      log = new TreeMap<>();
+    if (slabs == null) {
+      slabs = new ArrayList<>();
+      positions = new long[INITIAL_CAPACITY];
+      lengths = new int[INITIAL_CAPACITY];
+      entries = 0;
       size = 0;
       timestamp = System.currentTimeMillis();
     }
@@ -58,12 +74,12 @@ public class BufferedLogSegment extends AbstractLogSegment {
 
   @Override
   public boolean isOpen() {
-    return log != null;
+    return slabs != null;
   }
   
   @Override
   public boolean isEmpty() {
-    return log == null || log.isEmpty();
+    return slabs == null || entries == 0;
   }
 
   @Override
@@ -75,60 +91,140 @@ public class BufferedLogSegment extends AbstractLogSegment {
   @Override
   public long entryCount() {
     assertIsOpen();
-    return log.size();
+    return entries;
   }
 
   @Override
   public long appendEntry(ByteBuffer entry) {
     Assert.isNotNull(entry, "entry");
     assertIsOpen();
-    long index = log.isEmpty() ? firstIndex : log.lastKey() + 1;
-    log.put(index, entry);
-    size += entry.limit();
-    return index;
+    return putEntry(entry);
+  }
+
+  @Override
+  public List<Long> appendEntries(List<ByteBuffer> entries) {
+    Assert.isNotNull(entries, "entries");
+    assertIsOpen();
+    List<Long> indexes = new ArrayList<>(entries.size());
+    for (ByteBuffer entry : entries) {
+      Assert.isNotNull(entry, "entry");
+      indexes.add(putEntry(entry));
+    }
+    return indexes;
+  }
+
+  /**
+   * Copies an entry into the current slab, allocating a new slab if the entry doesn't fit in the current slab.
+   */
+  private long putEntry(ByteBuffer entry) {
+    if (entries == positions.length) {
+      positions = Arrays.copyOf(positions, entries * 2);
+      lengths = Arrays.copyOf(lengths, entries * 2);
+    }
+
+    ByteBuffer source = entry.duplicate();
+    source.rewind();
+    int length = source.limit();
+    ByteBuffer slab = slabs.isEmpty() ? null : slabs.get(slabs.size() - 1);
+    if (slab == null || slab.remaining() < length) {
+      int slabSize = slab == null ? INITIAL_SLAB_SIZE : Math.min(slab.capacity() * 2, MAX_SLAB_SIZE);
+      slab = ByteBuffer.allocateDirect(Math.max(slabSize, length));
+      slabs.add(slab);
+    }
+
+    positions[entries] = (long) (slabs.size() - 1) << 32 | slab.position();
+    lengths[entries] = length;
+    slab.put(source);
+    size += length;
+    return firstIndex + entries++;
   }
 
   @Override
   public Long firstIndex() {
     assertIsOpen();
-    return !log.isEmpty() ? log.firstKey() : null;
+    return entries > 0 ? firstIndex : null;
   }
 
   @Override
   public Long lastIndex() {
     assertIsOpen();
-    return !log.isEmpty() ? log.lastKey() : null;
+    return entries > 0 ? firstIndex + entries - 1 : null;
   }
 
   @Override
   public boolean containsIndex(long index) {
     assertIsOpen();
-    return log.containsKey(index);
+    return index >= firstIndex && index < firstIndex + entries;
   }
 
   @Override
   public ByteBuffer getEntry(long index) {
     assertIsOpen();
     assertContainsIndex(index);
-    ByteBuffer buffer = log.get(index);
-    buffer.rewind();
-    return buffer;
+    return entry((int) (index - firstIndex));
+  }
+
+  /**
+   * Returns a read-only view of the entry at the given offset in the segment.
+   */
+  private ByteBuffer entry(int offset) {
+    long position = positions[offset];
+    int start = (int) position;
+    return slice(slabs.get((int) (position >>> 32)), start, start + lengths[offset]).asReadOnlyBuffer();
+  }
+
+  /**
+   * Reads a range of entries directly from memory rather than copying them into the given buffer.
+   */
+  @Override
+  public List<ByteBuffer> readEntries(long fromIndex, long toIndex, ByteBuffer buffer) {
+    assertIsOpen();
+    assertContainsIndex(fromIndex);
+    List<ByteBuffer> entries = new ArrayList<>();
+    long size = 0;
+    int lastOffset = (int) (Math.min(toIndex, lastIndex()) - firstIndex);
+    for (int offset = (int) (fromIndex - firstIndex); offset <= lastOffset; offset++) {
+      size += lengths[offset];
+      if (size > buffer.capacity()) {
+        break;
+      }
+      entries.add(entry(offset));
+    }
+    return entries;
   }
 
   @Override
   public void removeAfter(long index) {
     assertIsOpen();
+    int remaining;
     if (index < firstIndex) {
-      log.clear();
-      size = 0;
+      remaining = 0;
     } else {
       assertContainsIndex(index);
-      for (long i = index + 1; i <= log.lastKey(); i++) {
-        ByteBuffer value = log.remove(i);
-        if (value != null) {
-          size -= value.limit();
-        }
-      }
+      remaining = (int) (index - firstIndex + 1);
+    }
+
+    for (int offset = remaining; offset < entries; offset++) {
+      size -= lengths[offset];
+    }
+    entries = remaining;
+
+    // Release slabs following the slab containing the last remaining entry and reset the position of that slab so
+    // that subsequent entries are written immediately after the last remaining entry.
+    int lastSlab = -1;
+    int lastPosition = 0;
+    if (entries > 0) {
+      long position = positions[entries - 1];
+      lastSlab = (int) (position >>> 32);
+      lastPosition = (int) position + lengths[entries - 1];
+    }
+    while (slabs.size() > lastSlab + 1) {
+      slabs.remove(slabs.size() - 1);
+    }
+    if (lastSlab >= 0) {
+      ByteBuffer slab = slabs.get(lastSlab);
+      slab.clear();
+      slab.position(lastPosition);
     }
   }
 
@@ -144,14 +240,17 @@ public class BufferedLogSegment extends AbstractLogSegment {
 
   @Override
   public boolean isClosed() {
-    return log == null;
+    return slabs == null;
   }
 
   @Override
   public void delete() {
-    if (log != null) {
-      log.clear();
-      log = null;
+    if (slabs != null) {
+      slabs.clear();
+      slabs = null;
+      positions = null;
+      lengths = null;
+      entries = 0;
     }
   }
 }
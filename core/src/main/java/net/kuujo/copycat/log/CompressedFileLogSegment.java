@@ -0,0 +1,433 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed file log segment.
+ *
+ * Compressed segments are created from sealed segments once the log has been rolled over. Entries are grouped into
+ * blocks of up to {@link #BLOCK_SIZE} bytes which are deflated independently, and the segment file ends with a table
+ * of entry positions and a block index mapping uncompressed positions to compressed blocks. Reading an entry only
+ * decompresses the block that contains it, and the most recently decompressed block is retained so that sequential
+ * reads decompress each block once. Entries are returned as read-only views of the decompressed block. Entries are
+ * stored with the same headers as {@link FileLogSegment} entries, so the size of a compressed segment is the size of
+ * the segment from which it was created.
+ *
+ * Compressed segments are read-only, but entries can still be removed from the end of the segment. As with
+ * {@link FileLogSegment}, the segment file is opened via the log's {@link FileChannelPool}.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class CompressedFileLogSegment extends AbstractLogSegment {
+  static final int BLOCK_SIZE = 1024 * 64;
+  private static final int FOOTER_SIZE = 40;
+  private final FileLogManager log;
+  private final File segmentFile;
+  private final File logFile;
+  private final File indexFile;
+  private final File metadataFile;
+  private long timestamp;
+  private FileChannelPool.Handle segmentFileHandle;
+  private final Inflater inflater = new Inflater();
+  private long[] positions;
+  private long[] blocks;
+  private long entries;
+  private long size;
+  private long positionsOffset;
+  private long blocksOffset;
+  private Long firstIndex;
+  private Long lastIndex;
+  private int block = -1;
+  private byte[] blockData;
+
+  CompressedFileLogSegment(FileLogManager log, long id, long firstIndex) {
+    super(id, firstIndex);
+    this.log = log;
+    this.segmentFile = segmentFile(log, id);
+    this.logFile = log.segmentFile(id, "log");
+    this.indexFile = log.segmentFile(id, "index");
+    this.metadataFile = log.segmentFile(id, "metadata");
+  }
+
+  /**
+   * Returns the compressed segment file for the given segment.
+   */
+  static File segmentFile(FileLogManager log, long id) {
+    return log.segmentFile(id, "compressed");
+  }
+
+  /**
+   * Compresses a range of entries from the given segment into the given file.
+   *
+   * @param segment The segment to compress.
+   * @param firstIndex The first index to compress.
+   * @param lastIndex The last index to compress.
+   * @param file The file to which to write the compressed segment.
+   * @throws IOException If the compressed segment could not be written.
+   */
+  static void compress(LogSegment segment, long firstIndex, long lastIndex, File file) throws IOException {
+    int entries = (int) (lastIndex - firstIndex + 1);
+    ByteBuffer positions = ByteBuffer.allocate(entries * 8);
+    List<Long> blocks = new ArrayList<>();
+    ByteBuffer buffer = ByteBuffer.allocate(LogReader.DEFAULT_READ_AHEAD_SIZE);
+    ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+    byte[] output = new byte[BLOCK_SIZE];
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      long position = 0;
+      long offset = 0;
+      long index = firstIndex;
+      while (index <= lastIndex) {
+        List<ByteBuffer> batch = segment.readEntries(index, lastIndex, buffer);
+        if (batch.isEmpty()) {
+          batch = Collections.singletonList(segment.getEntry(index));
+        }
+
+        for (ByteBuffer entry : batch) {
+          entry = entry.duplicate();
+          entry.rewind();
+          int length = FileLogSegment.ENTRY_HEADER_SIZE + entry.remaining();
+
+          // Entries never span blocks. If the entry doesn't fit in the current block then write the block.
+          if (length > block.remaining() && block.position() > 0) {
+            offset += writeBlock(channel, deflater, block, output, offset);
+          }
+          if (block.position() == 0) {
+            if (length > BLOCK_SIZE || block.capacity() > BLOCK_SIZE) {
+              block = ByteBuffer.allocate(Math.max(length, BLOCK_SIZE));
+            }
+            blocks.add(position);
+            blocks.add(offset);
+          }
+
+          positions.putLong(position);
+          position += length;
+          block.putInt(entry.remaining());
+          block.putInt(FileLogSegment.checksum(entry));
+          block.put(entry);
+          index++;
+        }
+      }
+
+      if (block.position() > 0) {
+        offset += writeBlock(channel, deflater, block, output, offset);
+      }
+      int blockCount = blocks.size() / 2;
+      blocks.add(position);
+      blocks.add(offset);
+
+      // Write the entry positions, block index, and footer following the compressed blocks.
+      ByteBuffer table = ByteBuffer.allocate(entries * 8 + blocks.size() * 8 + FOOTER_SIZE);
+      positions.flip();
+      table.put(positions);
+      for (long value : blocks) {
+        table.putLong(value);
+      }
+      table.putLong(entries);
+      table.putLong(position);
+      table.putLong(blockCount);
+      table.putLong(offset);
+      table.putLong(offset + entries * 8);
+      table.flip();
+      while (table.hasRemaining()) {
+        channel.write(table, offset + table.position());
+      }
+      channel.force(true);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Deflates and writes a block at the given offset, returning the number of compressed bytes written.
+   */
+  private static long writeBlock(FileChannel channel, Deflater deflater, ByteBuffer block, byte[] output, long offset) throws IOException {
+    deflater.reset();
+    deflater.setInput(block.array(), 0, block.position());
+    deflater.finish();
+    long written = 0;
+    while (!deflater.finished()) {
+      ByteBuffer buffer = ByteBuffer.wrap(output, 0, deflater.deflate(output));
+      while (buffer.hasRemaining()) {
+        written += channel.write(buffer, offset + written);
+      }
+    }
+    block.clear();
+    return written;
+  }
+
+  @Override
+  public LogManager log() {
+    return log;
+  }
+
+  @Override
+  public long timestamp() {
+    assertIsOpen();
+    return timestamp;
+  }
+
+  @Override
+  public void open() throws IOException {
+    assertIsNotOpen();
+    try (RandomAccessFile metaFile = new RandomAccessFile(metadataFile, "r")) {
+      if (metaFile.readLong() != super.firstIndex) {
+        throw new LogException("Segment metadata out of sync");
+      }
+      timestamp = metaFile.readLong();
+    }
+
+    segmentFileHandle = log.channels.handle(segmentFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    ByteBuffer footer = read(-FOOTER_SIZE, FOOTER_SIZE);
+    entries = footer.getLong();
+    size = footer.getLong();
+    int blockCount = (int) footer.getLong();
+    positionsOffset = footer.getLong();
+    blocksOffset = footer.getLong();
+
+    ByteBuffer positionsBuffer = read(positionsOffset, (int) (blocksOffset - positionsOffset));
+    positions = new long[positionsBuffer.remaining() / 8];
+    positionsBuffer.asLongBuffer().get(positions);
+    ByteBuffer blocksBuffer = read(blocksOffset, (blockCount + 1) * 16);
+    blocks = new long[(blockCount + 1) * 2];
+    blocksBuffer.asLongBuffer().get(blocks);
+
+    if (entries > 0) {
+      firstIndex = super.firstIndex;
+      lastIndex = firstIndex + entries - 1;
+    }
+
+    // Once the uncompressed segment has been replaced, its files can be recycled or deleted. This also removes files
+    // left by a failure while the uncompressed segment was being replaced.
+    if (!log.recycleFiles(logFile, indexFile)) {
+      logFile.delete();
+      indexFile.delete();
+    }
+  }
+
+  /**
+   * Reads the given number of bytes from the segment file at the given position. Negative positions are relative to
+   * the end of the file.
+   */
+  private ByteBuffer read(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    FileChannel segmentFileChannel = segmentFileHandle.acquire();
+    try {
+      if (position < 0) {
+        position += segmentFileChannel.size();
+      }
+      while (buffer.hasRemaining()) {
+        if (segmentFileChannel.read(buffer, position + buffer.position()) < 0) {
+          throw new LogException("Failed to read compressed segment");
+        }
+      }
+    } finally {
+      segmentFileHandle.release();
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    assertIsOpen();
+    return firstIndex == null;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return segmentFileHandle != null;
+  }
+
+  @Override
+  public long size() {
+    assertIsOpen();
+    return size;
+  }
+
+  @Override
+  public long entryCount() {
+    assertIsOpen();
+    return entries;
+  }
+
+  @Override
+  public long appendEntry(ByteBuffer entry) {
+    throw new LogException("Cannot append entries to compressed segment %d", id);
+  }
+
+  @Override
+  public List<Long> appendEntries(List<ByteBuffer> entries) {
+    throw new LogException("Cannot append entries to compressed segment %d", id);
+  }
+
+  @Override
+  public Long firstIndex() {
+    assertIsOpen();
+    return firstIndex;
+  }
+
+  @Override
+  public Long lastIndex() {
+    assertIsOpen();
+    return lastIndex;
+  }
+
+  @Override
+  public boolean containsIndex(long index) {
+    assertIsOpen();
+    return firstIndex != null && lastIndex != null && firstIndex <= index && index <= lastIndex;
+  }
+
+  @Override
+  public ByteBuffer getEntry(long index) {
+    assertIsOpen();
+    assertContainsIndex(index);
+    int offset = (int) (index - firstIndex);
+    long startPosition = positions[offset];
+    long endPosition = offset + 1 < positions.length ? positions[offset + 1] : blocks[blocks.length - 2];
+    int block = findBlock(startPosition);
+    byte[] data = readBlock(block);
+    int length = (int) (endPosition - startPosition) - FileLogSegment.ENTRY_HEADER_SIZE;
+    return ByteBuffer.wrap(data, (int) (startPosition - blocks[block * 2]) + FileLogSegment.ENTRY_HEADER_SIZE, length).slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Finds the block containing the given uncompressed position.
+   */
+  private int findBlock(long position) {
+    int low = 0;
+    int high = blocks.length / 2 - 2;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (blocks[mid * 2] <= position) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Reads and decompresses the given block.
+   */
+  private byte[] readBlock(int block) {
+    if (block == this.block) {
+      return blockData;
+    }
+
+    try {
+      long offset = blocks[block * 2 + 1];
+      ByteBuffer compressed = read(offset, (int) (blocks[block * 2 + 3] - offset));
+      byte[] data = new byte[(int) (blocks[block * 2 + 2] - blocks[block * 2])];
+      inflater.reset();
+      inflater.setInput(compressed.array());
+      int length = 0;
+      while (length < data.length && !inflater.finished()) {
+        length += inflater.inflate(data, length, data.length - length);
+      }
+      this.block = block;
+      this.blockData = data;
+      return data;
+    } catch (IOException | DataFormatException e) {
+      throw new LogException(e);
+    }
+  }
+
+  @Override
+  public void removeAfter(long index) {
+    assertIsOpen();
+    if (containsIndex(index + 1)) {
+      entries = index - super.firstIndex + 1;
+      size = positions[(int) entries];
+      if (index >= firstIndex) {
+        lastIndex = index;
+      } else {
+        lastIndex = null;
+        firstIndex = null;
+      }
+
+      // Update the footer with the new number of entries and size. The compressed blocks are not modified.
+      ByteBuffer footer = ByteBuffer.allocate(16);
+      footer.putLong(entries);
+      footer.putLong(size);
+      footer.flip();
+      try {
+        FileChannel segmentFileChannel = segmentFileHandle.acquire();
+        try {
+          while (footer.hasRemaining()) {
+            segmentFileChannel.write(footer, segmentFileChannel.size() - FOOTER_SIZE + footer.position());
+          }
+        } finally {
+          segmentFileHandle.release();
+        }
+      } catch (IOException e) {
+        throw new LogException(e);
+      }
+    }
+  }
+
+  @Override
+  public void flush() {
+    try {
+      FileChannel segmentFileChannel = segmentFileHandle.acquire();
+      try {
+        segmentFileChannel.force(false);
+      } finally {
+        segmentFileHandle.release();
+      }
+    } catch (IOException e) {
+      throw new LogException(e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    assertIsOpen();
+    segmentFileHandle.close();
+    segmentFileHandle = null;
+    positions = null;
+    blocks = null;
+    blockData = null;
+    block = -1;
+  }
+
+  @Override
+  public boolean isClosed() {
+    return segmentFileHandle == null;
+  }
+
+  @Override
+  public void delete() {
+    segmentFile.delete();
+    metadataFile.delete();
+  }
+
+}
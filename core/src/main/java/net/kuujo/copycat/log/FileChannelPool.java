@@ -0,0 +1,220 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of open file channels.
+ *
+ * Segments only need their files to be open while they're being read or written, so rather than holding a channel
+ * open for each file for the lifetime of a segment, file based segments acquire channels from a pool shared by all
+ * file logs in the JVM. Once more than the pool's capacity of channels are open, the least recently used channels
+ * that are not in use are closed, and they're reopened the next time they're acquired. Channels that are in use are
+ * never closed, so the pool may temporarily exceed its capacity. Threadsafe.
+ *
+ * Each handle counts its references under its own lock, so acquiring and releasing an open channel doesn't contend
+ * with other files. The pool is only locked to evict channels once it's over capacity.
+ *
+ * The capacity of the shared pool defaults to {@value #DEFAULT_CAPACITY} channels and can be changed via the
+ * {@code copycat.log.max-open-files} system property.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class FileChannelPool {
+  static final int DEFAULT_CAPACITY = 1024;
+  private static final FileChannelPool SHARED = new FileChannelPool(Integer.getInteger("copycat.log.max-open-files", DEFAULT_CAPACITY));
+  private final int capacity;
+  private final Set<Handle> channels = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger open = new AtomicInteger();
+  private final AtomicLong clock = new AtomicLong();
+
+  FileChannelPool(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * Returns the pool shared by all file logs.
+   */
+  static FileChannelPool shared() {
+    return SHARED;
+  }
+
+  /**
+   * Returns a handle for the file at the given path. The file is not opened until the handle is first acquired.
+   *
+   * @param path The path of the file.
+   * @param options The options with which to open the file.
+   * @return A handle for the file.
+   */
+  Handle handle(Path path, OpenOption... options) {
+    return new Handle(path, options);
+  }
+
+  /**
+   * Returns the number of channels currently open.
+   */
+  int openChannels() {
+    return open.get();
+  }
+
+  /**
+   * Closes the least recently used channels that are not in use until the pool is within its capacity.
+   */
+  private synchronized void evict() {
+    if (open.get() <= capacity) {
+      return;
+    }
+
+    List<Handle> candidates = new ArrayList<>();
+    for (Handle handle : channels) {
+      if (handle.references == 0) {
+        candidates.add(handle);
+      }
+    }
+    candidates.sort(Comparator.comparingLong(handle -> handle.lastUsed));
+    for (int i = 0; i < candidates.size() && open.get() > capacity; i++) {
+      candidates.get(i).evictChannel();
+    }
+  }
+
+  /**
+   * Pooled file handle.
+   *
+   * Each {@link #acquire()} must be followed by a {@link #release()} once the caller is done with the channel, and the
+   * channel must not be used after it's released. Channels are only closed once they have no references, so closing
+   * a handle while its channel is in use defers closing the channel until the channel is released.
+   */
+  final class Handle {
+    private final Path path;
+    private final OpenOption[] options;
+    private FileChannel channel;
+    private volatile int references;
+    private volatile long lastUsed;
+    private boolean closed;
+
+    private Handle(Path path, OpenOption[] options) {
+      this.path = path;
+      this.options = options;
+    }
+
+    /**
+     * Acquires the file's channel, opening the file if it's not open.
+     *
+     * @return The file's channel.
+     * @throws IOException If the file could not be opened.
+     */
+    FileChannel acquire() throws IOException {
+      FileChannel channel;
+      boolean opened = false;
+      synchronized (this) {
+        if (closed) {
+          throw new ClosedChannelException();
+        }
+        if (this.channel == null) {
+          this.channel = FileChannel.open(path, options);
+          channels.add(this);
+          open.incrementAndGet();
+          opened = true;
+        }
+        references++;
+        channel = this.channel;
+      }
+      if (opened) {
+        evict();
+      }
+      return channel;
+    }
+
+    /**
+     * Releases the file's channel, allowing it to be closed by the pool.
+     */
+    void release() {
+      synchronized (this) {
+        lastUsed = clock.incrementAndGet();
+        if (--references == 0 && closed) {
+          closeChannel();
+        }
+      }
+      if (open.get() > capacity) {
+        evict();
+      }
+    }
+
+    /**
+     * Closes the handle and removes the file from the pool.
+     *
+     * If the channel is in use, it's closed once it's released.
+     *
+     * @throws IOException If the channel could not be closed.
+     */
+    void close() throws IOException {
+      synchronized (this) {
+        closed = true;
+        if (references == 0 && channel != null) {
+          FileChannel channel = this.channel;
+          removeChannel();
+          channel.close();
+        }
+      }
+    }
+
+    /**
+     * Closes the channel if it's not in use when it's evicted from the pool.
+     */
+    private synchronized void evictChannel() {
+      if (references == 0 && channel != null) {
+        closeChannel();
+      }
+    }
+
+    /**
+     * Closes the channel, ignoring failures.
+     */
+    private void closeChannel() {
+      FileChannel channel = this.channel;
+      removeChannel();
+      try {
+        channel.close();
+      } catch (IOException e) {
+      }
+    }
+
+    /**
+     * Removes the channel from the pool.
+     */
+    private void removeChannel() {
+      channel = null;
+      channels.remove(this);
+      open.decrementAndGet();
+    }
+  }
+
+}
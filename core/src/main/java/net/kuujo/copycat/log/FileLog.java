@@ -19,6 +19,10 @@ import com.typesafe.config.ConfigValueFactory;
 import net.kuujo.copycat.util.internal.Assert;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -28,6 +32,13 @@ import java.util.Map;
  */
 public class FileLog extends Log {
   private static final String FILE_LOG_DIRECTORY = "directory";
+  private static final String FILE_LOG_DIRECTORIES = "directories";
+  private static final String FILE_LOG_PLACEMENT = "placement";
+  private static final String FILE_LOG_COLD_DIRECTORY = "cold-directory";
+  private static final String FILE_LOG_MEMORY_MAPPED = "memory-mapped";
+  private static final String FILE_LOG_COMPRESSED = "compressed";
+  private static final String FILE_LOG_PREALLOCATED = "preallocated";
+  private static final String FILE_LOG_RECYCLED = "recycled";
 
   public FileLog() {
     super();
@@ -111,6 +122,305 @@ public class FileLog extends Log {
     return this;
   }
 
+  /**
+   * Sets the log directories.
+   *
+   * When multiple directories are configured, the log's segments are spread across the directories according to the
+   * log's {@link SegmentPlacement}. The log's directories take precedence over the log directory.
+   *
+   * @param directories The log directories.
+   * @throws java.lang.NullPointerException If the directories are {@code null}
+   * @throws java.lang.IllegalArgumentException If no directories are provided
+   */
+  public void setDirectories(List<String> directories) {
+    Assert.isNotNull(directories, "directories");
+    Assert.arg(directories, !directories.isEmpty(), "at least one directory must be provided");
+    for (String directory : directories) {
+      Assert.isNotNull(directory, "directory");
+    }
+    this.config = config.withValue(FILE_LOG_DIRECTORIES, ConfigValueFactory.fromIterable(directories));
+  }
+
+  /**
+   * Sets the log directories.
+   *
+   * @param directories The log directories.
+   * @throws java.lang.NullPointerException If the directories are {@code null}
+   * @throws java.lang.IllegalArgumentException If no directories are provided
+   */
+  public void setDirectories(File... directories) {
+    List<String> paths = new ArrayList<>(Assert.isNotNull(directories, "directories").length);
+    for (File directory : directories) {
+      paths.add(Assert.isNotNull(directory, "directory").getAbsolutePath());
+    }
+    setDirectories(paths);
+  }
+
+  /**
+   * Returns the log directories.
+   *
+   * @return The log directories. Defaults to the log directory.
+   */
+  public List<File> getDirectories() {
+    if (!config.hasPath(FILE_LOG_DIRECTORIES)) {
+      return Collections.singletonList(getDirectory());
+    }
+    List<File> directories = new ArrayList<>();
+    for (String directory : config.getStringList(FILE_LOG_DIRECTORIES)) {
+      directories.add(new File(directory));
+    }
+    return directories;
+  }
+
+  /**
+   * Sets the log directories, returning the log configuration for method chaining.
+   *
+   * @param directories The log directories.
+   * @return The log configuration.
+   * @throws java.lang.NullPointerException If the directories are {@code null}
+   * @throws java.lang.IllegalArgumentException If no directories are provided
+   */
+  public FileLog withDirectories(String... directories) {
+    setDirectories(Arrays.asList(Assert.isNotNull(directories, "directories")));
+    return this;
+  }
+
+  /**
+   * Sets the log directories, returning the log configuration for method chaining.
+   *
+   * @param directories The log directories.
+   * @return The log configuration.
+   * @throws java.lang.NullPointerException If the directories are {@code null}
+   * @throws java.lang.IllegalArgumentException If no directories are provided
+   */
+  public FileLog withDirectories(File... directories) {
+    setDirectories(directories);
+    return this;
+  }
+
+  /**
+   * Sets the placement of new segments across the log directories.
+   *
+   * @param placement The placement of new segments across the log directories.
+   * @throws java.lang.NullPointerException If the placement is {@code null}
+   */
+  public void setPlacement(SegmentPlacement placement) {
+    this.config = config.withValue(FILE_LOG_PLACEMENT, ConfigValueFactory.fromAnyRef(Assert.isNotNull(placement, "placement").toString()));
+  }
+
+  /**
+   * Returns the placement of new segments across the log directories.
+   *
+   * @return The placement of new segments across the log directories. Defaults to
+   *         {@link SegmentPlacement#ROUND_ROBIN}.
+   */
+  public SegmentPlacement getPlacement() {
+    return config.hasPath(FILE_LOG_PLACEMENT) ? SegmentPlacement.parse(config.getString(FILE_LOG_PLACEMENT)) : SegmentPlacement.ROUND_ROBIN;
+  }
+
+  /**
+   * Sets the placement of new segments across the log directories, returning the log configuration for method chaining.
+   *
+   * @param placement The placement of new segments across the log directories.
+   * @return The log configuration.
+   * @throws java.lang.NullPointerException If the placement is {@code null}
+   */
+  public FileLog withPlacement(SegmentPlacement placement) {
+    setPlacement(placement);
+    return this;
+  }
+
+  /**
+   * Sets the log's cold storage directory.
+   *
+   * Sealed segments that are moved to cold storage via {@link LogManager#tierSegment(long)} are moved from the log
+   * directories to the cold storage directory, and their entries are read from the cold storage directory.
+   *
+   * @param directory The cold storage directory.
+   * @throws java.lang.NullPointerException If the directory is {@code null}
+   */
+  public void setColdDirectory(String directory) {
+    this.config = config.withValue(FILE_LOG_COLD_DIRECTORY, ConfigValueFactory.fromAnyRef(Assert.isNotNull(directory, "directory")));
+  }
+
+  /**
+   * Sets the log's cold storage directory.
+   *
+   * @param directory The cold storage directory.
+   * @throws java.lang.NullPointerException If the directory is {@code null}
+   */
+  public void setColdDirectory(File directory) {
+    setColdDirectory(Assert.isNotNull(directory, "directory").getAbsolutePath());
+  }
+
+  /**
+   * Returns the log's cold storage directory.
+   *
+   * @return The cold storage directory or {@code null} if the log has no cold storage.
+   */
+  public File getColdDirectory() {
+    return config.hasPath(FILE_LOG_COLD_DIRECTORY) ? new File(config.getString(FILE_LOG_COLD_DIRECTORY)) : null;
+  }
+
+  /**
+   * Sets the log's cold storage directory, returning the log configuration for method chaining.
+   *
+   * @param directory The cold storage directory.
+   * @return The log configuration.
+   * @throws java.lang.NullPointerException If the directory is {@code null}
+   */
+  public FileLog withColdDirectory(String directory) {
+    setColdDirectory(directory);
+    return this;
+  }
+
+  /**
+   * Sets the log's cold storage directory, returning the log configuration for method chaining.
+   *
+   * @param directory The cold storage directory.
+   * @return The log configuration.
+   * @throws java.lang.NullPointerException If the directory is {@code null}
+   */
+  public FileLog withColdDirectory(File directory) {
+    setColdDirectory(directory);
+    return this;
+  }
+
+  /**
+   * Sets whether log segments should be memory mapped.
+   *
+   * When memory mapping is enabled, each segment's log and index files are preallocated and mapped into memory. Entries
+   * are written to and read from the mapped files directly, and entries read from the log are read-only views of the
+   * mapped segment rather than copies.
+   *
+   * @param memoryMapped Whether log segments should be memory mapped.
+   */
+  public void setMemoryMapped(boolean memoryMapped) {
+    this.config = config.withValue(FILE_LOG_MEMORY_MAPPED, ConfigValueFactory.fromAnyRef(memoryMapped));
+  }
+
+  /**
+   * Returns whether log segments are memory mapped.
+   *
+   * @return Whether log segments are memory mapped.
+   */
+  public boolean isMemoryMapped() {
+    return config.hasPath(FILE_LOG_MEMORY_MAPPED) && config.getBoolean(FILE_LOG_MEMORY_MAPPED);
+  }
+
+  /**
+   * Sets whether log segments should be memory mapped, returning the log configuration for method chaining.
+   *
+   * @param memoryMapped Whether log segments should be memory mapped.
+   * @return The log configuration.
+   */
+  public FileLog withMemoryMapped(boolean memoryMapped) {
+    setMemoryMapped(memoryMapped);
+    return this;
+  }
+
+  /**
+   * Sets whether sealed log segments should be compressed.
+   *
+   * When compression is enabled, each segment is compressed in the background once the log has been rolled over to a
+   * new segment. Compressed segments are divided into independently compressed blocks, so reading an entry from a
+   * compressed segment only decompresses the block containing the entry.
+   *
+   * @param compressed Whether sealed log segments should be compressed.
+   */
+  public void setCompressed(boolean compressed) {
+    this.config = config.withValue(FILE_LOG_COMPRESSED, ConfigValueFactory.fromAnyRef(compressed));
+  }
+
+  /**
+   * Returns whether sealed log segments are compressed.
+   *
+   * @return Whether sealed log segments are compressed.
+   */
+  public boolean isCompressed() {
+    return config.hasPath(FILE_LOG_COMPRESSED) && config.getBoolean(FILE_LOG_COMPRESSED);
+  }
+
+  /**
+   * Sets whether sealed log segments should be compressed, returning the log configuration for method chaining.
+   *
+   * @param compressed Whether sealed log segments should be compressed.
+   * @return The log configuration.
+   */
+  public FileLog withCompressed(boolean compressed) {
+    setCompressed(compressed);
+    return this;
+  }
+
+  /**
+   * Sets whether log segment files should be preallocated.
+   *
+   * When preallocation is enabled, segments are written to files that have already been filled to the segment size
+   * in the background, and the number of entries and bytes written to each segment are recorded in the segment
+   * metadata each time the segment is flushed. Because writes to preallocated files don't extend the files, flushing
+   * the log doesn't require the file system to update file metadata.
+   *
+   * @param preallocated Whether log segment files should be preallocated.
+   */
+  public void setPreallocated(boolean preallocated) {
+    this.config = config.withValue(FILE_LOG_PREALLOCATED, ConfigValueFactory.fromAnyRef(preallocated));
+  }
+
+  /**
+   * Returns whether log segment files are preallocated.
+   *
+   * @return Whether log segment files are preallocated.
+   */
+  public boolean isPreallocated() {
+    return config.hasPath(FILE_LOG_PREALLOCATED) && config.getBoolean(FILE_LOG_PREALLOCATED);
+  }
+
+  /**
+   * Sets whether log segment files should be preallocated, returning the log configuration for method chaining.
+   *
+   * @param preallocated Whether log segment files should be preallocated.
+   * @return The log configuration.
+   */
+  public FileLog withPreallocated(boolean preallocated) {
+    setPreallocated(preallocated);
+    return this;
+  }
+
+  /**
+   * Sets whether the files of deleted log segments should be recycled.
+   *
+   * When recycling is enabled, the files of segments that are deleted by compaction are retained and reused for new
+   * segments rather than being deleted and recreated. Recycling only applies to preallocated or memory mapped
+   * segments, since the data in those segments is bounded by the size recorded in the segment metadata rather than
+   * the size of the segment files.
+   *
+   * @param recycled Whether the files of deleted log segments should be recycled.
+   */
+  public void setRecycled(boolean recycled) {
+    this.config = config.withValue(FILE_LOG_RECYCLED, ConfigValueFactory.fromAnyRef(recycled));
+  }
+
+  /**
+   * Returns whether the files of deleted log segments are recycled.
+   *
+   * @return Whether the files of deleted log segments are recycled.
+   */
+  public boolean isRecycled() {
+    return config.hasPath(FILE_LOG_RECYCLED) && config.getBoolean(FILE_LOG_RECYCLED);
+  }
+
+  /**
+   * Sets whether the files of deleted log segments should be recycled, returning the log configuration for method
+   * chaining.
+   *
+   * @param recycled Whether the files of deleted log segments should be recycled.
+   * @return The log configuration.
+   */
+  public FileLog withRecycled(boolean recycled) {
+    setRecycled(recycled);
+    return this;
+  }
+
   @Override
   public FileLog withSegmentSize(int segmentSize) {
     setSegmentSize(segmentSize);
@@ -135,6 +445,18 @@ public class FileLog extends Log {
     return this;
   }
 
+  @Override
+  public FileLog withGroupCommit(boolean groupCommit) {
+    setGroupCommit(groupCommit);
+    return this;
+  }
+
+  @Override
+  public FileLog withCacheSize(long cacheSize) {
+    setCacheSize(cacheSize);
+    return this;
+  }
+
   @Override
   public LogManager getLogManager(String name) {
     return new FileLogManager(name, this);
@@ -15,54 +15,711 @@
  */
 package net.kuujo.copycat.log;
 
+import net.kuujo.copycat.util.concurrent.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * File log.
  *
+ * When segment compression is enabled, segments are compressed in the background once the log is rolled over to a new
+ * segment. Compressed segments replace the uncompressed segments the next time the log is appended to, flushed, or
+ * rolled over, and compressions of segments that are modified or removed in the meantime are discarded.
+ *
+ * When preallocation is enabled, a spare pair of log and index files is filled to the segment size in the background
+ * and moved into place the next time a segment is created. When recycling is enabled, the files of deleted
+ * preallocated or memory mapped segments are retained as spares rather than being deleted, up to
+ * {@link #MAX_SPARE_SEGMENTS} spares.
+ *
+ * When the log is configured with multiple directories, each new segment is created in a directory chosen by the log's
+ * {@link SegmentPlacement}, and existing segments are loaded from all directories. Spare segment files are kept in the
+ * first directory, so only segments placed in the first directory are preallocated and recycled.
+ *
+ * When a cold storage directory is configured, sealed segments are moved to cold storage by copying the segment's files
+ * to the cold storage directory in the background. Like compressed segments, the copied segment replaces the original
+ * segment the next time the log is appended to, flushed, or rolled over, and copies of segments that are modified or
+ * removed in the meantime are discarded. A segment's metadata file is copied last and deleted first, so if the log
+ * fails while moving a segment the original segment is loaded when the log is reopened.
+ *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class FileLogManager extends AbstractLogManager {
+  static final int MAX_SPARE_SEGMENTS = 4;
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileLogManager.class);
   final FileLog config;
   final File base;
+  private final List<File> bases = new ArrayList<>();
+  private final Map<Long, File> segmentBases = new ConcurrentHashMap<>();
+  private final SegmentPlacement placement;
+  private final File coldBase;
+  private int nextBase;
+  final FileChannelPool channels = FileChannelPool.shared();
+  private final boolean compressed;
+  private final boolean preallocated;
+  private final boolean recycled;
+  private final Deque<Long> spares = new ArrayDeque<>();
+  private long nextSpareId;
+  private boolean preallocating;
+  private boolean deleting;
+  private ExecutorService preallocationExecutor;
+  private final Map<Long, Compression> compressions = new HashMap<>();
+  private final Queue<Compression> completedCompressions = new ConcurrentLinkedQueue<>();
+  private ExecutorService compressionExecutor;
+  private final Map<Long, Tiering> tierings = new HashMap<>();
+  private final Queue<Tiering> completedTierings = new ConcurrentLinkedQueue<>();
+  private ExecutorService tieringExecutor;
 
   FileLogManager(String name, FileLog config) {
     super(config);
     this.config = config.copy();
-    this.base = new File(config.getDirectory(), name);
+    for (File directory : config.getDirectories()) {
+      bases.add(new File(directory, name));
+    }
+    this.base = bases.get(0);
+    this.placement = config.getPlacement();
+    this.coldBase = config.getColdDirectory() != null ? new File(config.getColdDirectory(), name) : null;
+    // Start each log at a different directory so that the logs of different resources are spread across directories.
+    this.nextBase = Math.abs(name.hashCode() % bases.size());
+    this.compressed = config.isCompressed();
+    this.preallocated = config.isPreallocated();
+    this.recycled = config.isRecycled() && (config.isPreallocated() || config.isMemoryMapped());
   }
 
   @Override
   protected Collection<LogSegment> loadSegments() {
     Map<Long, LogSegment> segments = new HashMap<>();
-    base.getAbsoluteFile().getParentFile().mkdirs();
-    for (File file : config.getDirectory().listFiles(File::isFile)) {
-      if (file.getName().startsWith(base.getName() + "-") && file.getName().endsWith(".metadata")) {
-        try {
-          long id = Long.valueOf(file.getName().substring(file.getName().lastIndexOf('-') + 1), file.getName().lastIndexOf('.')).longValue();
-          if (!segments.containsKey(id)) {
-            // Open the metadata file, determine the segment's first index, and create a log segment.
-            try (RandomAccessFile metaFile = new RandomAccessFile(file, "r")) {
-              long firstIndex = metaFile.readLong();
-              segments.put(id, new FileLogSegment(this, id, firstIndex));
+    List<File> bases = new ArrayList<>(this.bases);
+    if (coldBase != null) {
+      bases.add(coldBase);
+    }
+    for (File base : bases) {
+      base.getAbsoluteFile().getParentFile().mkdirs();
+      for (File file : base.getAbsoluteFile().getParentFile().listFiles(File::isFile)) {
+        if (file.getName().startsWith(base.getName() + "-") && file.getName().endsWith(".metadata")) {
+          try {
+            long id = Long.valueOf(file.getName().substring(file.getName().lastIndexOf('-') + 1, file.getName().lastIndexOf('.'))).longValue();
+            if (base == coldBase && segments.containsKey(id)) {
+              // The log failed while moving the segment to cold storage, so delete the copy in cold storage.
+              deleteColdFiles(id);
+            } else if (!segments.containsKey(id)) {
+              // Open the metadata file, determine the segment's first index, and create a log segment.
+              try (RandomAccessFile metaFile = new RandomAccessFile(file, "r")) {
+                long firstIndex = metaFile.readLong();
+                segmentBases.put(id, base);
+                segments.put(id, createSegment(id, firstIndex));
+              }
             }
+          } catch (IOException | NumberFormatException e) {
+            throw new LogException(e);
           }
-        } catch (IOException | NumberFormatException e) {
-          throw new LogException(e);
+        } else if (file.getName().startsWith(base.getName() + "-") && (file.getName().endsWith(".compressed.tmp") || file.getName().endsWith(".tier.tmp"))) {
+          // Delete compressed segments and segment copies that were not completed before the log was closed.
+          file.delete();
+        } else if (file.getName().startsWith(base.getName() + "-spare-") && base == this.base) {
+          loadSpare(file);
         }
       }
     }
     return segments.values();
   }
 
+  /**
+   * Returns a file for the given segment.
+   *
+   * @param id The segment id.
+   * @param extension The file extension.
+   * @return The segment file in the segment's directory.
+   */
+  File segmentFile(long id, String extension) {
+    File base = segmentBases.computeIfAbsent(id, i -> placeSegment());
+    return new File(base.getParentFile(), String.format("%s-%d.%s", base.getName(), id, extension));
+  }
+
+  /**
+   * Chooses the directory in which to create a new segment.
+   */
+  private File placeSegment() {
+    if (bases.size() == 1) {
+      return base;
+    }
+
+    if (placement == SegmentPlacement.FREE_SPACE) {
+      File placedBase = base;
+      long usableSpace = -1;
+      for (File base : bases) {
+        long space = base.getAbsoluteFile().getParentFile().getUsableSpace();
+        if (space > usableSpace) {
+          placedBase = base;
+          usableSpace = space;
+        }
+      }
+      return placedBase;
+    }
+
+    File placedBase = bases.get(nextBase);
+    nextBase = (nextBase + 1) % bases.size();
+    return placedBase;
+  }
+
+  /**
+   * Loads a spare segment file, deleting incomplete spares.
+   */
+  private void loadSpare(File file) {
+    String name = file.getName().substring(base.getName().length() + "-spare-".length());
+    try {
+      long id = Long.valueOf(name.substring(0, name.indexOf('.')));
+      nextSpareId = Math.max(nextSpareId, id + 1);
+      synchronized (spares) {
+        if (name.endsWith(".log") && spareFile(id, "index").exists() && !spares.contains(id) && spares.size() < MAX_SPARE_SEGMENTS) {
+          spares.add(id);
+          return;
+        } else if (name.endsWith(".index") && spareFile(id, "log").exists() && (spares.contains(id) || spares.size() < MAX_SPARE_SEGMENTS)) {
+          return;
+        }
+      }
+    } catch (NumberFormatException | IndexOutOfBoundsException e) {
+    }
+    file.delete();
+  }
+
+  /**
+   * Returns a spare segment file.
+   */
+  private File spareFile(long id, String extension) {
+    return new File(base.getParentFile(), String.format("%s-spare-%d.%s", base.getName(), id, extension));
+  }
+
+  /**
+   * Moves spare segment files into place for a new preallocated segment.
+   *
+   * @param logFile The new segment's log file.
+   * @param indexFile The new segment's index file.
+   * @return Whether spare files were moved into place.
+   */
+  boolean allocateFiles(File logFile, File indexFile) throws IOException {
+    if (!isSpareDirectory(logFile)) {
+      return false;
+    }
+
+    Long id;
+    synchronized (spares) {
+      id = spares.poll();
+    }
+    if (preallocated) {
+      preallocateSpare();
+    }
+    if (id == null) {
+      return false;
+    }
+    Files.move(spareFile(id, "log").toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    Files.move(spareFile(id, "index").toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    return true;
+  }
+
+  /**
+   * Retains the files of a deleted segment as spare segment files if recycling is enabled.
+   *
+   * @param logFile The deleted segment's log file.
+   * @param indexFile The deleted segment's index file.
+   * @return Whether the files were recycled.
+   */
+  boolean recycleFiles(File logFile, File indexFile) {
+    if (!recycled || deleting || !isSpareDirectory(logFile) || !logFile.exists() || !indexFile.exists()) {
+      return false;
+    }
+    synchronized (spares) {
+      if (spares.size() >= MAX_SPARE_SEGMENTS) {
+        return false;
+      }
+      long id = nextSpareId++;
+      try {
+        Files.move(logFile.toPath(), spareFile(id, "log").toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.move(indexFile.toPath(), spareFile(id, "index").toPath(), StandardCopyOption.REPLACE_EXISTING);
+      } catch (IOException e) {
+        spareFile(id, "log").delete();
+        spareFile(id, "index").delete();
+        return false;
+      }
+      spares.add(id);
+      LOGGER.debug("Recycled segment files {} as spare {}", logFile, id);
+      return true;
+    }
+  }
+
+  /**
+   * Returns whether the given segment file is in the directory in which spare segment files are kept.
+   */
+  private boolean isSpareDirectory(File file) {
+    return file.getAbsoluteFile().getParentFile().equals(base.getAbsoluteFile().getParentFile());
+  }
+
+  /**
+   * Fills a spare pair of segment files to the segment size in the background if no spare files are available.
+   */
+  private void preallocateSpare() {
+    long id;
+    synchronized (spares) {
+      if (!spares.isEmpty() || preallocating || deleting) {
+        return;
+      }
+      preallocating = true;
+      id = nextSpareId++;
+    }
+
+    if (preallocationExecutor == null) {
+      preallocationExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("copycat-log-preallocator-%d"));
+    }
+    preallocationExecutor.execute(() -> {
+      File logFile = spareFile(id, "log.tmp");
+      File indexFile = spareFile(id, "index.tmp");
+      try {
+        fill(logFile, config.getSegmentSize());
+        fill(indexFile, config.getSegmentSize() / 8);
+        Files.move(indexFile.toPath(), spareFile(id, "index").toPath(), StandardCopyOption.ATOMIC_MOVE);
+        Files.move(logFile.toPath(), spareFile(id, "log").toPath(), StandardCopyOption.ATOMIC_MOVE);
+        synchronized (spares) {
+          spares.add(id);
+        }
+      } catch (IOException e) {
+        if (!Thread.currentThread().isInterrupted()) {
+          LOGGER.warn("Failed to preallocate segment files", e);
+        }
+        logFile.delete();
+        indexFile.delete();
+        spareFile(id, "index").delete();
+      } finally {
+        synchronized (spares) {
+          preallocating = false;
+        }
+      }
+    });
+  }
+
+  /**
+   * Fills the given file with zeroes up to the given size and forces the file to disk.
+   */
+  private static void fill(File file, long size) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      ByteBuffer zeroes = ByteBuffer.allocateDirect((int) Math.min(size, 1024 * 1024));
+      long position = 0;
+      while (position < size) {
+        zeroes.clear();
+        zeroes.limit((int) Math.min(zeroes.capacity(), size - position));
+        position += channel.write(zeroes, position);
+      }
+      channel.force(true);
+    }
+  }
+
+  @Override
+  public synchronized void open() throws IOException {
+    super.open();
+    if (preallocated) {
+      preallocateSpare();
+    }
+  }
+
   @Override
   protected LogSegment createSegment(long segmentId, long firstIndex) {
-    return new FileLogSegment(this, segmentId, firstIndex);
+    if (CompressedFileLogSegment.segmentFile(this, segmentId).exists()) {
+      return new CompressedFileLogSegment(this, segmentId, firstIndex);
+    }
+    return config.isMemoryMapped() ? new MappedFileLogSegment(this, segmentId, firstIndex) : new FileLogSegment(this, segmentId, firstIndex);
+  }
+
+  @Override
+  protected int entryHeaderSize() {
+    return FileLogSegment.ENTRY_HEADER_SIZE;
+  }
+
+  /**
+   * File logs persist the term index in a file alongside the log's segments in the first directory.
+   */
+  @Override
+  TermIndex createTermIndex() {
+    return new TermIndex(new File(base.getAbsoluteFile().getParentFile(), base.getName() + ".terms"));
+  }
+
+  @Override
+  public long appendEntry(ByteBuffer entry) throws IOException {
+    prepareAppend();
+    return super.appendEntry(entry);
+  }
+
+  @Override
+  public List<Long> appendEntries(List<ByteBuffer> entries) throws IOException {
+    prepareAppend();
+    return super.appendEntries(entries);
+  }
+
+  /**
+   * Prepares the log for entries to be appended.
+   *
+   * Compressed segments are read-only, so if entries have been removed from the log such that the current segment is
+   * a compressed segment then the log is rolled over to a new segment before appending entries.
+   */
+  private void prepareAppend() throws IOException {
+    replaceCompressedSegments();
+    replaceTieredSegments();
+    if (currentSegment instanceof CompressedFileLogSegment) {
+      rollOver(currentSegment.lastIndex() + 1);
+    }
+  }
+
+  @Override
+  public void rollOver(long index) throws IOException {
+    replaceCompressedSegments();
+    replaceTieredSegments();
+    LogSegment segment = currentSegment;
+    super.rollOver(index);
+    if (compressed && segment.isOpen() && !(segment instanceof CompressedFileLogSegment) && segments.get(segment.firstIndex()) == segment) {
+      compress(segment);
+    }
+  }
+
+  @Override
+  public boolean replaceSegment(LogSegment segment, LogSegment rewrittenSegment) throws IOException {
+    // The segment is replaced by the rewritten segment, so discard its compression and compress the rewritten segment.
+    // Completed compressions are not swapped in first, since that would replace the segment that was rewritten.
+    if (!super.replaceSegment(segment, rewrittenSegment)) {
+      return false;
+    }
+    Compression compression = compressions.remove(segment.id());
+    if (compression != null) {
+      compression.discarded = true;
+    }
+    if (compressed && !rewrittenSegment.isEmpty()) {
+      compress(rewrittenSegment);
+    }
+    return true;
+  }
+
+  @Override
+  public void removeAfter(long index) {
+    // Entries may be removed from segments that are being compressed or moved, so discard all in progress compressions
+    // and moves.
+    discardCompressions();
+    discardTierings();
+    super.removeAfter(index);
+  }
+
+  @Override
+  public void flush(boolean force) {
+    replaceCompressedSegments();
+    replaceTieredSegments();
+    super.flush(force);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (compressionExecutor != null) {
+      compressionExecutor.shutdownNow();
+      try {
+        compressionExecutor.awaitTermination(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      compressionExecutor = null;
+    }
+    if (tieringExecutor != null) {
+      tieringExecutor.shutdownNow();
+      try {
+        tieringExecutor.awaitTermination(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      tieringExecutor = null;
+    }
+    if (preallocationExecutor != null) {
+      preallocationExecutor.shutdownNow();
+      try {
+        preallocationExecutor.awaitTermination(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      preallocationExecutor = null;
+    }
+
+    // Compressions that were never started are never completed, so delete their files here.
+    for (Compression compression : compressions.values()) {
+      compression.file.delete();
+    }
+    discardCompressions();
+    replaceCompressedSegments();
+    discardTierings();
+    replaceTieredSegments();
+    tierings.clear();
+    super.close();
+
+    // Spares are loaded from disk when the log is reopened.
+    synchronized (spares) {
+      spares.clear();
+    }
+  }
+
+  @Override
+  public void delete() {
+    discardCompressions();
+    replaceCompressedSegments();
+    discardTierings();
+    replaceTieredSegments();
+    synchronized (spares) {
+      deleting = true;
+    }
+    try {
+      super.delete();
+      synchronized (spares) {
+        File[] files = base.getAbsoluteFile().getParentFile().listFiles(File::isFile);
+        if (files != null) {
+          for (File file : files) {
+            if (file.getName().startsWith(base.getName() + "-spare-")) {
+              file.delete();
+            }
+          }
+        }
+        spares.clear();
+      }
+    } finally {
+      synchronized (spares) {
+        deleting = false;
+      }
+    }
+  }
+
+  @Override
+  public boolean tierSegment(long index) {
+    super.tierSegment(index);
+    replaceCompressedSegments();
+    replaceTieredSegments();
+    LogSegment segment = segments.get(index);
+    if (coldBase == null || segment.isEmpty() || coldBase.equals(segmentBases.get(segment.id()))
+      || tierings.containsKey(segment.id()) || compressions.containsKey(segment.id())) {
+      return false;
+    }
+
+    if (tieringExecutor == null) {
+      tieringExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("copycat-log-tiering-%d"));
+    }
+
+    Tiering tiering = new Tiering(segment, index, segment.lastIndex());
+    tierings.put(segment.id(), tiering);
+    tieringExecutor.execute(() -> {
+      if (!tiering.discarded) {
+        try {
+          copyToColdStorage(segment.id());
+          tiering.complete = true;
+        } catch (Exception e) {
+          if (!tiering.discarded) {
+            LOGGER.warn("Failed to move segment {} to cold storage", segment.id(), e);
+          }
+        }
+      }
+      completedTierings.add(tiering);
+    });
+    return true;
+  }
+
+  /**
+   * Copies the files of the given segment to cold storage, copying the segment's metadata file last.
+   */
+  private void copyToColdStorage(long id) throws IOException {
+    for (String extension : new String[]{"log", "index", "compressed", "metadata"}) {
+      File file = segmentFile(id, extension);
+      if (file.exists()) {
+        File coldFile = coldFile(id, extension);
+        File tmpFile = coldFile(id, extension + ".tier.tmp");
+        Files.copy(file.toPath(), tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel channel = FileChannel.open(tmpFile.toPath(), StandardOpenOption.WRITE)) {
+          channel.force(true);
+        }
+        Files.move(tmpFile.toPath(), coldFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      }
+    }
+  }
+
+  /**
+   * Returns a file for the given segment in cold storage.
+   */
+  private File coldFile(long id, String extension) {
+    return new File(coldBase.getParentFile(), String.format("%s-%d.%s", coldBase.getName(), id, extension));
+  }
+
+  /**
+   * Deletes the files of the given segment from cold storage.
+   */
+  private void deleteColdFiles(long id) {
+    for (String extension : new String[]{"metadata", "log", "index", "compressed"}) {
+      coldFile(id, extension).delete();
+    }
+  }
+
+  /**
+   * Discards all in progress moves to cold storage.
+   *
+   * Discarded moves remain in progress until they're completed in the background so that a segment is not copied to
+   * cold storage by multiple moves at once.
+   */
+  private void discardTierings() {
+    for (Tiering tiering : tierings.values()) {
+      tiering.discarded = true;
+    }
+  }
+
+  /**
+   * Replaces segments with segments that have been copied to cold storage.
+   *
+   * If a segment has been modified or removed from the log since it began being copied, the copy is discarded.
+   */
+  private void replaceTieredSegments() {
+    Tiering tiering;
+    while ((tiering = completedTierings.poll()) != null) {
+      LogSegment segment = tiering.segment;
+      if (tierings.remove(segment.id(), tiering)) {
+        if (tiering.complete && !tiering.discarded && segments.get(tiering.firstIndex) == segment && segment.isOpen()
+          && segment.lastIndex() != null && segment.lastIndex() == tiering.lastIndex) {
+          try {
+            segment.close();
+            for (String extension : new String[]{"metadata", "log", "index", "compressed"}) {
+              segmentFile(segment.id(), extension).delete();
+            }
+            segmentBases.put(segment.id(), coldBase);
+            LogSegment tieredSegment = createSegment(segment.id(), tiering.firstIndex);
+            tieredSegment.open();
+            segments.put(tiering.firstIndex, tieredSegment);
+            LOGGER.debug("Moved segment {} to cold storage", segment.id());
+            continue;
+          } catch (IOException e) {
+            throw new LogException(e, "Failed to replace moved segment");
+          }
+        }
+      }
+      if (tiering.complete) {
+        deleteColdFiles(segment.id());
+      }
+    }
+  }
+
+  /**
+   * Compresses the given sealed segment in the background.
+   */
+  private void compress(LogSegment segment) throws IOException {
+    if (compressionExecutor == null) {
+      compressionExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("copycat-log-compressor-%d"));
+    }
+
+    Compression compression = new Compression(segment, segment.firstIndex(), segment.lastIndex(),
+      File.createTempFile(String.format("%s-%d-", base.getName(), segment.id()), ".compressed.tmp", segmentFile(segment.id(), "compressed").getParentFile()));
+    compressions.put(segment.id(), compression);
+    compressionExecutor.execute(() -> {
+      if (!compression.discarded) {
+        try {
+          CompressedFileLogSegment.compress(compression.segment, compression.firstIndex, compression.lastIndex, compression.file);
+          compression.complete = true;
+        } catch (Exception e) {
+          if (!compression.discarded) {
+            LOGGER.warn("Failed to compress segment {}", segment.id(), e);
+          }
+        }
+      }
+      completedCompressions.add(compression);
+    });
+  }
+
+  /**
+   * Discards all in progress compressions.
+   */
+  private void discardCompressions() {
+    for (Compression compression : compressions.values()) {
+      compression.discarded = true;
+    }
+    compressions.clear();
+  }
+
+  /**
+   * Replaces segments with compressed segments that have completed compression.
+   *
+   * If a segment has been modified or removed from the log since its compression began, the compressed segment is
+   * discarded.
+   */
+  private void replaceCompressedSegments() {
+    Compression compression;
+    while ((compression = completedCompressions.poll()) != null) {
+      LogSegment segment = compression.segment;
+      if (compressions.get(segment.id()) == compression) {
+        compressions.remove(segment.id());
+        if (compression.complete && segments.get(compression.firstIndex) == segment && segment != currentSegment) {
+          try {
+            Files.move(compression.file.toPath(), CompressedFileLogSegment.segmentFile(this, segment.id()).toPath(), StandardCopyOption.ATOMIC_MOVE);
+            segment.close();
+            LogSegment compressedSegment = new CompressedFileLogSegment(this, segment.id(), compression.firstIndex);
+            compressedSegment.open();
+            segments.put(compression.firstIndex, compressedSegment);
+            LOGGER.debug("Compressed segment {}", segment.id());
+          } catch (IOException e) {
+            throw new LogException(e, "Failed to replace compressed segment");
+          }
+        }
+      }
+      compression.file.delete();
+    }
+  }
+
+  /**
+   * Background move of a segment to cold storage.
+   */
+  private static class Tiering {
+    private final LogSegment segment;
+    private final long firstIndex;
+    private final long lastIndex;
+    private volatile boolean complete;
+    private volatile boolean discarded;
+
+    private Tiering(LogSegment segment, long firstIndex, long lastIndex) {
+      this.segment = segment;
+      this.firstIndex = firstIndex;
+      this.lastIndex = lastIndex;
+    }
+  }
+
+  /**
+   * Background segment compression.
+   */
+  private static class Compression {
+    private final LogSegment segment;
+    private final long firstIndex;
+    private final long lastIndex;
+    private final File file;
+    private volatile boolean complete;
+    private volatile boolean discarded;
+
+    private Compression(LogSegment segment, long firstIndex, long lastIndex, File file) {
+      this.segment = segment;
+      this.firstIndex = firstIndex;
+      this.lastIndex = lastIndex;
+      this.file = file;
+    }
   }
 
 }
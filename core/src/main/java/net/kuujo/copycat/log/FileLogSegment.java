@@ -15,36 +15,86 @@
  */
 package net.kuujo.copycat.log;
 
+import net.kuujo.copycat.util.internal.Crc32c;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * File log segment.
  *
+ * The positions of all entries in the segment are loaded from the index file into an off-heap offset table when the
+ * segment is first read or written, and the size of the segment is tracked in memory. Entries can therefore be located
+ * and appended without querying the index file or the size of the log file.
+ *
+ * Each entry in the log file is preceded by a header containing the length of the entry and a CRC32C checksum of the
+ * entry. Checksums are only verified when the segment is opened: entries are verified forward from the start of the
+ * segment, the log is truncated at the first entry that was torn or corrupted, and intact entries whose positions were
+ * not written to the index file are recovered. This allows the log to be flushed lazily without risking a corrupt
+ * segment.
+ *
+ * The segment metadata records the format version of the segment. Segments written prior to the introduction of entry
+ * headers have no version and are read and appended to without entry headers, and since their entries can't be
+ * verified, they're opened without recovery.
+ *
+ * Segment files are opened via the log's {@link FileChannelPool}, so segments that aren't being read or written don't
+ * hold their files open.
+ *
+ * When preallocation is enabled, segment files are larger than the data written to them, so as with
+ * {@link MappedFileLogSegment} the number of entries and bytes written to the segment are recorded in the segment
+ * metadata each time the segment is flushed. When the segment is reopened, entries are verified forward from the
+ * recorded size so that entries written after the last flush are recovered. Entry checksums are seeded by the segment
+ * so that entries left in recycled files by other segments fail verification, and entries removed from the segment are
+ * overwritten with zeroes.
+ *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 public class FileLogSegment extends AbstractLogSegment {
+  static final int ENTRY_HEADER_SIZE = 8;
+  static final long FORMAT_VERSION = 2;
+  static final long HEADER_VERSION = 1;
+  static final int VERSIONED_METADATA_SIZE = 24;
+  private static final int EMPTY_CHECKSUM = checksum(ByteBuffer.allocate(0));
+  private static final byte[] ZEROES = new byte[4096];
+  private static final int INITIAL_INDEX_CAPACITY = 1024;
+  private static final int SCAN_BUFFER_SIZE = 1024 * 64;
+  private static final int RECOVERY_BATCH_SIZE = 1024 * 8;
   private final FileLogManager log;
   private final File logFile;
   private final File indexFile;
   private final File metadataFile;
+  private final boolean preallocated;
+  private final Object flushLock = new Object();
   private long timestamp;
-  private FileChannel logFileChannel;
-  private FileChannel indexFileChannel;
+  private int headerSize = ENTRY_HEADER_SIZE;
+  private int seed;
+  private FileChannelPool.Handle logFileHandle;
+  private FileChannelPool.Handle indexFileHandle;
+  private FileChannelPool.Handle metadataFileHandle;
+  private FileChannel appendChannel;
   private Long firstIndex;
   private Long lastIndex;
+  private long size;
+  private long writtenEntries;
+  private long writtenSize;
+  private volatile ByteBuffer positions;
   private final ByteBuffer indexBuffer = ByteBuffer.allocate(8);
+  private final ByteBuffer headerBuffer = ByteBuffer.allocate(ENTRY_HEADER_SIZE);
+  private final ByteBuffer[] writeBuffers = new ByteBuffer[2];
 
   FileLogSegment(FileLogManager log, long id, long firstIndex) {
     super(id, firstIndex);
     this.log = log;
-    this.logFile = new File(log.base.getParentFile(), String.format("%s-%d.log", log.base.getName(), id));
-    this.indexFile = new File(log.base.getParentFile(), String.format("%s-%d.index", log.base.getName(), id));
-    this.metadataFile = new File(log.base.getParentFile(), String.format("%s-%d.metadata", log.base.getName(), id));
+    this.logFile = log.segmentFile(id, "log");
+    this.indexFile = log.segmentFile(id, "index");
+    this.metadataFile = log.segmentFile(id, "metadata");
+    this.preallocated = log.config.isPreallocated();
   }
 
   @Override
@@ -65,11 +115,28 @@ public class FileLogSegment extends AbstractLogSegment {
       logFile.getParentFile().mkdirs();
     }
 
+    long version;
+    long recordedEntries = -1;
+    long recordedSize = -1;
     if (!metadataFile.exists()) {
+      // A segment without metadata is a new segment, so replace any files left by a segment that failed to be deleted.
+      if (!preallocated || !log.allocateFiles(logFile, indexFile)) {
+        logFile.delete();
+        indexFile.delete();
+      }
+
       timestamp = System.currentTimeMillis();
+      version = FORMAT_VERSION;
       try (RandomAccessFile metaFile = new RandomAccessFile(metadataFile, "rw")) {
         metaFile.writeLong(super.firstIndex); // First index of the segment.
         metaFile.writeLong(timestamp); // Timestamp of the time at which the segment was created.
+        metaFile.writeLong(FORMAT_VERSION); // Format version of the segment.
+        if (preallocated) {
+          metaFile.writeLong(0); // Number of entries recorded in the segment.
+          metaFile.writeLong(0); // Number of bytes recorded in the segment.
+          recordedEntries = 0;
+          recordedSize = 0;
+        }
       }
     } else {
       try (RandomAccessFile metaFile = new RandomAccessFile(metadataFile, "r")) {
@@ -77,20 +144,390 @@ public class FileLogSegment extends AbstractLogSegment {
           throw new LogException("Segment metadata out of sync");
         }
         timestamp = metaFile.readLong();
+        version = formatVersion(metaFile);
+        if (version < HEADER_VERSION) {
+          headerSize = 0;
+        }
+
+        // If the segment was last written as a memory mapped segment then its files are preallocated and the
+        // metadata records the number of entries and bytes actually written to the segment.
+        if (metaFile.length() >= MappedFileLogSegment.METADATA_SIZE) {
+          recordedEntries = metaFile.readLong();
+          recordedSize = metaFile.readLong();
+        }
+      }
+    }
+
+    seed = version >= FORMAT_VERSION ? seed(id(), timestamp) : 0;
+
+    logFileHandle = log.channels.handle(logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    indexFileHandle = log.channels.handle(indexFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if (preallocated) {
+      metadataFileHandle = log.channels.handle(metadataFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    long entries;
+    FileChannel logFileChannel = logFileHandle.acquire();
+    try {
+      FileChannel indexFileChannel = indexFileHandle.acquire();
+      try {
+        Recovery recovery;
+        if (recordedEntries > -1 && version >= FORMAT_VERSION) {
+          // Entries may have been written after the recorded size was last forced to disk, so verify entries forward
+          // from the recorded size. Entries left in recycled files by other segments fail verification since checksums
+          // are seeded by the segment.
+          recovery = recover(logFileChannel, indexFileChannel, recordedEntries, recordedSize, logFileChannel.size(), seed);
+        } else if (recordedEntries > -1 && preallocated) {
+          // Checksums of segments written in earlier formats are not seeded, so entries beyond the recorded size may be
+          // stale entries of another segment and the segment is bounded by the recorded size.
+          recovery = new Recovery(recordedEntries, recordedSize);
+        } else if (recordedEntries > -1) {
+          recovery = headerSize > 0 ? recover(logFileChannel, indexFileChannel, 0, 0, recordedSize, seed) : new Recovery(recordedEntries, recordedSize);
+        } else if (headerSize > 0) {
+          recovery = recover(logFileChannel, indexFileChannel, 0, 0, logFileChannel.size(), seed);
+        } else {
+          recovery = new Recovery(indexFileChannel.size() / 8, logFileChannel.size());
+        }
+        entries = recovery.entries;
+        size = recovery.size;
+
+        // Preallocated files are larger than the data written to them, so they're only truncated if they were written
+        // without preallocation. Recovered entries are forced to disk before their size is recorded.
+        if (!preallocated || recordedEntries == -1) {
+          if (size < logFileChannel.size()) {
+            logFileChannel.truncate(size);
+          }
+          if (entries * 8 < indexFileChannel.size()) {
+            indexFileChannel.truncate(entries * 8);
+          }
+        } else if (entries > recordedEntries) {
+          logFileChannel.force(false);
+          indexFileChannel.force(false);
+        }
+      } finally {
+        indexFileHandle.release();
       }
+    } finally {
+      logFileHandle.release();
     }
 
-    logFileChannel = FileChannel.open(this.logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
-    logFileChannel.position(logFileChannel.size());
-    indexFileChannel = FileChannel.open(this.indexFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
-    indexFileChannel.position(indexFileChannel.size());
+    if (preallocated) {
+      if (entries != recordedEntries || size != recordedSize) {
+        record(entries, size);
+      }
+    } else if (recordedEntries > -1) {
+      // The segment was last written with preallocation, so drop the recorded size now that the files are truncated.
+      try (RandomAccessFile metaFile = new RandomAccessFile(metadataFile, "rw")) {
+        metaFile.setLength(VERSIONED_METADATA_SIZE);
+      }
+    }
+    writtenEntries = entries;
+    writtenSize = size;
 
-    if (indexFileChannel.size() > 0) {
+    if (entries > 0) {
       firstIndex = super.firstIndex;
-      lastIndex = firstIndex + indexFileChannel.size() / 8 - 1;
+      lastIndex = firstIndex + entries - 1;
+    }
+  }
+
+  /**
+   * Reads the format version from the given segment metadata file, positioned after the segment timestamp.
+   *
+   * Metadata written prior to the introduction of entry headers does not record a version, and preallocated segments
+   * that were written in that format record a version of {@code 0}.
+   */
+  static long formatVersion(RandomAccessFile metaFile) throws IOException {
+    return metaFile.length() >= VERSIONED_METADATA_SIZE ? metaFile.readLong() : 0;
+  }
+
+  /**
+   * Recovers a segment from a failure.
+   *
+   * Entries are verified forward from the start of the segment, and the log is truncated at the first entry that is torn
+   * or fails checksum verification along with all entries that follow it. Positions of intact entries that were not
+   * written to the index file are recovered, and the index is truncated to the recovered entries.
+   *
+   * @param logFileChannel The segment log file.
+   * @param indexFileChannel The segment index file.
+   * @param seed The seed with which the checksums of the segment's entries were computed.
+   * @throws IOException If the segment could not be recovered.
+   */
+  static void recover(FileChannel logFileChannel, FileChannel indexFileChannel, int seed) throws IOException {
+    Recovery recovery = recover(logFileChannel, indexFileChannel, 0, 0, logFileChannel.size(), seed);
+    if (recovery.size < logFileChannel.size()) {
+      logFileChannel.truncate(recovery.size);
+    }
+    if (recovery.entries * 8 < indexFileChannel.size()) {
+      indexFileChannel.truncate(recovery.entries * 8);
+    }
+  }
+
+  /**
+   * Verifies the entries of a segment forward from a known intact position.
+   *
+   * Verification stops at the first entry that is torn or fails checksum verification, so an entry corrupted in the
+   * middle of the segment is never skipped over. The positions of the verified entries are written to the index file
+   * where they differ from the positions already in the index. Neither file is truncated.
+   *
+   * @param logFileChannel The segment log file.
+   * @param indexFileChannel The segment index file.
+   * @param entries The number of intact entries preceding the given position.
+   * @param position The position in the log file at which to start verifying entries.
+   * @param limit The position in the log file at which to stop verifying entries.
+   * @param seed The seed with which the checksums of the segment's entries were computed.
+   * @return The number of intact entries and the size of the intact entries.
+   * @throws IOException If the segment could not be read or the index could not be written.
+   */
+  static Recovery recover(FileChannel logFileChannel, FileChannel indexFileChannel, long entries, long position, long limit, int seed) throws IOException {
+    Scanner scanner = new Scanner(logFileChannel, position, limit, seed);
+    ByteBuffer positions = ByteBuffer.allocate(RECOVERY_BATCH_SIZE);
+    long batchEntries = entries;
+    long nextPosition;
+    while ((nextPosition = scanner.verifyEntry(position)) >= 0) {
+      positions.putLong(position);
+      entries++;
+      position = nextPosition;
+      if (!positions.hasRemaining()) {
+        writePositions(indexFileChannel, batchEntries, positions);
+        batchEntries = entries;
+      }
+    }
+    writePositions(indexFileChannel, batchEntries, positions);
+    return new Recovery(entries, position);
+  }
+
+  /**
+   * Writes a batch of recovered entry positions to the index file, skipping the write if the index already contains them.
+   */
+  private static void writePositions(FileChannel indexFileChannel, long entries, ByteBuffer positions) throws IOException {
+    positions.flip();
+    if (positions.hasRemaining()) {
+      long position = entries * 8;
+      ByteBuffer indexed = ByteBuffer.allocate(positions.remaining());
+      while (indexed.hasRemaining()) {
+        if (indexFileChannel.read(indexed, position + indexed.position()) < 0) {
+          break;
+        }
+      }
+      indexed.flip();
+      if (!indexed.equals(positions)) {
+        while (positions.hasRemaining()) {
+          indexFileChannel.write(positions, position + positions.position());
+        }
+      }
+    }
+    positions.clear();
+  }
+
+  /**
+   * The number of intact entries and the size of the intact entries recovered from a segment.
+   */
+  static final class Recovery {
+    final long entries;
+    final long size;
+
+    private Recovery(long entries, long size) {
+      this.entries = entries;
+      this.size = size;
     }
   }
 
+  /**
+   * Sequentially reads and verifies entries through a buffer rather than reading each entry header and body separately.
+   */
+  private static final class Scanner {
+    private final FileChannel channel;
+    private final long limit;
+    private final int seed;
+    private ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+    private long bufferPosition;
+
+    private Scanner(FileChannel channel, long position, long limit, int seed) {
+      this.channel = channel;
+      this.limit = limit;
+      this.seed = seed;
+      this.bufferPosition = position;
+      buffer.limit(0);
+    }
+
+    /**
+     * Verifies the entry at the given position, returning the position of the next entry or {@code -1} if the entry is
+     * not intact.
+     */
+    private long verifyEntry(long position) throws IOException {
+      if (position + ENTRY_HEADER_SIZE > limit) {
+        return -1;
+      }
+      ByteBuffer header = read(position, ENTRY_HEADER_SIZE);
+      int length = header.getInt();
+      int checksum = header.getInt();
+      if (length < 0 || position + ENTRY_HEADER_SIZE + length > limit) {
+        return -1;
+      }
+      return checksum(read(position + ENTRY_HEADER_SIZE, length), seed) == checksum ? position + ENTRY_HEADER_SIZE + length : -1;
+    }
+
+    /**
+     * Returns a view of the given number of bytes at the given position, which must not precede any position previously
+     * read, refilling the buffer from the channel if the bytes are not already buffered.
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+      int offset = (int) (position - bufferPosition);
+      if (offset + length > buffer.limit()) {
+        buffer.position(offset);
+        buffer.compact();
+        if (length > buffer.capacity()) {
+          ByteBuffer grown = ByteBuffer.allocate(length);
+          buffer.flip();
+          grown.put(buffer);
+          buffer = grown;
+        }
+        bufferPosition = position;
+        while (buffer.position() < length) {
+          if (channel.read(buffer, bufferPosition + buffer.position()) < 0) {
+            throw new LogException("Failed to read segment");
+          }
+        }
+        buffer.flip();
+        offset = 0;
+      }
+      ByteBuffer view = buffer.duplicate();
+      view.limit(offset + length);
+      view.position(offset);
+      return view.slice();
+    }
+  }
+
+  /**
+   * Returns the checksum of the given entry to be stored in the entry header.
+   *
+   * The checksum is masked so that the header of an empty entry is not all zeroes.
+   */
+  static int checksum(ByteBuffer entry) {
+    int checksum = Crc32c.checksum(entry);
+    return ((checksum >>> 15) | (checksum << 17)) + 0xa282ead8;
+  }
+
+  /**
+   * Returns the checksum of the given entry combined with the given segment seed.
+   */
+  static int checksum(ByteBuffer entry, int seed) {
+    return checksum(entry) ^ seed;
+  }
+
+  /**
+   * Returns the seed with which the checksums of a segment's entries are computed.
+   *
+   * The seed is derived from the segment's id and creation time, so entries left in a recycled file by the segment that
+   * previously used it fail verification. The seed is never the checksum of an empty entry, so zeroed bytes never
+   * verify as an empty entry.
+   */
+  static int seed(long id, long timestamp) {
+    long hash = id * 0x9e3779b97f4a7c15L ^ timestamp;
+    int seed = (int) (hash ^ (hash >>> 32));
+    return seed != EMPTY_CHECKSUM ? seed : ~seed;
+  }
+
+  /**
+   * Returns the offset table, loading the positions of all entries in the segment from the index file if the table has
+   * not yet been loaded.
+   */
+  private ByteBuffer positions() {
+    ByteBuffer positions = this.positions;
+    if (positions == null) {
+      synchronized (this) {
+        positions = this.positions;
+        if (positions == null) {
+          positions = loadPositions();
+          this.positions = positions;
+        }
+      }
+    }
+    return positions;
+  }
+
+  /**
+   * Loads the positions of all entries in the segment from the index file.
+   */
+  private ByteBuffer loadPositions() {
+    try {
+      FileChannel indexFileChannel = indexFileHandle.acquire();
+      try {
+        long entries = writtenEntries();
+        ByteBuffer positions = ensureCapacity(null, entries);
+        positions.limit((int) (entries * 8));
+        while (positions.hasRemaining()) {
+          if (indexFileChannel.read(positions, positions.position()) < 0) {
+            throw new LogException("Failed to read segment index");
+          }
+        }
+        positions.clear();
+        return positions;
+      } finally {
+        indexFileHandle.release();
+      }
+    } catch (IOException e) {
+      throw new LogException(e);
+    }
+  }
+
+  /**
+   * Returns the number of entries written to the segment prior to the last append.
+   */
+  private synchronized long writtenEntries() {
+    return writtenEntries;
+  }
+
+  /**
+   * Records the number of entries and bytes written to the segment in the segment metadata.
+   */
+  private void record(long entries, long size) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    buffer.putLong(entries);
+    buffer.putLong(size);
+    buffer.flip();
+    FileChannel metadataFileChannel = metadataFileHandle.acquire();
+    try {
+      while (buffer.hasRemaining()) {
+        metadataFileChannel.write(buffer, VERSIONED_METADATA_SIZE + buffer.position());
+      }
+      metadataFileChannel.force(false);
+    } finally {
+      metadataFileHandle.release();
+    }
+  }
+
+  /**
+   * Updates the number of entries and bytes written to the segment after entries are appended or removed.
+   */
+  private synchronized void written() {
+    writtenEntries = entryCount();
+    writtenSize = size;
+  }
+
+  /**
+   * Ensures the offset table can hold positions for the given number of entries, growing the table if necessary.
+   */
+  private static ByteBuffer ensureCapacity(ByteBuffer positions, long entries) {
+    if (positions != null && entries * 8 <= positions.capacity()) {
+      return positions;
+    }
+    if (entries * 8 > Integer.MAX_VALUE) {
+      throw new LogException("Segment index capacity exceeded");
+    }
+    long capacity = positions != null ? positions.capacity() : INITIAL_INDEX_CAPACITY * 8;
+    while (capacity < entries * 8) {
+      capacity *= 2;
+    }
+    ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(capacity, Integer.MAX_VALUE - 7));
+    if (positions != null) {
+      positions.clear();
+      buffer.put(positions);
+      buffer.clear();
+    }
+    return buffer;
+  }
+
   @Override
   public boolean isEmpty() {
     assertIsOpen();
@@ -99,17 +536,13 @@ public class FileLogSegment extends AbstractLogSegment {
 
   @Override
   public boolean isOpen() {
-    return logFileChannel != null && indexFileChannel != null;
+    return logFileHandle != null && indexFileHandle != null;
   }
 
   @Override
   public long size() {
     assertIsOpen();
-    try {
-      return logFileChannel.size();
-    } catch (IOException e) {
-      throw new LogException(e);
-    }
+    return size;
   }
 
   @Override
@@ -133,12 +566,35 @@ public class FileLogSegment extends AbstractLogSegment {
   @Override
   public long appendEntry(ByteBuffer entry) {
     assertIsOpen();
+    ByteBuffer positions = positions();
     long index = nextIndex();
     try {
       entry.rewind();
-      long position = logFileChannel.position();
-      logFileChannel.write(entry);
+      long position = size;
+      this.positions = ensureCapacity(positions, entryCount());
+      FileChannel logFileChannel = acquireAppendChannel();
+      if (headerSize > 0) {
+        headerBuffer.clear();
+        headerBuffer.putInt(entry.limit());
+        headerBuffer.putInt(checksum(entry, seed));
+        headerBuffer.flip();
+      }
+      writeBuffers[0] = headerBuffer;
+      writeBuffers[1] = entry;
+      int offset = headerSize > 0 ? 0 : 1;
+      long length = headerSize + entry.limit();
+      try {
+        while (length > 0) {
+          long written = logFileChannel.write(writeBuffers, offset, writeBuffers.length - offset);
+          size += written;
+          length -= written;
+        }
+      } finally {
+        writeBuffers[1] = null;
+        logFileHandle.release();
+      }
       storePosition(index, position);
+      written();
     } catch (IOException e) {
       throw new LogException(e);
     }
@@ -146,38 +602,130 @@ public class FileLogSegment extends AbstractLogSegment {
   }
 
   /**
-   * Stores the position of an entry in the log.
+   * Appends a batch of entries to the segment.
+   *
+   * The entries and their headers are written to the log file with a single gathering write, and the positions of all
+   * the entries are written to the index file with a single write.
    */
-  private void storePosition(long index, long position) {
+  @Override
+  public List<Long> appendEntries(List<ByteBuffer> entries) {
+    assertIsOpen();
+    List<Long> indexes = new ArrayList<>(entries.size());
+    if (entries.isEmpty()) {
+      return indexes;
+    }
+
+    ByteBuffer positions = positions();
+    int stride = headerSize > 0 ? 2 : 1;
+    ByteBuffer[] buffers = new ByteBuffer[entries.size() * stride];
+    ByteBuffer headers = ByteBuffer.allocate(entries.size() * headerSize);
+    ByteBuffer batchPositions = ByteBuffer.allocate(entries.size() * 8);
     try {
-      ByteBuffer buffer = ByteBuffer.allocate(8).putLong(position);
-      buffer.flip();
-      indexFileChannel.write(buffer, (index - firstIndex) * 8);
+      long length = 0;
+      for (int i = 0; i < entries.size(); i++) {
+        ByteBuffer entry = entries.get(i);
+        entry.rewind();
+        if (headerSize > 0) {
+          headers.putInt(entry.limit());
+          headers.putInt(checksum(entry, seed));
+          buffers[i * stride] = slice(headers, headers.position() - headerSize, headers.position());
+        }
+        buffers[i * stride + stride - 1] = entry;
+        batchPositions.putLong(size + length);
+        length += headerSize + entry.limit();
+        indexes.add(nextIndex());
+      }
+      batchPositions.flip();
+
+      FileChannel logFileChannel = acquireAppendChannel();
+      try {
+        while (length > 0) {
+          long written = logFileChannel.write(buffers);
+          size += written;
+          length -= written;
+        }
+      } finally {
+        logFileHandle.release();
+      }
+
+      int offset = (int) (indexes.get(0) - firstIndex) * 8;
+      positions = ensureCapacity(positions, entryCount());
+      positions.position(offset);
+      positions.put(batchPositions.duplicate());
+      positions.clear();
+      this.positions = positions;
+
+      FileChannel indexFileChannel = indexFileHandle.acquire();
+      try {
+        long indexPosition = offset;
+        while (batchPositions.hasRemaining()) {
+          indexPosition += indexFileChannel.write(batchPositions, indexPosition);
+        }
+      } finally {
+        indexFileHandle.release();
+      }
+      written();
     } catch (IOException e) {
       throw new LogException(e);
     }
+    return indexes;
   }
 
   /**
-   * Finds the position of the given index in the segment.
+   * Acquires the log file channel for appending entries.
+   *
+   * Entries are appended at the channel's position, so if the channel has been reopened since entries were last
+   * appended, the channel is positioned at the end of the segment.
    */
-  private long findPosition(long index) {
-    try {
-      if (firstIndex == null || index <= firstIndex) {
-        return 0;
-      } else if (lastIndex == null || index > lastIndex) {
-        return logFileChannel.size();
+  private FileChannel acquireAppendChannel() throws IOException {
+    FileChannel logFileChannel = logFileHandle.acquire();
+    if (logFileChannel != appendChannel) {
+      try {
+        logFileChannel.position(size);
+      } catch (IOException e) {
+        logFileHandle.release();
+        throw e;
       }
-      indexFileChannel.read(indexBuffer, (index - firstIndex) * 8);
-      indexBuffer.flip();
-      long position = indexBuffer.getLong();
+      appendChannel = logFileChannel;
+    }
+    return logFileChannel;
+  }
+
+  /**
+   * Stores the position of an entry in the log.
+   */
+  private void storePosition(long index, long position) {
+    try {
+      int offset = (int) (index - firstIndex) * 8;
+      positions.putLong(offset, position);
       indexBuffer.clear();
-      return position;
+      indexBuffer.putLong(position);
+      indexBuffer.flip();
+      FileChannel indexFileChannel = indexFileHandle.acquire();
+      try {
+        while (indexBuffer.hasRemaining()) {
+          indexFileChannel.write(indexBuffer, offset + indexBuffer.position());
+        }
+      } finally {
+        indexFileHandle.release();
+      }
     } catch (IOException e) {
       throw new LogException(e);
     }
   }
 
+  /**
+   * Finds the position of the given index in the segment.
+   */
+  private long findPosition(long index) {
+    if (firstIndex == null || index <= firstIndex) {
+      return 0;
+    } else if (lastIndex == null || index > lastIndex) {
+      return size;
+    }
+    return positions().getLong((int) (index - firstIndex) * 8);
+  }
+
   @Override
   public Long firstIndex() {
     assertIsOpen();
@@ -201,10 +749,15 @@ public class FileLogSegment extends AbstractLogSegment {
     assertIsOpen();
     assertContainsIndex(index);
     try {
-      long startPosition = findPosition(index);
+      long startPosition = findPosition(index) + headerSize;
       long endPosition = findPosition(index + 1);
       ByteBuffer buffer = ByteBuffer.allocate((int) (endPosition - startPosition));
-      logFileChannel.read(buffer, startPosition);
+      FileChannel logFileChannel = logFileHandle.acquire();
+      try {
+        logFileChannel.read(buffer, startPosition);
+      } finally {
+        logFileHandle.release();
+      }
       buffer.flip();
       return buffer;
     } catch (IOException e) {
@@ -212,18 +765,137 @@ public class FileLogSegment extends AbstractLogSegment {
     }
   }
 
+  /**
+   * Reads a range of entries from the log file into the given buffer with a single positional read.
+   */
+  @Override
+  public List<ByteBuffer> readEntries(long fromIndex, long toIndex, ByteBuffer buffer) {
+    assertIsOpen();
+    assertContainsIndex(fromIndex);
+    List<ByteBuffer> entries = new ArrayList<>();
+    buffer.clear();
+
+    // Use the offset table to find the last entry that fits in the buffer.
+    long startPosition = findPosition(fromIndex);
+    long lastIndex = fromIndex - 1;
+    long endPosition = startPosition;
+    while (lastIndex < Math.min(toIndex, this.lastIndex) && findPosition(lastIndex + 2) - startPosition <= buffer.capacity()) {
+      lastIndex++;
+      endPosition = findPosition(lastIndex + 1);
+    }
+
+    if (lastIndex < fromIndex) {
+      return entries;
+    }
+
+    try {
+      buffer.limit((int) (endPosition - startPosition));
+      FileChannel logFileChannel = logFileHandle.acquire();
+      try {
+        while (buffer.hasRemaining()) {
+          if (logFileChannel.read(buffer, startPosition + buffer.position()) < 0) {
+            throw new LogException("Failed to read segment entries");
+          }
+        }
+      } finally {
+        logFileHandle.release();
+      }
+    } catch (IOException e) {
+      throw new LogException(e);
+    }
+
+    for (long index = fromIndex; index <= lastIndex; index++) {
+      entries.add(slice(buffer, (int) (findPosition(index) + headerSize - startPosition), (int) (findPosition(index + 1) - startPosition)));
+    }
+    return entries;
+  }
+
   @Override
   public void removeAfter(long index) {
     assertIsOpen();
     if (containsIndex(index + 1)) {
+      synchronized (flushLock) {
+        try {
+          long entries = (index + 1) - firstIndex;
+          long removedSize = size;
+          size = findPosition(index + 1);
+          if (preallocated) {
+            // Preallocated files are not truncated, so overwrite the removed entries with zeroes, force the remaining
+            // entries to disk and record the new size of the segment to ensure removed entries are not recovered when
+            // the segment is reopened.
+            appendChannel = null;
+            zero(logFileHandle, size, removedSize);
+            force(logFileHandle);
+            force(indexFileHandle);
+            record(entries, size);
+          } else {
+            truncate(logFileHandle, size);
+            truncate(indexFileHandle, entries * 8);
+          }
+          if (index >= firstIndex) {
+            lastIndex = index;
+          } else {
+            lastIndex = null;
+            firstIndex = null;
+          }
+          written();
+        } catch (IOException e) {
+          throw new LogException(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Overwrites the given range of the given file with zeroes.
+   */
+  private static void zero(FileChannelPool.Handle handle, long position, long limit) throws IOException {
+    FileChannel channel = handle.acquire();
+    try {
+      ByteBuffer zeroes = ByteBuffer.wrap(ZEROES);
+      while (position < limit) {
+        zeroes.clear();
+        zeroes.limit((int) Math.min(ZEROES.length, limit - position));
+        position += channel.write(zeroes, position);
+      }
+    } finally {
+      handle.release();
+    }
+  }
+
+  /**
+   * Truncates the given file to the given size.
+   */
+  private static void truncate(FileChannelPool.Handle handle, long size) throws IOException {
+    FileChannel channel = handle.acquire();
+    try {
+      channel.truncate(size);
+    } finally {
+      handle.release();
+    }
+  }
+
+  /**
+   * Flushes the segment to disk.
+   *
+   * Since the log may be flushed by a group commit while entries are being appended, preallocated segments record
+   * the number of entries and bytes written before the flush began once the files have been forced to disk.
+   */
+  @Override
+  public void flush() {
+    synchronized (flushLock) {
+      long entries;
+      long size;
+      synchronized (this) {
+        entries = writtenEntries;
+        size = writtenSize;
+      }
+
       try {
-        logFileChannel.truncate(findPosition(index + 1));
-        indexFileChannel.truncate(((index + 1) - firstIndex) * 8);
-        if (index >= firstIndex) {
-          lastIndex = index;
-        } else {
-          lastIndex = null;
-          firstIndex = null;
+        force(logFileHandle);
+        force(indexFileHandle);
+        if (preallocated) {
+          record(entries, size);
         }
       } catch (IOException e) {
         throw new LogException(e);
@@ -231,35 +903,47 @@ public class FileLogSegment extends AbstractLogSegment {
     }
   }
 
-  @Override
-  public void flush() {
+  /**
+   * Forces writes to the given file to disk. If the file's channel has been closed by the pool, the file is reopened
+   * in order to force writes that were made via the closed channel.
+   */
+  private static void force(FileChannelPool.Handle handle) throws IOException {
+    FileChannel channel = handle.acquire();
     try {
-      logFileChannel.force(false);
-      indexFileChannel.force(false);
-    } catch (IOException e) {
-      throw new LogException(e);
+      channel.force(false);
+    } finally {
+      handle.release();
     }
   }
 
   @Override
   public void close() throws IOException {
     assertIsOpen();
-    logFileChannel.close();
-    logFileChannel = null;
-    indexFileChannel.close();
-    indexFileChannel = null;
+    if (preallocated) {
+      flush();
+      metadataFileHandle.close();
+      metadataFileHandle = null;
+    }
+    logFileHandle.close();
+    logFileHandle = null;
+    indexFileHandle.close();
+    indexFileHandle = null;
+    appendChannel = null;
+    positions = null;
   }
 
   @Override
   public boolean isClosed() {
-    return logFileChannel == null;
+    return logFileHandle == null;
   }
 
   @Override
   public void delete() {
-    logFile.delete();
-    indexFile.delete();
     metadataFile.delete();
+    if (!preallocated || !log.recycleFiles(logFile, indexFile)) {
+      logFile.delete();
+      indexFile.delete();
+    }
   }
 
 }
@@ -73,6 +73,18 @@ public abstract class Log extends LogConfig {
     return this;
   }
 
+  @Override
+  public Log withGroupCommit(boolean groupCommit) {
+    setGroupCommit(groupCommit);
+    return this;
+  }
+
+  @Override
+  public Log withCacheSize(long cacheSize) {
+    setCacheSize(cacheSize);
+    return this;
+  }
+
   /**
    * Gets a log manager for the given resource.
    *
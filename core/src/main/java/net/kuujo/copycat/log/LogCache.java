@@ -0,0 +1,190 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Log entry cache.
+ *
+ * The cache holds recently appended and recently read entries up to a maximum size in bytes, evicting the least
+ * recently used entries once the maximum size is exceeded. Because entries are cached as they're appended to the log,
+ * the cache favors entries at the tail of the log. Entries are copied into the heap when they're cached, since entries read
+ * from a segment may be views of a memory mapped file or a reused buffer. Entries are returned as read-only views of the
+ * cached copies. Not threadsafe.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class LogCache {
+  private final long maxSize;
+  private final LinkedHashMap<Long, ByteBuffer> entries = new LinkedHashMap<>(1024, 0.75f, true);
+  private long size;
+  private long hits;
+  private long misses;
+
+  LogCache(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the maximum size of the cache in bytes.
+   *
+   * @return The maximum size of the cache in bytes.
+   */
+  public long maxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Returns the size of all entries in the cache in bytes.
+   *
+   * @return The size of all entries in the cache in bytes.
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of entries in the cache.
+   *
+   * @return The number of entries in the cache.
+   */
+  public int entryCount() {
+    return entries.size();
+  }
+
+  /**
+   * Returns the number of entry lookups that were served by the cache.
+   *
+   * @return The number of cache hits.
+   */
+  public long hitCount() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of entry lookups that were not served by the cache.
+   *
+   * @return The number of cache misses.
+   */
+  public long missCount() {
+    return misses;
+  }
+
+  /**
+   * Gets an entry from the cache.
+   *
+   * @param index The index of the entry to get.
+   * @return The cached entry or {@code null} if the entry is not cached.
+   */
+  ByteBuffer getEntry(long index) {
+    ByteBuffer entry = entries.get(index);
+    if (entry != null) {
+      hits++;
+      return entry.asReadOnlyBuffer();
+    }
+    misses++;
+    return null;
+  }
+
+  /**
+   * Adds an entry to the cache, evicting the least recently used entries if the cache is full.
+   *
+   * @param index The index of the entry to add.
+   * @param entry The entry to add.
+   */
+  void putEntry(long index, ByteBuffer entry) {
+    ByteBuffer source = entry.duplicate();
+    source.rewind();
+    if (source.limit() > maxSize) {
+      return;
+    }
+
+    ByteBuffer cached = ByteBuffer.allocate(source.limit());
+    cached.put(source);
+    cached.flip();
+
+    ByteBuffer previous = entries.put(index, cached);
+    if (previous != null) {
+      size -= previous.limit();
+    }
+    size += cached.limit();
+
+    for (Iterator<ByteBuffer> iterator = entries.values().iterator(); size > maxSize && iterator.hasNext();) {
+      size -= iterator.next().limit();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Removes all entries prior to the given index from the cache.
+   *
+   * @param index The index prior to which to remove entries.
+   */
+  void removeBefore(long index) {
+    removeIf(entry -> entry.getKey() < index);
+  }
+
+  /**
+   * Removes all entries after the given index from the cache.
+   *
+   * @param index The index after which to remove entries.
+   */
+  void removeAfter(long index) {
+    removeIf(entry -> entry.getKey() > index);
+  }
+
+  /**
+   * Removes all entries within the given range from the cache.
+   *
+   * @param fromIndex The first index to remove.
+   * @param toIndex The last index to remove.
+   */
+  void remove(long fromIndex, long toIndex) {
+    removeIf(entry -> entry.getKey() >= fromIndex && entry.getKey() <= toIndex);
+  }
+
+  /**
+   * Removes all entries matching the given predicate from the cache.
+   */
+  private void removeIf(Predicate<Map.Entry<Long, ByteBuffer>> predicate) {
+    for (Iterator<Map.Entry<Long, ByteBuffer>> iterator = entries.entrySet().iterator(); iterator.hasNext();) {
+      Map.Entry<Long, ByteBuffer> entry = iterator.next();
+      if (predicate.test(entry)) {
+        size -= entry.getValue().limit();
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Clears the cache.
+   */
+  void clear() {
+    entries.clear();
+    size = 0;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[size=%d, maxSize=%d, entries=%d, hits=%d, misses=%d]", getClass().getSimpleName(), size, maxSize, entries.size(), hits, misses);
+  }
+
+}
@@ -32,6 +32,8 @@ public abstract class LogConfig extends AbstractConfigurable implements Configur
   private static final String LOG_SEGMENT_INTERVAL = "segment.interval";
   private static final String LOG_FLUSH_ON_WRITE = "flush.on-write";
   private static final String LOG_FLUSH_INTERVAL = "flush.interval";
+  private static final String LOG_FLUSH_GROUP_COMMIT = "flush.group-commit";
+  private static final String LOG_CACHE_SIZE = "cache.size";
 
   private static final String DEFAULT_CONFIGURATION = "log-defaults";
   private static final String CONFIGURATION = "log";
@@ -181,4 +183,70 @@ public abstract class LogConfig extends AbstractConfigurable implements Configur
     return this;
   }
 
+  /**
+   * Sets whether to coalesce concurrent flushes into group commits.
+   *
+   * When group commits are enabled and the log is flushed on write, entries appended to the log while a flush is in
+   * progress are flushed to disk together in a single flush once the in progress flush completes.
+   *
+   * @param groupCommit Whether to coalesce concurrent flushes into group commits.
+   */
+  public void setGroupCommit(boolean groupCommit) {
+    this.config = config.withValue(LOG_FLUSH_GROUP_COMMIT, ConfigValueFactory.fromAnyRef(groupCommit));
+  }
+
+  /**
+   * Returns whether to coalesce concurrent flushes into group commits.
+   *
+   * @return Whether to coalesce concurrent flushes into group commits.
+   */
+  public boolean isGroupCommit() {
+    return config.getBoolean(LOG_FLUSH_GROUP_COMMIT);
+  }
+
+  /**
+   * Sets whether to coalesce concurrent flushes into group commits, returning the log configuration for method chaining.
+   *
+   * @param groupCommit Whether to coalesce concurrent flushes into group commits.
+   * @return The log configuration.
+   */
+  public LogConfig withGroupCommit(boolean groupCommit) {
+    setGroupCommit(groupCommit);
+    return this;
+  }
+
+  /**
+   * Sets the size of the log entry cache in bytes.
+   *
+   * The entry cache holds the most recently appended and read entries in memory, allowing entries near the tail of the
+   * log to be read repeatedly without reading from disk. A cache size of {@code 0} disables the cache.
+   *
+   * @param cacheSize The size of the log entry cache in bytes.
+   * @throws java.lang.IllegalArgumentException If the cache size is negative
+   */
+  public void setCacheSize(long cacheSize) {
+    this.config = config.withValue(LOG_CACHE_SIZE, ConfigValueFactory.fromAnyRef(Assert.arg(cacheSize, cacheSize >= 0, "cache size must not be negative")));
+  }
+
+  /**
+   * Returns the size of the log entry cache in bytes.
+   *
+   * @return The size of the log entry cache in bytes.
+   */
+  public long getCacheSize() {
+    return config.getLong(LOG_CACHE_SIZE);
+  }
+
+  /**
+   * Sets the size of the log entry cache in bytes, returning the log configuration for method chaining.
+   *
+   * @param cacheSize The size of the log entry cache in bytes.
+   * @return The log configuration.
+   * @throws java.lang.IllegalArgumentException If the cache size is negative
+   */
+  public LogConfig withCacheSize(long cacheSize) {
+    setCacheSize(cacheSize);
+    return this;
+  }
+
 }
@@ -16,7 +16,10 @@
 package net.kuujo.copycat.log;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
 
 /**
  * Log manager.
@@ -71,6 +74,8 @@ public interface LogManager extends Loggable {
   /**
    * Compacts the log, removing all segments up to and including the given index.
    *
+   * Removed segments are closed and deleted in the background.
+   *
    * @param index The index to which to compact the log. This must be the first index of the last
    *          segment in the log to remove via compaction
    * @throws IllegalArgumentException if {@code index} is not the first index of a segment or if
@@ -80,4 +85,123 @@ public interface LogManager extends Loggable {
    */
   void compact(long index) throws IOException;
 
+  /**
+   * Removes a segment from the log.
+   *
+   * The segment is removed from the log immediately and is closed and deleted in the background.
+   *
+   * @param index The first index of the segment to remove.
+   * @throws IllegalArgumentException if {@code index} is not the first index of a segment or if {@code index}
+   *           represents the last segment in the log
+   */
+  void removeSegment(long index);
+
+  /**
+   * Returns the term of the entry at the given index.
+   *
+   * Entries written by Copycat's replication protocol begin with the term in which the entry was written. Logs index
+   * the terms of entries as they're appended, so the term of an entry can be found without reading the entry.
+   *
+   * @param index The index of the entry.
+   * @return The term of the entry at the given index.
+   * @throws IllegalStateException If the log is not open.
+   * @throws IndexOutOfBoundsException If the log does not contain the given index.
+   */
+  long getTerm(long index);
+
+  /**
+   * Moves the segment starting at the given index to the log's cold storage.
+   *
+   * Segments are copied to cold storage in the background and replace the original segment once they've been copied,
+   * after which the segment's entries are read from cold storage. Logs that are not configured with cold storage do
+   * not move segments.
+   *
+   * @param index The first index of the segment to move.
+   * @return Indicates whether the segment is being moved to cold storage.
+   * @throws IllegalArgumentException if {@code index} is not the first index of a segment or if {@code index}
+   *           represents the last segment in the log
+   */
+  boolean tierSegment(long index);
+
+  /**
+   * Rewrites a segment of the log, replacing each entry in the segment with the entry returned by the given function.
+   *
+   * The segment is rewritten to a new segment which replaces the existing segment once all of its entries have been
+   * written, so entries retain their indexes and the log is unchanged if rewriting fails. If the log crashes before
+   * the existing segment is deleted, the rewritten segment replaces it when the log is reopened.
+   *
+   * @param index The first index of the segment to rewrite.
+   * @param rewriter A function that is called with the index and entry of each entry in the segment and returns the
+   *          entry to write in its place.
+   * @throws IllegalArgumentException if {@code index} is not the first index of a segment or if {@code index}
+   *           represents the last segment in the log
+   * @throws IOException If the segment could not be rewritten.
+   */
+  void rewrite(long index, BiFunction<Long, ByteBuffer, ByteBuffer> rewriter) throws IOException;
+
+  /**
+   * Rewrites a sealed segment of the log to a new segment without replacing the existing segment.
+   *
+   * Unlike other log methods, this method may be called on a thread other than the thread on which the log is written,
+   * so segments can be rewritten in the background. The rewritten segment does not replace the existing segment until
+   * it's passed to {@link #replaceSegment(LogSegment, LogSegment)}.
+   *
+   * @param segment The sealed segment to rewrite.
+   * @param rewriter A function that is called with the index and entry of each entry in the segment and returns the
+   *          entry to write in its place.
+   * @return The rewritten segment.
+   * @throws IllegalArgumentException if {@code segment} is empty
+   * @throws IOException If the segment could not be rewritten.
+   */
+  LogSegment rewriteSegment(LogSegment segment, BiFunction<Long, ByteBuffer, ByteBuffer> rewriter) throws IOException;
+
+  /**
+   * Replaces a segment with a segment rewritten via {@link #rewriteSegment(LogSegment, BiFunction)}.
+   *
+   * If the segment has been modified, replaced or removed from the log since it was rewritten, the rewritten segment
+   * is deleted and the log is unchanged.
+   *
+   * @param segment The segment that was rewritten.
+   * @param rewrittenSegment The rewritten segment.
+   * @return Indicates whether the segment was replaced.
+   * @throws IOException If the segment could not be replaced.
+   */
+  boolean replaceSegment(LogSegment segment, LogSegment rewrittenSegment) throws IOException;
+
+  /**
+   * Flushes the log to disk up to the given index.
+   *
+   * If group commits are enabled and the log is flushed on write, the flush is performed in the background and flushes
+   * requested while a flush is in progress are coalesced into a single flush. Otherwise, the log is flushed
+   * synchronously according to the log's flush configuration.
+   *
+   * @param index The index up to which to flush the log.
+   * @return A completable future to be completed once the log has been flushed up to the given index.
+   */
+  CompletableFuture<Long> flush(long index);
+
+  /**
+   * Flushes the log to disk.
+   *
+   * Forced flushes always flush the log to disk regardless of the log's flush configuration. Otherwise, the log is
+   * only flushed once the log's flush interval has passed since the last flush, even if the log is flushed on write.
+   *
+   * @param force Whether to force the log to disk.
+   * @throws IllegalStateException If the log is not open.
+   */
+  void flush(boolean force);
+
+  /**
+   * Flushes the log to disk up to the given index.
+   *
+   * If group commits are enabled and the flush is forced, the flush is performed in the background and forced flushes
+   * requested while a flush is in progress are coalesced into a single flush. Otherwise, the log is flushed
+   * synchronously as by {@link #flush(boolean)}.
+   *
+   * @param index The index up to which to flush the log.
+   * @param force Whether to force the log to disk.
+   * @return A completable future to be completed once the log has been flushed up to the given index.
+   */
+  CompletableFuture<Long> flush(long index, boolean force);
+
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import net.kuujo.copycat.util.internal.Assert;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Sequential log reader.
+ *
+ * The reader iterates a range of indexes in the log across segment boundaries. Rather than reading entries from the
+ * log one at a time, the reader reads ahead in chunks of up to the read-ahead size, reusing a single read-ahead buffer
+ * for all reads. Entries returned by {@link #next()} are only valid until the next read-ahead, while entries returned
+ * by {@link #readEntries(int)} remain valid indefinitely. Indexes that are not stored in a segment, such as snapshot
+ * entries, and entries larger than the read-ahead buffer are read via {@link LogManager#getEntry(long)}.
+ *
+ * The reader must be reset once entries are removed from the log. Not threadsafe.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class LogReader implements Iterator<ByteBuffer> {
+  public static final int DEFAULT_READ_AHEAD_SIZE = 1024 * 1024;
+  private final LogManager log;
+  private final int readAheadSize;
+  private ByteBuffer buffer;
+  private List<ByteBuffer> entries = Collections.emptyList();
+  private int position;
+  private long nextIndex;
+  private long toIndex;
+
+  public LogReader(LogManager log, long fromIndex, long toIndex) {
+    this(log, fromIndex, toIndex, DEFAULT_READ_AHEAD_SIZE);
+  }
+
+  public LogReader(LogManager log, long fromIndex, long toIndex, int readAheadSize) {
+    this.log = Assert.isNotNull(log, "log");
+    this.readAheadSize = Assert.arg(readAheadSize, readAheadSize > 0, "read-ahead size must be positive");
+    this.nextIndex = fromIndex;
+    this.toIndex = toIndex;
+  }
+
+  /**
+   * Returns the index of the next entry to be read.
+   *
+   * @return The index of the next entry to be read.
+   */
+  public long nextIndex() {
+    return nextIndex;
+  }
+
+  /**
+   * Returns the index of the last entry to be read.
+   *
+   * @return The index of the last entry to be read.
+   */
+  public long toIndex() {
+    return toIndex;
+  }
+
+  /**
+   * Resets the reader to the given range of indexes, discarding any entries that have been read ahead.
+   *
+   * @param fromIndex The index of the first entry to read.
+   * @param toIndex The index of the last entry to read.
+   * @return The log reader.
+   */
+  public LogReader reset(long fromIndex, long toIndex) {
+    this.nextIndex = fromIndex;
+    this.toIndex = toIndex;
+    entries = Collections.emptyList();
+    position = 0;
+    return this;
+  }
+
+  /**
+   * Sets the index of the last entry to be read without discarding entries that have been read ahead.
+   *
+   * @param toIndex The index of the last entry to read.
+   * @return The log reader.
+   */
+  public LogReader limit(long toIndex) {
+    this.toIndex = toIndex;
+    if (nextIndex + (entries.size() - position) - 1 > toIndex) {
+      entries = entries.subList(0, Math.max((int) (toIndex - nextIndex + 1), 0) + position);
+    }
+    return this;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return nextIndex <= toIndex && (position < entries.size() || log.containsIndex(nextIndex));
+  }
+
+  /**
+   * Returns the next entry in the log.
+   *
+   * The returned entry may be a view of the read-ahead buffer and is only valid until the next read-ahead.
+   *
+   * @return The next entry in the log.
+   * @throws NoSuchElementException If no entries remain in the range being read.
+   */
+  @Override
+  public ByteBuffer next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    if (position == entries.size()) {
+      readAhead();
+    }
+    nextIndex++;
+    return entries.get(position++).duplicate();
+  }
+
+  /**
+   * Reads a batch of entries.
+   *
+   * Entries are read until the batch reaches the given size or no entries remain in the range being read. As with
+   * batches built from individual reads, the last entry in the batch may cause the batch to exceed the given size.
+   * Entries in each read-ahead chunk are copied into a single buffer so that they remain valid after the read-ahead
+   * buffer is reused.
+   *
+   * @param maxSize The maximum size of the batch in bytes.
+   * @return A list of entries.
+   */
+  public List<ByteBuffer> readEntries(int maxSize) {
+    List<ByteBuffer> batch = new ArrayList<>();
+    int size = 0;
+    while (size < maxSize && hasNext()) {
+      if (position == entries.size()) {
+        readAhead();
+      }
+
+      int start = position;
+      int length = 0;
+      while (position < entries.size() && size < maxSize) {
+        int entrySize = entries.get(position++).remaining();
+        length += entrySize;
+        size += entrySize;
+        nextIndex++;
+      }
+
+      ByteBuffer chunk = ByteBuffer.allocate(length);
+      for (int i = start; i < position; i++) {
+        ByteBuffer entry = entries.get(i).duplicate();
+        int offset = chunk.position();
+        chunk.put(entry);
+        ByteBuffer slice = chunk.duplicate();
+        slice.limit(chunk.position());
+        slice.position(offset);
+        batch.add(slice.slice());
+      }
+    }
+    return batch;
+  }
+
+  /**
+   * Reads ahead from the next index.
+   *
+   * If only a single entry remains to be read, the entry is read via the log so that recently appended entries can be
+   * served from the log's entry cache.
+   */
+  private void readAhead() {
+    entries = Collections.emptyList();
+    position = 0;
+    if (nextIndex < toIndex) {
+      Map.Entry<Long, LogSegment> segment = log.segments().floorEntry(nextIndex);
+      if (segment != null && segment.getValue().containsIndex(nextIndex)) {
+        if (buffer == null) {
+          buffer = ByteBuffer.allocate(readAheadSize);
+        }
+        entries = segment.getValue().readEntries(nextIndex, toIndex, buffer);
+      }
+    }
+
+    if (entries.isEmpty()) {
+      ByteBuffer entry = log.getEntry(nextIndex);
+      entry.rewind();
+      entries = Collections.singletonList(entry);
+    }
+  }
+
+}
@@ -15,6 +15,9 @@
  */
 package net.kuujo.copycat.log;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+
 /**
  * Log segment.
  *
@@ -42,4 +45,20 @@ public interface LogSegment extends Loggable {
    */
   long timestamp();
 
+  /**
+   * Reads a sequential range of entries into the given buffer.
+   *
+   * Entries are read starting at {@code fromIndex} until {@code toIndex} or the end of the segment is reached or the
+   * next entry does not fit in the remaining space in the buffer. The returned entries may be views of the given buffer,
+   * so they are only valid until the buffer is reused.
+   *
+   * @param fromIndex The index of the first entry to read.
+   * @param toIndex The index of the last entry to read.
+   * @param buffer The buffer into which to read entries.
+   * @return A list of entries read from the segment. If the first entry does not fit in the buffer the list is empty.
+   * @throws IllegalStateException If the segment is not open.
+   * @throws IndexOutOfBoundsException If the segment does not contain {@code fromIndex}.
+   */
+  List<ByteBuffer> readEntries(long fromIndex, long toIndex, ByteBuffer buffer);
+
 }
@@ -18,6 +18,7 @@ package net.kuujo.copycat.log;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
 
 /**
  * Logger.
@@ -72,6 +73,17 @@ public interface Loggable extends Closeable {
    */
   long appendEntry(ByteBuffer entry) throws IOException;
 
+  /**
+   * Appends a batch of entries to the logger.
+   *
+   * @param entries The entries to append.
+   * @return The appended entry indexes.
+   * @throws IllegalStateException If the log is not open.
+   * @throws NullPointerException If the entries are null.
+   * @throws java.io.IOException If a new segment cannot be opened
+   */
+  List<Long> appendEntries(List<ByteBuffer> entries) throws IOException;
+
   /**
    * Returns the index of the first entry in the log.
    *
@@ -0,0 +1,446 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory mapped file log segment.
+ *
+ * The segment uses the same files as {@link FileLogSegment}, but the log and index files are preallocated and mapped
+ * into memory. Because the files are larger than the data written to them, the number of entries and bytes written to
+ * the segment are recorded in the segment metadata each time the segment is flushed. Entries returned by
+ * {@link #getEntry(long)} are read-only views of the mapped log file. Since callers may hold those views indefinitely,
+ * mappings are never released explicitly: when the files are remapped to grow the segment or the segment is closed, the
+ * previous mappings are released by the garbage collector once they're no longer referenced. For the same reason,
+ * removed entries are overwritten with zeroes rather than truncated from the files, so views of removed entries read
+ * zeroes rather than failing. Since the log may be flushed by a group commit while entries are being appended, flushes
+ * record a consistent snapshot of the segment's entry count and size before forcing the mapped files to disk. Entries
+ * are preceded by the same length and seeded checksum headers as {@link FileLogSegment} entries, and entries written
+ * after the last flush are recovered by verifying entries forward from the recorded size. New segments are written to
+ * spare files when the log has spare files available, and the files of deleted segments are recycled when recycling
+ * is enabled.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class MappedFileLogSegment extends AbstractLogSegment {
+  static final int METADATA_SIZE = 40;
+  private static final byte[] ZEROES = new byte[4096];
+  private static final int INITIAL_INDEX_CAPACITY = 1024 * 64;
+  private final FileLogManager log;
+  private final File logFile;
+  private final File indexFile;
+  private final File metadataFile;
+  private final Object flushLock = new Object();
+  private long timestamp;
+  private int seed;
+  private FileChannel logFileChannel;
+  private FileChannel indexFileChannel;
+  private FileChannel metadataFileChannel;
+  private MappedByteBuffer logBuffer;
+  private MappedByteBuffer indexBuffer;
+  private MappedByteBuffer metadataBuffer;
+  private Long firstIndex;
+  private Long lastIndex;
+  private int size;
+
+  MappedFileLogSegment(FileLogManager log, long id, long firstIndex) {
+    super(id, firstIndex);
+    this.log = log;
+    this.logFile = log.segmentFile(id, "log");
+    this.indexFile = log.segmentFile(id, "index");
+    this.metadataFile = log.segmentFile(id, "metadata");
+  }
+
+  @Override
+  public LogManager log() {
+    return log;
+  }
+
+  @Override
+  public long timestamp() {
+    assertIsOpen();
+    return timestamp;
+  }
+
+  @Override
+  public void open() throws IOException {
+    assertIsNotOpen();
+    if (!logFile.getParentFile().exists()) {
+      logFile.getParentFile().mkdirs();
+    }
+
+    long version;
+    if (!metadataFile.exists()) {
+      // A segment without metadata is a new segment, so replace any files left by a segment that failed to be deleted.
+      if (!log.allocateFiles(logFile, indexFile)) {
+        logFile.delete();
+        indexFile.delete();
+      }
+
+      timestamp = System.currentTimeMillis();
+      version = FileLogSegment.FORMAT_VERSION;
+      try (RandomAccessFile metaFile = new RandomAccessFile(metadataFile, "rw")) {
+        metaFile.writeLong(super.firstIndex); // First index of the segment.
+        metaFile.writeLong(timestamp); // Timestamp of the time at which the segment was created.
+        metaFile.writeLong(FileLogSegment.FORMAT_VERSION); // Format version of the segment.
+        metaFile.writeLong(0); // Number of entries recorded in the segment.
+        metaFile.writeLong(0); // Number of bytes recorded in the segment.
+      }
+    } else {
+      // Segments written without entry headers can only be read by non-mapped segments.
+      try (RandomAccessFile metaFile = new RandomAccessFile(metadataFile, "r")) {
+        metaFile.seek(16);
+        version = FileLogSegment.formatVersion(metaFile);
+        if (version < FileLogSegment.HEADER_VERSION) {
+          throw new LogException("Segment " + id() + " was written without entry headers and cannot be memory mapped");
+        }
+      }
+    }
+
+    logFileChannel = FileChannel.open(this.logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    indexFileChannel = FileChannel.open(this.indexFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    metadataFileChannel = FileChannel.open(this.metadataFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+    // If the metadata was written by a non-mapped segment then the sizes of the segment files are the size of the data
+    // written to the segment. Record those sizes in the metadata before the files are extended by mapping them.
+    boolean recorded = metadataFileChannel.size() >= METADATA_SIZE;
+    metadataBuffer = metadataFileChannel.map(FileChannel.MapMode.READ_WRITE, 0, METADATA_SIZE);
+    if (metadataBuffer.getLong(0) != super.firstIndex) {
+      throw new LogException("Segment metadata out of sync");
+    }
+    timestamp = metadataBuffer.getLong(8);
+    seed = version >= FileLogSegment.FORMAT_VERSION ? FileLogSegment.seed(id(), timestamp) : 0;
+
+    long entries;
+    long size;
+    if (recorded) {
+      entries = metadataBuffer.getLong(24);
+      size = metadataBuffer.getLong(32);
+
+      // Entries may have been written after the recorded size was last forced to disk, so verify entries forward from
+      // the recorded size. Checksums of segments written in earlier formats are not seeded, so entries beyond the
+      // recorded size of those segments may be stale entries of another segment.
+      if (version >= FileLogSegment.FORMAT_VERSION) {
+        FileLogSegment.Recovery recovery = FileLogSegment.recover(logFileChannel, indexFileChannel, entries, size, logFileChannel.size(), seed);
+        if (recovery.entries > entries) {
+          logFileChannel.force(false);
+          indexFileChannel.force(false);
+          entries = recovery.entries;
+          size = recovery.size;
+          metadataBuffer.putLong(24, entries);
+          metadataBuffer.putLong(32, size);
+          metadataBuffer.force();
+        }
+      }
+    } else {
+      FileLogSegment.recover(logFileChannel, indexFileChannel, seed);
+      entries = indexFileChannel.size() / 8;
+      size = logFileChannel.size();
+      metadataBuffer.putLong(24, entries);
+      metadataBuffer.putLong(32, size);
+      metadataBuffer.force();
+    }
+
+    this.size = (int) size;
+    logBuffer = map(logFileChannel, Math.max(log.config.getSegmentSize(), size));
+    indexBuffer = map(indexFileChannel, Math.max(INITIAL_INDEX_CAPACITY, entries * 8));
+
+    if (entries > 0) {
+      firstIndex = super.firstIndex;
+      lastIndex = firstIndex + entries - 1;
+    }
+  }
+
+  /**
+   * Maps the given file channel with the given capacity.
+   */
+  private MappedByteBuffer map(FileChannel channel, long capacity) throws IOException {
+    if (capacity > Integer.MAX_VALUE) {
+      throw new LogException("Segment capacity exceeds maximum mapped size");
+    }
+    return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+  }
+
+  /**
+   * Ensures the mapped files can hold the given number of additional bytes and entries, remapping them if necessary.
+   */
+  private void ensureCapacity(long length, long count) {
+    if (size + length <= logBuffer.capacity() && (entryCount() + count) * 8 <= indexBuffer.capacity()) {
+      return;
+    }
+
+    // Hold the flush lock so that a concurrent flush forces the new mappings rather than the previous ones.
+    synchronized (flushLock) {
+      synchronized (this) {
+        try {
+          logBuffer = remap(logFileChannel, logBuffer, size + length);
+          indexBuffer = remap(indexFileChannel, indexBuffer, (entryCount() + count) * 8);
+        } catch (IOException e) {
+          throw new LogException(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Remaps the given file with a larger size if the given mapped buffer does not have the given capacity.
+   */
+  private MappedByteBuffer remap(FileChannel channel, MappedByteBuffer buffer, long capacity) throws IOException {
+    if (capacity <= buffer.capacity()) {
+      return buffer;
+    }
+    return map(channel, Math.min(Math.max((long) buffer.capacity() * 2, capacity), Integer.MAX_VALUE));
+  }
+
+  @Override
+  public boolean isEmpty() {
+    assertIsOpen();
+    return firstIndex == null;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return logFileChannel != null && indexFileChannel != null;
+  }
+
+  @Override
+  public long size() {
+    assertIsOpen();
+    return size;
+  }
+
+  @Override
+  public long entryCount() {
+    assertIsOpen();
+    return firstIndex != null ? lastIndex - firstIndex + 1 : 0;
+  }
+
+  /**
+   * Returns the next log index.
+   */
+  private long nextIndex() {
+    if (firstIndex == null) {
+      firstIndex = super.firstIndex;
+      lastIndex = firstIndex;
+      return firstIndex;
+    }
+    return ++lastIndex;
+  }
+
+  @Override
+  public long appendEntry(ByteBuffer entry) {
+    assertIsOpen();
+    entry.rewind();
+    ensureCapacity(FileLogSegment.ENTRY_HEADER_SIZE + entry.limit(), 1);
+
+    synchronized (this) {
+      long index = nextIndex();
+      int position = size;
+      logBuffer.position(position);
+      logBuffer.putInt(entry.limit());
+      logBuffer.putInt(FileLogSegment.checksum(entry, seed));
+      logBuffer.put(entry);
+      indexBuffer.putLong((int) (index - firstIndex) * 8, position);
+      size += FileLogSegment.ENTRY_HEADER_SIZE + entry.limit();
+      return index;
+    }
+  }
+
+  @Override
+  public List<Long> appendEntries(List<ByteBuffer> entries) {
+    assertIsOpen();
+    List<Long> indexes = new ArrayList<>(entries.size());
+    long length = 0;
+    for (ByteBuffer entry : entries) {
+      length += FileLogSegment.ENTRY_HEADER_SIZE + entry.limit();
+    }
+
+    // Ensure the mapped files can hold the entire batch before writing any entries.
+    ensureCapacity(length, entries.size());
+
+    synchronized (this) {
+      logBuffer.position(size);
+      for (ByteBuffer entry : entries) {
+        entry.rewind();
+        long index = nextIndex();
+        indexBuffer.putLong((int) (index - firstIndex) * 8, size);
+        logBuffer.putInt(entry.limit());
+        logBuffer.putInt(FileLogSegment.checksum(entry, seed));
+        logBuffer.put(entry);
+        size += FileLogSegment.ENTRY_HEADER_SIZE + entry.limit();
+        indexes.add(index);
+      }
+      return indexes;
+    }
+  }
+
+  /**
+   * Finds the position of the given index in the segment.
+   */
+  private int findPosition(long index) {
+    if (firstIndex == null || index <= firstIndex) {
+      return 0;
+    } else if (lastIndex == null || index > lastIndex) {
+      return size;
+    }
+    return (int) indexBuffer.getLong((int) (index - firstIndex) * 8);
+  }
+
+  @Override
+  public Long firstIndex() {
+    assertIsOpen();
+    return firstIndex;
+  }
+
+  @Override
+  public Long lastIndex() {
+    assertIsOpen();
+    return lastIndex;
+  }
+
+  @Override
+  public boolean containsIndex(long index) {
+    assertIsOpen();
+    return firstIndex != null && lastIndex != null && firstIndex <= index && index <= lastIndex;
+  }
+
+  @Override
+  public ByteBuffer getEntry(long index) {
+    assertIsOpen();
+    assertContainsIndex(index);
+    ByteBuffer buffer = logBuffer.duplicate();
+    buffer.limit(findPosition(index + 1));
+    buffer.position(findPosition(index) + FileLogSegment.ENTRY_HEADER_SIZE);
+    return buffer.slice().asReadOnlyBuffer();
+  }
+
+  /**
+   * Reads a range of entries as read-only views of the mapped log file rather than copying them into the given buffer.
+   */
+  @Override
+  public List<ByteBuffer> readEntries(long fromIndex, long toIndex, ByteBuffer buffer) {
+    assertIsOpen();
+    assertContainsIndex(fromIndex);
+    List<ByteBuffer> entries = new ArrayList<>();
+    ByteBuffer log = logBuffer.asReadOnlyBuffer();
+    int startPosition = findPosition(fromIndex);
+    for (long index = fromIndex; index <= toIndex && index <= lastIndex; index++) {
+      int endPosition = findPosition(index + 1);
+      if (endPosition - startPosition > buffer.capacity()) {
+        break;
+      }
+      entries.add(slice(log, findPosition(index) + FileLogSegment.ENTRY_HEADER_SIZE, endPosition));
+    }
+    return entries;
+  }
+
+  @Override
+  public void removeAfter(long index) {
+    assertIsOpen();
+    synchronized (flushLock) {
+      synchronized (this) {
+        if (!containsIndex(index + 1)) {
+          return;
+        }
+
+        int removedSize = size;
+        size = findPosition(index + 1);
+        if (index >= firstIndex) {
+          lastIndex = index;
+        } else {
+          lastIndex = null;
+          firstIndex = null;
+        }
+
+        // Removed entries may still be referenced by views of the mapped file, so rather than truncating the files,
+        // overwrite the removed entries with zeroes so that they can't be recovered when the segment is reopened.
+        ByteBuffer removed = logBuffer.duplicate();
+        removed.position(size);
+        while (removed.position() < removedSize) {
+          removed.put(ZEROES, 0, Math.min(ZEROES.length, removedSize - removed.position()));
+        }
+      }
+
+      // Record the new size of the segment so that removed entries are not restored when the segment is reopened.
+      logBuffer.force();
+      indexBuffer.force();
+      metadataBuffer.putLong(24, entryCount());
+      metadataBuffer.putLong(32, size);
+      metadataBuffer.force();
+    }
+  }
+
+  @Override
+  public void flush() {
+    synchronized (flushLock) {
+      long entries;
+      int size;
+      MappedByteBuffer logBuffer;
+      MappedByteBuffer indexBuffer;
+      synchronized (this) {
+        entries = entryCount();
+        size = this.size;
+        logBuffer = this.logBuffer;
+        indexBuffer = this.indexBuffer;
+      }
+
+      logBuffer.force();
+      indexBuffer.force();
+      metadataBuffer.putLong(24, entries);
+      metadataBuffer.putLong(32, size);
+      metadataBuffer.force();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    assertIsOpen();
+    flush();
+    logFileChannel.close();
+    logFileChannel = null;
+    indexFileChannel.close();
+    indexFileChannel = null;
+    metadataFileChannel.close();
+    metadataFileChannel = null;
+    logBuffer = null;
+    indexBuffer = null;
+    metadataBuffer = null;
+  }
+
+  @Override
+  public boolean isClosed() {
+    return logFileChannel == null;
+  }
+
+  @Override
+  public void delete() {
+    metadataFile.delete();
+    if (!log.recycleFiles(logFile, indexFile)) {
+      logFile.delete();
+      indexFile.delete();
+    }
+  }
+
+}
@@ -0,0 +1,503 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Physical log shared by {@link SharedLogManager} instances.
+ *
+ * Each segment of a shared log is stored as a stream of records in a single physical log. A segment's stream begins
+ * with a segment record identifying the segment's log, segment id, and first index, and is followed by a record for
+ * each entry appended to the segment. Truncating or deleting a segment appends a record to the stream rather than
+ * modifying earlier records, so the physical log is only ever appended to. When the physical log is opened, all
+ * records are replayed to rebuild the streams of live segments.
+ *
+ * Flushes are coalesced: a flush that's requested while another flush is in progress waits for the in progress flush
+ * and then flushes all records appended by any log in the meantime with a single flush of the physical log.
+ *
+ * Physical segments are compacted once no live stream begins in them. Small streams that prevent the oldest physical
+ * segment from being compacted, such as the current segments of rarely written logs, are copied to the head of the
+ * physical log so the segment can be compacted. Threadsafe.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class MultiplexedLog {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MultiplexedLog.class);
+  private static final Map<List<Object>, MultiplexedLog> LOGS = new HashMap<>();
+  private static final byte SEGMENT_RECORD = 1;
+  private static final byte ENTRY_RECORD = 2;
+  private static final byte TRUNCATE_RECORD = 3;
+  private static final byte DELETE_RECORD = 4;
+  static final int ENTRY_HEADER_SIZE = 9;
+  private final List<Object> key;
+  private final LogManager log;
+  private final Map<Long, Stream> streams = new HashMap<>();
+  private final Object flushLock = new Object();
+  private long nextStreamId = 1;
+  private long appendCount;
+  private long flushCount;
+  private boolean rolledOver;
+  private boolean compacting;
+  private int references;
+
+  private MultiplexedLog(List<Object> key, LogManager log) {
+    this.key = key;
+    this.log = log;
+  }
+
+  /**
+   * Acquires the physical log for the given shared log, opening the physical log if it's not already open.
+   *
+   * @param config The shared log configuration.
+   * @return The physical log.
+   * @throws IOException If the physical log could not be opened.
+   */
+  static MultiplexedLog acquire(SharedLog config) throws IOException {
+    Log log = config.getLog();
+    List<Object> key = Arrays.asList(log.getClass().getName(), log.toMap(), config.getName());
+    synchronized (LOGS) {
+      MultiplexedLog multiplexedLog = LOGS.get(key);
+      if (multiplexedLog == null) {
+        multiplexedLog = new MultiplexedLog(key, log.getLogManager(config.getName()));
+        multiplexedLog.open();
+        LOGS.put(key, multiplexedLog);
+      }
+      multiplexedLog.references++;
+      return multiplexedLog;
+    }
+  }
+
+  /**
+   * Releases the physical log, closing the physical log once it's no longer used by any log.
+   *
+   * @throws IOException If the physical log could not be closed.
+   */
+  void release() throws IOException {
+    synchronized (LOGS) {
+      if (--references == 0) {
+        LOGS.remove(key);
+        synchronized (this) {
+          log.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the underlying physical log.
+   */
+  LogManager log() {
+    return log;
+  }
+
+  /**
+   * Opens the physical log and replays its records.
+   */
+  private synchronized void open() throws IOException {
+    log.open();
+    Long firstIndex = log.firstIndex();
+    Long lastIndex = log.lastIndex();
+    if (firstIndex != null && lastIndex != null) {
+      for (long index = firstIndex; index <= lastIndex; index++) {
+        replay(index, log.getEntry(index));
+      }
+    }
+    LOGGER.debug("Replayed {} streams from physical log {}", streams.size(), log);
+  }
+
+  /**
+   * Replays the record at the given index.
+   */
+  private void replay(long index, ByteBuffer record) {
+    byte type = record.get();
+    long streamId = record.getLong();
+    nextStreamId = Math.max(nextStreamId, streamId + 1);
+    if (type == SEGMENT_RECORD) {
+      long segmentId = record.getLong();
+      long firstIndex = record.getLong();
+      long timestamp = record.getLong();
+      byte[] name = new byte[record.remaining()];
+      record.get(name);
+      streams.put(streamId, new Stream(streamId, new String(name, StandardCharsets.UTF_8), segmentId, firstIndex, timestamp, index));
+    } else {
+      Stream stream = streams.get(streamId);
+      if (stream != null) {
+        if (type == ENTRY_RECORD) {
+          stream.add(index, record.remaining());
+        } else if (type == TRUNCATE_RECORD) {
+          stream.truncate(record.getLong());
+        } else if (type == DELETE_RECORD) {
+          streams.remove(streamId);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the live streams of the given log.
+   *
+   * @param name The log name.
+   * @return The live streams of the log.
+   */
+  synchronized Collection<Stream> streams(String name) {
+    List<Stream> streams = new ArrayList<>();
+    for (Stream stream : this.streams.values()) {
+      if (stream.name.equals(name)) {
+        streams.add(stream);
+      }
+    }
+    return streams;
+  }
+
+  /**
+   * Creates a new stream for a segment.
+   *
+   * @param name The log name.
+   * @param segmentId The segment id.
+   * @param firstIndex The first index of the segment.
+   * @return The stream.
+   */
+  synchronized Stream createStream(String name, long segmentId, long firstIndex) throws IOException {
+    Stream stream = createStream(name, segmentId, firstIndex, System.currentTimeMillis());
+    checkCompact();
+    return stream;
+  }
+
+  /**
+   * Creates a new stream for a segment.
+   */
+  private Stream createStream(String name, long segmentId, long firstIndex, long timestamp) throws IOException {
+    long streamId = nextStreamId++;
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer record = ByteBuffer.allocate(33 + bytes.length);
+    record.put(SEGMENT_RECORD).putLong(streamId).putLong(segmentId).putLong(firstIndex).putLong(timestamp).put(bytes);
+    record.flip();
+    long index = append(record);
+    Stream stream = new Stream(streamId, name, segmentId, firstIndex, timestamp, index);
+    streams.put(streamId, stream);
+    return stream;
+  }
+
+  /**
+   * Appends an entry to the given stream.
+   *
+   * @param stream The stream to which to append the entry.
+   * @param entry The entry to append.
+   */
+  synchronized void appendEntry(Stream stream, ByteBuffer entry) throws IOException {
+    ByteBuffer source = entry.duplicate();
+    source.rewind();
+    ByteBuffer record = ByteBuffer.allocate(ENTRY_HEADER_SIZE + source.limit());
+    record.put(ENTRY_RECORD).putLong(stream.id).put(source);
+    record.flip();
+    stream.add(append(record), source.limit());
+    checkCompact();
+  }
+
+  /**
+   * Reads an entry from the given stream.
+   *
+   * @param stream The stream from which to read the entry.
+   * @param offset The offset of the entry in the stream.
+   * @return The entry.
+   */
+  synchronized ByteBuffer getEntry(Stream stream, int offset) {
+    ByteBuffer record = log.getEntry(stream.positions[offset]);
+    return AbstractLogSegment.slice(record, ENTRY_HEADER_SIZE, record.limit());
+  }
+
+  /**
+   * Removes all entries after the given index from the given stream.
+   *
+   * @param stream The stream to truncate.
+   * @param index The index after which to remove entries.
+   */
+  synchronized void truncate(Stream stream, long index) throws IOException {
+    ByteBuffer record = ByteBuffer.allocate(ENTRY_HEADER_SIZE + 8);
+    record.put(TRUNCATE_RECORD).putLong(stream.id).putLong(index);
+    record.flip();
+    append(record);
+    stream.truncate(index);
+    checkCompact();
+  }
+
+  /**
+   * Deletes the given stream.
+   *
+   * @param stream The stream to delete.
+   */
+  synchronized void delete(Stream stream) throws IOException {
+    if (streams.remove(stream.id) != null) {
+      ByteBuffer record = ByteBuffer.allocate(ENTRY_HEADER_SIZE);
+      record.put(DELETE_RECORD).putLong(stream.id);
+      record.flip();
+      append(record);
+      compact();
+    }
+  }
+
+  /**
+   * Deletes all streams of the given log.
+   *
+   * @param name The log name.
+   */
+  synchronized void delete(String name) throws IOException {
+    for (Stream stream : streams(name)) {
+      delete(stream);
+    }
+  }
+
+  /**
+   * Appends a record to the physical log.
+   */
+  private long append(ByteBuffer record) throws IOException {
+    LogSegment segment = log.segment();
+    long index = log.appendEntry(record);
+    appendCount++;
+    if (log.segment() != segment) {
+      rolledOver = true;
+    }
+    return index;
+  }
+
+  /**
+   * Compacts the physical log if it was rolled over.
+   *
+   * Compaction may relocate streams, so the physical log must only be compacted once the records appended by an
+   * operation have been added to their stream.
+   */
+  private void checkCompact() throws IOException {
+    if (rolledOver) {
+      rolledOver = false;
+      compact();
+    }
+  }
+
+  /**
+   * Flushes all records appended to the physical log.
+   *
+   * If another thread is already flushing the physical log, the flush waits for the in progress flush to complete and
+   * then flushes all records appended in the meantime unless they were already flushed by another thread.
+   */
+  void flush() {
+    long count;
+    synchronized (this) {
+      count = appendCount;
+    }
+
+    synchronized (flushLock) {
+      if (flushCount >= count) {
+        return;
+      }
+
+      // Segments prior to the current segment are flushed when the physical log is rolled over, so only the current
+      // segment needs to be flushed. The segment is flushed outside the log's lock so records can be appended by other
+      // threads while the segment is being flushed.
+      LogSegment segment;
+      synchronized (this) {
+        count = appendCount;
+        segment = log.segment();
+      }
+      try {
+        segment.flush();
+      } catch (LogException e) {
+        // If the segment was compacted while it was being flushed then it was already flushed when it was rolled over.
+        if (!segment.isClosed()) {
+          throw e;
+        }
+      }
+      flushCount = count;
+    }
+  }
+
+  /**
+   * Compacts physical segments that no longer contain the beginning of any live stream.
+   */
+  private void compact() throws IOException {
+    if (compacting) {
+      return;
+    }
+
+    compacting = true;
+    try {
+      compactSegments();
+      if (relocateStreams()) {
+        compactSegments();
+      }
+    } finally {
+      compacting = false;
+    }
+  }
+
+  /**
+   * Compacts all physical segments prior to the first live stream.
+   */
+  private void compactSegments() throws IOException {
+    long minIndex = Long.MAX_VALUE;
+    for (Stream stream : streams.values()) {
+      minIndex = Math.min(minIndex, stream.start);
+    }
+
+    Long compactIndex = null;
+    LogSegment lastSegment = log.lastSegment();
+    for (Map.Entry<Long, LogSegment> entry : log.segments().entrySet()) {
+      LogSegment segment = entry.getValue();
+      Long lastIndex = segment.lastIndex();
+      if (segment == lastSegment || lastIndex == null || lastIndex >= minIndex) {
+        break;
+      }
+      compactIndex = entry.getKey();
+    }
+
+    if (compactIndex != null) {
+      LOGGER.debug("Compacting physical log {} at index {}", log, compactIndex);
+      log.compact(compactIndex);
+    }
+  }
+
+  /**
+   * Copies the streams that begin in the first physical segment to the head of the physical log if the streams make up
+   * less than half of the segment.
+   *
+   * @return Whether streams were relocated.
+   */
+  private boolean relocateStreams() throws IOException {
+    LogSegment segment = log.firstSegment();
+    Long lastIndex = segment.lastIndex();
+    if (segment == log.lastSegment() || lastIndex == null) {
+      return false;
+    }
+
+    List<Stream> pinned = new ArrayList<>();
+    long size = 0;
+    for (Stream stream : streams.values()) {
+      if (stream.start <= lastIndex) {
+        pinned.add(stream);
+        size += stream.size + ENTRY_HEADER_SIZE * stream.count;
+      }
+    }
+
+    if (pinned.isEmpty() || size * 2 >= segment.size()) {
+      return false;
+    }
+
+    for (Stream stream : pinned) {
+      relocate(stream);
+    }
+
+    // Relocated records must be persisted before the records they replace can be compacted.
+    log.segment().flush();
+    return true;
+  }
+
+  /**
+   * Copies a stream to the head of the physical log under a new stream id and deletes the original stream.
+   */
+  private void relocate(Stream stream) throws IOException {
+    Stream relocated = createStream(stream.name, stream.segmentId, stream.firstIndex, stream.timestamp);
+    for (int offset = 0; offset < stream.count; offset++) {
+      ByteBuffer record = log.getEntry(stream.positions[offset]);
+      ByteBuffer copy = ByteBuffer.allocate(record.limit());
+      copy.put(ENTRY_RECORD).putLong(relocated.id).put(AbstractLogSegment.slice(record, ENTRY_HEADER_SIZE, record.limit()));
+      copy.flip();
+      relocated.add(append(copy), record.limit() - ENTRY_HEADER_SIZE);
+    }
+
+    long streamId = stream.id;
+    ByteBuffer record = ByteBuffer.allocate(ENTRY_HEADER_SIZE);
+    record.put(DELETE_RECORD).putLong(streamId);
+    record.flip();
+    append(record);
+
+    // Segments hold references to their stream, so the original stream takes over the relocated stream's records.
+    streams.remove(relocated.id);
+    streams.remove(streamId);
+    stream.id = relocated.id;
+    stream.start = relocated.start;
+    stream.positions = relocated.positions;
+    stream.lengths = relocated.lengths;
+    streams.put(stream.id, stream);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("MultiplexedLog[log=%s, streams=%d]", log, streams.size());
+  }
+
+  /**
+   * Segment stream.
+   */
+  static final class Stream {
+    private static final int INITIAL_CAPACITY = 64;
+    private long id;
+    final String name;
+    final long segmentId;
+    final long firstIndex;
+    final long timestamp;
+    private long start;
+    private long[] positions = new long[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    int count;
+    long size;
+
+    private Stream(long id, String name, long segmentId, long firstIndex, long timestamp, long start) {
+      this.id = id;
+      this.name = name;
+      this.segmentId = segmentId;
+      this.firstIndex = firstIndex;
+      this.timestamp = timestamp;
+      this.start = start;
+    }
+
+    /**
+     * Adds the position of an entry record to the stream.
+     */
+    private void add(long position, int length) {
+      if (count == positions.length) {
+        positions = Arrays.copyOf(positions, count * 2);
+        lengths = Arrays.copyOf(lengths, count * 2);
+      }
+      positions[count] = position;
+      lengths[count] = length;
+      size += length;
+      count++;
+    }
+
+    /**
+     * Removes all entries after the given index from the stream.
+     */
+    private void truncate(long index) {
+      int remaining = (int) Math.max(0, Math.min(count, index - firstIndex + 1));
+      for (int offset = remaining; offset < count; offset++) {
+        size -= lengths[offset];
+      }
+      count = remaining;
+    }
+  }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import net.kuujo.copycat.util.concurrent.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Log segment janitor.
+ *
+ * Closing and deleting large segment files can take a significant amount of time on some file systems, so segments
+ * that are removed from the log by compaction are retired to the janitor, which closes and deletes them on a
+ * background thread. Retired segments must already have been removed from the log. Threadsafe.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class SegmentJanitor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentJanitor.class);
+  private final AtomicInteger queueSize = new AtomicInteger();
+  private final AtomicInteger maxQueueSize = new AtomicInteger();
+  private final AtomicLong retiredCount = new AtomicLong();
+  private ExecutorService executor;
+
+  SegmentJanitor() {
+  }
+
+  /**
+   * Returns the number of retired segments waiting to be closed and deleted.
+   *
+   * @return The number of retired segments waiting to be closed and deleted.
+   */
+  public int queueSize() {
+    return queueSize.get();
+  }
+
+  /**
+   * Returns the maximum number of retired segments that have been waiting to be closed and deleted at once.
+   *
+   * @return The maximum number of retired segments that have been waiting to be closed and deleted.
+   */
+  public int maxQueueSize() {
+    return maxQueueSize.get();
+  }
+
+  /**
+   * Returns the total number of segments that have been closed and deleted.
+   *
+   * @return The total number of segments that have been closed and deleted.
+   */
+  public long retiredCount() {
+    return retiredCount.get();
+  }
+
+  /**
+   * Retires a segment, closing and deleting the segment in the background.
+   *
+   * @param segment The segment to retire.
+   */
+  synchronized void retire(LogSegment segment) {
+    if (executor == null) {
+      executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("copycat-log-janitor-%d"));
+    }
+
+    maxQueueSize.accumulateAndGet(queueSize.incrementAndGet(), Math::max);
+    executor.execute(() -> {
+      try {
+        segment.close();
+      } catch (IOException e) {
+        LOGGER.warn("Failed to close segment {}", segment.id(), e);
+      }
+      try {
+        segment.delete();
+        retiredCount.incrementAndGet();
+        LOGGER.debug("Deleted segment {}", segment.id());
+      } catch (RuntimeException e) {
+        LOGGER.warn("Failed to delete segment {}", segment.id(), e);
+      } finally {
+        queueSize.decrementAndGet();
+      }
+    });
+  }
+
+  /**
+   * Blocks until all segments that have been retired have been closed and deleted.
+   */
+  synchronized void drain() {
+    if (executor != null) {
+      try {
+        executor.submit(() -> {}).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        throw new LogException(e.getCause(), "Failed to retire segments");
+      }
+    }
+  }
+
+  /**
+   * Closes and deletes all retired segments and stops the janitor's background thread.
+   */
+  synchronized void close() {
+    if (executor != null) {
+      executor.shutdown();
+      try {
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      executor = null;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[queueSize=%d, maxQueueSize=%d, retiredCount=%d]", getClass().getSimpleName(), queueSize(), maxQueueSize(), retiredCount());
+  }
+
+}
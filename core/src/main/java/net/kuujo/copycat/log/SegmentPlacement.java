@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+/**
+ * File log segment placement.
+ *
+ * Determines the directory in which each new segment of a file log that's configured with multiple directories is
+ * created.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public enum SegmentPlacement {
+
+  /**
+   * Indicates that successive segments should be placed in each directory in turn.
+   */
+  ROUND_ROBIN("round-robin"),
+
+  /**
+   * Indicates that each segment should be placed in the directory with the most usable space.
+   */
+  FREE_SPACE("free-space");
+
+  public static SegmentPlacement parse(String name) {
+    switch (name) {
+      case "round-robin":
+        return ROUND_ROBIN;
+      case "free-space":
+        return FREE_SPACE;
+      default:
+        throw new IllegalArgumentException("Invalid segment placement name " + name);
+    }
+  }
+
+  private final String name;
+
+  private SegmentPlacement(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import com.typesafe.config.ConfigValueFactory;
+import net.kuujo.copycat.util.Configurable;
+import net.kuujo.copycat.util.internal.Assert;
+
+import java.util.Map;
+
+/**
+ * Shared log.
+ *
+ * Shared logs multiplex the logs of many resources onto a single physical log. Each resource's log is a logical view
+ * over the entries it appended to the physical log, with its own indexes, segments, and compaction, while entries for
+ * all resources are appended to and flushed with the same physical log. Flushes requested by different resources while
+ * a flush is in progress are coalesced into a single flush of the physical log, so running many resources on a node
+ * costs a single stream of flushes rather than one per resource.
+ *
+ * All shared logs in the JVM that are configured with the same underlying log and name share a single physical log.
+ * Segment size, flush, and cache options apply to each resource's logical log, while the underlying log's options apply
+ * to the physical log.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class SharedLog extends Log {
+  private static final String SHARED_LOG_LOG = "log";
+  private static final String SHARED_LOG_NAME = "name";
+
+  private static final String DEFAULT_SHARED_LOG_NAME = "copycat";
+
+  public SharedLog() {
+    super();
+  }
+
+  public SharedLog(Map<String, Object> config) {
+    super(config);
+  }
+
+  public SharedLog(Log log) {
+    super();
+    setLog(log);
+  }
+
+  public SharedLog(String resource) {
+    super(resource);
+  }
+
+  private SharedLog(SharedLog log) {
+    super(log);
+  }
+
+  @Override
+  public SharedLog copy() {
+    return new SharedLog(this);
+  }
+
+  /**
+   * Sets the underlying physical log.
+   *
+   * @param log The underlying physical log.
+   * @throws java.lang.NullPointerException If the log is {@code null}
+   */
+  public void setLog(Log log) {
+    this.config = config.withValue(SHARED_LOG_LOG, ConfigValueFactory.fromMap(Assert.isNotNull(log, "log").toMap()));
+  }
+
+  /**
+   * Returns the underlying physical log.
+   *
+   * @return The underlying physical log. Defaults to a {@link FileLog}.
+   */
+  public Log getLog() {
+    return config.hasPath(SHARED_LOG_LOG) ? Configurable.load(config.getObject(SHARED_LOG_LOG).unwrapped()) : new FileLog();
+  }
+
+  /**
+   * Sets the underlying physical log, returning the log for method chaining.
+   *
+   * @param log The underlying physical log.
+   * @return The shared log.
+   * @throws java.lang.NullPointerException If the log is {@code null}
+   */
+  public SharedLog withLog(Log log) {
+    setLog(log);
+    return this;
+  }
+
+  /**
+   * Sets the name of the physical log.
+   *
+   * @param name The name of the physical log.
+   * @throws java.lang.NullPointerException If the name is {@code null}
+   */
+  public void setName(String name) {
+    this.config = config.withValue(SHARED_LOG_NAME, ConfigValueFactory.fromAnyRef(Assert.isNotNull(name, "name")));
+  }
+
+  /**
+   * Returns the name of the physical log.
+   *
+   * @return The name of the physical log. Defaults to {@code copycat}.
+   */
+  public String getName() {
+    return config.hasPath(SHARED_LOG_NAME) ? config.getString(SHARED_LOG_NAME) : DEFAULT_SHARED_LOG_NAME;
+  }
+
+  /**
+   * Sets the name of the physical log, returning the log for method chaining.
+   *
+   * @param name The name of the physical log.
+   * @return The shared log.
+   * @throws java.lang.NullPointerException If the name is {@code null}
+   */
+  public SharedLog withName(String name) {
+    setName(name);
+    return this;
+  }
+
+  @Override
+  public SharedLog withSegmentSize(int segmentSize) {
+    setSegmentSize(segmentSize);
+    return this;
+  }
+
+  @Override
+  public SharedLog withSegmentInterval(long segmentInterval) {
+    setSegmentInterval(segmentInterval);
+    return this;
+  }
+
+  @Override
+  public SharedLog withFlushOnWrite(boolean flushOnWrite) {
+    setFlushOnWrite(flushOnWrite);
+    return this;
+  }
+
+  @Override
+  public SharedLog withFlushInterval(long flushInterval) {
+    setFlushInterval(flushInterval);
+    return this;
+  }
+
+  @Override
+  public SharedLog withGroupCommit(boolean groupCommit) {
+    setGroupCommit(groupCommit);
+    return this;
+  }
+
+  @Override
+  public SharedLog withCacheSize(long cacheSize) {
+    setCacheSize(cacheSize);
+    return this;
+  }
+
+  @Override
+  public LogManager getLogManager(String name) {
+    return new SharedLogManager(name, this);
+  }
+
+}
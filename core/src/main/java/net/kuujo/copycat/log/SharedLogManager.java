@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Shared log implementation.
+ *
+ * Shared logs are logical views over the streams of a single {@link MultiplexedLog} shared by all logs with the same
+ * physical log configuration. The physical log is acquired when the log is opened and released when it's closed.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+class SharedLogManager extends AbstractLogManager {
+  private final String name;
+  private final SharedLog config;
+  private MultiplexedLog log;
+
+  SharedLogManager(String name, SharedLog config) {
+    super(config);
+    this.name = name;
+    this.config = config.copy();
+  }
+
+  /**
+   * Returns the log name.
+   */
+  String name() {
+    return name;
+  }
+
+  @Override
+  public synchronized void open() throws IOException {
+    assertIsNotOpen();
+    log = MultiplexedLog.acquire(config);
+    try {
+      super.open();
+    } catch (IOException | RuntimeException e) {
+      log.release();
+      log = null;
+      throw e;
+    }
+  }
+
+  @Override
+  protected Collection<LogSegment> loadSegments() {
+    List<LogSegment> segments = new ArrayList<>();
+    for (MultiplexedLog.Stream stream : log.streams(name)) {
+      segments.add(new SharedLogSegment(this, log, stream));
+    }
+    return segments;
+  }
+
+  @Override
+  protected LogSegment createSegment(long segmentId, long firstIndex) {
+    return new SharedLogSegment(this, log, segmentId, firstIndex);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    super.close();
+    if (log != null) {
+      log.release();
+      log = null;
+    }
+  }
+
+  @Override
+  public void delete() {
+    super.delete();
+
+    // Segments are not retained once the log is closed, so delete all remaining streams from the physical log.
+    try {
+      MultiplexedLog log = this.log != null ? this.log : MultiplexedLog.acquire(config);
+      try {
+        log.delete(name);
+      } finally {
+        if (log != this.log) {
+          log.release();
+        }
+      }
+    } catch (IOException e) {
+      throw new LogException(e, "Failed to delete log");
+    }
+  }
+
+}
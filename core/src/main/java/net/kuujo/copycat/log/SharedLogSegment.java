@@ -0,0 +1,177 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import net.kuujo.copycat.util.internal.Assert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared log segment.
+ *
+ * Entries are appended to the segment's stream in the physical log, and the segment locates entries by the positions
+ * of their records in the physical log.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+class SharedLogSegment extends AbstractLogSegment {
+  private final SharedLogManager parent;
+  private final MultiplexedLog log;
+  private MultiplexedLog.Stream stream;
+  private boolean open;
+
+  SharedLogSegment(SharedLogManager parent, MultiplexedLog log, long id, long firstIndex) {
+    super(id, firstIndex);
+    this.parent = parent;
+    this.log = log;
+  }
+
+  SharedLogSegment(SharedLogManager parent, MultiplexedLog log, MultiplexedLog.Stream stream) {
+    this(parent, log, stream.segmentId, stream.firstIndex);
+    this.stream = stream;
+  }
+
+  @Override
+  public LogManager log() {
+    return parent;
+  }
+
+  @Override
+  public long timestamp() {
+    assertIsOpen();
+    return stream.timestamp;
+  }
+
+  @Override
+  public void open() throws IOException {
+    assertIsNotOpen();
+    if (stream == null) {
+      stream = log.createStream(parent.name(), id, firstIndex);
+    }
+    open = true;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return stream == null || stream.count == 0;
+  }
+
+  @Override
+  public long size() {
+    assertIsOpen();
+    return stream.size;
+  }
+
+  @Override
+  public long entryCount() {
+    assertIsOpen();
+    return stream.count;
+  }
+
+  @Override
+  public long appendEntry(ByteBuffer entry) throws IOException {
+    Assert.isNotNull(entry, "entry");
+    assertIsOpen();
+    log.appendEntry(stream, entry);
+    return firstIndex + stream.count - 1;
+  }
+
+  @Override
+  public List<Long> appendEntries(List<ByteBuffer> entries) throws IOException {
+    Assert.isNotNull(entries, "entries");
+    assertIsOpen();
+    List<Long> indexes = new ArrayList<>(entries.size());
+    for (ByteBuffer entry : entries) {
+      indexes.add(appendEntry(entry));
+    }
+    return indexes;
+  }
+
+  @Override
+  public Long firstIndex() {
+    assertIsOpen();
+    return stream.count > 0 ? firstIndex : null;
+  }
+
+  @Override
+  public Long lastIndex() {
+    assertIsOpen();
+    return stream.count > 0 ? firstIndex + stream.count - 1 : null;
+  }
+
+  @Override
+  public boolean containsIndex(long index) {
+    assertIsOpen();
+    return index >= firstIndex && index < firstIndex + stream.count;
+  }
+
+  @Override
+  public ByteBuffer getEntry(long index) {
+    assertIsOpen();
+    assertContainsIndex(index);
+    return log.getEntry(stream, (int) (index - firstIndex));
+  }
+
+  @Override
+  public void removeAfter(long index) {
+    assertIsOpen();
+    if (index >= firstIndex) {
+      assertContainsIndex(index);
+    }
+    try {
+      log.truncate(stream, index);
+    } catch (IOException e) {
+      throw new LogException(e, "Failed to truncate segment");
+    }
+  }
+
+  @Override
+  public void flush() {
+    assertIsOpen();
+    log.flush();
+  }
+
+  @Override
+  public void close() {
+    assertIsOpen();
+    open = false;
+  }
+
+  @Override
+  public boolean isClosed() {
+    return !open;
+  }
+
+  @Override
+  public void delete() {
+    if (stream != null) {
+      try {
+        log.delete(stream);
+      } catch (IOException e) {
+        throw new LogException(e, "Failed to delete segment");
+      }
+    }
+  }
+
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Run-length index of entry terms. Not threadsafe.
+ *
+ * Entries written by Copycat's replication protocol begin with the term in which the entry was written. Since terms
+ * only change when a new leader is elected, the index stores only the first index of each run of entries with the same
+ * term, allowing the term of any entry to be found without reading the entry from the log.
+ *
+ * If the index is backed by a file, new runs are appended to the file as records once the entries to which they apply
+ * have been written to the log, so a run is never recorded for an entry that failed to be written, and truncations are
+ * appended once entries have been removed from the log. Runs that extend beyond the end of the log are removed when
+ * the index is loaded. The file is rewritten with only the current runs when the index is closed or once enough
+ * records have accumulated.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+final class TermIndex {
+  private static final int RECORD_SIZE = 17;
+  private static final byte RUN = 1;
+  private static final byte TRUNCATE = 2;
+  private static final int MAX_RECORDS = 1024;
+  private final File file;
+  private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+  private FileChannel channel;
+  private long[] indexes = new long[16];
+  private long[] terms = new long[16];
+  private int runs;
+  private int records;
+
+  TermIndex() {
+    this(null);
+  }
+
+  TermIndex(File file) {
+    this.file = file;
+  }
+
+  /**
+   * Returns the term of the given entry.
+   *
+   * Entries that are too small to contain a term have term {@code 0}.
+   */
+  static long term(ByteBuffer entry) {
+    return entry.limit() >= 8 ? entry.getLong(0) : 0;
+  }
+
+  /**
+   * Loads the index from its file.
+   *
+   * @param firstIndex The first index in the log, or {@code null} if the log is empty.
+   * @param lastIndex The last index in the log, or {@code null} if the log is empty.
+   * @return Indicates whether the index was loaded. If the index has no file, the index must be rebuilt.
+   * @throws IOException If the index file could not be read.
+   */
+  boolean load(Long firstIndex, Long lastIndex) throws IOException {
+    if (file == null || !file.exists()) {
+      return false;
+    }
+
+    // Records are replayed in the order in which they were written. A partially written record at the end of the file
+    // is ignored, since the entries to which it applies were never written to the log.
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+    while (buffer.remaining() >= RECORD_SIZE) {
+      byte type = buffer.get();
+      long index = buffer.getLong();
+      long term = buffer.getLong();
+      if (type == RUN) {
+        removeAfter(index - 1);
+        addRun(index, term);
+      } else if (type == TRUNCATE) {
+        removeAfter(index);
+      }
+      records++;
+    }
+
+    // Remove runs that no longer apply to entries in the log and rewrite the file so that runs removed from the end of
+    // the log are not applied to entries appended later. If the runs don't cover the log, the index must be rebuilt.
+    if (lastIndex == null) {
+      runs = 0;
+    } else {
+      removeAfter(lastIndex);
+      removeBefore(firstIndex);
+      if (runs == 0 || indexes[0] > firstIndex) {
+        return false;
+      }
+    }
+    save();
+    return true;
+  }
+
+  /**
+   * Indexes the term of an entry in the log without recording the run in the index file.
+   *
+   * This is used to rebuild the index from the log, after which the index must be saved.
+   *
+   * @param index The index of the entry.
+   * @param entry The entry.
+   * @return Indicates whether the entry starts a new run.
+   */
+  boolean put(long index, ByteBuffer entry) {
+    long term = term(entry);
+    if (runs == 0 || terms[runs - 1] != term || indexes[runs - 1] > index) {
+      removeAfter(index - 1);
+      addRun(index, term);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Indexes the term of an entry that has been appended to the log.
+   *
+   * If the entry starts a new run, the run is recorded in the index file.
+   *
+   * @param index The index of the entry.
+   * @param entry The entry.
+   * @throws IOException If the run could not be recorded.
+   */
+  void index(long index, ByteBuffer entry) throws IOException {
+    if (put(index, entry)) {
+      write(RUN, index, terms[runs - 1]);
+    }
+  }
+
+  /**
+   * Returns the term of the entry at the given index.
+   *
+   * @param index The index of the entry.
+   * @return The term of the entry at the given index.
+   * @throws IndexOutOfBoundsException If the index precedes the first run.
+   */
+  long lookup(long index) {
+    int low = 0;
+    int high = runs - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (indexes[mid] <= index) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    if (high < 0) {
+      throw new IndexOutOfBoundsException("No term for index " + index);
+    }
+    return terms[high];
+  }
+
+  /**
+   * Removes the terms of entries after the given index.
+   *
+   * If any runs are removed, the truncation is recorded in the index file.
+   *
+   * @param index The index after which to remove terms.
+   * @throws IOException If the truncation could not be recorded.
+   */
+  void truncate(long index) throws IOException {
+    if (removeAfter(index)) {
+      write(TRUNCATE, index, 0);
+    }
+  }
+
+  /**
+   * Removes the terms of entries before the given index.
+   *
+   * Compaction is not recorded in the index file, since runs that precede the log are removed when the index is loaded.
+   *
+   * @param index The first index in the log.
+   */
+  void compact(long index) {
+    removeBefore(index);
+  }
+
+  /**
+   * Rewrites the index file with the current runs.
+   *
+   * @throws IOException If the index file could not be written.
+   */
+  void save() throws IOException {
+    if (file == null) {
+      return;
+    }
+
+    closeChannel();
+    File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+    ByteBuffer buffer = ByteBuffer.allocate(runs * RECORD_SIZE);
+    for (int i = 0; i < runs; i++) {
+      buffer.put(RUN);
+      buffer.putLong(indexes[i]);
+      buffer.putLong(terms[i]);
+    }
+    buffer.flip();
+    try (FileChannel tempChannel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) {
+        tempChannel.write(buffer);
+      }
+      tempChannel.force(false);
+    }
+    Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    records = runs;
+  }
+
+  /**
+   * Closes the index, rewriting the index file with the current runs.
+   *
+   * @throws IOException If the index file could not be written.
+   */
+  void close() throws IOException {
+    save();
+    closeChannel();
+  }
+
+  /**
+   * Deletes the index file.
+   */
+  void delete() {
+    try {
+      closeChannel();
+    } catch (IOException ignore) {
+    }
+    runs = 0;
+    records = 0;
+    if (file != null) {
+      file.delete();
+      new File(file.getParentFile(), file.getName() + ".tmp").delete();
+    }
+  }
+
+  /**
+   * Appends a record to the index file and forces it to disk.
+   */
+  private void write(byte type, long index, long term) throws IOException {
+    if (file == null) {
+      return;
+    }
+
+    // If too many records have accumulated, rewrite the file with only the current runs.
+    if (records >= MAX_RECORDS) {
+      save();
+      return;
+    }
+
+    if (channel == null) {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    record.clear();
+    record.put(type);
+    record.putLong(index);
+    record.putLong(term);
+    record.flip();
+    while (record.hasRemaining()) {
+      channel.write(record);
+    }
+    channel.force(false);
+    records++;
+  }
+
+  /**
+   * Closes the index file channel.
+   */
+  private void closeChannel() throws IOException {
+    if (channel != null) {
+      channel.close();
+      channel = null;
+    }
+  }
+
+  /**
+   * Adds a run starting at the given index.
+   */
+  private void addRun(long index, long term) {
+    if (runs == indexes.length) {
+      indexes = Arrays.copyOf(indexes, runs * 2);
+      terms = Arrays.copyOf(terms, runs * 2);
+    }
+    indexes[runs] = index;
+    terms[runs] = term;
+    runs++;
+  }
+
+  /**
+   * Removes runs that start after the given index.
+   *
+   * @return Indicates whether any runs were removed.
+   */
+  private boolean removeAfter(long index) {
+    int remaining = runs;
+    while (remaining > 0 && indexes[remaining - 1] > index) {
+      remaining--;
+    }
+    boolean removed = remaining < runs;
+    runs = remaining;
+    return removed;
+  }
+
+  /**
+   * Removes runs that end before the given index.
+   */
+  private void removeBefore(long index) {
+    int first = 0;
+    while (first + 1 < runs && indexes[first + 1] <= index) {
+      first++;
+    }
+    if (first > 0) {
+      System.arraycopy(indexes, first, indexes, 0, runs - first);
+      System.arraycopy(terms, first, terms, 0, runs - first);
+      runs -= first;
+    }
+  }
+
+}
@@ -35,7 +35,12 @@ public enum Consistency {
   /**
    * Indicates that consistency should be guaranteed for reads.
    */
-  STRONG("strong");
+  STRONG("strong"),
+
+  /**
+   * Indicates that consistency should be guaranteed for reads by a leader lease, assuming bounded clock drift.
+   */
+  LEASE("lease");
 
   public static Consistency parse(String name) {
     switch (name) {
@@ -45,6 +50,8 @@ public enum Consistency {
         return DEFAULT;
       case "strong":
         return STRONG;
+      case "lease":
+        return LEASE;
       default:
         throw new IllegalArgumentException("Invalid consistency name " + name);
     }
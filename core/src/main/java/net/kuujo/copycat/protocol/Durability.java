@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.protocol;
+
+/**
+ * Write durability.
+ *
+ * Durability levels determine the conditions under which an entry is considered committed. Entries are always
+ * committed in order, so an entry is not committed until all prior entries have met their own durability level.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public enum Durability {
+
+  /**
+   * Indicates that the entry is committed once it has been appended to the logs of a quorum of the cluster without
+   * flushing the logs.
+   */
+  MEMORY("memory"),
+
+  /**
+   * Indicates that the entry is committed once it has been written to the logs of a quorum of the cluster, which are
+   * flushed to disk periodically according to their flush interval.
+   */
+  OS_BUFFERED("os-buffered"),
+
+  /**
+   * Indicates that the entry is committed once it has been written to the logs of a quorum of the cluster and the
+   * leader's log has been flushed to disk.
+   */
+  FSYNC_LEADER("fsync-leader"),
+
+  /**
+   * Indicates that the entry is committed once it has been written and flushed to disk by a quorum of the cluster.
+   */
+  FSYNC_QUORUM("fsync-quorum"),
+
+  /**
+   * Indicates that the entry's durability is determined by the log configuration. Entries are flushed to disk by a
+   * quorum of the cluster if the log is flushed on write.
+   */
+  DEFAULT("default");
+
+  public static Durability parse(String name) {
+    switch (name) {
+      case "memory":
+        return MEMORY;
+      case "os-buffered":
+        return OS_BUFFERED;
+      case "fsync-leader":
+        return FSYNC_LEADER;
+      case "fsync-quorum":
+        return FSYNC_QUORUM;
+      case "default":
+        return DEFAULT;
+      default:
+        throw new IllegalArgumentException("Invalid durability name " + name);
+    }
+  }
+
+  private final String name;
+
+  private Durability(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+
+}
@@ -54,6 +54,8 @@ public class AppendRequest extends AbstractRequest {
   private List<ByteBuffer> entries;
   private boolean firstIndex;
   private Long commitIndex;
+  private Long globalIndex;
+  private boolean sync;
 
   /**
    * Returns the requesting node's current term.
@@ -118,9 +120,27 @@ public class AppendRequest extends AbstractRequest {
     return commitIndex;
   }
 
+  /**
+   * Returns the highest index stored in the logs of all members of the cluster.
+   *
+   * @return The leader global index.
+   */
+  public Long globalIndex() {
+    return globalIndex;
+  }
+
+  /**
+   * Returns a boolean indicating whether the receiver must flush its log to disk before responding.
+   *
+   * @return Indicates whether the receiver must flush its log to disk before responding.
+   */
+  public boolean sync() {
+    return sync;
+  }
+
   @Override
   public int hashCode() {
-    return Objects.hash(member, term, leader, logIndex, logTerm, entries, firstIndex, commitIndex);
+    return Objects.hash(member, term, leader, logIndex, logTerm, entries, firstIndex, commitIndex, globalIndex, sync);
   }
 
   @Override
@@ -134,14 +154,16 @@ public class AppendRequest extends AbstractRequest {
         && request.logTerm.equals(logTerm)
         && request.entries.equals(entries)
         && request.firstIndex == firstIndex
-        && request.commitIndex.equals(commitIndex);
+        && request.commitIndex.equals(commitIndex)
+        && Objects.equals(request.globalIndex, globalIndex)
+        && request.sync == sync;
     }
     return false;
   }
 
   @Override
   public String toString() {
-    return String.format("%s[term=%d, leader=%s, logIndex=%d, logTerm=%d, entries=[%d], commitIndex=%d]", getClass().getSimpleName(), term, leader, logIndex, logTerm, entries.size(), commitIndex);
+    return String.format("%s[term=%d, leader=%s, logIndex=%d, logTerm=%d, entries=[%d], commitIndex=%d, globalIndex=%d]", getClass().getSimpleName(), term, leader, logIndex, logTerm, entries.size(), commitIndex, globalIndex);
   }
 
   /**
@@ -243,6 +265,28 @@ public class AppendRequest extends AbstractRequest {
       return this;
     }
 
+    /**
+     * Sets the request global index.
+     *
+     * @param index The request global index.
+     * @return The append request builder.
+     */
+    public Builder withGlobalIndex(Long index) {
+      request.globalIndex = Assert.index(index, index == null || index > 0, "index must be greater than zero");
+      return this;
+    }
+
+    /**
+     * Sets whether the receiver must flush its log to disk before responding.
+     *
+     * @param sync Whether the receiver must flush its log to disk before responding.
+     * @return The append request builder.
+     */
+    public Builder withSync(boolean sync) {
+      request.sync = sync;
+      return this;
+    }
+
     @Override
     public AppendRequest build() {
       super.build();
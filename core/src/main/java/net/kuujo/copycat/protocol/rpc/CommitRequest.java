@@ -14,6 +14,7 @@
  */
 package net.kuujo.copycat.protocol.rpc;
 
+import net.kuujo.copycat.protocol.Durability;
 import net.kuujo.copycat.util.internal.Assert;
 
 import java.nio.ByteBuffer;
@@ -46,6 +47,7 @@ public class CommitRequest extends AbstractRequest {
   }
 
   private ByteBuffer entry;
+  private Durability durability = Durability.DEFAULT;
 
   /**
    * Returns the commit entry.
@@ -56,9 +58,18 @@ public class CommitRequest extends AbstractRequest {
     return entry;
   }
 
+  /**
+   * Returns the commit durability level.
+   *
+   * @return The commit durability level.
+   */
+  public Durability durability() {
+    return durability;
+  }
+
   @Override
   public int hashCode() {
-    return Objects.hash(member, entry);
+    return Objects.hash(member, entry, durability);
   }
 
   @Override
@@ -66,14 +77,15 @@ public class CommitRequest extends AbstractRequest {
     if (object instanceof CommitRequest) {
       CommitRequest request = (CommitRequest) object;
       return request.member.equals(member)
-        && request.entry.equals(entry);
+        && request.entry.equals(entry)
+        && request.durability == durability;
     }
     return false;
   }
 
   @Override
   public String toString() {
-    return String.format("%s[entry=%s]", getClass().getSimpleName(), entry.toString());
+    return String.format("%s[entry=%s, durability=%s]", getClass().getSimpleName(), entry.toString(), durability);
   }
 
   /**
@@ -99,6 +111,17 @@ public class CommitRequest extends AbstractRequest {
       return this;
     }
 
+    /**
+     * Sets the request durability level.
+     *
+     * @param durability The request durability level.
+     * @return The request builder.
+     */
+    public Builder withDurability(Durability durability) {
+      request.durability = Assert.isNotNull(durability, "durability");
+      return this;
+    }
+
     @Override
     public CommitRequest build() {
       super.build();
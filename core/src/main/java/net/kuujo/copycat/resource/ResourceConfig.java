@@ -40,12 +40,20 @@ public abstract class ResourceConfig<T extends ResourceConfig<T>> extends Abstra
   private static final String RESOURCE_SERIALIZER = "serializer";
   private static final String RESOURCE_ELECTION_TIMEOUT = "election.timeout";
   private static final String RESOURCE_HEARTBEAT_INTERVAL = "heartbeat.interval";
+  private static final String RESOURCE_REPLICATION_WINDOW = "replication.window";
+  private static final String RESOURCE_COMMIT_BATCH_SIZE = "commit.batch.size";
+  private static final String RESOURCE_COMMIT_LINGER = "commit.linger";
+  private static final String RESOURCE_LEASE_CLOCK_DRIFT = "lease.clock-drift";
   private static final String RESOURCE_REPLICAS = "replicas";
   private static final String RESOURCE_LOG = "log";
 
   private static final String CONFIGURATION = "resource";
   private static final String DEFAULT_CONFIGURATION = "resource-defaults";
   private static final Serializer DEFAULT_SERIALIZER = new KryoSerializer();
+  private static final int DEFAULT_REPLICATION_WINDOW = 4;
+  private static final int DEFAULT_COMMIT_BATCH_SIZE = 1024;
+  private static final long DEFAULT_COMMIT_LINGER = 0;
+  private static final long DEFAULT_LEASE_CLOCK_DRIFT = 50;
 
   private Executor executor;
 
@@ -308,6 +316,199 @@ public abstract class ResourceConfig<T extends ResourceConfig<T>> extends Abstra
     return (T) this;
   }
 
+  /**
+   * Sets the resource replication window.
+   *
+   * The replication window is the maximum number of append requests that the resource leader may have in flight to
+   * each replica at any given time. Larger windows allow the leader to continue replicating entries to a replica
+   * without waiting for the response to each batch of entries.
+   *
+   * @param window The maximum number of in-flight append requests per replica.
+   * @throws java.lang.IllegalArgumentException If the replication window is not positive
+   */
+  public void setReplicationWindow(int window) {
+    this.config = config.withValue(RESOURCE_REPLICATION_WINDOW, ConfigValueFactory.fromAnyRef(Assert.arg(window, window > 0, "replication window must be positive")));
+  }
+
+  /**
+   * Returns the resource replication window.
+   *
+   * @return The maximum number of in-flight append requests per replica.
+   */
+  public int getReplicationWindow() {
+    return config.hasPath(RESOURCE_REPLICATION_WINDOW) ? config.getInt(RESOURCE_REPLICATION_WINDOW) : DEFAULT_REPLICATION_WINDOW;
+  }
+
+  /**
+   * Sets the resource replication window, returning the resource configuration for method chaining.
+   *
+   * @param window The maximum number of in-flight append requests per replica.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the replication window is not positive
+   */
+  @SuppressWarnings("unchecked")
+  public T withReplicationWindow(int window) {
+    setReplicationWindow(window);
+    return (T) this;
+  }
+
+  /**
+   * Sets the resource commit batch size.
+   *
+   * Commits received by the resource leader are batched into a single log append, flush and replication round. The
+   * batch size is the maximum number of commits in a batch.
+   *
+   * @param batchSize The maximum number of commits in a batch.
+   * @throws java.lang.IllegalArgumentException If the batch size is not positive
+   */
+  public void setCommitBatchSize(int batchSize) {
+    this.config = config.withValue(RESOURCE_COMMIT_BATCH_SIZE, ConfigValueFactory.fromAnyRef(Assert.arg(batchSize, batchSize > 0, "batch size must be positive")));
+  }
+
+  /**
+   * Returns the resource commit batch size.
+   *
+   * @return The maximum number of commits in a batch.
+   */
+  public int getCommitBatchSize() {
+    return config.hasPath(RESOURCE_COMMIT_BATCH_SIZE) ? config.getInt(RESOURCE_COMMIT_BATCH_SIZE) : DEFAULT_COMMIT_BATCH_SIZE;
+  }
+
+  /**
+   * Sets the resource commit batch size, returning the resource configuration for method chaining.
+   *
+   * @param batchSize The maximum number of commits in a batch.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the batch size is not positive
+   */
+  @SuppressWarnings("unchecked")
+  public T withCommitBatchSize(int batchSize) {
+    setCommitBatchSize(batchSize);
+    return (T) this;
+  }
+
+  /**
+   * Sets the resource commit linger time.
+   *
+   * The linger time is the maximum time the resource leader waits for additional commits before committing a batch
+   * that is not full. If the linger time is {@code 0} then each batch contains only the commits that were received
+   * while the previous batch was being appended.
+   *
+   * @param linger The commit linger time in microseconds.
+   * @throws java.lang.IllegalArgumentException If the linger time is negative
+   */
+  public void setCommitLinger(long linger) {
+    this.config = config.withValue(RESOURCE_COMMIT_LINGER, ConfigValueFactory.fromAnyRef(Assert.arg(linger, linger >= 0, "linger must not be negative")));
+  }
+
+  /**
+   * Sets the resource commit linger time.
+   *
+   * @param linger The commit linger time.
+   * @param unit The linger time unit.
+   * @throws java.lang.IllegalArgumentException If the linger time is negative
+   */
+  public void setCommitLinger(long linger, TimeUnit unit) {
+    setCommitLinger(unit.toMicros(linger));
+  }
+
+  /**
+   * Returns the resource commit linger time.
+   *
+   * @return The commit linger time in microseconds.
+   */
+  public long getCommitLinger() {
+    return config.hasPath(RESOURCE_COMMIT_LINGER) ? config.getLong(RESOURCE_COMMIT_LINGER) : DEFAULT_COMMIT_LINGER;
+  }
+
+  /**
+   * Sets the resource commit linger time, returning the resource configuration for method chaining.
+   *
+   * @param linger The commit linger time in microseconds.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the linger time is negative
+   */
+  @SuppressWarnings("unchecked")
+  public T withCommitLinger(long linger) {
+    setCommitLinger(linger);
+    return (T) this;
+  }
+
+  /**
+   * Sets the resource commit linger time, returning the resource configuration for method chaining.
+   *
+   * @param linger The commit linger time.
+   * @param unit The linger time unit.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the linger time is negative
+   */
+  @SuppressWarnings("unchecked")
+  public T withCommitLinger(long linger, TimeUnit unit) {
+    setCommitLinger(linger, unit);
+    return (T) this;
+  }
+
+  /**
+   * Sets the resource lease clock drift.
+   *
+   * The clock drift is subtracted from the election timeout to determine how long the resource leader holds a lease
+   * after a heartbeat is acknowledged by a quorum of the cluster. {@link net.kuujo.copycat.protocol.Consistency#LEASE}
+   * reads are evaluated locally by the leader while it holds a lease.
+   *
+   * @param clockDrift The lease clock drift in milliseconds.
+   * @throws java.lang.IllegalArgumentException If the clock drift is negative
+   */
+  public void setLeaseClockDrift(long clockDrift) {
+    this.config = config.withValue(RESOURCE_LEASE_CLOCK_DRIFT, ConfigValueFactory.fromAnyRef(Assert.arg(clockDrift, clockDrift >= 0, "clock drift must not be negative")));
+  }
+
+  /**
+   * Sets the resource lease clock drift.
+   *
+   * @param clockDrift The lease clock drift.
+   * @param unit The clock drift unit.
+   * @throws java.lang.IllegalArgumentException If the clock drift is negative
+   */
+  public void setLeaseClockDrift(long clockDrift, TimeUnit unit) {
+    setLeaseClockDrift(unit.toMillis(clockDrift));
+  }
+
+  /**
+   * Returns the resource lease clock drift.
+   *
+   * @return The lease clock drift in milliseconds.
+   */
+  public long getLeaseClockDrift() {
+    return config.hasPath(RESOURCE_LEASE_CLOCK_DRIFT) ? config.getLong(RESOURCE_LEASE_CLOCK_DRIFT) : DEFAULT_LEASE_CLOCK_DRIFT;
+  }
+
+  /**
+   * Sets the resource lease clock drift, returning the resource configuration for method chaining.
+   *
+   * @param clockDrift The lease clock drift in milliseconds.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the clock drift is negative
+   */
+  @SuppressWarnings("unchecked")
+  public T withLeaseClockDrift(long clockDrift) {
+    setLeaseClockDrift(clockDrift);
+    return (T) this;
+  }
+
+  /**
+   * Sets the resource lease clock drift, returning the resource configuration for method chaining.
+   *
+   * @param clockDrift The lease clock drift.
+   * @param unit The clock drift unit.
+   * @return The resource configuration.
+   * @throws java.lang.IllegalArgumentException If the clock drift is negative
+   */
+  @SuppressWarnings("unchecked")
+  public T withLeaseClockDrift(long clockDrift, TimeUnit unit) {
+    setLeaseClockDrift(clockDrift, unit);
+    return (T) this;
+  }
+
   /**
    * Sets the set of replicas for the resource.
    *
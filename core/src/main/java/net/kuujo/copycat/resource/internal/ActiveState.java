@@ -15,6 +15,7 @@
  */
 package net.kuujo.copycat.resource.internal;
 
+import net.kuujo.copycat.log.LogReader;
 import net.kuujo.copycat.protocol.rpc.AppendRequest;
 import net.kuujo.copycat.protocol.rpc.AppendResponse;
 import net.kuujo.copycat.protocol.rpc.PollRequest;
@@ -22,6 +23,7 @@ import net.kuujo.copycat.protocol.rpc.PollResponse;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -111,14 +113,13 @@ abstract class ActiveState extends PassiveState {
         .build();
     }
 
-    // If the log entry exists then load the entry.
+    // If the log entry exists then look up the entry's term.
     // If the last log entry's term is not the same as the given
     // prevLogTerm then return false. This will cause the leader to
     // decrement this node's nextIndex and ultimately retry with the
     // leader's previous log entry so that the inconsistent entry
     // can be overwritten.
-    ByteBuffer entry = context.log().getEntry(request.logIndex());
-    if (entry == null) {
+    if (!context.log().containsIndex(request.logIndex())) {
       LOGGER.warn("{} - Rejected {}: request entry not found in local log", context.getLocalMember(), request);
       return AppendResponse.builder()
         .withUri(context.getLocalMember())
@@ -126,7 +127,7 @@ abstract class ActiveState extends PassiveState {
         .withSucceeded(false)
         .withLogIndex(context.log().lastIndex())
         .build();
-    } else if (entry.getLong() != request.logTerm()) {
+    } else if (context.log().getTerm(request.logIndex()) != request.logTerm()) {
       LOGGER.warn("{} - Rejected {}: request entry term does not match local log", context.getLocalMember(), request);
       return AppendResponse.builder()
         .withUri(context.getLocalMember())
@@ -171,51 +172,43 @@ abstract class ActiveState extends PassiveState {
         }
       }
 
-      // Iterate through request entries and append them to the log.
-      for (ByteBuffer entry : request.entries()) {
-        index++;
-        // Replicated snapshot entries are *always* immediately logged and applied to the state machine
-        // since snapshots are only taken of committed state machine state. This will cause all previous
-        // entries to be removed from the log.
-        if (context.log().containsIndex(index)) {
-          // Compare the term of the received entry with the matching entry in the log.
-          ByteBuffer match = context.log().getEntry(index);
-          if (entry.getLong() != match.getLong()) {
-            // We found an invalid entry in the log. Remove the invalid entry and append the new entry.
-            // If appending to the log fails, apply commits and reply false to the append request.
-            LOGGER.warn("{} - Synced entry does not match local log, removing incorrect entries", context.getLocalMember());
-            try {
-              context.log().removeAfter(index - 1);
-              context.log().appendEntry(entry);
-            } catch (IOException e) {
-              doApplyCommits(request.commitIndex());
-              return AppendResponse.builder()
-                .withUri(context.getLocalMember())
-                .withTerm(context.getTerm())
-                .withSucceeded(false)
-                .withLogIndex(context.log().lastIndex())
-                .build();
-            }
-            LOGGER.debug("{} - Appended {} to log at index {}", context.getLocalMember(), entry, index);
-          }
-        } else {
-          // If appending to the log fails, apply commits and reply false to the append request.
-          try {
-            context.log().appendEntry(entry);
-          } catch (IOException e) {
-            doApplyCommits(request.commitIndex());
-            return AppendResponse.builder()
-              .withUri(context.getLocalMember())
-              .withTerm(context.getTerm())
-              .withSucceeded(false)
-              .withLogIndex(context.log().lastIndex())
-              .build();
-          }
-          LOGGER.debug("{} - Appended {} to log at index {}", context.getLocalMember(), entry, index);
+      // Iterate through request entries and find the first entry that is not already in the log.
+      // Replicated snapshot entries are *always* immediately logged and applied to the state machine
+      // since snapshots are only taken of committed state machine state. This will cause all previous
+      // entries to be removed from the log.
+      List<ByteBuffer> entries = request.entries();
+      int offset = 0;
+      while (offset < entries.size() && context.log().containsIndex(index + offset + 1)) {
+        // Compare the term of the received entry with the matching entry in the log.
+        ByteBuffer entry = entries.get(offset);
+        if (entry.getLong(0) != context.log().getTerm(index + offset + 1)) {
+          // We found an invalid entry in the log. Remove the invalid entry and append the remaining entries.
+          LOGGER.warn("{} - Synced entry does not match local log, removing incorrect entries", context.getLocalMember());
+          context.log().removeAfter(index + offset);
+          break;
         }
+        offset++;
       }
 
-      // If the log was rolled over, compact the log and then flush the log to disk.
+      // Append all remaining entries to the log in a single batch.
+      // If appending to the log fails, apply commits and reply false to the append request.
+      if (offset < entries.size()) {
+        try {
+          context.log().appendEntries(entries.subList(offset, entries.size()));
+        } catch (IOException e) {
+          doApplyCommits(request.commitIndex());
+          return AppendResponse.builder()
+            .withUri(context.getLocalMember())
+            .withTerm(context.getTerm())
+            .withSucceeded(false)
+            .withLogIndex(context.log().lastIndex())
+            .build();
+        }
+        LOGGER.debug("{} - Appended {} entries to log at index {}", context.getLocalMember(), entries.size() - offset, index + offset + 1);
+      }
+
+      // If the log was rolled over, compact the log and then flush the log to disk. If the leader requires the entries
+      // to be synced to disk then force the log to disk, otherwise flush the log according to its flush interval.
       try {
         if (rollOverIndex != null) {
           context.log().compact(rollOverIndex);
@@ -230,11 +223,15 @@ abstract class ActiveState extends PassiveState {
           .withLogIndex(context.log().lastIndex())
           .build();
       } finally {
-        context.log().flush();
+        context.log().flush(request.sync());
       }
+    } else if (request.sync()) {
+      // The leader may require entries that were previously appended to the log to be synced to disk.
+      context.log().flush(true);
     }
 
     // If we've made it this far, apply commits and send a successful response.
+    context.setGlobalIndex(request.globalIndex());
     doApplyCommits(request.commitIndex());
     return AppendResponse.builder()
       .withUri(context.getLocalMember())
@@ -266,23 +263,34 @@ abstract class ActiveState extends PassiveState {
           if (context.getLastApplied() == null || context.getCommitIndex() > context.getLastApplied()) {
             // Starting after the last applied entry, iterate through new entries
             // and apply them to the state machine up to the commit index.
-            for (long i = (context.getLastApplied() != null ? context.getLastApplied() + 1 : context.log().firstIndex()); i <= Math.min(context.getCommitIndex(), lastIndex); i++) {
-              // Apply the entry to the state machine.
-              applyEntry(i);
-            }
+            applyEntries(context.getLastApplied() != null ? context.getLastApplied() + 1 : context.log().firstIndex(), Math.min(context.getCommitIndex(), lastIndex));
           }
         }
       }
     }
   }
 
+  /**
+   * Applies a range of entries, reading the entries sequentially from the log.
+   *
+   * @return The number of entries applied.
+   */
+  protected int applyEntries(long fromIndex, long toIndex) {
+    int count = 0;
+    LogReader reader = reader(fromIndex, toIndex);
+    while (reader.hasNext()) {
+      long index = reader.nextIndex();
+      applyEntry(index, reader.next());
+      count++;
+    }
+    return count;
+  }
+
   /**
    * Applies the given entry.
    */
-  protected void applyEntry(long index) {
+  protected void applyEntry(long index, ByteBuffer entry) {
     if ((context.getLastApplied() == null && index == context.log().firstIndex()) || (context.getLastApplied() != null && context.getLastApplied() == index - 1)) {
-      ByteBuffer entry = context.log().getEntry(index);
-
       // Ensure that the entry exists.
       if (entry == null) {
         throw new IllegalStateException("null entry cannot be applied to state machine");
@@ -292,8 +300,11 @@ abstract class ActiveState extends PassiveState {
       entry.position(8);
       ByteBuffer userEntry = entry.slice();
 
+      // Entries without a user entry are no-op entries committed by leaders at the start of their term.
       try {
-        context.consumer().apply(index, userEntry);
+        if (userEntry.hasRemaining()) {
+          context.consumer().apply(index, userEntry);
+        }
       } catch (Exception e) {
       } finally {
         context.setLastApplied(index);
@@ -366,18 +377,7 @@ abstract class ActiveState extends PassiveState {
         // at least as up to date as the candidates entry and term.
         Long lastIndex = context.log().lastIndex();
         if (lastIndex != null) {
-          ByteBuffer entry = context.log().getEntry(lastIndex);
-          if (entry == null) {
-            context.setLastVotedFor(request.candidate());
-            LOGGER.debug("{} - Accepted {}: candidate's log is up-to-date", context.getLocalMember(), request);
-            return PollResponse.builder()
-              .withUri(context.getLocalMember())
-              .withTerm(context.getTerm())
-              .withVoted(true)
-              .build();
-          }
-
-          long lastTerm = entry.getLong();
+          long lastTerm = context.log().getTerm(lastIndex);
           if (request.logIndex() != null && request.logIndex() >= lastIndex) {
             if (request.logTerm() >= lastTerm) {
               context.setLastVotedFor(request.candidate());
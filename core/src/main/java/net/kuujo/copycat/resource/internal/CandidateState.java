@@ -20,7 +20,6 @@ import net.kuujo.copycat.protocol.rpc.PollRequest;
 import net.kuujo.copycat.protocol.rpc.PollResponse;
 import net.kuujo.copycat.util.internal.Quorum;
 
-import java.nio.ByteBuffer;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -105,15 +104,14 @@ class CandidateState extends ActiveState {
       }
     });
 
-    // First, load the last log entry to get its term. We load the entry
+    // First, look up the term of the last log entry. The term is found
     // by its index since the index is required by the protocol.
     final Long lastIndex = context.log().lastIndex();
-    ByteBuffer lastEntry = lastIndex != null ? context.log().getEntry(lastIndex) : null;
+    final Long lastTerm = lastIndex != null ? context.log().getTerm(lastIndex) : null;
 
     // Once we got the last log term, iterate through each current member
     // of the cluster and poll each member for a vote.
     LOGGER.info("{} - Polling members {}", context.getLocalMember(), context.getActiveMembers());
-    final Long lastTerm = lastEntry != null ? lastEntry.getLong() : null;
     for (String member : context.getActiveMembers()) {
       LOGGER.debug("{} - Polling {} for term {}", context.getLocalMember(), member, context.getTerm());
       PollRequest request = PollRequest.builder()
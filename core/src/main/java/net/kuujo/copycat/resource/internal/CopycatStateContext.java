@@ -65,8 +65,13 @@ public class CopycatStateContext extends Observable implements RaftProtocol {
   private String lastVotedFor;
   private Long commitIndex;
   private Long lastApplied;
+  private Long globalIndex;
   private long electionTimeout = 500;
   private long heartbeatInterval = 250;
+  private int replicationWindow = 4;
+  private int commitBatchSize = 1024;
+  private long commitLinger;
+  private long leaseClockDrift = 50;
   private volatile boolean open;
 
   public CopycatStateContext(String name, String uri, CoordinatedResourceConfig config, ScheduledExecutorService executor) {
@@ -80,6 +85,10 @@ public class CopycatStateContext extends Observable implements RaftProtocol {
     this.log = config.getLog().getLogManager(name);
     this.electionTimeout = config.getElectionTimeout();
     this.heartbeatInterval = config.getHeartbeatInterval();
+    this.replicationWindow = config.getReplicationWindow();
+    this.commitBatchSize = config.getCommitBatchSize();
+    this.commitLinger = config.getCommitLinger();
+    this.leaseClockDrift = config.getLeaseClockDrift();
     try {
       executor.submit(() -> this.thread = Thread.currentThread()).get();
     } catch (InterruptedException | ExecutionException e) {
@@ -330,7 +339,7 @@ public class CopycatStateContext extends Observable implements RaftProtocol {
    */
   CopycatStateContext setLastVotedFor(String candidate) {
     // If we've already voted for another candidate in this term then the last voted for candidate cannot be overridden.
-    if (lastVotedFor != null && candidate != null) {
+    if (lastVotedFor != null && candidate != null && !lastVotedFor.equals(candidate)) {
       throw new IllegalStateException("Already voted for another candidate");
     }
     if (leader != null && candidate != null) {
@@ -397,6 +406,32 @@ public class CopycatStateContext extends Observable implements RaftProtocol {
     return lastApplied;
   }
 
+  /**
+   * Sets the state global index.<p>
+   *
+   * The global index only ever increases, so an older global index is ignored.
+   *
+   * @param globalIndex The state global index.
+   * @return The Copycat state context.
+   */
+  CopycatStateContext setGlobalIndex(Long globalIndex) {
+    if (globalIndex != null && (this.globalIndex == null || globalIndex > this.globalIndex)) {
+      this.globalIndex = globalIndex;
+    }
+    return this;
+  }
+
+  /**
+   * Returns the state global index.<p>
+   *
+   * The global index is the highest index that has been stored in the logs of all members of the cluster.
+   *
+   * @return The state global index.
+   */
+  public Long getGlobalIndex() {
+    return globalIndex;
+  }
+
   /**
    * Sets the state election timeout.
    *
@@ -437,6 +472,86 @@ public class CopycatStateContext extends Observable implements RaftProtocol {
     return heartbeatInterval;
   }
 
+  /**
+   * Sets the state replication window.
+   *
+   * @param replicationWindow The maximum number of in-flight append requests per replica.
+   * @return The Copycat state context.
+   */
+  CopycatStateContext setReplicationWindow(int replicationWindow) {
+    this.replicationWindow = replicationWindow;
+    return this;
+  }
+
+  /**
+   * Returns the state replication window.
+   *
+   * @return The maximum number of in-flight append requests per replica.
+   */
+  public int getReplicationWindow() {
+    return replicationWindow;
+  }
+
+  /**
+   * Sets the state commit batch size.
+   *
+   * @param commitBatchSize The maximum number of commits in a batch.
+   * @return The Copycat state context.
+   */
+  CopycatStateContext setCommitBatchSize(int commitBatchSize) {
+    this.commitBatchSize = commitBatchSize;
+    return this;
+  }
+
+  /**
+   * Returns the state commit batch size.
+   *
+   * @return The maximum number of commits in a batch.
+   */
+  public int getCommitBatchSize() {
+    return commitBatchSize;
+  }
+
+  /**
+   * Sets the state commit linger time.
+   *
+   * @param commitLinger The commit linger time in microseconds.
+   * @return The Copycat state context.
+   */
+  CopycatStateContext setCommitLinger(long commitLinger) {
+    this.commitLinger = commitLinger;
+    return this;
+  }
+
+  /**
+   * Returns the state commit linger time.
+   *
+   * @return The commit linger time in microseconds.
+   */
+  public long getCommitLinger() {
+    return commitLinger;
+  }
+
+  /**
+   * Sets the state lease clock drift.
+   *
+   * @param leaseClockDrift The lease clock drift in milliseconds.
+   * @return The Copycat state context.
+   */
+  CopycatStateContext setLeaseClockDrift(long leaseClockDrift) {
+    this.leaseClockDrift = leaseClockDrift;
+    return this;
+  }
+
+  /**
+   * Returns the state lease clock drift.
+   *
+   * @return The lease clock drift in milliseconds.
+   */
+  public long getLeaseClockDrift() {
+    return leaseClockDrift;
+  }
+
   /**
    * Returns the Copycat state.
    *
@@ -20,6 +20,7 @@ import net.kuujo.copycat.cluster.internal.coordinator.DefaultClusterCoordinator;
 import net.kuujo.copycat.cluster.internal.manager.ClusterManager;
 import net.kuujo.copycat.log.LogManager;
 import net.kuujo.copycat.protocol.Consistency;
+import net.kuujo.copycat.protocol.Durability;
 import net.kuujo.copycat.protocol.rpc.CommitRequest;
 import net.kuujo.copycat.protocol.rpc.QueryRequest;
 import net.kuujo.copycat.protocol.rpc.Response;
@@ -79,6 +80,11 @@ public class DefaultResourceContext implements ResourceContext {
     return context.log();
   }
 
+  @Override
+  public Long globalIndex() {
+    return context.getGlobalIndex();
+  }
+
   @Override
   public void execute(Runnable command) {
     context.executor().execute(command);
@@ -143,6 +149,11 @@ public class DefaultResourceContext implements ResourceContext {
 
   @Override
   public synchronized CompletableFuture<ByteBuffer> commit(ByteBuffer entry) {
+    return commit(entry, Durability.DEFAULT);
+  }
+
+  @Override
+  public synchronized CompletableFuture<ByteBuffer> commit(ByteBuffer entry, Durability durability) {
     if (!open) {
       return Futures.exceptionalFuture(new IllegalStateException("Context not open"));
     }
@@ -151,6 +162,7 @@ public class DefaultResourceContext implements ResourceContext {
     CommitRequest request = CommitRequest.builder()
       .withUri(context.getLocalMember())
       .withEntry(entry)
+      .withDurability(durability)
       .build();
     context.commit(request).whenComplete((response, error) -> {
       if (error == null) {
@@ -32,6 +32,7 @@ import java.util.concurrent.TimeUnit;
 class FollowerState extends ActiveState {
   private final Random random = new Random();
   private ScheduledFuture<?> currentTimer;
+  private long lastHeartbeat;
 
   FollowerState(CopycatStateContext context) {
     super(context);
@@ -44,6 +45,9 @@ class FollowerState extends ActiveState {
 
   @Override
   public synchronized CompletableFuture<Void> open() {
+    // A member that has just started may have restarted while a leader held a lease, so treat opening the follower state
+    // as a heartbeat. This prevents the member from voting for a new leader until a full election timeout has elapsed.
+    lastHeartbeat = System.nanoTime();
     return super.open().thenRun(this::startHeartbeatTimeout);
   }
 
@@ -88,11 +92,28 @@ class FollowerState extends ActiveState {
   @Override
   public CompletableFuture<AppendResponse> append(AppendRequest request) {
     resetHeartbeatTimeout();
+    if (request.term() >= context.getTerm()) {
+      lastHeartbeat = System.nanoTime();
+    }
     return super.append(request);
   }
 
   @Override
   protected PollResponse handlePoll(PollRequest request) {
+    // If a leader has been heard from or the follower was opened within the election timeout then reject the candidate
+    // without updating the term. This ensures a new leader cannot be elected while the current leader may still hold a
+    // read lease, even if this member doesn't yet know the leader.
+    if (!request.candidate().equals(context.getLocalMember())
+      && System.nanoTime() - lastHeartbeat < TimeUnit.MILLISECONDS.toNanos(context.getElectionTimeout())) {
+      LOGGER.debug("{} - Rejected {}: a leader may be active", context.getLocalMember(), request);
+      // A member that has just started may not have a term yet, so respond with at least the candidate's term.
+      return PollResponse.builder()
+        .withUri(context.getLocalMember())
+        .withTerm(Math.max(context.getTerm(), request.term()))
+        .withVoted(false)
+        .build();
+    }
+
     // Reset the heartbeat timeout if we voted for another candidate.
     PollResponse response = super.handlePoll(request);
     if (response.voted()) {
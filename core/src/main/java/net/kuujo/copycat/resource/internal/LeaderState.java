@@ -15,6 +15,9 @@
 package net.kuujo.copycat.resource.internal;
 
 import net.kuujo.copycat.CopycatException;
+import net.kuujo.copycat.log.LogException;
+import net.kuujo.copycat.log.LogReader;
+import net.kuujo.copycat.protocol.Durability;
 import net.kuujo.copycat.protocol.rpc.*;
 import net.kuujo.copycat.util.internal.Quorum;
 
@@ -35,6 +38,13 @@ class LeaderState extends ActiveState {
   private static final int MAX_BATCH_SIZE = 1024 * 1024;
   private ScheduledFuture<?> currentTimer;
   private final Replicator replicator = new Replicator();
+  private final List<Commit> batch = new ArrayList<>();
+  private long batchId;
+  private List<Read> reads = new ArrayList<>();
+  private List<Read> confirming = new ArrayList<>();
+  private final TreeMap<Long, List<Read>> pendingReads = new TreeMap<>();
+  private boolean reading;
+  private boolean termCommitted;
 
   LeaderState(CopycatStateContext context) {
     super(context);
@@ -48,6 +58,7 @@ class LeaderState extends ActiveState {
   @Override
   public synchronized CompletableFuture<Void> open() {
     return super.open()
+      .thenRun(this::flushLog)
       .thenRun(replicator::commit)
       .thenRun(this::takeLeadership)
       .thenRun(this::applyEntries)
@@ -55,10 +66,55 @@ class LeaderState extends ActiveState {
   }
 
   /**
-   * Sets the current node as the cluster leader.
+   * Forces entries written prior to this node becoming leader to disk.
+   *
+   * Entries appended while following may only have been buffered, so they can't be counted as flushed by the leader
+   * until the log has been forced. If the log can't be forced, the entries are counted once a later flush succeeds.
+   */
+  private void flushLog() {
+    Long lastIndex = context.log().lastIndex();
+    if (lastIndex != null) {
+      try {
+        context.log().flush(true);
+        replicator.flushed(lastIndex);
+      } catch (LogException e) {
+        LOGGER.warn("{} - Failed to flush log", context.getLocalMember(), e);
+      }
+    }
+  }
+
+  /**
+   * Sets the current node as the cluster leader and commits a no-op entry for the leader's term.
+   *
+   * The leader only knows which entries from earlier terms are committed once an entry from its own term is committed,
+   * so reads that require leadership are held until the no-op entry is committed. If the entry can't be committed then
+   * the leader steps down.
    */
   private void takeLeadership() {
     context.setLeader(context.getLocalMember());
+
+    ByteBuffer logEntry = ByteBuffer.allocate(8);
+    logEntry.putLong(context.getTerm());
+    logEntry.flip();
+    CompletableFuture<CommitResponse> future = new CompletableFuture<>();
+    batch.add(new Commit(null, logEntry, durability(Durability.DEFAULT), future));
+    commitBatch();
+
+    future.thenAccept(response -> {
+      context.checkThread();
+      if (isOpen()) {
+        if (response.status() == Response.Status.OK) {
+          LOGGER.debug("{} - Committed no-op entry for term {}", context.getLocalMember(), context.getTerm());
+          termCommitted = true;
+          if (!reads.isEmpty() && !reading) {
+            confirmReads();
+          }
+        } else {
+          LOGGER.warn("{} - Failed to commit no-op entry for term {}", context.getLocalMember(), context.getTerm());
+          transition(CopycatState.FOLLOWER);
+        }
+      }
+    });
   }
 
   /**
@@ -67,11 +123,7 @@ class LeaderState extends ActiveState {
   private void applyEntries() {
     Long lastIndex = context.log().lastIndex();
     if (lastIndex != null) {
-      int count = 0;
-      for (long i = context.getLastApplied() + 1; i <= lastIndex; i++) {
-        applyEntry(i);
-        count++;
-      }
+      int count = applyEntries(context.getLastApplied() != null ? context.getLastApplied() + 1 : context.log().firstIndex(), lastIndex);
       LOGGER.debug("{} - Applied {} entries to log", context.getLocalMember(), count);
     }
   }
@@ -146,39 +198,111 @@ class LeaderState extends ActiveState {
           .withResult(consumer.apply(null, request.entry()))
           .build()));
         break;
-      // Consistency mode STRONG requires synchronous consistency check prior to applying the query.
+      // Consistency mode STRONG requires a leadership check prior to applying the query. Reads are batched so that a
+      // single heartbeat to a quorum of the cluster confirms leadership for all reads received since the last check.
+      // Reads are held until an entry from the leader's term has been committed, since until then the commit index may
+      // not include all entries committed by earlier leaders.
       case STRONG:
-        LOGGER.debug("{} - Synchronizing logs to index {} for read", context.getLocalMember(), context.log().lastIndex());
-        replicator.commit().whenComplete((index, error) -> {
-          context.checkThread();
-          if (isOpen()) {
-            if (error == null) {
-              try {
-                future.complete(logResponse(QueryResponse.builder()
-                  .withUri(context.getLocalMember())
-                  .withResult(consumer.apply(null, request.entry()))
-                  .build()));
-              } catch (Exception e) {
-                future.complete(logResponse(QueryResponse.builder()
-                  .withUri(context.getLocalMember())
-                  .withStatus(Response.Status.ERROR)
-                  .withError(e)
-                  .build()));
-              }
-            } else {
-              future.complete(logResponse(QueryResponse.builder()
-                .withUri(context.getLocalMember())
-                .withStatus(Response.Status.ERROR)
-                .withError(error)
-                .build()));
-            }
+        reads.add(new Read(request.entry(), future));
+        if (!reading && termCommitted) {
+          confirmReads();
+        }
+        break;
+      // Consistency mode LEASE is evaluated locally once entries up to the commit index have been applied if the leader
+      // holds a lease. Otherwise, leadership is confirmed as with STRONG reads, and the heartbeat renews the lease.
+      case LEASE:
+        if (termCommitted && System.nanoTime() - replicator.leaseExpiration < 0) {
+          long readIndex = context.getCommitIndex() != null ? context.getCommitIndex() : 0;
+          pendingReads.computeIfAbsent(readIndex, i -> new ArrayList<>()).add(new Read(request.entry(), future));
+          applyReads();
+        } else {
+          reads.add(new Read(request.entry(), future));
+          if (!reading && termCommitted) {
+            confirmReads();
           }
-        });
+        }
         break;
     }
     return future;
   }
 
+  /**
+   * Confirms leadership for the current batch of reads.
+   *
+   * The commit index at the time the heartbeat is sent is recorded as the read index for the batch. Once a quorum of the
+   * cluster has acknowledged the heartbeat, the reads are evaluated as soon as entries up to the read index have been
+   * applied. Reads received while a heartbeat is in progress are queued for the next heartbeat, since the in progress
+   * heartbeat may have been sent before they were received.
+   */
+  private void confirmReads() {
+    final List<Read> reads = this.reads;
+    this.reads = new ArrayList<>();
+    confirming = reads;
+    final long readIndex = context.getCommitIndex() != null ? context.getCommitIndex() : 0;
+    reading = true;
+
+    LOGGER.debug("{} - Confirming leadership for {} reads at index {}", context.getLocalMember(), reads.size(), readIndex);
+    replicator.commit().whenComplete((index, error) -> {
+      context.checkThread();
+      reading = false;
+      confirming = new ArrayList<>();
+      if (isOpen()) {
+        if (error == null) {
+          pendingReads.computeIfAbsent(readIndex, i -> new ArrayList<>()).addAll(reads);
+          applyReads();
+        } else {
+          failReads(reads, error);
+        }
+
+        if (!this.reads.isEmpty()) {
+          confirmReads();
+        }
+      } else {
+        failReads(reads, new CopycatException("Not the leader"));
+        reads.clear();
+      }
+    });
+  }
+
+  /**
+   * Applies confirmed reads for which all entries up to the read index have been applied.
+   */
+  private void applyReads() {
+    long lastApplied = context.getLastApplied() != null ? context.getLastApplied() : 0;
+    BiFunction<Long, ByteBuffer, ByteBuffer> consumer = context.consumer();
+    Iterator<List<Read>> iterator = pendingReads.headMap(lastApplied, true).values().iterator();
+    while (iterator.hasNext()) {
+      for (Read read : iterator.next()) {
+        try {
+          read.future.complete(logResponse(QueryResponse.builder()
+            .withUri(context.getLocalMember())
+            .withResult(consumer.apply(null, read.entry))
+            .build()));
+        } catch (Exception e) {
+          read.future.complete(logResponse(QueryResponse.builder()
+            .withUri(context.getLocalMember())
+            .withStatus(Response.Status.ERROR)
+            .withError(e)
+            .build()));
+        }
+      }
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Fails a batch of reads with the given error.
+   */
+  private void failReads(List<Read> reads, Throwable error) {
+    for (Read read : reads) {
+      read.future.complete(logResponse(QueryResponse.builder()
+        .withUri(context.getLocalMember())
+        .withStatus(Response.Status.ERROR)
+        .withError(error)
+        .build()));
+    }
+  }
+
   @Override
   public CompletableFuture<CommitResponse> commit(final CommitRequest request) {
     context.checkThread();
@@ -186,7 +310,6 @@ class LeaderState extends ActiveState {
 
     CompletableFuture<CommitResponse> future = new CompletableFuture<>();
     ByteBuffer entry = request.entry();
-    BiFunction<Long, ByteBuffer, ByteBuffer> consumer = context.consumer();
 
     // Create a log entry containing the current term and entry.
     ByteBuffer logEntry = ByteBuffer.allocate(entry.capacity() + 8);
@@ -194,50 +317,187 @@ class LeaderState extends ActiveState {
     logEntry.put(entry);
     entry.flip();
 
-    // Try to append the entry to the log. If appending the entry fails then just reply with an exception immediately.
-    final long index;
+    // Add the entry to the current batch. The batch is committed once it's full, or otherwise once the commits that
+    // are already queued on the executor have been handled and the linger time has elapsed.
+    batch.add(new Commit(entry, logEntry, durability(request.durability()), future));
+    if (batch.size() >= context.getCommitBatchSize()) {
+      commitBatch();
+    } else if (batch.size() == 1) {
+      final long batchId = this.batchId;
+      long linger = context.getCommitLinger();
+      if (linger > 0) {
+        context.executor().schedule(() -> commitBatch(batchId), linger, TimeUnit.MICROSECONDS);
+      } else {
+        context.executor().execute(() -> commitBatch(batchId));
+      }
+    }
+    return future;
+  }
+
+  /**
+   * Commits the batch with the given ID if it has not already been committed.
+   */
+  private void commitBatch(long batchId) {
+    context.checkThread();
+    if (batchId == this.batchId) {
+      commitBatch();
+    }
+  }
+
+  /**
+   * Commits the current batch of entries.
+   *
+   * All entries in the batch are appended to the log in a single append and replicated in a single replication round.
+   * If any entry in the batch must be synced to disk then the entire batch is flushed to disk while it's replicated,
+   * so the leader's disk latency overlaps with the replication round trip rather than adding to it.
+   */
+  private void commitBatch() {
+    List<Commit> commits = new ArrayList<>(batch);
+    batch.clear();
+    batchId++;
+    if (commits.isEmpty()) {
+      return;
+    } else if (!isOpen()) {
+      fail(commits, new CopycatException("Not the leader"));
+      return;
+    }
+
+    List<ByteBuffer> entries = new ArrayList<>(commits.size());
+    for (Commit commit : commits) {
+      entries.add(commit.logEntry);
+    }
+
+    // Try to append the entries to the log. If appending the entries fails then just reply with an exception immediately.
+    final List<Long> indexes;
     try {
-      index = context.log().appendEntry(logEntry);
-      context.log().flush();
+      indexes = context.log().appendEntries(entries);
     } catch (IOException e) {
-      future.completeExceptionally(new CopycatException(e));
-      return future;
+      fail(commits, new CopycatException(e));
+      return;
     }
 
-    LOGGER.debug("{} - Appended entry to log at index {}", context.getLocalMember(), index);
+    final long index = indexes.get(indexes.size() - 1);
+    LOGGER.debug("{} - Appended {} entries to log up to index {}", context.getLocalMember(), indexes.size(), index);
+
+    // Register the entries' durability with the replicator before the entries can be sent to any replica so that the
+    // entries are not committed until their durability requirements have been met.
+    boolean sync = false;
+    boolean buffered = false;
+    for (int i = 0; i < commits.size(); i++) {
+      Durability durability = commits.get(i).durability;
+      replicator.require(indexes.get(i), durability);
+      sync = sync || durability == Durability.FSYNC_LEADER || durability == Durability.FSYNC_QUORUM;
+      buffered = buffered || durability == Durability.OS_BUFFERED;
+    }
+
+    // OS buffered entries are flushed according to the log's flush interval, while in-memory entries are never
+    // flushed by the commit.
+    if (buffered && !sync) {
+      try {
+        context.log().flush(false);
+      } catch (LogException e) {
+        fail(commits, e);
+        return;
+      }
+    }
+
+    // Send the entries to replicas before flushing them to the local log so that the leader's flush overlaps with the
+    // replication round trip, even if the flush blocks. The replicator does not commit entries that must be synced to
+    // disk until the local flush completes, at which point the leader counts towards the quorum. If group commits are
+    // enabled, the entries may be flushed to disk along with other entries appended while a flush was in progress.
+    replicate(indexes, commits);
+    if (sync) {
+      CompletableFuture<Long> flushFuture;
+      try {
+        flushFuture = context.log().flush(index, true);
+      } catch (LogException e) {
+        fail(commits, e);
+        return;
+      }
+
+      flushFuture.whenCompleteAsync((flushIndex, flushError) -> {
+        context.checkThread();
+        if (isOpen()) {
+          if (flushError == null) {
+            replicator.flushed(index);
+          } else {
+            fail(commits, flushError);
+          }
+        } else {
+          fail(commits, new CopycatException("Not the leader"));
+        }
+      }, context.executor());
+    }
+  }
+
+  /**
+   * Resolves the durability level with which to commit an entry.
+   *
+   * Entries committed with the default durability are synced to disk by a quorum of the cluster if the log is
+   * flushed on write and are otherwise OS buffered.
+   */
+  private Durability durability(Durability durability) {
+    if (durability == Durability.DEFAULT) {
+      return context.log().config().isFlushOnWrite() ? Durability.FSYNC_QUORUM : Durability.OS_BUFFERED;
+    }
+    return durability;
+  }
+
+  /**
+   * Replicates a batch of entries to a quorum of the cluster and applies them in order once committed.
+   */
+  private void replicate(List<Long> indexes, List<Commit> commits) {
+    final long index = indexes.get(indexes.size() - 1);
     LOGGER.debug("{} - Replicating logs up to index {} for write", context.getLocalMember(), index);
+    BiFunction<Long, ByteBuffer, ByteBuffer> consumer = context.consumer();
 
-    // Attempt to replicate the entry to a quorum of the cluster.
+    // Attempt to replicate the entries to a quorum of the cluster.
     replicator.commit(index).whenComplete((resultIndex, error) -> {
       context.checkThread();
       if (isOpen()) {
         if (error == null) {
-          try {
-            future.complete(logResponse(CommitResponse.builder()
-              .withUri(context.getLocalMember())
-              .withResult(consumer.apply(index, entry))
-              .build()));
-          } catch (Exception e) {
-            future.complete(logResponse(CommitResponse.builder()
-              .withUri(context.getLocalMember())
-              .withStatus(Response.Status.ERROR)
-              .withError(e)
-              .build()));
-          } finally {
-            context.setLastApplied(index);
+          for (int i = 0; i < commits.size(); i++) {
+            long entryIndex = indexes.get(i);
+            Commit commit = commits.get(i);
+            try {
+              commit.future.complete(logResponse(CommitResponse.builder()
+                .withUri(context.getLocalMember())
+                .withResult(commit.entry != null ? consumer.apply(entryIndex, commit.entry) : null)
+                .build()));
+            } catch (Exception e) {
+              commit.future.complete(logResponse(CommitResponse.builder()
+                .withUri(context.getLocalMember())
+                .withStatus(Response.Status.ERROR)
+                .withError(e)
+                .build()));
+            } finally {
+              context.setLastApplied(entryIndex);
+            }
           }
+
+          // Reads waiting for the applied entries can now be evaluated.
+          applyReads();
         } else {
-          future.complete(logResponse(CommitResponse.builder()
-            .withUri(context.getLocalMember())
-            .withStatus(Response.Status.ERROR)
-            .withError(error)
-            .build()));
+          fail(commits, error);
         }
+      } else {
+        fail(commits, new CopycatException("Not the leader"));
       }
     });
-    return future;
   }
 
+  /**
+   * Fails a batch of commits with the given error.
+   */
+  private void fail(List<Commit> commits, Throwable error) {
+    for (Commit commit : commits) {
+      commit.future.complete(logResponse(CommitResponse.builder()
+        .withUri(context.getLocalMember())
+        .withStatus(Response.Status.ERROR)
+        .withError(error)
+        .build()));
+    }
+  }
 
   /**
    * Cancels the ping timer.
@@ -251,7 +511,58 @@ class LeaderState extends ActiveState {
 
   @Override
   public synchronized CompletableFuture<Void> close() {
-    return super.close().thenRun(this::cancelPingTimer);
+    return super.close().thenRun(() -> {
+      cancelPingTimer();
+
+      // Commits that haven't been committed can't be completed once the leader steps down, so fail the current batch
+      // and all commits waiting to be replicated.
+      CopycatException error = new CopycatException("Not the leader");
+      fail(new ArrayList<>(batch), error);
+      batch.clear();
+      batchId++;
+      replicator.fail(error);
+
+      // Reads can't be confirmed or evaluated once the leader steps down, so fail queued reads, reads waiting for
+      // leadership to be confirmed, and confirmed reads waiting for entries to be applied.
+      failReads(reads, error);
+      reads.clear();
+      failReads(confirming, error);
+      confirming.clear();
+      for (List<Read> pending : pendingReads.values()) {
+        failReads(pending, error);
+      }
+      pendingReads.clear();
+    });
+  }
+
+  /**
+   * Pending commit. The no-op entry committed at the start of the leader's term has no user entry.
+   */
+  private static class Commit {
+    private final ByteBuffer entry;
+    private final ByteBuffer logEntry;
+    private final Durability durability;
+    private final CompletableFuture<CommitResponse> future;
+
+    private Commit(ByteBuffer entry, ByteBuffer logEntry, Durability durability, CompletableFuture<CommitResponse> future) {
+      this.entry = entry;
+      this.logEntry = logEntry;
+      this.durability = durability;
+      this.future = future;
+    }
+  }
+
+  /**
+   * Pending read.
+   */
+  private static class Read {
+    private final ByteBuffer entry;
+    private final CompletableFuture<QueryResponse> future;
+
+    private Read(ByteBuffer entry, CompletableFuture<QueryResponse> future) {
+      this.entry = entry;
+      this.future = future;
+    }
   }
 
   /**
@@ -262,6 +573,10 @@ class LeaderState extends ActiveState {
     private final List<Replica> replicas;
     private int quorum;
     private int quorumIndex;
+    private long flushIndex;
+    private long syncIndex;
+    private long leaseExpiration = System.nanoTime();
+    private final TreeMap<Long, Durability> durabilities = new TreeMap<>();
     private final TreeMap<Long, CompletableFuture<Long>> commitFutures = new TreeMap<>();
 
     private Replicator() {
@@ -280,13 +595,48 @@ class LeaderState extends ActiveState {
       this.quorumIndex = quorum - 1;
     }
 
+    /**
+     * Registers the durability level of the entry at the given index.
+     *
+     * Only entries that must be synced to disk are tracked. The sync index is the last index that must be synced to
+     * disk by a quorum of the cluster, and replicas are asked to sync their logs until they've synced up to it.
+     */
+    public void require(long index, Durability durability) {
+      if (durability == Durability.FSYNC_LEADER || durability == Durability.FSYNC_QUORUM) {
+        durabilities.put(index, durability);
+        if (durability == Durability.FSYNC_QUORUM) {
+          syncIndex = index;
+        }
+      }
+    }
+
+    /**
+     * Records that the local log has been flushed up to the given index.
+     */
+    public void flushed(long index) {
+      if (index > flushIndex) {
+        flushIndex = index;
+        checkCommits();
+      }
+    }
+
     /**
      * Registers a future to be completed on the next heartbeat.
+     *
+     * Once a quorum of the cluster has responded to the heartbeat, the leader holds a lease until the election timeout
+     * less the configured clock drift has elapsed since the heartbeat was sent. Followers that have heard from the
+     * leader reject votes until their election timeout has elapsed, so no other leader can be elected during the lease.
+     * The lease is measured with {@link System#nanoTime()} so that it can't be extended by adjustments to the system
+     * clock.
      */
     public CompletableFuture<Long> commit() {
       CompletableFuture<Long> future = new CompletableFuture<>();
+      long lease = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(context.getElectionTimeout() - context.getLeaseClockDrift());
       Quorum quorum = new Quorum(this.quorum, succeeded -> {
         if (succeeded) {
+          if (lease - leaseExpiration > 0) {
+            leaseExpiration = lease;
+          }
           future.complete(context.getCommitIndex());
         } else {
           future.completeExceptionally(new IllegalStateException("Failed to heartbeat cluster"));
@@ -345,12 +695,87 @@ class LeaderState extends ActiveState {
         // possible quorum replication. That replica's match index is the commit index.
         // Set the commit index. Once the commit index has been set we can run
         // all tasks up to the given commit.
+        // Entries cannot be committed until their durability requirements have also been met.
+        // If the first entry in the log is still being flushed, no entries are committed yet.
         Long commitIndex = replicas.get(quorumIndex).matchIndex;
         if (commitIndex != null) {
-          context.setCommitIndex(commitIndex);
+          commitIndex = durableIndex(commitIndex);
+          if (commitIndex > 0 && (context.getCommitIndex() == null || commitIndex > context.getCommitIndex())) {
+            context.setCommitIndex(commitIndex);
+          }
           triggerFutures(commitIndex);
         }
       }
+      checkGlobalIndex();
+    }
+
+    /**
+     * Updates the global index, the highest committed index stored in the logs of all members of the cluster.
+     *
+     * Active members have stored entries up to their match index, and passive members have stored entries up to the
+     * index they last gossiped. Members whose index isn't yet known hold the global index back.
+     */
+    private void checkGlobalIndex() {
+      Long globalIndex = context.getCommitIndex();
+      if (globalIndex == null) {
+        return;
+      }
+      for (Replica replica : replicas) {
+        if (replica.matchIndex == null) {
+          return;
+        }
+        globalIndex = Math.min(globalIndex, replica.matchIndex);
+      }
+      for (String uri : context.getMembers()) {
+        if (!context.getActiveMembers().contains(uri)) {
+          ReplicaInfo member = context.getMemberInfo(uri);
+          if (member == null || member.getIndex() == null) {
+            return;
+          }
+          globalIndex = Math.min(globalIndex, member.getIndex());
+        }
+      }
+      context.setGlobalIndex(globalIndex);
+    }
+
+    /**
+     * Returns the highest index up to the given replicated index for which all entries meet their durability level.
+     *
+     * Entries that must be synced by the leader cannot be committed until they have been flushed to the leader's log,
+     * and entries that must be synced by a quorum cannot be committed until they've also been flushed to the logs of
+     * a quorum of replicas. Since entries are committed in order, the first entry that does not meet its durability
+     * level prevents all later entries from being committed.
+     */
+    private long durableIndex(long index) {
+      if (durabilities.isEmpty()) {
+        return index;
+      }
+
+      Collections.sort(replicas, (o1, o2) -> Long.compare(o1.flushIndex, o2.flushIndex));
+      long quorumFlushIndex = replicas.get(quorumIndex).flushIndex;
+
+      Iterator<Map.Entry<Long, Durability>> iterator = durabilities.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Long, Durability> entry = iterator.next();
+        if (entry.getKey() > index) {
+          break;
+        } else if (entry.getKey() > flushIndex || (entry.getValue() == Durability.FSYNC_QUORUM && entry.getKey() > quorumFlushIndex)) {
+          return entry.getKey() - 1;
+        }
+        iterator.remove();
+      }
+      return index;
+    }
+
+    /**
+     * Fails all commit futures that have not been triggered.
+     */
+    private void fail(Throwable error) {
+      List<CompletableFuture<Long>> futures = new ArrayList<>(commitFutures.values());
+      commitFutures.clear();
+      for (CompletableFuture<Long> future : futures) {
+        future.completeExceptionally(error);
+      }
     }
 
     /**
@@ -372,16 +797,24 @@ class LeaderState extends ActiveState {
 
   /**
    * Remote replica.
+   *
+   * Entries are replicated to the replica in a pipeline of up to {@link CopycatStateContext#getReplicationWindow()}
+   * in-flight append requests. The replica's next index is advanced optimistically as each batch is sent, and if a
+   * batch is rejected or fails the next index is rolled back and entries are resent from that point. Each rollback
+   * starts a new epoch so that responses to batches sent before the rollback do not move the next index again.
    */
   private class Replica {
     private final String member;
     private final CopycatStateContext context;
     private Long nextIndex;
     private Long matchIndex;
+    private long flushIndex;
+    private Long sentCommitIndex;
+    private int inflight;
+    private long epoch;
     private CompletableFuture<Long> commitFuture;
-    private CompletableFuture<Long> nextCommitFuture;
     private final TreeMap<Long, CompletableFuture<Long>> commitFutures = new TreeMap<>();
-    private boolean committing;
+    private LogReader reader;
 
     private Replica(String member, CopycatStateContext context) {
       this.member = member;
@@ -391,22 +824,17 @@ class LeaderState extends ActiveState {
 
     /**
      * Adds a commit handler for the next request.
+     *
+     * The returned future is completed by the response to the next request sent to the replica. If the replication
+     * window is full, the request is sent once a slot in the window is released.
      */
     public CompletableFuture<Long> commit() {
-      // If a commit is already in progress, queue the next commit future and return it.
-      if (committing) {
-        if (nextCommitFuture == null) {
-          nextCommitFuture = new CompletableFuture<>();
-        }
-        return nextCommitFuture;
-      } else {
-        // If no commit is currently in progress, set the current commit future and force the commit.
-        if (commitFuture == null) {
-          commitFuture = new CompletableFuture<>();
-        }
-        doCommit();
-        return commitFuture;
+      if (commitFuture == null) {
+        commitFuture = new CompletableFuture<>();
       }
+      CompletableFuture<Long> future = commitFuture;
+      doCommit();
+      return future;
     }
 
     /**
@@ -431,97 +859,151 @@ class LeaderState extends ActiveState {
     }
 
     /**
-     * Performs a commit operation.
+     * Sends append requests until the replication window is full or there's nothing left to send.
+     *
+     * Batches of entries are sent as long as the window allows. Empty requests are sent only to complete a pending
+     * heartbeat, or once all in-flight requests have completed to propagate the commit index or to request that the
+     * replica sync its log to disk.
      */
     private void doCommit() {
-      if (!committing && (commitFuture != null || !context.log().isEmpty())) {
+      while (inflight < context.getReplicationWindow()) {
         if (nextIndex == null) {
           nextIndex = context.log().lastIndex();
         }
 
+        Long lastIndex = context.log().lastIndex();
+        boolean hasEntries = nextIndex != null && lastIndex != null && nextIndex <= lastIndex;
+        if (!hasEntries && commitFuture == null && (inflight > 0 || !(commitRequired() || syncRequired()))) {
+          break;
+        }
+
         Long prevIndex;
-        ByteBuffer prevEntry;
+        Long prevTerm;
         List<ByteBuffer> entries;
         if (nextIndex == null) {
           prevIndex = null;
-          prevEntry = null;
+          prevTerm = null;
           entries = new ArrayList<>(0);
         } else {
           prevIndex = nextIndex - 1 == 0 ? null : nextIndex - 1;
-          prevEntry = prevIndex != null ? context.log().getEntry(prevIndex) : null;
-          entries = new ArrayList<>((int) Math.min((context.log().lastIndex() - nextIndex + 1) * 128, MAX_BATCH_SIZE));
-
-          long index = nextIndex;
-          int size = 0;
-          while (size < MAX_BATCH_SIZE && index <= context.log().lastIndex()) {
-            ByteBuffer entry = context.log().getEntry(index);
-            size += entry.limit();
-            entries.add(entry);
-            index++;
-          }
+          prevTerm = prevIndex != null ? context.log().getTerm(prevIndex) : null;
+          entries = hasEntries ? reader(nextIndex, lastIndex).readEntries(MAX_BATCH_SIZE) : new ArrayList<>(0);
+        }
+
+        // Advance the next index past the batch before the response is received so that the next batch can be sent.
+        if (!entries.isEmpty()) {
+          nextIndex += entries.size();
         }
-        committing = true;
-        doCommit(prevIndex, prevEntry, entries);
+
+        CompletableFuture<Long> heartbeat = commitFuture;
+        commitFuture = null;
+        inflight++;
+        doCommit(prevIndex, prevTerm, entries, heartbeat);
       }
     }
 
+    /**
+     * Returns a boolean indicating whether the replica has not yet been sent the leader's commit index.
+     */
+    private boolean commitRequired() {
+      Long commitIndex = context.getCommitIndex();
+      return commitIndex != null && (sentCommitIndex == null || commitIndex > sentCommitIndex);
+    }
+
+    /**
+     * Returns a boolean indicating whether the replica must sync entries it has already received.
+     */
+    private boolean syncRequired() {
+      return replicator.syncIndex > flushIndex && matchIndex != null && matchIndex > flushIndex;
+    }
+
+    /**
+     * Returns the replica's log reader positioned at the given range of indexes.
+     *
+     * Entries read ahead by a previous batch are retained as long as the replica's next index has not changed.
+     */
+    private LogReader reader(long fromIndex, long toIndex) {
+      if (reader == null) {
+        reader = new LogReader(context.log(), fromIndex, toIndex);
+      } else if (reader.nextIndex() != fromIndex) {
+        reader.reset(fromIndex, toIndex);
+      } else {
+        reader.limit(toIndex);
+      }
+      return reader;
+    }
+
     /**
      * Sends a append request.
      */
-    private void doCommit(final Long prevIndex, final ByteBuffer prevEntry, final List<ByteBuffer> entries) {
+    private void doCommit(final Long prevIndex, final Long prevTerm, final List<ByteBuffer> entries, final CompletableFuture<Long> heartbeat) {
       AppendRequest request = AppendRequest.builder()
         .withUri(member)
         .withTerm(context.getTerm())
         .withLeader(context.getLocalMember())
         .withLogIndex(prevIndex)
-        .withLogTerm(prevEntry != null ? prevEntry.getLong() : null)
+        .withLogTerm(prevTerm)
         .withEntries(entries)
         .withFirstIndex(prevIndex == null || context.log().firstIndex() == prevIndex + 1)
         .withCommitIndex(context.getCommitIndex())
+        .withGlobalIndex(context.getGlobalIndex())
+        .withSync(replicator.syncIndex > flushIndex)
         .build();
+      sentCommitIndex = context.getCommitIndex();
+
+      final long requestEpoch = epoch;
+      final Long firstIndex = entries.isEmpty() ? null : prevIndex != null ? Long.valueOf(prevIndex + 1) : context.log().firstIndex();
+      final Long lastIndex = entries.isEmpty() ? prevIndex : Long.valueOf(firstIndex + entries.size() - 1);
 
       LOGGER.debug("{} - Sent {} to {}", context.getLocalMember(), request, member);
       appendHandler.apply(request).whenCompleteAsync((response, error) -> {
         context.checkThread();
-        committing = false;
+        inflight--;
         if (isOpen()) {
           if (error != null) {
-            triggerCommitFutures(prevIndex != null ? prevIndex + 1 : context.log().firstIndex(),
-              prevIndex != null ? prevIndex + entries.size() : context.log().firstIndex() + entries.size() - 1, error);
+            failCommitFutures(firstIndex, lastIndex, heartbeat, error);
+            rollback(requestEpoch, firstIndex);
             doCommit();
           } else {
             LOGGER.debug("{} - Received {} from {}", context.getLocalMember(), response, member);
             if (response.status().equals(Response.Status.OK)) {
               if (response.succeeded()) {
-                // Update the next index to send and the last index known to be replicated.
+                // Update the last index known to be replicated. Batches may succeed after a later batch was rejected,
+                // in which case the next index is advanced past entries the replica is known to have.
                 if (!entries.isEmpty()) {
-                  matchIndex = matchIndex != null ? Math.max(matchIndex,
-                    prevIndex != null ? prevIndex + entries.size() : context.log().firstIndex() + entries.size() - 1)
-                    : prevIndex != null ? prevIndex + entries.size() : context.log().firstIndex() + entries.size() - 1;
-                  nextIndex = matchIndex + 1;
-                  triggerCommitFutures(prevIndex != null ? prevIndex + 1 : context.log().firstIndex(), matchIndex);
-                  doCommit();
+                  matchIndex = matchIndex != null ? Math.max(matchIndex, lastIndex) : lastIndex;
+                  nextIndex = nextIndex != null ? Math.max(nextIndex, matchIndex + 1) : matchIndex + 1;
+                }
+                completeCommitFutures(heartbeat);
+
+                // If the replica synced its log, record the index up to which the replica's log has been flushed.
+                if (request.sync() && lastIndex != null) {
+                  flushIndex = Math.max(flushIndex, lastIndex);
+                  replicator.checkCommits();
                 }
+                doCommit();
               } else {
                 if (response.term() > context.getTerm()) {
-                  triggerCommitFutures(prevIndex != null ? prevIndex + 1 : context.log().firstIndex(),
-                    prevIndex != null ? prevIndex + entries.size() : context.log().firstIndex() + entries.size() - 1,
-                    new CopycatException("Not the leader"));
+                  failCommitFutures(firstIndex, lastIndex, heartbeat, new CopycatException("Not the leader"));
                   transition(CopycatState.FOLLOWER);
                 } else {
+                  // The replica acknowledged this node's leadership even though it rejected the entries.
+                  if (heartbeat != null) {
+                    heartbeat.complete(matchIndex);
+                  }
+
                   // If replication failed then use the last log index indicated by
                   // the replica in the response to generate a new nextIndex. This allows
                   // us to skip repeatedly replicating one entry at a time if it's not
-                  // necessary.
-                  nextIndex = response.logIndex() != null ? response.logIndex() + 1
-                    : prevIndex != null ? prevIndex : context.log().firstIndex();
+                  // necessary. Rejections of batches sent before the last rollback are ignored.
+                  rollback(requestEpoch, response.logIndex() != null ? response.logIndex() + 1
+                    : prevIndex != null ? prevIndex : context.log().firstIndex());
                   doCommit();
                 }
               }
             } else {
-              triggerCommitFutures(prevIndex != null ? prevIndex + 1 : context.log().firstIndex(),
-                prevIndex != null ? prevIndex + entries.size() : context.log().firstIndex() + entries.size() - 1,
-                response.error());
+              failCommitFutures(firstIndex, lastIndex, heartbeat, response.error());
+              rollback(requestEpoch, firstIndex);
               doCommit();
             }
           }
@@ -530,39 +1012,45 @@ class LeaderState extends ActiveState {
     }
 
     /**
-     * Triggers replicate futures with an error result.
+     * Rolls the next index back to the given index if no rollback has occurred since the request was sent.
      */
-    private void triggerCommitFutures(Long startIndex, Long endIndex, Throwable t) {
-      if (commitFuture != null) {
-        commitFuture.completeExceptionally(t);
-      }
-      commitFuture = nextCommitFuture != null ? nextCommitFuture : commitFuture;
-      nextCommitFuture = null;
-      if (endIndex >= startIndex) {
-        for (long i = startIndex; i <= endIndex; i++) {
-          CompletableFuture<Long> future = commitFutures.remove(i);
-          if (future != null) {
-            future.completeExceptionally(t);
-          }
+    private void rollback(long requestEpoch, Long index) {
+      if (requestEpoch == epoch && index != null) {
+        epoch++;
+        nextIndex = index;
+      }
+    }
+
+    /**
+     * Completes the heartbeat future and commit futures up to the replica's match index.
+     */
+    private void completeCommitFutures(CompletableFuture<Long> heartbeat) {
+      if (heartbeat != null) {
+        heartbeat.complete(matchIndex);
+      }
+      if (matchIndex != null) {
+        Iterator<Map.Entry<Long, CompletableFuture<Long>>> iterator = commitFutures.headMap(matchIndex, true).entrySet().iterator();
+        while (iterator.hasNext()) {
+          Map.Entry<Long, CompletableFuture<Long>> entry = iterator.next();
+          iterator.remove();
+          entry.getValue().complete(entry.getKey());
         }
       }
     }
 
     /**
-     * Triggers replicate futures with a completion result
+     * Fails the heartbeat future and commit futures for the given range of indexes.
      */
-    private void triggerCommitFutures(Long startIndex, Long endIndex) {
-      if (commitFuture != null) {
-        commitFuture.complete(endIndex);
-      }
-      commitFuture = nextCommitFuture != null ? nextCommitFuture : commitFuture;
-      nextCommitFuture = null;
-      if (endIndex >= startIndex) {
-        for (long i = startIndex; i <= endIndex; i++) {
-          CompletableFuture<Long> future = commitFutures.remove(i);
-          if (future != null) {
-            future.complete(i);
-          }
+    private void failCommitFutures(Long startIndex, Long endIndex, CompletableFuture<Long> heartbeat, Throwable t) {
+      if (heartbeat != null) {
+        heartbeat.completeExceptionally(t);
+      }
+      if (startIndex != null && endIndex >= startIndex) {
+        Iterator<CompletableFuture<Long>> iterator = commitFutures.subMap(startIndex, true, endIndex, true).values().iterator();
+        while (iterator.hasNext()) {
+          CompletableFuture<Long> future = iterator.next();
+          iterator.remove();
+          future.completeExceptionally(t);
         }
       }
     }
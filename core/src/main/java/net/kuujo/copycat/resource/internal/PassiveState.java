@@ -15,6 +15,7 @@
  */
 package net.kuujo.copycat.resource.internal;
 
+import net.kuujo.copycat.log.LogReader;
 import net.kuujo.copycat.protocol.Consistency;
 import net.kuujo.copycat.protocol.rpc.*;
 
@@ -33,6 +34,7 @@ import java.util.concurrent.TimeUnit;
 public class PassiveState extends AbstractState {
   private static final int MAX_BATCH_SIZE = 1024 * 1024;
   private ScheduledFuture<?> currentTimer;
+  private LogReader reader;
 
   public PassiveState(CopycatStateContext context) {
     super(context);
@@ -106,23 +108,28 @@ public class PassiveState extends AbstractState {
     return future;
   }
 
+  /**
+   * Returns a log reader positioned at the given range of indexes.
+   */
+  protected LogReader reader(long fromIndex, long toIndex) {
+    if (reader == null) {
+      reader = new LogReader(context.log(), fromIndex, toIndex);
+    } else {
+      reader.reset(fromIndex, toIndex);
+    }
+    return reader;
+  }
+
   /**
    * Recursively sends sync requests to the given member.
    */
   private void recursiveSync(ReplicaInfo member, boolean requireEntries, CompletableFuture<Void> future) {
     // Get a list of entries up to 1MB in size.
-    List<ByteBuffer> entries = new ArrayList<>(1024);
+    List<ByteBuffer> entries = Collections.emptyList();
     Long firstIndex = null;
     if (!context.log().isEmpty() && context.getCommitIndex() != null) {
       firstIndex = Math.max(member.getIndex() != null ? member.getIndex() + 1 : context.log().firstIndex(), context.log().lastIndex());
-      long index = firstIndex;
-      int size = 0;
-      while (size < MAX_BATCH_SIZE && index <= context.getCommitIndex()) {
-        ByteBuffer entry = context.log().getEntry(index);
-        size += entry.limit();
-        entries.add(entry);
-        index++;
-      }
+      entries = reader(firstIndex, context.getCommitIndex()).readEntries(MAX_BATCH_SIZE);
     }
 
     // If we have entries to send or if entries are not required for this request then send the sync request.
@@ -217,9 +224,12 @@ public class PassiveState extends AbstractState {
           entry.position(8);
           ByteBuffer userEntry = entry.slice();
 
-          try {
-            context.consumer().apply(index, userEntry);
-          } catch (Exception e) {
+          // Entries without a user entry are no-op entries committed by leaders at the start of their term.
+          if (userEntry.hasRemaining()) {
+            try {
+              context.consumer().apply(index, userEntry);
+            } catch (Exception e) {
+            }
           }
 
           context.setLastApplied(index);
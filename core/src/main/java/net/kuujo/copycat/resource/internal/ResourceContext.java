@@ -20,6 +20,7 @@ import net.kuujo.copycat.cluster.internal.coordinator.CoordinatedResourceConfig;
 import net.kuujo.copycat.cluster.internal.manager.ClusterManager;
 import net.kuujo.copycat.log.LogManager;
 import net.kuujo.copycat.protocol.Consistency;
+import net.kuujo.copycat.protocol.Durability;
 
 import java.nio.ByteBuffer;
 import java.util.concurrent.Callable;
@@ -70,6 +71,13 @@ public interface ResourceContext extends Managed<ResourceContext> {
    */
   LogManager log();
 
+  /**
+   * Returns the highest index that has been stored in the logs of all members of the cluster.
+   *
+   * @return The global index, or {@code null} if no entries are known to be stored by all members.
+   */
+  Long globalIndex();
+
   /**
    * Registers an entry consumer on the context.
    *
@@ -135,6 +143,15 @@ public interface ResourceContext extends Managed<ResourceContext> {
    */
   CompletableFuture<ByteBuffer> commit(ByteBuffer entry);
 
+  /**
+   * Submits a persistent entry to the context.
+   *
+   * @param entry The entry to commit.
+   * @param durability The durability level with which to commit the entry.
+   * @return A completable future to be completed once the entry has been committed.
+   */
+  CompletableFuture<ByteBuffer> commit(ByteBuffer entry, Durability durability);
+
   /**
    * Submits a synchronous entry to the context.
    *
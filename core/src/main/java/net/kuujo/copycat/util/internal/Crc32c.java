@@ -0,0 +1,112 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.util.internal;
+
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * CRC32C checksum utilities.
+ *
+ * Checksums are computed with the hardware accelerated {@code java.util.zip.CRC32C} when running on Java 9 or later,
+ * and with an equivalent table driven implementation on older JVMs.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public final class Crc32c {
+  private static final int POLYNOMIAL = 0x82F63B78;
+  private static final int SCRATCH_SIZE = 1024 * 8;
+  private static final int[] TABLE = new int[256];
+  private static final Constructor<? extends Checksum> CONSTRUCTOR;
+  private static final ThreadLocal<Checksum> CHECKSUM;
+  private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+
+  static {
+    for (int i = 0; i < TABLE.length; i++) {
+      int crc = i;
+      for (int j = 0; j < 8; j++) {
+        crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+      }
+      TABLE[i] = crc;
+    }
+
+    Constructor<? extends Checksum> constructor;
+    try {
+      constructor = Class.forName("java.util.zip.CRC32C").asSubclass(Checksum.class).getConstructor();
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      constructor = null;
+    }
+    CONSTRUCTOR = constructor;
+    CHECKSUM = constructor != null ? ThreadLocal.withInitial(Crc32c::newChecksum) : null;
+  }
+
+  private Crc32c() {
+  }
+
+  private static Checksum newChecksum() {
+    try {
+      return CONSTRUCTOR.newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns the CRC32C checksum of the remaining bytes in the given buffer without modifying the buffer's position.
+   */
+  public static int checksum(ByteBuffer buffer) {
+    if (CHECKSUM != null) {
+      Checksum checksum = CHECKSUM.get();
+      checksum.reset();
+      update(checksum, buffer);
+      return (int) checksum.getValue();
+    }
+    return softwareChecksum(buffer);
+  }
+
+  /**
+   * Updates the given checksum with the remaining bytes in the given buffer.
+   *
+   * {@code Checksum.update(ByteBuffer)} is not available prior to Java 9, so the buffer's backing array is used if the
+   * buffer is array backed, and direct and read-only buffers are copied into a scratch array.
+   */
+  private static void update(Checksum checksum, ByteBuffer buffer) {
+    if (buffer.hasArray()) {
+      checksum.update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    } else {
+      byte[] scratch = SCRATCH.get();
+      ByteBuffer duplicate = buffer.duplicate();
+      while (duplicate.hasRemaining()) {
+        int length = Math.min(duplicate.remaining(), scratch.length);
+        duplicate.get(scratch, 0, length);
+        checksum.update(scratch, 0, length);
+      }
+    }
+  }
+
+  /**
+   * Returns the CRC32C checksum of the remaining bytes in the given buffer using the table driven implementation.
+   */
+  static int softwareChecksum(ByteBuffer buffer) {
+    int crc = 0xFFFFFFFF;
+    for (int i = buffer.position(); i < buffer.limit(); i++) {
+      crc = (crc >>> 8) ^ TABLE[(crc ^ buffer.get(i)) & 0xFF];
+    }
+    return ~crc;
+  }
+
+}
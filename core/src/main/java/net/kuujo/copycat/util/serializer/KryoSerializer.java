@@ -18,6 +18,8 @@ package net.kuujo.copycat.util.serializer;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.ByteBufferInput;
 import com.esotericsoftware.kryo.io.ByteBufferOutput;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.typesafe.config.ConfigObject;
 import com.typesafe.config.ConfigValueFactory;
 import net.kuujo.copycat.util.ConfigurationException;
@@ -35,6 +37,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class KryoSerializer extends SerializerConfig {
   private static final String KRYO_SERIALIZER_BUFFER_SIZE = "buffer.size";
   private static final String KRYO_SERIALIZER_REGISTRATIONS = "registrations";
+  private static final String KRYO_SERIALIZER_BUFFERS = "buffers";
 
   private static final int DEFAULT_KRYO_SERIALIZER_BUFFER_SIZE = 1024 * 1024 * 16;
 
@@ -66,6 +69,9 @@ public class KryoSerializer extends SerializerConfig {
     if (init.compareAndSet(false, true)) {
       input = new ByteBufferInput();
       output = new ByteBufferOutput(ByteBuffer.allocateDirect(getBufferSize()));
+      if (isSerializeBuffers()) {
+        kryo.addDefaultSerializer(ByteBuffer.class, new ByteBufferSerializer());
+      }
       register();
     }
   }
@@ -146,10 +152,50 @@ public class KryoSerializer extends SerializerConfig {
     return this;
   }
 
+  /**
+   * Sets whether byte buffers are serialized by content.
+   *
+   * By default, byte buffers are serialized by Kryo's field serializer, which cannot serialize direct or memory mapped
+   * buffers. If enabled, the contents of any {@link ByteBuffer} are serialized instead. Serializers must be configured
+   * the same way on all members of the cluster.
+   *
+   * @param serializeBuffers Whether to serialize byte buffers by content.
+   */
+  public void setSerializeBuffers(boolean serializeBuffers) {
+    this.config = config.withValue(KRYO_SERIALIZER_BUFFERS, ConfigValueFactory.fromAnyRef(serializeBuffers));
+  }
+
+  /**
+   * Returns whether byte buffers are serialized by content.
+   *
+   * @return Whether byte buffers are serialized by content.
+   */
+  public boolean isSerializeBuffers() {
+    return config.hasPath(KRYO_SERIALIZER_BUFFERS) && config.getBoolean(KRYO_SERIALIZER_BUFFERS);
+  }
+
+  /**
+   * Sets whether byte buffers are serialized by content.
+   *
+   * @param serializeBuffers Whether to serialize byte buffers by content.
+   * @return The Kryo serializer.
+   */
+  public KryoSerializer withSerializeBuffers(boolean serializeBuffers) {
+    setSerializeBuffers(serializeBuffers);
+    return this;
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public synchronized <T> T readObject(ByteBuffer buffer) {
     init();
+    // Kryo decodes strings in place, so read-only buffers such as entries read from the log are copied before reading.
+    if (buffer.isReadOnly()) {
+      ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+      copy.put(buffer.duplicate());
+      copy.flip();
+      buffer = copy;
+    }
     input.setBuffer(buffer);
     return (T) kryo.readClassAndObject(input);
   }
@@ -163,4 +209,33 @@ public class KryoSerializer extends SerializerConfig {
     return ByteBuffer.wrap(bytes);
   }
 
+  /**
+   * Byte buffer serializer.
+   *
+   * Log entries may be direct or memory mapped buffers, the fields of which cannot be serialized by Kryo's default
+   * field serializer. This serializer writes the contents of any {@link ByteBuffer} up to its limit and reads them back
+   * into a heap buffer.
+   */
+  private static class ByteBufferSerializer extends com.esotericsoftware.kryo.Serializer<ByteBuffer> {
+    @Override
+    public void write(Kryo kryo, Output output, ByteBuffer buffer) {
+      ByteBuffer duplicate = buffer.duplicate();
+      byte[] bytes = new byte[duplicate.limit()];
+      duplicate.rewind();
+      duplicate.get(bytes);
+      output.writeInt(bytes.length, true);
+      output.writeInt(buffer.position(), true);
+      output.writeBytes(bytes);
+    }
+
+    @Override
+    public ByteBuffer read(Kryo kryo, Input input, Class<ByteBuffer> type) {
+      int limit = input.readInt(true);
+      int position = input.readInt(true);
+      ByteBuffer buffer = ByteBuffer.wrap(input.readBytes(limit));
+      buffer.position(position);
+      return buffer;
+    }
+  }
+
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Tests file log implementations.
+ *
+ * Each test creates its log in a new directory beneath the test class's log directory, and the log directory is
+ * deleted once all of the class's tests have run.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public abstract class AbstractFileLogTest extends AbstractLogTest {
+  protected String id;
+
+  /**
+   * Returns the directory beneath which test logs are created.
+   */
+  protected abstract String logDirectory();
+
+  /**
+   * Creates a log with the given id in the directory for that id.
+   */
+  protected abstract AbstractLogManager createLog(String id);
+
+  @Override
+  protected AbstractLogManager createLog() throws Throwable {
+    id = UUID.randomUUID().toString();
+    return createLog(id);
+  }
+
+  @Override
+  protected int metaInfoSize() {
+    return FileLogSegment.ENTRY_HEADER_SIZE;
+  }
+
+  /**
+   * Returns the directory of the current test log.
+   */
+  protected File directory() {
+    return directory(id);
+  }
+
+  /**
+   * Returns the directory of the test log with the given id.
+   */
+  protected File directory(String id) {
+    return new File(logDirectory(), id);
+  }
+
+  /**
+   * Returns a file for the given segment of the current test log.
+   */
+  protected File segmentFile(long segmentId, String extension) {
+    File base = ((FileLogManager) log).base;
+    return new File(base.getParentFile(), String.format("%s-%d.%s", base.getName(), segmentId, extension));
+  }
+
+  @AfterClass
+  protected void cleanLogDir() throws IOException {
+    deleteDirectory(logDirectory());
+  }
+
+}
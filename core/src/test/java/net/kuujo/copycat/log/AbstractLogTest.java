@@ -22,7 +22,11 @@ import org.testng.annotations.Test;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -91,6 +95,19 @@ public abstract class AbstractLogTest {
       assertEquals(log.appendEntry(Bytes.of(i)), i);
   }
 
+  /**
+   * Asserts that a batch of entries spanning 3 segments is appended with the expected indexes.
+   */
+  public void testAppendEntries() throws Exception {
+    List<ByteBuffer> entries = IntStream.rangeClosed(1, entriesPerSegment * 3)
+      .mapToObj(i -> ByteBuffer.allocate(4).putInt(i))
+      .collect(Collectors.toList());
+    List<Long> indexes = log.appendEntries(entries);
+    assertIndexes(indexes, 1, entriesPerSegment * 3);
+    assertEquals(log.segments().size(), 3);
+    indexes.stream().forEach(i -> assertBytesEqual(log.getEntry(i), i));
+  }
+
   /**
    * Asserts that appending and getting entries works as expected across segments.
    */
@@ -115,6 +132,35 @@ public abstract class AbstractLogTest {
     }
   }
 
+  /**
+   * Tests reading entries sequentially across segments with {@link LogReader}.
+   */
+  public void testLogReader() {
+    appendEntries(entriesPerSegment * 3);
+    LogReader reader = new LogReader(log, 2, entriesPerSegment * 3 - 1, entrySize() * 3);
+    for (int i = 2; i <= entriesPerSegment * 3 - 1; i++) {
+      assertTrue(reader.hasNext());
+      assertEquals(reader.nextIndex(), i);
+      assertBytesEqual(reader.next(), i);
+    }
+    assertFalse(reader.hasNext());
+
+    reader.reset(entriesPerSegment - 1, entriesPerSegment * 3);
+    List<ByteBuffer> entries = reader.readEntries((entrySize() - metaInfoSize()) * 5);
+    assertEquals(entries.size(), 5);
+    entries.addAll(reader.readEntries(Integer.MAX_VALUE));
+    assertEquals(entries.size(), entriesPerSegment * 2 + 2);
+    for (int i = 0; i < entries.size(); i++)
+      assertBytesEqual(entries.get(i), entriesPerSegment - 1 + i);
+    assertFalse(reader.hasNext());
+
+    reader.limit(entriesPerSegment * 3 + 1);
+    assertFalse(reader.hasNext());
+    appendEntries(1, entriesPerSegment * 3 + 1);
+    assertTrue(reader.hasNext());
+    assertBytesEqual(reader.next(), entriesPerSegment * 3 + 1);
+  }
+
   /**
    * Tests {@link AbstractLogManager#compact(long)} on the log first segment
    */
@@ -190,6 +236,41 @@ public abstract class AbstractLogTest {
     assertEquals(log.lastIndex().longValue(), entriesPerSegment * 2);
   }
 
+  /**
+   * Tests that compacted segments are closed and deleted by the segment janitor.
+   */
+  public void testCompactRetiresSegments() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    LogSegment firstSegment = log.firstSegment();
+    LogSegment secondSegment = log.segment(entriesPerSegment + 1);
+    log.compact(entriesPerSegment + 1);
+    assertEquals(log.segments().size(), 1);
+    log.janitor().drain();
+    assertEquals(log.janitor().queueSize(), 0);
+    assertTrue(log.janitor().maxQueueSize() >= 1);
+    assertEquals(log.janitor().retiredCount(), 2);
+    assertTrue(firstSegment.isClosed());
+    assertTrue(secondSegment.isClosed());
+  }
+
+  /**
+   * Tests removing a segment from the log.
+   */
+  public void testRemoveSegment() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    log.removeSegment(1);
+    assertEquals(log.segments().size(), 2);
+    assertEquals(log.firstIndex().longValue(), entriesPerSegment + 1);
+    for (int i = entriesPerSegment + 1; i <= entriesPerSegment * 3; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testRemoveLastSegment() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    log.removeSegment(entriesPerSegment * 2 + 1);
+  }
+
   @Test(expectedExceptions = IndexOutOfBoundsException.class)
   public void testCompactNegativeIndex() throws Throwable {
     appendEntries(3);
@@ -214,6 +295,69 @@ public abstract class AbstractLogTest {
     log.compact(entriesPerSegment * 2 + 2);
   }
   
+  /**
+   * Tests rewriting a sealed segment.
+   */
+  public void testRewriteSegment() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    long segmentIndex = entriesPerSegment + 1;
+    long segmentId = log.segment(segmentIndex).id();
+    log.rewrite(segmentIndex, (index, entry) -> index % 2 == 0 ? ByteBuffer.allocate(4).putInt(0, (int) -index) : entry);
+    assertNotEquals(log.segment(segmentIndex).id(), segmentId);
+    assertEquals(log.segments().size(), 3);
+    assertEquals(log.entryCount(), entriesPerSegment * 3);
+    for (int i = 1; i <= entriesPerSegment * 3; i++)
+      assertBytesEqual(log.getEntry(i), i >= segmentIndex && i < segmentIndex + entriesPerSegment && i % 2 == 0 ? -i : i);
+
+    // Segments created after entries are removed must not reuse the rewritten segment's id.
+    log.removeAfter(entriesPerSegment * 2);
+    appendEntries(entriesPerSegment * 2, entriesPerSegment * 2 + 1);
+    assertEquals(log.segments().size(), 4);
+    for (int i = 1; i <= entriesPerSegment * 4; i++)
+      assertBytesEqual(log.getEntry(i), i >= segmentIndex && i < segmentIndex + entriesPerSegment && i % 2 == 0 ? -i : i);
+  }
+
+  /**
+   * Tests rewriting a segment on another thread and replacing it once it's rewritten.
+   */
+  public void testReplaceRewrittenSegment() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    LogSegment segment = log.segment(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      LogSegment rewrittenSegment = executor.submit(() -> log.rewriteSegment(segment, (index, entry) -> ByteBuffer.allocate(4).putInt(0, (int) -index))).get();
+      for (int i = 1; i <= entriesPerSegment; i++)
+        assertBytesEqual(log.getEntry(i), i);
+
+      assertTrue(log.replaceSegment(segment, rewrittenSegment));
+      assertEquals(log.segment(1).id(), rewrittenSegment.id());
+      for (int i = 1; i <= entriesPerSegment * 3; i++)
+        assertBytesEqual(log.getEntry(i), i <= entriesPerSegment ? -i : i);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Tests that a rewritten segment is discarded if the segment was removed while it was being rewritten.
+   */
+  public void testReplaceRemovedSegment() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    LogSegment segment = log.segment(1);
+    LogSegment rewrittenSegment = log.rewriteSegment(segment, (index, entry) -> ByteBuffer.allocate(4).putInt(0, (int) -index));
+    log.compact(entriesPerSegment + 1);
+    assertFalse(log.replaceSegment(segment, rewrittenSegment));
+    assertEquals(log.firstIndex().longValue(), entriesPerSegment * 2 + 1);
+    for (int i = entriesPerSegment * 2 + 1; i <= entriesPerSegment * 3; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testRewriteLastSegment() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    log.rewrite(entriesPerSegment * 2 + 1, (index, entry) -> entry);
+  }
+
   /**
    * Asserts that containsIndex works as expected across segments.
    */
@@ -286,6 +430,43 @@ public abstract class AbstractLogTest {
     assertEquals(log.segments().size(), 2);
   }
 
+  /**
+   * Tests looking up the terms of entries across segments, truncation and compaction.
+   */
+  public void testGetTerm() throws Throwable {
+    appendTerms(entriesPerSegment * 2, 1);
+    appendTerms(entriesPerSegment, 2);
+    for (int i = 1; i <= entriesPerSegment * 3; i++)
+      assertEquals(log.getTerm(i), i <= entriesPerSegment * 2 ? 1 : 2);
+
+    // Replace entries from the second term with entries from a third term.
+    log.removeAfter(entriesPerSegment * 2 + 1);
+    appendTerms(entriesPerSegment, 3);
+    assertEquals(log.getTerm(entriesPerSegment * 2), 1);
+    assertEquals(log.getTerm(entriesPerSegment * 2 + 1), 2);
+    assertEquals(log.getTerm(entriesPerSegment * 2 + 2), 3);
+    assertEquals(log.getTerm(log.lastIndex()), 3);
+
+    // Compaction removes whole segments, so the first remaining entry may belong to any of the terms.
+    log.compact(log.segments().higherKey(log.firstIndex()));
+    assertTruncatedTerms();
+    assertEquals(log.getTerm(log.lastIndex()), 3);
+  }
+
+  /**
+   * Asserts the terms of entries remaining in the log after {@link #testGetTerm()}.
+   */
+  protected void assertTruncatedTerms() {
+    for (long i = log.firstIndex(); i <= log.lastIndex(); i++)
+      assertEquals(log.getTerm(i), i <= entriesPerSegment * 2 ? 1 : i == entriesPerSegment * 2 + 1 ? 2 : 3);
+  }
+
+  @Test(expectedExceptions = IndexOutOfBoundsException.class)
+  public void testGetTermHighIndex() throws Throwable {
+    appendTerms(3, 1);
+    log.getTerm(4);
+  }
+
   @Test(expectedExceptions = IndexOutOfBoundsException.class)
   public void testRemoveAfterNegativeIndex() {
     log.removeAfter(-1);
@@ -423,6 +604,40 @@ public abstract class AbstractLogTest {
     }).collect(Collectors.toList());
   }
 
+  /**
+   * Appends {@code numEntries} entries prefixed with the given term to the log.
+   */
+  protected List<Long> appendTerms(int numEntries, long term) throws IOException {
+    List<ByteBuffer> entries = IntStream.range(0, numEntries)
+      .mapToObj(i -> (ByteBuffer) ByteBuffer.allocate(12).putLong(0, term).putInt(8, i))
+      .collect(Collectors.toList());
+    return log.appendEntries(entries);
+  }
+
+  /**
+   * Deletes the given directory and all files beneath it, if it exists.
+   */
+  protected static void deleteDirectory(String directory) throws IOException {
+    Path path = Paths.get(directory);
+    if (!Files.exists(path)) {
+      return;
+    }
+
+    Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
   protected static void assertBytesEqual(ByteBuffer b1, long number) {
     assertBytesEqual(b1, (int) number);
   }
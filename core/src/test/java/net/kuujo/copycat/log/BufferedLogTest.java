@@ -16,6 +16,9 @@
 package net.kuujo.copycat.log;
 
 import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+
 import static org.testng.Assert.*;
 
 /**
@@ -48,6 +51,46 @@ public class BufferedLogTest extends AbstractLogTest {
     assertEquals(log.getSegmentInterval(), 60000);
   }
 
+  /**
+   * Tests that entries spanning multiple slabs can be read, removed, and replaced.
+   */
+  public void testSlabs() throws Throwable {
+    BufferedLogSegment segment = new BufferedLogSegment(null, 1, 1);
+    segment.open();
+    int entrySize = BufferedLogSegment.INITIAL_SLAB_SIZE / 3;
+    for (int i = 1; i <= 10; i++) {
+      assertEquals(segment.appendEntry(entry(entrySize, i)), i);
+    }
+    ByteBuffer large = entry(BufferedLogSegment.MAX_SLAB_SIZE + 1, 11);
+    assertEquals(segment.appendEntry(large), 11);
+    assertEquals(segment.size(), entrySize * 10 + BufferedLogSegment.MAX_SLAB_SIZE + 1);
+    for (int i = 1; i <= 10; i++) {
+      assertEquals(segment.getEntry(i), entry(entrySize, i));
+    }
+    assertEquals(segment.getEntry(11), large.rewind());
+
+    segment.removeAfter(4);
+    assertEquals(segment.lastIndex().longValue(), 4);
+    assertEquals(segment.size(), entrySize * 4);
+    assertEquals(segment.appendEntry(entry(entrySize, 100)), 5);
+    for (int i = 1; i <= 4; i++) {
+      assertEquals(segment.getEntry(i), entry(entrySize, i));
+    }
+    assertEquals(segment.getEntry(5), entry(entrySize, 100));
+  }
+
+  /**
+   * Returns an entry of the given size filled with the given value.
+   */
+  private static ByteBuffer entry(int size, int value) {
+    ByteBuffer entry = ByteBuffer.allocate(size);
+    while (entry.hasRemaining()) {
+      entry.put((byte) value);
+    }
+    entry.flip();
+    return entry;
+  }
+
   @Override
   protected AbstractLogManager createLog() throws Throwable {
     return (AbstractLogManager) new BufferedLog().withSegmentSize(segmentSize).getLogManager("test");
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Cached file log test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class CachedFileLogTest extends AbstractFileLogTest {
+  private static final int CACHE_ENTRIES = 10;
+
+  /**
+   * Tests configuring the log cache.
+   */
+  public void testConfigurationDefaults() throws Throwable {
+    Log log = new FileLog();
+    assertEquals(log.getCacheSize(), 0);
+    assertNull(((AbstractLogManager) log.getLogManager("test")).cache());
+    log.setCacheSize(1024);
+    assertEquals(log.getCacheSize(), 1024);
+  }
+
+  /**
+   * Tests that recently appended entries are read from the cache and older entries are read from disk.
+   */
+  public void testCacheHitsAndMisses() {
+    appendEntries(entriesPerSegment * 2);
+    LogCache cache = log.cache();
+    assertEquals(cache.entryCount(), CACHE_ENTRIES);
+    assertTrue(cache.size() <= cache.maxSize());
+
+    for (long i = entriesPerSegment * 2 - CACHE_ENTRIES + 1; i <= entriesPerSegment * 2; i++)
+      assertBytesEqual(log.getEntry(i), i);
+    assertEquals(cache.hitCount(), CACHE_ENTRIES);
+    assertEquals(cache.missCount(), 0);
+
+    assertBytesEqual(log.getEntry(1), 1);
+    assertEquals(cache.missCount(), 1);
+    assertBytesEqual(log.getEntry(1), 1);
+    assertEquals(cache.hitCount(), CACHE_ENTRIES + 1);
+  }
+
+  /**
+   * Tests that removed entries are removed from the cache.
+   */
+  public void testCacheRemoveAfter() {
+    appendEntries(CACHE_ENTRIES);
+    log.removeAfter(CACHE_ENTRIES / 2);
+    assertEquals(log.cache().entryCount(), CACHE_ENTRIES / 2);
+    appendEntries(1, 100);
+    assertBytesEqual(log.getEntry(CACHE_ENTRIES / 2 + 1), 100);
+  }
+
+  /**
+   * Tests that entries read from a memory mapped segment remain readable from the cache after the segment is remapped.
+   */
+  public void testCacheMappedEntriesAcrossRemap() throws Throwable {
+    log.close();
+    log.delete();
+    id = UUID.randomUUID().toString();
+    log = (AbstractLogManager) new FileLog()
+      .withSegmentSize(1024 * 64)
+      .withMemoryMapped(true)
+      .withCacheSize(1024 * 1024 * 8)
+      .withDirectory(directory())
+      .getLogManager(id);
+    log.open();
+    appendEntries(3);
+    log.flush();
+    log.close();
+
+    log.open();
+    assertBytesEqual(log.getEntry(1), 1);
+    assertEquals(log.cache().missCount(), 1);
+
+    // Append an entry larger than the mapped segment to force the segment to be remapped.
+    ByteBuffer entry = ByteBuffer.allocate(1024 * 256);
+    entry.putInt(0, 1234);
+    long index = log.appendEntry(entry);
+    assertBytesEqual(log.getEntry(1), 1);
+    assertEquals(log.cache().hitCount(), 1);
+    assertEquals(log.getEntry(index).getInt(0), 1234);
+  }
+
+  /**
+   * Tests that the least recently read entry is evicted once the cache is full.
+   */
+  public void testCacheEvictsLeastRecentlyRead() {
+    appendEntries(CACHE_ENTRIES);
+    LogCache cache = log.cache();
+    assertBytesEqual(log.getEntry(1), 1);
+    appendEntries(1, CACHE_ENTRIES + 1);
+    assertEquals(cache.entryCount(), CACHE_ENTRIES);
+
+    assertBytesEqual(log.getEntry(1), 1);
+    assertEquals(cache.missCount(), 0);
+    assertBytesEqual(log.getEntry(2), 2);
+    assertEquals(cache.missCount(), 1);
+  }
+
+  /**
+   * Tests that cached entries of a rewritten segment are replaced by the rewritten entries.
+   */
+  public void testCacheInvalidatedOnRewrite() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    for (int i = 1; i <= entriesPerSegment; i++)
+      assertBytesEqual(log.getEntry(i), i);
+    log.rewrite(1, (index, entry) -> ByteBuffer.allocate(4).putInt(0, (int) -index));
+    for (int i = 1; i <= entriesPerSegment; i++)
+      assertBytesEqual(log.getEntry(i), -i);
+  }
+
+  /**
+   * Tests that a log recovered after a crash reads recovered entries from disk and caches entries replacing them.
+   */
+  public void testCacheAfterCrash() throws Throwable {
+    appendEntries(entriesPerSegment + 3);
+    AbstractLogManager failedLog = log;
+    log = createLog(id);
+    log.open();
+    failedLog.close();
+
+    LogCache cache = log.cache();
+    assertEquals(cache.entryCount(), 0);
+    assertBytesEqual(log.getEntry(entriesPerSegment + 3), entriesPerSegment + 3);
+    assertEquals(cache.missCount(), 1);
+    log.removeAfter(entriesPerSegment + 2);
+    appendEntries(1, 100);
+    assertBytesEqual(log.getEntry(entriesPerSegment + 3), 100);
+    assertEquals(cache.hitCount(), 1);
+  }
+
+  @Override
+  protected String logDirectory() {
+    return "target/test-cached-logs";
+  }
+
+  @Override
+  protected AbstractLogManager createLog(String id) {
+    return (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withCacheSize((entrySize() - metaInfoSize()) * CACHE_ENTRIES)
+      .withDirectory(directory(id))
+      .getLogManager(id);
+  }
+
+}
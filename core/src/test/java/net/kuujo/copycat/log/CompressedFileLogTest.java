@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Compressed file log test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class CompressedFileLogTest extends AbstractFileLogTest {
+
+  /**
+   * Tests configuring segment compression.
+   */
+  public void testConfigurationDefaults() throws Throwable {
+    FileLog log = new FileLog();
+    assertFalse(log.isCompressed());
+    log.setCompressed(true);
+    assertTrue(log.isCompressed());
+  }
+
+  /**
+   * Tests that sealed segments are replaced with compressed segments.
+   */
+  public void testCompressSegments() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    awaitCompressedSegments(2);
+    assertEquals(log.entryCount(), entriesPerSegment * 3);
+    assertEquals(log.size(), entrySize() * entriesPerSegment * 3);
+    for (int i = 1; i <= entriesPerSegment * 3; i++)
+      assertBytesEqual(log.getEntry(i), i);
+
+    log.close();
+    log.open();
+    assertEquals(compressedSegments(), 2);
+    for (int i = 1; i <= entriesPerSegment * 3; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Tests removing entries from a compressed segment.
+   */
+  public void testRemoveAfterCompressedSegment() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    awaitCompressedSegments(2);
+    log.removeAfter(entriesPerSegment / 2);
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment / 2);
+    assertEquals(log.size(), entrySize() * (entriesPerSegment / 2));
+    appendEntries(2, 100);
+    assertBytesEqual(log.getEntry(entriesPerSegment / 2), entriesPerSegment / 2);
+    assertBytesEqual(log.getEntry(entriesPerSegment / 2 + 1), 100);
+    assertBytesEqual(log.getEntry(entriesPerSegment / 2 + 2), 101);
+  }
+
+  /**
+   * Tests reading entries sequentially across the boundary between compressed and uncompressed segments.
+   */
+  public void testReadAcrossCompressionBoundary() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    awaitCompressedSegments(2);
+    assertTrue(log.segment(entriesPerSegment * 2) instanceof CompressedFileLogSegment);
+    assertFalse(log.segment(entriesPerSegment * 2 + 1) instanceof CompressedFileLogSegment);
+
+    LogReader reader = new LogReader(log, entriesPerSegment - 1, entriesPerSegment * 3, entrySize() * 4);
+    for (int i = entriesPerSegment - 1; i <= entriesPerSegment * 3; i++) {
+      assertTrue(reader.hasNext());
+      assertEquals(reader.nextIndex(), i);
+      assertBytesEqual(reader.next(), i);
+    }
+    assertFalse(reader.hasNext());
+  }
+
+  /**
+   * Tests that a compressed segment left incomplete by a crash is discarded and the original segment is read.
+   */
+  public void testRecoverInterruptedCompression() throws Throwable {
+    log.close();
+    log.delete();
+    id = UUID.randomUUID().toString();
+    log = (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withDirectory(directory())
+      .getLogManager(id);
+    log.open();
+    appendEntries(entriesPerSegment * 2);
+    long segmentId = log.firstSegment().id();
+    AbstractLogManager failedLog = log;
+    File compressedFile = segmentFile(segmentId, "compressed.tmp");
+    Files.write(compressedFile.toPath(), new byte[]{1, 2, 3, 4});
+
+    log = createLog(id);
+    log.open();
+    failedLog.close();
+    assertFalse(compressedFile.exists());
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment * 2);
+    for (int i = 1; i <= entriesPerSegment * 2; i++)
+      assertBytesEqual(log.getEntry(i), i);
+
+    // Segments are compressed once the log rolls over to a new segment.
+    appendEntries(entriesPerSegment);
+    awaitCompressedSegments(1);
+    for (int i = 1; i <= entriesPerSegment * 3; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Waits for the given number of segments to be compressed.
+   */
+  private void awaitCompressedSegments(int count) throws Throwable {
+    for (int i = 0; i < 500 && compressedSegments() < count; i++) {
+      Thread.sleep(10);
+      // Compressed segments replace uncompressed segments when the log is flushed.
+      log.flush();
+    }
+    assertEquals(compressedSegments(), count);
+  }
+
+  /**
+   * Returns the number of compressed segments in the log.
+   */
+  private long compressedSegments() {
+    return log.segments().values().stream().filter(segment -> segment instanceof CompressedFileLogSegment).count();
+  }
+
+  @Override
+  protected String logDirectory() {
+    return "target/test-compressed-logs";
+  }
+
+  @Override
+  protected AbstractLogManager createLog(String id) {
+    return (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withCompressed(true)
+      .withDirectory(directory(id))
+      .getLogManager(id);
+  }
+
+}
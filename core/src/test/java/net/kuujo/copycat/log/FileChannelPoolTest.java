@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * File channel pool test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class FileChannelPoolTest {
+
+  /**
+   * Tests that the least recently used channels are closed once the pool exceeds its capacity.
+   */
+  public void testEvictLeastRecentlyUsed() throws Throwable {
+    FileChannelPool pool = new FileChannelPool(2);
+    FileChannelPool.Handle first = handle(pool);
+    FileChannelPool.Handle second = handle(pool);
+    FileChannelPool.Handle third = handle(pool);
+
+    FileChannel firstChannel = first.acquire();
+    firstChannel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), 0);
+    first.release();
+    second.acquire();
+    second.release();
+    third.acquire();
+    third.release();
+    assertEquals(pool.openChannels(), 2);
+    assertFalse(firstChannel.isOpen());
+
+    // Reacquiring an evicted handle reopens the file.
+    FileChannel reopenedChannel = first.acquire();
+    assertNotSame(reopenedChannel, firstChannel);
+    assertEquals(reopenedChannel.size(), 3);
+    first.release();
+    assertEquals(pool.openChannels(), 2);
+
+    first.close();
+    second.close();
+    third.close();
+    assertEquals(pool.openChannels(), 0);
+  }
+
+  /**
+   * Tests that channels are not closed while they're in use.
+   */
+  public void testRetainAcquiredChannels() throws Throwable {
+    FileChannelPool pool = new FileChannelPool(1);
+    FileChannelPool.Handle first = handle(pool);
+    FileChannelPool.Handle second = handle(pool);
+
+    FileChannel firstChannel = first.acquire();
+    FileChannel secondChannel = second.acquire();
+    assertEquals(pool.openChannels(), 2);
+    assertTrue(firstChannel.isOpen());
+
+    first.release();
+    assertEquals(pool.openChannels(), 1);
+    assertFalse(firstChannel.isOpen());
+    assertTrue(secondChannel.isOpen());
+    second.release();
+
+    first.close();
+    second.close();
+  }
+
+  /**
+   * Tests that closing a handle doesn't close its channel until the channel is released.
+   */
+  public void testCloseAcquiredChannel() throws Throwable {
+    FileChannelPool pool = new FileChannelPool(1);
+    FileChannelPool.Handle handle = handle(pool);
+
+    FileChannel channel = handle.acquire();
+    handle.close();
+    assertTrue(channel.isOpen());
+    channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), 0);
+    assertEquals(pool.openChannels(), 1);
+
+    handle.release();
+    assertFalse(channel.isOpen());
+    assertEquals(pool.openChannels(), 0);
+  }
+
+  /**
+   * Tests that a closed handle can't be acquired.
+   */
+  @Test(expectedExceptions = ClosedChannelException.class)
+  public void testAcquireClosedHandle() throws Throwable {
+    FileChannelPool.Handle handle = handle(new FileChannelPool(1));
+    handle.close();
+    handle.acquire();
+  }
+
+  /**
+   * Creates a handle for a new temporary file.
+   */
+  private static FileChannelPool.Handle handle(FileChannelPool pool) throws Throwable {
+    File file = File.createTempFile("copycat-pool-", ".log");
+    file.deleteOnExit();
+    return pool.handle(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+}
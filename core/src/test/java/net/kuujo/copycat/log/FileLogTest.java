@@ -15,16 +15,23 @@
  */
 package net.kuujo.copycat.log;
 
-import org.testng.annotations.AfterTest;
 import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 /**
  * Buffered log test.
@@ -32,7 +39,7 @@ import static org.testng.Assert.assertEquals;
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 @Test
-public class FileLogTest extends AbstractLogTest {
+public class FileLogTest extends AbstractFileLogTest {
 
   /**
    * Tests configuring the buffered log.
@@ -45,6 +52,9 @@ public class FileLogTest extends AbstractLogTest {
     assertEquals(log.getSegmentInterval(), Long.MAX_VALUE);
     log.setSegmentInterval(60000);
     assertEquals(log.getSegmentInterval(), 60000);
+    assertFalse(log.isGroupCommit());
+    log.setGroupCommit(true);
+    assertTrue(log.isGroupCommit());
   }
 
   /**
@@ -56,30 +66,353 @@ public class FileLogTest extends AbstractLogTest {
     assertEquals(log.getSegmentInterval(), 60000);
   }
 
-  @AfterTest
-  protected void cleanLogDir() throws IOException {
-    Path directory = Paths.get("target/test-logs/");
-    Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
-      @Override
-      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-        Files.delete(file);
-        return FileVisitResult.CONTINUE;
+  /**
+   * Tests that entry positions and segment sizes are restored when the log is reopened.
+   */
+  public void testReopenLog() throws Throwable {
+    appendEntries(entriesPerSegment * 2 + 2);
+    log.removeAfter(entriesPerSegment * 2);
+    log.close();
+    log.open();
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment * 2);
+    assertEquals(log.size(), entrySize() * entriesPerSegment * 2);
+    appendEntries(2);
+    for (int i = 1; i <= entriesPerSegment * 2 + 2; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Tests that the log can be reopened after rolling over to an empty segment.
+   */
+  public void testReopenEmptySegment() throws Throwable {
+    appendEntries(entriesPerSegment + 2);
+    log.rollOver(entriesPerSegment + 3);
+    log.close();
+    log.open();
+    assertEquals(log.segments().size(), 3);
+    assertEquals(log.segments().lastKey().longValue(), entriesPerSegment + 3);
+    assertEquals(log.appendEntry(ByteBuffer.allocate(4).putInt(0, 100)), entriesPerSegment + 3);
+    for (int i = 1; i <= entriesPerSegment + 2; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Tests that a rewritten segment replaces the original segment if the log is reopened before the original segment
+   * is deleted.
+   */
+  public void testReopenInterruptedRewrite() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    long segmentId = log.firstSegment().id();
+    List<Path> originalFiles = new ArrayList<>();
+    for (String extension : new String[]{"log", "index", "metadata"}) {
+      Path file = segmentFile(segmentId, extension).toPath();
+      originalFiles.add(Files.copy(file, file.resolveSibling(file.getFileName() + ".copy")));
+    }
+    log.rewrite(1, (index, entry) -> ByteBuffer.allocate(4).putInt(0, (int) -index));
+    log.close();
+
+    // Restore the original segment as if the log crashed before it was deleted.
+    for (Path file : originalFiles) {
+      String name = file.getFileName().toString();
+      Files.move(file, file.resolveSibling(name.substring(0, name.length() - ".copy".length())));
+    }
+    log.open();
+    assertEquals(log.segments().size(), 3);
+    assertFalse(segmentFile(segmentId, "log").exists());
+    for (int i = 1; i <= entriesPerSegment * 3; i++)
+      assertBytesEqual(log.getEntry(i), i <= entriesPerSegment ? -i : i);
+  }
+
+  /**
+   * Tests that a torn entry at the tail of a segment is truncated and intact entries missing from the index are
+   * recovered when the log is reopened.
+   */
+  public void testRecoverTornTail() throws Throwable {
+    appendEntries(entriesPerSegment + 3);
+    long segmentId = log.lastSegment().id();
+    log.close();
+
+    // Tear the last entry and drop the positions of the last two entries from the index.
+    truncate(segmentFile(segmentId, "log"), 2);
+    truncate(segmentFile(segmentId, "index"), 16);
+    log.open();
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment + 2);
+    assertEquals(log.size(), entrySize() * (entriesPerSegment + 2));
+    appendEntries(1, 100);
+    for (int i = 1; i <= entriesPerSegment + 2; i++)
+      assertBytesEqual(log.getEntry(i), i);
+    assertBytesEqual(log.getEntry(entriesPerSegment + 3), 100);
+  }
+
+  /**
+   * Tests that an entry that fails checksum verification is truncated when the log is reopened.
+   */
+  public void testRecoverCorruptEntry() throws Throwable {
+    appendEntries(entriesPerSegment + 3);
+    long segmentId = log.lastSegment().id();
+    log.close();
+
+    try (FileChannel channel = FileChannel.open(segmentFile(segmentId, "log").toPath(), StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), channel.size() - 1);
+    }
+    log.open();
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment + 2);
+    for (int i = 1; i <= entriesPerSegment + 2; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Tests that a segment is truncated at an entry corrupted in the middle of the segment, even though the entries that
+   * follow it are intact.
+   */
+  public void testRecoverCorruptMiddleEntry() throws Throwable {
+    appendEntries(entriesPerSegment + 3);
+    long segmentId = log.lastSegment().id();
+    log.close();
+
+    try (FileChannel channel = FileChannel.open(segmentFile(segmentId, "log").toPath(), StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), entrySize() + FileLogSegment.ENTRY_HEADER_SIZE);
+    }
+    log.open();
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment + 1);
+    assertEquals(log.size(), entrySize() * (entriesPerSegment + 1));
+    appendEntries(1, 100);
+    for (int i = 1; i <= entriesPerSegment + 1; i++)
+      assertBytesEqual(log.getEntry(i), i);
+    assertBytesEqual(log.getEntry(entriesPerSegment + 2), 100);
+  }
+
+  /**
+   * Tests that entry terms are restored from the term index file when the log is reopened.
+   */
+  public void testReopenTermIndex() throws Throwable {
+    appendTerms(entriesPerSegment + 2, 1);
+    appendTerms(entriesPerSegment, 2);
+    log.removeAfter(entriesPerSegment * 2);
+    log.close();
+    assertTrue(termsFile().exists());
+
+    log.open();
+    assertEquals(log.getTerm(entriesPerSegment + 2), 1);
+    assertEquals(log.getTerm(entriesPerSegment + 3), 2);
+    assertEquals(log.getTerm(entriesPerSegment * 2), 2);
+  }
+
+  /**
+   * Tests that the term index is reloaded correctly after entries have been truncated and compacted.
+   */
+  public void testReopenTermIndexAfterCompaction() throws Throwable {
+    testGetTerm();
+    log.close();
+
+    log.open();
+    assertTruncatedTerms();
+  }
+
+  /**
+   * Tests that the term index is rebuilt from the log if the term index file is missing.
+   */
+  public void testRebuildTermIndex() throws Throwable {
+    appendTerms(entriesPerSegment + 2, 1);
+    appendTerms(entriesPerSegment, 2);
+    log.close();
+    Files.delete(termsFile().toPath());
+
+    log.open();
+    assertTrue(termsFile().exists());
+    assertEquals(log.getTerm(1), 1);
+    assertEquals(log.getTerm(entriesPerSegment + 2), 1);
+    assertEquals(log.getTerm(entriesPerSegment * 2 + 2), 2);
+  }
+
+  /**
+   * Tests that the term index is rebuilt if entries were written to the log but their run was never recorded.
+   */
+  public void testRebuildTermIndexMissingRun() throws Throwable {
+    appendTerms(entriesPerSegment + 2, 1);
+    log.close();
+    byte[] terms = Files.readAllBytes(termsFile().toPath());
+
+    log.open();
+    appendTerms(entriesPerSegment, 2);
+    log.close();
+    Files.write(termsFile().toPath(), terms);
+
+    log.open();
+    assertEquals(log.getTerm(entriesPerSegment + 2), 1);
+    assertEquals(log.getTerm(entriesPerSegment + 3), 2);
+    assertEquals(log.getTerm(entriesPerSegment * 2 + 2), 2);
+  }
+
+  /**
+   * Tests that a segment written without entry headers is read and appended to in its original format.
+   */
+  public void testOpenLegacySegment() throws Throwable {
+    log.close();
+    log.delete();
+    id = UUID.randomUUID().toString();
+    File directory = directory();
+    writeLegacySegment(directory, id, 3);
+    log = (AbstractLogManager) new FileLog()
+      .withDirectory(directory)
+      .getLogManager(id);
+    log.open();
+    assertEquals(log.lastIndex().longValue(), 3);
+    for (int i = 1; i <= 3; i++)
+      assertBytesEqual(log.getEntry(i), i);
+
+    appendEntries(1, 4);
+    log.close();
+    log.open();
+    assertEquals(log.lastIndex().longValue(), 4);
+    assertEquals(log.size(), 16);
+    for (int i = 1; i <= 4; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Tests that a segment written prior to seeded checksums is verified and appended to without a seed.
+   */
+  public void testOpenUnseededSegment() throws Throwable {
+    log.close();
+    log.delete();
+    id = UUID.randomUUID().toString();
+    File directory = directory();
+    writeUnseededSegment(directory, id, 3);
+    log = (AbstractLogManager) new FileLog()
+      .withDirectory(directory)
+      .getLogManager(id);
+    log.open();
+    assertEquals(log.lastIndex().longValue(), 3);
+    for (int i = 1; i <= 3; i++)
+      assertBytesEqual(log.getEntry(i), i);
+
+    appendEntries(1, 4);
+    log.close();
+    log.open();
+    assertEquals(log.lastIndex().longValue(), 4);
+    assertEquals(log.size(), entrySize() * 4);
+    for (int i = 1; i <= 4; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Writes a segment in the format used prior to seeded checksums, with one four byte entry per index.
+   */
+  static void writeUnseededSegment(File directory, String name, int entries) throws IOException {
+    directory.mkdirs();
+    try (RandomAccessFile logFile = new RandomAccessFile(new File(directory, name + "-1.log"), "rw");
+         RandomAccessFile indexFile = new RandomAccessFile(new File(directory, name + "-1.index"), "rw");
+         RandomAccessFile metaFile = new RandomAccessFile(new File(directory, name + "-1.metadata"), "rw")) {
+      for (int i = 1; i <= entries; i++) {
+        indexFile.writeLong(logFile.getFilePointer());
+        logFile.writeInt(4);
+        logFile.writeInt(FileLogSegment.checksum(ByteBuffer.allocate(4).putInt(0, i)));
+        logFile.writeInt(i);
       }
+      metaFile.writeLong(1);
+      metaFile.writeLong(System.currentTimeMillis());
+      metaFile.writeLong(FileLogSegment.HEADER_VERSION);
+    }
+  }
 
-      @Override
-      public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-        Files.delete(dir);
-        return FileVisitResult.CONTINUE;
+  /**
+   * Writes a segment in the format used prior to entry headers, with one four byte entry per index.
+   */
+  static void writeLegacySegment(File directory, String name, int entries) throws IOException {
+    directory.mkdirs();
+    try (RandomAccessFile logFile = new RandomAccessFile(new File(directory, name + "-1.log"), "rw");
+         RandomAccessFile indexFile = new RandomAccessFile(new File(directory, name + "-1.index"), "rw");
+         RandomAccessFile metaFile = new RandomAccessFile(new File(directory, name + "-1.metadata"), "rw")) {
+      for (int i = 1; i <= entries; i++) {
+        indexFile.writeLong(logFile.getFilePointer());
+        logFile.writeInt(i);
       }
-    });
+      metaFile.writeLong(1);
+      metaFile.writeLong(System.currentTimeMillis());
+    }
+  }
+
+  /**
+   * Returns the term index file for the log.
+   */
+  private File termsFile() {
+    File base = ((FileLogManager) log).base;
+    return new File(base.getParentFile(), base.getName() + ".terms");
+  }
+
+  /**
+   * Truncates the given number of bytes from the end of the given file.
+   */
+  private static void truncate(File file, int bytes) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - bytes);
+    }
+  }
+
+  /**
+   * Tests that flushes requested while a group commit is in progress are completed by subsequent group commits.
+   */
+  public void testGroupCommit() throws Throwable {
+    log.close();
+    log.delete();
+    id = UUID.randomUUID().toString();
+    log = (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withFlushOnWrite(true)
+      .withGroupCommit(true)
+      .withDirectory(directory())
+      .getLogManager(id);
+    log.open();
+
+    List<CompletableFuture<Long>> futures = new ArrayList<>();
+    for (long index : appendEntries(entriesPerSegment * 3)) {
+      futures.add(log.flush(index));
+    }
+
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).get(10, TimeUnit.SECONDS);
+    for (int i = 0; i < futures.size(); i++) {
+      assertEquals(futures.get(i).get().longValue(), i + 1);
+    }
+  }
+
+  /**
+   * Tests that forced flushes are group committed even if the log is not flushed on write.
+   */
+  public void testForcedGroupCommit() throws Throwable {
+    log.close();
+    log.delete();
+    id = UUID.randomUUID().toString();
+    log = (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withFlushOnWrite(false)
+      .withGroupCommit(true)
+      .withDirectory(directory())
+      .getLogManager(id);
+    log.open();
+
+    List<CompletableFuture<Long>> futures = new ArrayList<>();
+    for (long index : appendEntries(entriesPerSegment * 3)) {
+      assertTrue(log.flush(index, false).isDone());
+      futures.add(log.flush(index, true));
+    }
+
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).get(10, TimeUnit.SECONDS);
+    for (int i = 0; i < futures.size(); i++) {
+      assertEquals(futures.get(i).get().longValue(), i + 1);
+    }
+  }
+
+  @Override
+  protected String logDirectory() {
+    return "target/test-logs";
   }
 
   @Override
-  protected AbstractLogManager createLog() throws Throwable {
-    String id = UUID.randomUUID().toString();
+  protected AbstractLogManager createLog(String id) {
     return (AbstractLogManager) new FileLog()
       .withSegmentSize(segmentSize)
-      .withDirectory(new File(String.format("target/test-logs/%s", id)))
+      .withDirectory(directory(id))
       .getLogManager(id);
   }
 
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.UUID;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Memory mapped file log test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class MappedFileLogTest extends AbstractFileLogTest {
+
+  /**
+   * Tests configuring the memory mapped log.
+   */
+  public void testConfigurationDefaults() throws Throwable {
+    FileLog log = new FileLog();
+    assertEquals(log.isMemoryMapped(), false);
+    log.setMemoryMapped(true);
+    assertEquals(log.isMemoryMapped(), true);
+  }
+
+  /**
+   * Tests that entries read from the log are read-only views of the mapped segment.
+   */
+  public void testGetEntryIsReadOnly() {
+    appendEntries(1);
+    assertTrue(log.getEntry(1).isReadOnly());
+    assertBytesEqual(log.getEntry(1), 1);
+  }
+
+  /**
+   * Tests that a memory mapped log can be reopened by both mapped and non-mapped logs.
+   */
+  public void testReopenLog() throws Throwable {
+    appendEntries(entriesPerSegment * 2 + 2);
+    log.flush();
+    log.close();
+
+    log = (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withDirectory(directory())
+      .getLogManager(id);
+    log.open();
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment * 2 + 2);
+    assertEquals(log.size(), entrySize() * (entriesPerSegment * 2 + 2));
+    for (int i = 1; i <= entriesPerSegment * 2 + 2; i++)
+      assertBytesEqual(log.getEntry(i), i);
+    appendEntries(1);
+    log.close();
+
+    log = createLog(id);
+    log.open();
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment * 2 + 3);
+    for (int i = 1; i <= entriesPerSegment * 2 + 3; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Tests that the mapped segment files are remapped when an entry exceeds the mapped capacity, and that entries read
+   * before the segment was remapped remain readable.
+   */
+  public void testRemapSegment() throws Throwable {
+    appendEntries(2);
+    ByteBuffer view = log.getEntry(1);
+    ByteBuffer entry = ByteBuffer.allocate(segmentSize * 3);
+    entry.putInt(0, 1234);
+    long index = log.appendEntry(entry);
+    assertBytesEqual(view, 1);
+    assertBytesEqual(log.getEntry(1), 1);
+    assertBytesEqual(log.getEntry(2), 2);
+    assertEquals(log.getEntry(index).limit(), segmentSize * 3);
+    assertEquals(log.getEntry(index).getInt(0), 1234);
+  }
+
+  /**
+   * Tests that a remapped segment is recovered in full when the log is reopened after a failure.
+   */
+  public void testRecoverRemappedSegmentAfterCrash() throws Throwable {
+    appendEntries(2);
+    ByteBuffer entry = ByteBuffer.allocate(segmentSize * 3);
+    entry.putInt(0, 1234);
+    long index = log.appendEntry(entry);
+    appendEntries(1, 100);
+
+    AbstractLogManager failedLog = log;
+    log = createLog(id);
+    log.open();
+    failedLog.close();
+    assertEquals(log.lastIndex().longValue(), index + 1);
+    assertBytesEqual(log.getEntry(1), 1);
+    assertBytesEqual(log.getEntry(2), 2);
+    assertEquals(log.getEntry(index).limit(), segmentSize * 3);
+    assertEquals(log.getEntry(index).getInt(0), 1234);
+    assertBytesEqual(log.getEntry(index + 1), 100);
+  }
+
+  /**
+   * Tests that removed entries are overwritten with zeroes in the mapped segment files, and that entries read before
+   * they were removed remain readable.
+   */
+  public void testRemoveAfterZeroesEntries() throws Throwable {
+    appendEntries(3);
+    ByteBuffer view = log.getEntry(1);
+    ByteBuffer removed = log.getEntry(3);
+    log.removeAfter(1);
+    assertBytesEqual(view, 1);
+    assertEquals(removed.getInt(0), 0);
+    try (FileChannel channel = FileChannel.open(segmentFile(log.lastSegment().id(), "log").toPath())) {
+      ByteBuffer buffer = ByteBuffer.allocate(entrySize() * 2);
+      channel.read(buffer, entrySize());
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        assertEquals(buffer.get(), 0);
+      }
+    }
+
+    appendEntries(1, 100);
+    assertBytesEqual(log.getEntry(1), 1);
+    assertBytesEqual(log.getEntry(2), 100);
+  }
+
+  /**
+   * Tests that entries written after the last flush are recovered when the log is reopened after a failure.
+   */
+  public void testRecoverUnflushedEntries() throws Throwable {
+    appendEntries(entriesPerSegment + 3);
+    AbstractLogManager failedLog = log;
+    log = createLog(id);
+    log.open();
+    failedLog.close();
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment + 3);
+    assertEquals(log.size(), entrySize() * (entriesPerSegment + 3));
+    appendEntries(1, 100);
+    for (int i = 1; i <= entriesPerSegment + 3; i++)
+      assertBytesEqual(log.getEntry(i), i);
+    assertBytesEqual(log.getEntry(entriesPerSegment + 4), 100);
+  }
+
+  /**
+   * Tests that a segment written without entry headers cannot be memory mapped.
+   */
+  @Test(expectedExceptions = LogException.class)
+  public void testOpenLegacySegment() throws Throwable {
+    log.close();
+    log.delete();
+    id = UUID.randomUUID().toString();
+    FileLogTest.writeLegacySegment(directory(), id, 3);
+    log = createLog(id);
+    log.open();
+  }
+
+  @Override
+  protected String logDirectory() {
+    return "target/test-mapped-logs";
+  }
+
+  @Override
+  protected AbstractLogManager createLog(String id) {
+    return (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withMemoryMapped(true)
+      .withDirectory(directory(id))
+      .getLogManager(id);
+  }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Preallocated file log test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class PreallocatedFileLogTest extends AbstractFileLogTest {
+
+  /**
+   * Tests configuring segment preallocation and recycling.
+   */
+  public void testConfigurationDefaults() throws Throwable {
+    FileLog log = new FileLog();
+    assertFalse(log.isPreallocated());
+    log.setPreallocated(true);
+    assertTrue(log.isPreallocated());
+    assertFalse(log.isRecycled());
+    log.setRecycled(true);
+    assertTrue(log.isRecycled());
+  }
+
+  /**
+   * Tests that new segments are written to preallocated files and that segments are bounded by their recorded sizes
+   * when the log is reopened.
+   */
+  public void testPreallocateSegments() throws Throwable {
+    awaitSpares(1);
+    appendEntries(entriesPerSegment * 2 + 2);
+    assertTrue(segmentFile(log.lastSegment().id(), "log").length() >= segmentSize);
+    log.removeAfter(entriesPerSegment * 2 + 1);
+    log.close();
+
+    log = createLog(id);
+    log.open();
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment * 2 + 1);
+    assertEquals(log.size(), entrySize() * (entriesPerSegment * 2 + 1));
+    appendEntries(1, 100);
+    for (int i = 1; i <= entriesPerSegment * 2 + 1; i++)
+      assertBytesEqual(log.getEntry(i), i);
+    assertBytesEqual(log.getEntry(entriesPerSegment * 2 + 2), 100);
+  }
+
+  /**
+   * Tests that a preallocated log can be reopened by a log without preallocation.
+   */
+  public void testReopenWithoutPreallocation() throws Throwable {
+    appendEntries(entriesPerSegment * 2 + 2);
+    log.close();
+
+    log = (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withDirectory(directory())
+      .getLogManager(id);
+    log.open();
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment * 2 + 2);
+    assertEquals(log.size(), entrySize() * (entriesPerSegment * 2 + 2));
+    for (int i = 1; i <= entriesPerSegment * 2 + 2; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Tests that the files of compacted segments are recycled for new segments.
+   */
+  public void testRecycleSegments() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    long firstSegmentId = log.firstSegment().id();
+    long secondSegmentIndex = log.segments().higherKey(log.firstIndex());
+    log.compact(secondSegmentIndex);
+    log.janitor().drain();
+    assertFalse(segmentFile(firstSegmentId, "log").exists());
+    assertTrue(spares() > 0);
+
+    int spares = spares();
+    appendEntries(entriesPerSegment * 2, entriesPerSegment * 3 + 1);
+    assertTrue(spares() < spares || spares() == FileLogManager.MAX_SPARE_SEGMENTS);
+    for (long i = log.firstIndex(); i <= entriesPerSegment * 5; i++)
+      assertBytesEqual(log.getEntry(i), (int) i);
+  }
+
+  /**
+   * Tests that entries written after the last flush are recovered when the log is reopened after a failure.
+   */
+  public void testRecoverUnflushedEntries() throws Throwable {
+    appendEntries(entriesPerSegment + 3);
+    AbstractLogManager failedLog = log;
+    log = createLog(id);
+    log.open();
+    failedLog.close();
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment + 3);
+    assertEquals(log.size(), entrySize() * (entriesPerSegment + 3));
+    appendEntries(1, 100);
+    for (int i = 1; i <= entriesPerSegment + 3; i++)
+      assertBytesEqual(log.getEntry(i), i);
+    assertBytesEqual(log.getEntry(entriesPerSegment + 4), 100);
+  }
+
+  /**
+   * Tests that intact entries left in a recycled file by another segment are not recovered when the log is reopened.
+   */
+  public void testIgnoreEntriesOfRecycledSegments() throws Throwable {
+    appendEntries(entriesPerSegment + 1);
+    long firstSegmentId = log.firstSegment().id();
+    long lastSegmentId = log.lastSegment().id();
+    log.close();
+
+    // Copy the entries of the first segment that follow the first entry into the same positions in the last segment.
+    try (FileChannel source = FileChannel.open(segmentFile(firstSegmentId, "log").toPath());
+         FileChannel target = FileChannel.open(segmentFile(lastSegmentId, "log").toPath(), StandardOpenOption.WRITE)) {
+      ByteBuffer buffer = ByteBuffer.allocate(entrySize() * (entriesPerSegment - 1));
+      source.read(buffer, entrySize());
+      buffer.flip();
+      target.write(buffer, entrySize());
+    }
+    log.open();
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment + 1);
+    assertEquals(log.size(), entrySize() * (entriesPerSegment + 1));
+  }
+
+  /**
+   * Tests that a segment written to a recycled file is recovered after a crash without recovering the entries of the
+   * segment that previously used the file.
+   */
+  public void testRecoverRecycledSegmentAfterCrash() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    log.compact(log.segments().higherKey(log.firstIndex()));
+    log.janitor().drain();
+    assertTrue(spares() > 0);
+
+    int spares = spares();
+    appendEntries(entriesPerSegment + 2, entriesPerSegment * 3 + 1);
+    assertTrue(spares() < spares || spares() == FileLogManager.MAX_SPARE_SEGMENTS);
+    AbstractLogManager failedLog = log;
+    log = createLog(id);
+    log.open();
+    failedLog.close();
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment * 4 + 2);
+    for (long i = log.firstIndex(); i <= entriesPerSegment * 4 + 2; i++)
+      assertBytesEqual(log.getEntry(i), (int) i);
+
+    appendEntries(1, 100);
+    assertBytesEqual(log.getEntry(entriesPerSegment * 4 + 3), 100);
+  }
+
+  /**
+   * Waits for the given number of spare segment files to be available.
+   */
+  private void awaitSpares(int count) throws InterruptedException {
+    for (int i = 0; i < 100 && spares() < count; i++) {
+      Thread.sleep(100);
+    }
+    assertTrue(spares() >= count);
+  }
+
+  /**
+   * Returns the number of spare segment files.
+   */
+  private int spares() {
+    File base = ((FileLogManager) log).base;
+    File[] files = base.getParentFile().listFiles((dir, name) -> name.startsWith(base.getName() + "-spare-") && name.endsWith(".log"));
+    return files != null ? files.length : 0;
+  }
+
+  @Override
+  protected String logDirectory() {
+    return "target/test-preallocated-logs";
+  }
+
+  @Override
+  protected AbstractLogManager createLog(String id) {
+    return (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withPreallocated(true)
+      .withRecycled(true)
+      .withDirectory(directory(id))
+      .getLogManager(id);
+  }
+
+}
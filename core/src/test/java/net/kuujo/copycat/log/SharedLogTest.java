@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import net.kuujo.copycat.util.internal.Bytes;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.UUID;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Shared log test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class SharedLogTest extends AbstractLogTest {
+  private String id;
+
+  /**
+   * Tests configuring the underlying physical log.
+   */
+  public void testConfigurationDefaults() throws Throwable {
+    SharedLog log = new SharedLog();
+    assertTrue(log.getLog() instanceof FileLog);
+    assertEquals(log.getName(), "copycat");
+    log.setLog(new BufferedLog());
+    assertTrue(log.getLog() instanceof BufferedLog);
+    log.setName("foo");
+    assertEquals(log.getName(), "foo");
+  }
+
+  /**
+   * Tests that multiple logs append to and are recovered from a single physical log.
+   */
+  public void testShareLogBetweenLogs() throws Throwable {
+    AbstractLogManager other = createLog(id, "other");
+    other.open();
+    for (int i = 1; i <= entriesPerSegment * 3; i++) {
+      log.appendEntry(Bytes.of(i));
+      other.appendEntry(Bytes.of(i + 1000));
+    }
+    other.removeAfter(entriesPerSegment * 2);
+    log.flush();
+    other.close();
+    log.close();
+
+    log = createLog(id, "log");
+    other = createLog(id, "other");
+    log.open();
+    other.open();
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment * 3);
+    assertEquals(other.lastIndex().longValue(), entriesPerSegment * 2);
+    for (int i = 1; i <= entriesPerSegment * 3; i++)
+      assertBytesEqual(log.getEntry(i), i);
+    for (int i = 1; i <= entriesPerSegment * 2; i++)
+      assertBytesEqual(other.getEntry(i), i + 1000);
+    other.close();
+    other.delete();
+  }
+
+  /**
+   * Tests that physical segments are compacted once the segments they contain are compacted.
+   */
+  public void testCompactPhysicalLog() throws Throwable {
+    appendEntries(entriesPerSegment * 20);
+    LogManager physicalLog = physicalLog();
+    int segments = physicalLog.segments().size();
+    assertTrue(segments > 1);
+
+    log.compact(log.segments().lowerKey(log.segments().lastKey()));
+    log.janitor().drain();
+    assertTrue(physicalLog.segments().size() < segments);
+    for (long i = log.firstIndex(); i <= entriesPerSegment * 20; i++)
+      assertBytesEqual(log.getEntry(i), (int) i);
+  }
+
+  /**
+   * Tests that small segments are relocated so that they don't prevent the physical log from being compacted.
+   */
+  public void testRelocateSmallSegments() throws Throwable {
+    AbstractLogManager other = createLog(id, "other");
+    other.open();
+    other.appendEntry(Bytes.of(1000));
+    appendEntries(entriesPerSegment * 20);
+    int segments = physicalLog().segments().size();
+    log.compact(log.segments().lowerKey(log.segments().lastKey()));
+    log.janitor().drain();
+    assertTrue(physicalLog().segments().size() < segments / 2);
+    assertBytesEqual(other.getEntry(1), 1000);
+    other.close();
+
+    other = createLog(id, "other");
+    other.open();
+    assertEquals(other.lastIndex().longValue(), 1);
+    assertBytesEqual(other.getEntry(1), 1000);
+    other.close();
+    other.delete();
+  }
+
+  /**
+   * Returns the physical log.
+   */
+  private LogManager physicalLog() throws IOException {
+    MultiplexedLog log = MultiplexedLog.acquire(config(id));
+    log.release();
+    return log.log();
+  }
+
+  @AfterClass
+  protected void cleanLogDir() throws IOException {
+    deleteDirectory("target/test-shared-logs");
+  }
+
+  @Override
+  protected AbstractLogManager createLog() throws Throwable {
+    id = UUID.randomUUID().toString();
+    return createLog(id, "log");
+  }
+
+  private AbstractLogManager createLog(String id, String name) {
+    return (AbstractLogManager) config(id).getLogManager(name);
+  }
+
+  private SharedLog config(String id) {
+    return new SharedLog()
+      .withSegmentSize(segmentSize)
+      .withLog(new FileLog()
+        .withSegmentSize(segmentSize * 4)
+        .withDirectory(new File(String.format("target/test-shared-logs/%s", id))));
+  }
+
+}
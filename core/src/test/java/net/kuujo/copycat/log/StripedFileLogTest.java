@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Striped file log test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class StripedFileLogTest extends AbstractFileLogTest {
+
+  /**
+   * Tests configuring log directories and segment placement.
+   */
+  public void testConfigurationDefaults() throws Throwable {
+    FileLog log = new FileLog().withDirectory("foo");
+    assertEquals(log.getDirectories(), Arrays.asList(new File("foo")));
+    assertEquals(log.getPlacement(), SegmentPlacement.ROUND_ROBIN);
+    log.setDirectories(Arrays.asList("bar", "baz"));
+    assertEquals(log.getDirectories(), Arrays.asList(new File("bar"), new File("baz")));
+    log.setPlacement(SegmentPlacement.FREE_SPACE);
+    assertEquals(log.getPlacement(), SegmentPlacement.FREE_SPACE);
+  }
+
+  /**
+   * Tests that successive segments are placed in each directory in turn and loaded from all directories.
+   */
+  public void testStripeSegments() throws Throwable {
+    appendEntries(entriesPerSegment * 4);
+    assertEquals(segmentFiles(0), 2);
+    assertEquals(segmentFiles(1), 2);
+    log.close();
+
+    log = createLog(id, SegmentPlacement.ROUND_ROBIN);
+    log.open();
+    assertEquals(log.segments().size(), 4);
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment * 4);
+    for (int i = 1; i <= entriesPerSegment * 4; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Tests placing segments in the directory with the most usable space.
+   */
+  public void testPlaceSegmentsByFreeSpace() throws Throwable {
+    log.close();
+    log.delete();
+    log = createLog(id, SegmentPlacement.FREE_SPACE);
+    log.open();
+    appendEntries(entriesPerSegment * 4);
+    assertEquals(segmentFiles(0) + segmentFiles(1), 4);
+    for (int i = 1; i <= entriesPerSegment * 4; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Tests that entries striped across directories are recovered after a crash.
+   */
+  public void testRecoverStripedSegmentsAfterCrash() throws Throwable {
+    appendEntries(entriesPerSegment * 3 + 2);
+    AbstractLogManager failedLog = log;
+    log = createLog(id);
+    log.open();
+    failedLog.close();
+    assertEquals(log.segments().size(), 4);
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment * 3 + 2);
+    for (int i = 1; i <= entriesPerSegment * 3 + 2; i++)
+      assertBytesEqual(log.getEntry(i), i);
+
+    appendEntries(entriesPerSegment, entriesPerSegment * 3 + 3);
+    assertEquals(segmentFiles(0) + segmentFiles(1), 5);
+    for (int i = 1; i <= entriesPerSegment * 4 + 2; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Returns the number of segments in the given directory.
+   */
+  private int segmentFiles(int directory) {
+    File[] files = directory(directory).listFiles((dir, name) -> name.endsWith(".metadata"));
+    return files != null ? files.length : 0;
+  }
+
+  /**
+   * Returns the given log directory.
+   */
+  private File directory(int directory) {
+    return new File(directory(), String.valueOf(directory));
+  }
+
+  @Override
+  protected String logDirectory() {
+    return "target/test-striped-logs";
+  }
+
+  @Override
+  protected AbstractLogManager createLog(String id) {
+    return createLog(id, SegmentPlacement.ROUND_ROBIN);
+  }
+
+  private AbstractLogManager createLog(String id, SegmentPlacement placement) {
+    return (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withDirectories(directory(0), directory(1))
+      .withPlacement(placement)
+      .getLogManager(id);
+  }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.log;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tiered file log test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class TieredFileLogTest extends AbstractFileLogTest {
+
+  /**
+   * Tests that a sealed segment is moved to cold storage and read from cold storage.
+   */
+  public void testTierSegment() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    LogSegment segment = log.firstSegment();
+    long firstIndex = segment.firstIndex();
+    assertTrue(log.tierSegment(firstIndex));
+    awaitTiering(firstIndex, segment);
+    assertTrue(coldFile(segment.id(), "metadata").exists());
+    assertFalse(hotFile(segment.id(), "metadata").exists());
+    assertFalse(log.tierSegment(firstIndex));
+    for (int i = 1; i <= entriesPerSegment * 3; i++)
+      assertBytesEqual(log.getEntry(i), i);
+    log.close();
+
+    log = createLog(id);
+    log.open();
+    assertEquals(log.segments().size(), 3);
+    for (int i = 1; i <= entriesPerSegment * 3; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Tests that moves of segments from which entries are removed are discarded.
+   */
+  public void testDiscardTieringOnRemoveAfter() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    LogSegment segment = log.firstSegment();
+    assertTrue(log.tierSegment(segment.firstIndex()));
+    log.removeAfter(entriesPerSegment / 2);
+    log.janitor().drain();
+    for (int i = 0; i < 10; i++) {
+      Thread.sleep(50);
+      log.flush();
+    }
+    assertFalse(coldFile(segment.id(), "metadata").exists());
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment / 2);
+    for (int i = 1; i <= entriesPerSegment / 2; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Tests that the original segment is loaded if the log failed while moving the segment to cold storage.
+   */
+  public void testRecoverInterruptedTiering() throws Throwable {
+    appendEntries(entriesPerSegment * 2);
+    long segmentId = log.firstSegment().id();
+    log.close();
+    Files.copy(hotFile(segmentId, "log").toPath(), coldFile(segmentId, "log").toPath());
+    Files.copy(hotFile(segmentId, "metadata").toPath(), coldFile(segmentId, "metadata").toPath());
+
+    log = createLog(id);
+    log.open();
+    assertFalse(coldFile(segmentId, "metadata").exists());
+    for (int i = 1; i <= entriesPerSegment * 2; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Tests that segments are not moved by logs without cold storage.
+   */
+  public void testTierSegmentWithoutColdStorage() throws Throwable {
+    log.close();
+    log.delete();
+    log = (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withDirectory(tierDirectory("hot"))
+      .getLogManager(id);
+    log.open();
+    appendEntries(entriesPerSegment * 2);
+    assertFalse(log.tierSegment(log.firstIndex()));
+  }
+
+  /**
+   * Tests that entries remain readable while the segment containing them is moved to cold storage.
+   */
+  public void testReadDuringTiering() throws Throwable {
+    appendEntries(entriesPerSegment * 3);
+    LogSegment segment = log.firstSegment();
+    long firstIndex = segment.firstIndex();
+    ByteBuffer view = log.getEntry(1);
+    LogReader reader = new LogReader(log, 1, entriesPerSegment * 3, entrySize() * 2);
+    assertBytesEqual(reader.next(), 1);
+
+    assertTrue(log.tierSegment(firstIndex));
+    for (int i = 2; i <= entriesPerSegment / 2; i++)
+      assertBytesEqual(reader.next(), i);
+    awaitTiering(firstIndex, segment);
+    assertBytesEqual(view, 1);
+    for (int i = entriesPerSegment / 2 + 1; i <= entriesPerSegment * 3; i++)
+      assertBytesEqual(reader.next(), i);
+    assertFalse(reader.hasNext());
+  }
+
+  /**
+   * Tests that a segment moved to cold storage is recovered from cold storage after a crash.
+   */
+  public void testRecoverTieredSegmentAfterCrash() throws Throwable {
+    appendEntries(entriesPerSegment * 2 + 2);
+    LogSegment segment = log.firstSegment();
+    assertTrue(log.tierSegment(segment.firstIndex()));
+    awaitTiering(segment.firstIndex(), segment);
+    log.janitor().drain();
+
+    AbstractLogManager failedLog = log;
+    log = createLog(id);
+    log.open();
+    failedLog.close();
+    assertTrue(coldFile(segment.id(), "metadata").exists());
+    assertFalse(hotFile(segment.id(), "metadata").exists());
+    assertEquals(log.lastIndex().longValue(), entriesPerSegment * 2 + 2);
+    for (int i = 1; i <= entriesPerSegment * 2 + 2; i++)
+      assertBytesEqual(log.getEntry(i), i);
+  }
+
+  /**
+   * Waits for the given segment to be replaced by a segment in cold storage.
+   */
+  private void awaitTiering(long firstIndex, LogSegment segment) throws InterruptedException {
+    for (int i = 0; i < 100 && log.segments().get(firstIndex) == segment; i++) {
+      Thread.sleep(50);
+      log.flush();
+    }
+    assertNotSame(log.segments().get(firstIndex), segment);
+  }
+
+  private File tierDirectory(String tier) {
+    return new File(directory(), tier);
+  }
+
+  private File hotFile(long segmentId, String extension) {
+    return new File(tierDirectory("hot"), String.format("%s-%d.%s", id, segmentId, extension));
+  }
+
+  private File coldFile(long segmentId, String extension) {
+    return new File(tierDirectory("cold"), String.format("%s-%d.%s", id, segmentId, extension));
+  }
+
+  @Override
+  protected String logDirectory() {
+    return "target/test-tiered-logs";
+  }
+
+  @Override
+  protected AbstractLogManager createLog(String id) {
+    return (AbstractLogManager) new FileLog()
+      .withSegmentSize(segmentSize)
+      .withDirectory(tierDirectory("hot"))
+      .withColdDirectory(tierDirectory("cold"))
+      .getLogManager(id);
+  }
+
+}
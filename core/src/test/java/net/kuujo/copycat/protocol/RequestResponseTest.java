@@ -80,6 +80,27 @@ public class RequestResponseTest {
       .withEntry(ByteBuffer.wrap("Hello world!".getBytes())).build();
     assertEquals(request.uri(), "foo");
     assertEquals(new String(request.entry().array()), "Hello world!");
+    assertEquals(request.durability(), Durability.DEFAULT);
+  }
+
+  /**
+   * Tests that the commit request builder sets the request durability.
+   */
+  public void testCommitRequestBuilderSetsDurability() {
+    CommitRequest request = CommitRequest.builder()
+      .withUri("foo")
+      .withEntry(ByteBuffer.wrap("Hello world!".getBytes()))
+      .withDurability(Durability.FSYNC_QUORUM)
+      .build();
+    assertEquals(request.durability(), Durability.FSYNC_QUORUM);
+  }
+
+  /**
+   * Tests that the commit request durability setter fails with a null durability.
+   */
+  @Test(expectedExceptions = NullPointerException.class)
+  public void testCommitRequestBuilderDurabilitySetterFailsWithNullDurability() {
+    CommitRequest.builder().withDurability(null);
   }
 
   /**
@@ -392,6 +413,21 @@ public class RequestResponseTest {
     assertEquals(request.logIndex().longValue(), 5);
     assertEquals(request.logTerm().longValue(), 1);
     assertEquals(request.commitIndex().longValue(), 4);
+    assertFalse(request.sync());
+  }
+
+  /**
+   * Tests that the append request builder sets whether the receiver must sync its log.
+   */
+  public void testAppendRequestBuilderSetsSync() {
+    AppendRequest request = AppendRequest.builder()
+      .withUri("foo")
+      .withLeader("bar")
+      .withTerm(1)
+      .withEntries(ByteBuffer.wrap("Hello world!".getBytes()))
+      .withSync(true)
+      .build();
+    assertTrue(request.sync());
   }
 
   /**
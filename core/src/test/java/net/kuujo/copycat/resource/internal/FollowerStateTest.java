@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.resource.internal;
+
+import net.kuujo.copycat.cluster.internal.coordinator.CoordinatedResourceConfig;
+import net.kuujo.copycat.log.BufferedLog;
+import net.kuujo.copycat.protocol.rpc.PollRequest;
+import net.kuujo.copycat.protocol.rpc.PollResponse;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Follower state test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class FollowerStateTest {
+  private ScheduledExecutorService executor;
+  private CopycatStateContext context;
+
+  @BeforeMethod
+  protected void beforeMethod() throws Exception {
+    executor = Executors.newSingleThreadScheduledExecutor();
+    context = new CopycatStateContext("test", "local://foo", new CoordinatedResourceConfig()
+      .withElectionTimeout(1000)
+      .withHeartbeatInterval(1000)
+      .withLog(new BufferedLog())
+      .withReplicas("local://foo", "local://bar", "local://baz"), executor);
+  }
+
+  @AfterMethod
+  protected void afterMethod() throws Exception {
+    context.close().get();
+    executor.shutdown();
+  }
+
+  /**
+   * Tests that a restarted follower that doesn't know the leader refuses votes for an election timeout, since the leader
+   * may still hold a lease.
+   */
+  public void testRefuseVotesAfterRestart() throws Exception {
+    context.open();
+    executor.submit(() -> assertEquals(context.state(), CopycatState.FOLLOWER)).get();
+
+    PollResponse response = context.poll(PollRequest.builder()
+      .withUri("local://foo")
+      .withTerm(1)
+      .withCandidate("local://bar")
+      .withLogIndex(null)
+      .withLogTerm(null)
+      .build()).get();
+    assertFalse(response.voted());
+    assertEquals(response.term(), 1);
+    assertEquals(context.getTerm(), 0);
+  }
+
+  /**
+   * Tests that a follower refuses votes within the election timeout of the last heartbeat and grants them once the
+   * election timeout has elapsed.
+   */
+  public void testGrantVotesAfterElectionTimeout() throws Exception {
+    context.open();
+    executor.submit(() -> {
+      assertEquals(context.state(), CopycatState.FOLLOWER);
+      // Having voted for the candidate prevents the follower from starting an election once the timeout elapses.
+      context.setTerm(1);
+      context.setLastVotedFor("local://bar");
+    }).get();
+
+    PollRequest request = PollRequest.builder()
+      .withUri("local://foo")
+      .withTerm(1)
+      .withCandidate("local://bar")
+      .withLogIndex(null)
+      .withLogTerm(null)
+      .build();
+    assertFalse(context.poll(request).get().voted());
+
+    Thread.sleep(context.getElectionTimeout() + 100);
+    PollResponse response = context.poll(request).get();
+    assertTrue(response.voted());
+    assertEquals(response.term(), 1);
+  }
+
+}
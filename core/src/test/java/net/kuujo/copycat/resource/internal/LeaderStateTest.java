@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.resource.internal;
+
+import net.kuujo.copycat.cluster.internal.coordinator.CoordinatedResourceConfig;
+import net.kuujo.copycat.log.BufferedLog;
+import net.kuujo.copycat.protocol.Consistency;
+import net.kuujo.copycat.protocol.rpc.AppendRequest;
+import net.kuujo.copycat.protocol.rpc.AppendResponse;
+import net.kuujo.copycat.protocol.rpc.QueryRequest;
+import net.kuujo.copycat.protocol.rpc.QueryResponse;
+import net.kuujo.copycat.protocol.rpc.Response;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Leader state test.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+@Test
+public class LeaderStateTest {
+  private ScheduledExecutorService executor;
+  private CopycatStateContext context;
+  private final List<AppendRequest> appendRequests = new ArrayList<>();
+  private final List<CompletableFuture<AppendResponse>> appendFutures = new ArrayList<>();
+  private boolean replicating;
+
+  @BeforeMethod
+  protected void beforeMethod() throws Exception {
+    executor = Executors.newSingleThreadScheduledExecutor();
+    appendRequests.clear();
+    appendFutures.clear();
+    replicating = false;
+    context = new CopycatStateContext("test", "local://foo", new CoordinatedResourceConfig()
+      .withElectionTimeout(10000)
+      .withHeartbeatInterval(100)
+      .withLog(new BufferedLog())
+      .withReplicas("local://foo", "local://bar", "local://baz"), executor);
+    context.consumer((index, entry) -> entry);
+
+    // Replicas acknowledge heartbeats, but append requests containing entries are held until replication is started.
+    context.appendHandler(request -> {
+      CompletableFuture<AppendResponse> future = new CompletableFuture<>();
+      if (replicating || request.entries().isEmpty()) {
+        future.complete(accept(request));
+      } else {
+        appendRequests.add(request);
+        appendFutures.add(future);
+      }
+      return future;
+    });
+  }
+
+  @AfterMethod
+  protected void afterMethod() throws Exception {
+    context.close().get();
+    executor.shutdown();
+  }
+
+  /**
+   * Tests that a new leader commits a no-op entry for its term and holds reads until the entry is committed, even once
+   * a quorum has acknowledged its leadership.
+   */
+  public void testHoldReadsUntilTermCommitted() throws Exception {
+    context.open();
+    executor.submit(() -> {
+      assertEquals(context.state(), CopycatState.FOLLOWER);
+      context.setTerm(1);
+      context.transition(CopycatState.LEADER);
+      assertEquals(context.log().lastIndex().longValue(), 1);
+      assertEquals(context.log().getEntry(1).limit(), 8);
+      assertEquals(context.log().getEntry(1).getLong(0), 1);
+    }).get();
+
+    CompletableFuture<QueryResponse> future = context.query(QueryRequest.builder()
+      .withUri("local://foo")
+      .withEntry(ByteBuffer.allocate(4).putInt(0, 1234))
+      .withConsistency(Consistency.STRONG)
+      .build());
+    Thread.sleep(500);
+    assertFalse(future.isDone());
+
+    executor.submit(() -> {
+      replicating = true;
+      for (int i = 0; i < appendRequests.size(); i++) {
+        appendFutures.get(i).complete(accept(appendRequests.get(i)));
+      }
+    }).get();
+
+    QueryResponse response = future.get(5, TimeUnit.SECONDS);
+    assertEquals(response.status(), Response.Status.OK);
+    assertEquals(((ByteBuffer) response.result()).getInt(0), 1234);
+    assertEquals(context.getCommitIndex().longValue(), 1);
+  }
+
+  /**
+   * Tests that the global index only advances once an entry has been stored by all members of the cluster.
+   */
+  public void testGlobalIndexRequiresAllMembers() throws Exception {
+    context.open();
+    executor.submit(() -> {
+      context.setTerm(1);
+      context.transition(CopycatState.LEADER);
+    }).get();
+
+    long timeout = System.currentTimeMillis() + 5000;
+    while (executor.submit(() -> appendRequests.stream().map(AppendRequest::uri).distinct().count()).get() < 2) {
+      assertTrue(System.currentTimeMillis() < timeout);
+      Thread.sleep(10);
+    }
+
+    executor.submit(() -> {
+      for (int i = 0; i < appendRequests.size(); i++) {
+        if (appendRequests.get(i).uri().equals("local://bar")) {
+          appendFutures.get(i).complete(accept(appendRequests.get(i)));
+        }
+      }
+    }).get();
+    assertNull(executor.submit(context::getGlobalIndex).get());
+
+    executor.submit(() -> {
+      replicating = true;
+      for (int i = 0; i < appendRequests.size(); i++) {
+        appendFutures.get(i).complete(accept(appendRequests.get(i)));
+      }
+    }).get();
+    assertEquals(executor.submit(context::getGlobalIndex).get().longValue(), 1);
+  }
+
+  /**
+   * Returns a response accepting all entries in the given append request.
+   */
+  private AppendResponse accept(AppendRequest request) {
+    long lastIndex = (request.logIndex() != null ? request.logIndex() : 0) + request.entries().size();
+    return AppendResponse.builder()
+      .withUri(request.uri())
+      .withTerm(request.term())
+      .withSucceeded(true)
+      .withLogIndex(lastIndex > 0 ? lastIndex : null)
+      .build();
+  }
+
+}
@@ -0,0 +1,45 @@
+package net.kuujo.copycat.util.internal;
+
+import static org.testng.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link Crc32c}.
+ * 
+ * @author Jonathan Halterman
+ */
+@Test
+public class Crc32cTest {
+  public void shouldComputeCrc32c() {
+    ByteBuffer buffer = ByteBuffer.wrap("123456789".getBytes());
+    assertEquals(Crc32c.checksum(buffer), 0xE3069283);
+    assertEquals(Crc32c.softwareChecksum(buffer), 0xE3069283);
+    assertEquals(buffer.position(), 0);
+  }
+
+  public void shouldComputeChecksumOfRemainingBytes() {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+    buffer.putLong(1).putLong(2);
+    buffer.position(8);
+    assertEquals(Crc32c.checksum(buffer), Crc32c.softwareChecksum(ByteBuffer.allocate(8).putLong(0, 2)));
+    assertEquals(buffer.position(), 8);
+  }
+
+  public void shouldComputeChecksumOfSlicedAndLargeBuffers() {
+    ByteBuffer buffer = ByteBuffer.wrap("0123456789".getBytes());
+    buffer.position(1);
+    ByteBuffer slice = buffer.slice();
+    slice.limit(9);
+    assertEquals(Crc32c.checksum(slice), 0xE3069283);
+    assertEquals(Crc32c.checksum(slice.asReadOnlyBuffer()), 0xE3069283);
+
+    ByteBuffer large = ByteBuffer.allocateDirect(1024 * 20);
+    for (int i = 0; i < large.capacity(); i++) {
+      large.put(i, (byte) i);
+    }
+    assertEquals(Crc32c.checksum(large), Crc32c.softwareChecksum(large));
+  }
+}
@@ -62,6 +62,35 @@ public class KryoSerializerTest {
     assertTrue(result.get(2).state() == Member.State.SUSPICIOUS);
   }
 
+  /**
+   * Tests reading an object from a read-only buffer.
+   */
+  public void testReadFromReadOnlyBuffer() {
+    Serializer serializer = new KryoSerializer();
+    ByteBuffer buffer = serializer.writeObject("Hello world!");
+    ByteBuffer direct = ByteBuffer.allocateDirect(buffer.remaining());
+    direct.put(buffer);
+    direct.flip();
+    assertEquals(serializer.readObject(direct.asReadOnlyBuffer()), "Hello world!");
+  }
+
+  /**
+   * Tests serializing heap and direct byte buffers by content.
+   */
+  public void testSerializeByteBuffers() {
+    Serializer serializer = new KryoSerializer().withSerializeBuffers(true);
+    ByteBuffer direct = ByteBuffer.allocateDirect(8);
+    direct.putLong(1234);
+    direct.flip();
+    List<ByteBuffer> buffers = new ArrayList<>();
+    buffers.add(ByteBuffer.allocate(4).putInt(0, 5678));
+    buffers.add(direct.asReadOnlyBuffer());
+    List<ByteBuffer> result = serializer.readObject(serializer.writeObject(buffers));
+    assertEquals(result.get(0).getInt(), 5678);
+    assertEquals(result.get(1).limit(), 8);
+    assertEquals(result.get(1).getLong(), 1234);
+  }
+
   /**
    * Asserts that concurrent serialization works.
    */
@@ -19,6 +19,7 @@ import net.kuujo.copycat.cluster.ClusterConfig;
 import net.kuujo.copycat.cluster.internal.coordinator.ClusterCoordinator;
 import net.kuujo.copycat.cluster.internal.coordinator.CoordinatorConfig;
 import net.kuujo.copycat.cluster.internal.coordinator.DefaultClusterCoordinator;
+import net.kuujo.copycat.protocol.Durability;
 import net.kuujo.copycat.resource.Resource;
 
 import java.util.concurrent.CompletableFuture;
@@ -109,4 +110,13 @@ public interface EventLog<T> extends Resource<EventLog<T>> {
    */
   CompletableFuture<Long> commit(T entry);
 
+  /**
+   * Commits an entry to the log with the given durability level.
+   *
+   * @param entry The entry to commit.
+   * @param durability The durability level with which to commit the entry.
+   * @return A completable future to be completed once the entry has been committed.
+   */
+  CompletableFuture<Long> commit(T entry, Durability durability);
+
 }
@@ -20,6 +20,7 @@ import net.kuujo.copycat.cluster.ClusterConfig;
 import net.kuujo.copycat.cluster.internal.coordinator.CoordinatedResourceConfig;
 import net.kuujo.copycat.event.internal.DefaultEventLog;
 import net.kuujo.copycat.event.retention.RetentionPolicy;
+import net.kuujo.copycat.event.retention.TieringPolicy;
 import net.kuujo.copycat.resource.ResourceConfig;
 import net.kuujo.copycat.util.Configurable;
 import net.kuujo.copycat.util.internal.Assert;
@@ -34,6 +35,7 @@ import java.util.Map;
 public class EventLogConfig extends ResourceConfig<EventLogConfig> {
   private static final String EVENT_LOG_RETENTION_POLICY = "retention.policy";
   private static final String EVENT_LOG_RETENTION_CHECK_INTERVAL = "retention.check.interval";
+  private static final String EVENT_LOG_TIERING_POLICY = "tiering.policy";
 
   private static final String DEFAULT_CONFIGURATION = "event-log-defaults";
   private static final String CONFIGURATION = "event-log";
@@ -122,11 +124,50 @@ public class EventLogConfig extends ResourceConfig<EventLogConfig> {
     return this;
   }
 
+  /**
+   * Sets the event log tiering policy.
+   *
+   * The tiering policy is checked along with the retention policy, and retained segments for which the tiering policy
+   * returns {@code true} are moved to the log's cold storage.
+   *
+   * @param tieringPolicy The event log tiering policy.
+   * @throws java.lang.NullPointerException If the tiering policy is {@code null}
+   */
+  public void setTieringPolicy(TieringPolicy tieringPolicy) {
+    this.config = config.withValue(EVENT_LOG_TIERING_POLICY, ConfigValueFactory.fromMap(Assert.isNotNull(tieringPolicy, "tieringPolicy").toMap()));
+  }
+
+  /**
+   * Returns the event log tiering policy.
+   *
+   * @return The event log tiering policy.
+   * @throws net.kuujo.copycat.util.ConfigurationException If the tiering policy cannot be instantiated
+   */
+  public TieringPolicy getTieringPolicy() {
+    return Configurable.load(config.getObject(EVENT_LOG_TIERING_POLICY).unwrapped());
+  }
+
+  /**
+   * Sets the event log tiering policy, returning the log configuration for method chaining.
+   *
+   * @param tieringPolicy The event log tiering policy.
+   * @return The log configuration.
+   * @throws java.lang.NullPointerException If the tiering policy is {@code null}
+   */
+  public EventLogConfig withTieringPolicy(TieringPolicy tieringPolicy) {
+    setTieringPolicy(tieringPolicy);
+    return this;
+  }
+
   @Override
   public CoordinatedResourceConfig resolve(ClusterConfig cluster) {
     return new CoordinatedResourceConfig(super.toMap())
       .withElectionTimeout(getElectionTimeout())
       .withHeartbeatInterval(getHeartbeatInterval())
+      .withReplicationWindow(getReplicationWindow())
+      .withCommitBatchSize(getCommitBatchSize())
+      .withCommitLinger(getCommitLinger())
+      .withLeaseClockDrift(getLeaseClockDrift())
       .withResourceType(DefaultEventLog.class)
       .withLog(getLog())
       .withSerializer(getSerializer())
@@ -18,13 +18,15 @@ package net.kuujo.copycat.event.internal;
 import net.kuujo.copycat.EventListener;
 import net.kuujo.copycat.event.EventLog;
 import net.kuujo.copycat.event.EventLogConfig;
+import net.kuujo.copycat.event.retention.RetentionPolicy;
+import net.kuujo.copycat.event.retention.TieringPolicy;
 import net.kuujo.copycat.log.LogSegment;
+import net.kuujo.copycat.protocol.Durability;
 import net.kuujo.copycat.resource.internal.AbstractResource;
 import net.kuujo.copycat.resource.internal.ResourceContext;
 
-import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledFuture;
@@ -75,6 +77,11 @@ public class DefaultEventLog<T> extends AbstractResource<EventLog<T>> implements
     return context.commit(serializer.writeObject(entry)).thenApplyAsync(ByteBuffer::getLong, executor);
   }
 
+  @Override
+  public CompletableFuture<Long> commit(T entry, Durability durability) {
+    return context.commit(serializer.writeObject(entry), durability).thenApplyAsync(ByteBuffer::getLong, executor);
+  }
+
   /**
    * Handles a log write.
    */
@@ -100,18 +107,20 @@ public class DefaultEventLog<T> extends AbstractResource<EventLog<T>> implements
       // - The segment is not the last segment in the log
       // - The segment's last index is less than or equal to the commit index
       // - The configured retention policy's retain(LogSegment) method returns false.
-      for (Iterator<Map.Entry<Long, LogSegment>> iterator = context.log().segments().entrySet().iterator(); iterator.hasNext(); ) {
-        Map.Entry<Long, LogSegment> entry = iterator.next();
+      // Removed segments are closed and deleted in the background. Segments that are retained are moved to cold storage
+      // if the configured tiering policy's tier(LogSegment) method returns true.
+      EventLogConfig config = context.config().getResourceConfig();
+      RetentionPolicy retentionPolicy = config.getRetentionPolicy();
+      TieringPolicy tieringPolicy = config.getTieringPolicy();
+      for (Map.Entry<Long, LogSegment> entry : new ArrayList<>(context.log().segments().entrySet())) {
         LogSegment segment = entry.getValue();
         if (context.log().lastSegment() != segment
           && segment.lastIndex() != null
-          && segment.lastIndex() <= commitIndex
-          && !context.config().<EventLogConfig>getResourceConfig().getRetentionPolicy().retain(entry.getValue())) {
-          iterator.remove();
-          try {
-            segment.close();
-            segment.delete();
-          } catch (IOException e) {
+          && segment.lastIndex() <= commitIndex) {
+          if (!retentionPolicy.retain(segment)) {
+            context.log().removeSegment(entry.getKey());
+          } else if (tieringPolicy.tier(segment)) {
+            context.log().tierSegment(entry.getKey());
           }
         }
       }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.event.retention;
+
+import net.kuujo.copycat.util.AbstractConfigurable;
+import net.kuujo.copycat.log.LogSegment;
+
+import java.util.Map;
+
+/**
+ * Never moves logs to cold storage.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class NoTieringPolicy extends AbstractConfigurable implements TieringPolicy {
+
+  public NoTieringPolicy() {
+  }
+
+  public NoTieringPolicy(Map<String, Object> config) {
+    super(config);
+  }
+
+  protected NoTieringPolicy(NoTieringPolicy config) {
+    super(config);
+  }
+
+  @Override
+  public NoTieringPolicy copy() {
+    return new NoTieringPolicy(this);
+  }
+
+  @Override
+  public boolean tier(LogSegment segment) {
+    return false;
+  }
+
+}
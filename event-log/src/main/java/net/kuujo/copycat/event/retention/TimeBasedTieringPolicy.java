@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.event.retention;
+
+import com.typesafe.config.ConfigValueFactory;
+import net.kuujo.copycat.util.AbstractConfigurable;
+import net.kuujo.copycat.log.LogSegment;
+import net.kuujo.copycat.util.internal.Assert;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time based log tiering policy.
+ *
+ * Moves segments to cold storage once they're older than the configured time.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public class TimeBasedTieringPolicy extends AbstractConfigurable implements TieringPolicy {
+  private static final String TIERING_POLICY_TIME = "time";
+
+  public TimeBasedTieringPolicy() {
+    super();
+  }
+
+  public TimeBasedTieringPolicy(long time, TimeUnit unit) {
+    super();
+    setTime(time, unit);
+  }
+
+  public TimeBasedTieringPolicy(Map<String, Object> config) {
+    super(config);
+  }
+
+  private TimeBasedTieringPolicy(TimeBasedTieringPolicy policy) {
+    super(policy);
+  }
+
+  @Override
+  public TimeBasedTieringPolicy copy() {
+    return new TimeBasedTieringPolicy(this);
+  }
+
+  /**
+   * Sets the tiering time in milliseconds.
+   *
+   * @param time The tiering time in milliseconds.
+   * @throws java.lang.IllegalArgumentException If the time is negative
+   */
+  public void setTime(long time) {
+    this.config = config.withValue(TIERING_POLICY_TIME, ConfigValueFactory.fromAnyRef(Assert.arg(time, time >= 0, "time must be positive")));
+  }
+
+  /**
+   * Sets the tiering time.
+   *
+   * @param time The tiering time.
+   * @param unit The tiering time unit.
+   * @throws java.lang.IllegalArgumentException If the time is negative
+   */
+  public void setTime(long time, TimeUnit unit) {
+    setTime(unit.toMillis(time));
+  }
+
+  /**
+   * Returns the tiering time in milliseconds.
+   *
+   * @return The tiering time in milliseconds.
+   */
+  public long getTime() {
+    return config.hasPath(TIERING_POLICY_TIME) ? config.getLong(TIERING_POLICY_TIME) : Long.MAX_VALUE;
+  }
+
+  /**
+   * Sets the tiering time in milliseconds, returning the tiering policy for method chaining.
+   *
+   * @param time The tiering time in milliseconds.
+   * @return The tiering policy.
+   * @throws java.lang.IllegalArgumentException If the time is negative
+   */
+  public TimeBasedTieringPolicy withTime(long time) {
+    setTime(time);
+    return this;
+  }
+
+  /**
+   * Sets the tiering time, returning the tiering policy for method chaining.
+   *
+   * @param time The tiering time.
+   * @param unit The tiering time unit.
+   * @return The tiering policy.
+   * @throws java.lang.IllegalArgumentException If the time is negative
+   */
+  public TimeBasedTieringPolicy withTime(long time, TimeUnit unit) {
+    setTime(time, unit);
+    return this;
+  }
+
+  @Override
+  public boolean tier(LogSegment segment) {
+    return System.currentTimeMillis() - segment.timestamp() >= getTime();
+  }
+
+}
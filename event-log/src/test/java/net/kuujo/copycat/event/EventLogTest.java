@@ -18,10 +18,18 @@ package net.kuujo.copycat.event;
 import net.jodah.concurrentunit.ConcurrentTestCase;
 import net.kuujo.copycat.cluster.ClusterConfig;
 import net.kuujo.copycat.log.BufferedLog;
+import net.kuujo.copycat.log.FileLog;
+import net.kuujo.copycat.protocol.Durability;
 import net.kuujo.copycat.protocol.LocalProtocol;
 import net.kuujo.copycat.test.TestCluster;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Event log test.
  *
@@ -58,4 +66,134 @@ public class EventLogTest extends ConcurrentTestCase {
     await(5000);
   }
 
+  /**
+   * Tests committing events with each durability level.
+   */
+  public void testCommitDurability() throws Throwable {
+    TestCluster<EventLog<String>> cluster = TestCluster.<EventLog<String>>builder()
+      .withActiveMembers(3)
+      .withUriFactory(id -> String.format("local://durability%d", id))
+      .withClusterFactory(members -> new ClusterConfig().withProtocol(new LocalProtocol()).withMembers(members))
+      .withResourceFactory((uri, config) -> EventLog.create("test", uri, config, new EventLogConfig().withLog(new BufferedLog())))
+      .build();
+    expectResume();
+    cluster.open().thenRun(this::resume);
+    await(15000);
+
+    EventLog<String> active = cluster.activeResources().iterator().next();
+    for (Durability durability : Durability.values()) {
+      expectResume();
+      active.commit(durability.toString(), durability).whenComplete((index, error) -> {
+        threadAssertNull(error);
+        threadAssertNotNull(index);
+        resume();
+      });
+      await(5000);
+    }
+
+    expectResume();
+    cluster.close().thenRun(this::resume);
+    await(5000);
+  }
+
+  /**
+   * Tests committing entries that must be synced to disk while the leader flushes its log in parallel with replication.
+   */
+  public void testCommitFlushedEntries() throws Throwable {
+    String id = UUID.randomUUID().toString();
+    TestCluster<EventLog<String>> cluster = TestCluster.<EventLog<String>>builder()
+      .withActiveMembers(3)
+      .withUriFactory(i -> String.format("local://flush%d", i))
+      .withClusterFactory(members -> new ClusterConfig().withProtocol(new LocalProtocol()).withMembers(members))
+      .withResourceFactory((uri, config) -> EventLog.create("test", uri, config, new EventLogConfig()
+        .withLog(new FileLog()
+          .withDirectory(new File(String.format("target/test-logs/%s/%s", id, uri.substring(uri.lastIndexOf('/') + 1))))
+          .withFlushOnWrite(true)
+          .withGroupCommit(true))))
+      .build();
+    expectResume();
+    cluster.open().thenRun(this::resume);
+    await(15000);
+
+    EventLog<String> active = cluster.activeResources().iterator().next();
+    expectResumes(20);
+    for (int i = 0; i < 20; i++) {
+      Durability durability = i % 2 == 0 ? Durability.FSYNC_QUORUM : Durability.FSYNC_LEADER;
+      active.commit(String.valueOf(i), durability).whenComplete((index, error) -> {
+        threadAssertNull(error);
+        threadAssertNotNull(index);
+        resume();
+      });
+    }
+    await(10000);
+
+    expectResume();
+    cluster.close().thenRun(this::resume);
+    await(5000);
+  }
+
+  /**
+   * Tests committing entries while multiple append requests are in flight to each replica.
+   */
+  public void testPipelinedCommits() throws Throwable {
+    TestCluster<EventLog<String>> cluster = TestCluster.<EventLog<String>>builder()
+      .withActiveMembers(3)
+      .withUriFactory(id -> String.format("local://pipeline%d", id))
+      .withClusterFactory(members -> new ClusterConfig().withProtocol(new LocalProtocol()).withMembers(members))
+      .withResourceFactory((uri, config) -> EventLog.create("test", uri, config, new EventLogConfig().withLog(new BufferedLog()).withReplicationWindow(2)))
+      .build();
+    expectResume();
+    cluster.open().thenRun(this::resume);
+    await(15000);
+
+    EventLog<String> active = cluster.activeResources().iterator().next();
+    expectResumes(100);
+    for (int i = 0; i < 100; i++) {
+      active.commit(String.valueOf(i)).whenComplete((index, error) -> {
+        threadAssertNull(error);
+        threadAssertNotNull(index);
+        resume();
+      });
+    }
+    await(10000);
+
+    expectResume();
+    cluster.close().thenRun(this::resume);
+    await(5000);
+  }
+
+  /**
+   * Tests that concurrent commits are batched by the leader and each commit is assigned its own index.
+   */
+  public void testBatchedCommits() throws Throwable {
+    TestCluster<EventLog<String>> cluster = TestCluster.<EventLog<String>>builder()
+      .withActiveMembers(3)
+      .withUriFactory(id -> String.format("local://batch%d", id))
+      .withClusterFactory(members -> new ClusterConfig().withProtocol(new LocalProtocol()).withMembers(members))
+      .withResourceFactory((uri, config) -> EventLog.create("test", uri, config, new EventLogConfig()
+        .withLog(new BufferedLog())
+        .withCommitBatchSize(10)
+        .withCommitLinger(1, TimeUnit.MILLISECONDS)))
+      .build();
+    expectResume();
+    cluster.open().thenRun(this::resume);
+    await(15000);
+
+    EventLog<String> active = cluster.activeResources().iterator().next();
+    Set<Long> indexes = ConcurrentHashMap.newKeySet();
+    expectResumes(100);
+    for (int i = 0; i < 100; i++) {
+      active.commit(String.valueOf(i)).whenComplete((index, error) -> {
+        threadAssertNull(error);
+        threadAssertTrue(indexes.add(index));
+        resume();
+      });
+    }
+    await(10000);
+
+    expectResume();
+    cluster.close().thenRun(this::resume);
+    await(5000);
+  }
+
 }
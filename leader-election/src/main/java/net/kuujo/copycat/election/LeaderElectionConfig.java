@@ -57,6 +57,10 @@ public class LeaderElectionConfig extends ResourceConfig<LeaderElectionConfig> {
     return new CoordinatedResourceConfig(super.toMap())
       .withElectionTimeout(getElectionTimeout())
       .withHeartbeatInterval(getHeartbeatInterval())
+      .withReplicationWindow(getReplicationWindow())
+      .withCommitBatchSize(getCommitBatchSize())
+      .withCommitLinger(getCommitLinger())
+      .withLeaseClockDrift(getLeaseClockDrift())
       .withExecutor(getExecutor())
       .withResourceType(DefaultLeaderElection.class)
       .withLog(getLog())
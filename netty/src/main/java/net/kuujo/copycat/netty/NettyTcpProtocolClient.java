@@ -17,6 +17,7 @@ package net.kuujo.copycat.netty;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
@@ -79,10 +80,12 @@ public class NettyTcpProtocolClient implements ProtocolClient {
     final CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
     if (channel != null) {
       long requestId = ++this.requestId;
-      ByteBuf buffer = context.alloc().buffer(request.remaining() + 12); // Request ID and length
-      buffer.writeLong(requestId);
-      buffer.writeInt(request.remaining());
-      buffer.writeBytes(request);
+      ByteBuf header = context.alloc().buffer(12); // Request ID and length
+      header.writeLong(requestId);
+      header.writeInt(request.remaining());
+
+      // Wrap the request rather than copying it into the outbound buffer. Large append requests can be many megabytes.
+      ByteBuf buffer = Unpooled.wrappedBuffer(header, Unpooled.wrappedBuffer(request));
       channel.writeAndFlush(buffer).addListener((channelFuture) -> {
         if (channelFuture.isSuccess()) {
           responseFutures.put(requestId, future);
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.kuujo.copycat.state;
+
+/**
+ * Keyed command compaction.
+ *
+ * Keyed commands modify the state of a single key. Once a keyed command has been superseded by a later
+ * {@link #OVERWRITE} or {@link #TOMBSTONE} command for the same key, the state log's log cleaner removes the command
+ * from sealed segments of the log.
+ *
+ * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
+ */
+public enum Compaction {
+
+  /**
+   * Indicates that the command is not compacted.
+   */
+  NONE,
+
+  /**
+   * Indicates that the command updates the key's state based on its current state.
+   */
+  UPDATE,
+
+  /**
+   * Indicates that the command replaces the key's state regardless of its current state.
+   */
+  OVERWRITE,
+
+  /**
+   * Indicates that the command removes the key. Tombstones are retained until all members of the cluster have stored
+   * them in their logs.
+   */
+  TOMBSTONE
+
+}
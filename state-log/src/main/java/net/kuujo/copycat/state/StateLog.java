@@ -20,6 +20,7 @@ import net.kuujo.copycat.cluster.internal.coordinator.ClusterCoordinator;
 import net.kuujo.copycat.cluster.internal.coordinator.CoordinatorConfig;
 import net.kuujo.copycat.cluster.internal.coordinator.DefaultClusterCoordinator;
 import net.kuujo.copycat.protocol.Consistency;
+import net.kuujo.copycat.protocol.Durability;
 import net.kuujo.copycat.resource.Resource;
 
 import java.util.concurrent.CompletableFuture;
@@ -103,6 +104,23 @@ public interface StateLog<T> extends Resource<StateLog<T>> {
    */
   <U extends T, V> StateLog<T> registerCommand(String name, Function<U, V> command);
 
+  /**
+   * Registers a keyed state command.<p>
+   *
+   * Keyed commands modify the state of the single key returned by the key function. Commands that have been
+   * superseded by a later {@link Compaction#OVERWRITE} or {@link Compaction#TOMBSTONE} command for the same key are
+   * periodically removed from the log by the log cleaner.
+   *
+   * @param name The command name.
+   * @param command The command function.
+   * @param key A function that returns the key modified by a command input.
+   * @param compaction The command compaction.
+   * @param <U> The command input type.
+   * @param <V> The command output type.
+   * @return The state log.
+   */
+  <U extends T, V> StateLog<T> registerCommand(String name, Function<U, V> command, Function<U, ?> key, Compaction compaction);
+
   /**
    * Unregisters a state command.
    *
@@ -176,4 +194,18 @@ public interface StateLog<T> extends Resource<StateLog<T>> {
    */
   <U> CompletableFuture<U> submit(String command, T entry);
 
+  /**
+   * Submits a state command or query to the log.
+   *
+   * Commands are committed with the given durability level. Queries are not written to the log, so the durability
+   * level is ignored for queries.
+   *
+   * @param command The command name.
+   * @param entry The command entry.
+   * @param durability The durability level with which to commit the command.
+   * @param <U> The command return type.
+   * @return A completable future to be completed once the command output is received.
+   */
+  <U> CompletableFuture<U> submit(String command, T entry, Durability durability);
+
 }
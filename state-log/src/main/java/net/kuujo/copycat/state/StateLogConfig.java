@@ -33,6 +33,11 @@ import java.util.Map;
  */
 public class StateLogConfig extends ResourceConfig<StateLogConfig> {
   private static final String STATE_LOG_CONSISTENCY = "consistency";
+  private static final String STATE_LOG_CLEANER_INTERVAL = "cleaner.interval";
+  private static final String STATE_LOG_TOMBSTONE_RETENTION = "cleaner.tombstone-retention";
+
+  private static final long DEFAULT_STATE_LOG_CLEANER_INTERVAL = 60000;
+  private static final long DEFAULT_STATE_LOG_TOMBSTONE_RETENTION = 0;
 
   private static final String DEFAULT_CONFIGURATION = "event-log-defaults";
   private static final String CONFIGURATION = "event-log";
@@ -120,11 +125,82 @@ public class StateLogConfig extends ResourceConfig<StateLogConfig> {
     return this;
   }
 
+  /**
+   * Sets the interval at which the log cleaner removes superseded keyed commands from the log.
+   *
+   * @param interval The interval at which the log is cleaned in milliseconds.
+   * @throws java.lang.IllegalArgumentException If the interval is not positive
+   */
+  public void setCleanerInterval(long interval) {
+    this.config = config.withValue(STATE_LOG_CLEANER_INTERVAL, ConfigValueFactory.fromAnyRef(Assert.arg(interval, interval > 0, "cleaner interval must be positive")));
+  }
+
+  /**
+   * Returns the interval at which the log cleaner removes superseded keyed commands from the log.
+   *
+   * @return The interval at which the log is cleaned in milliseconds.
+   */
+  public long getCleanerInterval() {
+    return config.hasPath(STATE_LOG_CLEANER_INTERVAL) ? config.getLong(STATE_LOG_CLEANER_INTERVAL) : DEFAULT_STATE_LOG_CLEANER_INTERVAL;
+  }
+
+  /**
+   * Sets the interval at which the log cleaner removes superseded keyed commands from the log, returning the
+   * configuration for method chaining.
+   *
+   * @param interval The interval at which the log is cleaned in milliseconds.
+   * @return The state log configuration.
+   * @throws java.lang.IllegalArgumentException If the interval is not positive
+   */
+  public StateLogConfig withCleanerInterval(long interval) {
+    setCleanerInterval(interval);
+    return this;
+  }
+
+  /**
+   * Sets the minimum number of entries for which tombstones are retained in the log.<p>
+   *
+   * Tombstones are always retained until they have been stored in the logs of all members of the cluster. The
+   * retention is the number of entries by which all members must have passed a tombstone before it's removed.
+   *
+   * @param retention The tombstone retention in entries.
+   * @throws java.lang.IllegalArgumentException If the retention is negative
+   */
+  public void setTombstoneRetention(long retention) {
+    this.config = config.withValue(STATE_LOG_TOMBSTONE_RETENTION, ConfigValueFactory.fromAnyRef(Assert.arg(retention, retention >= 0, "tombstone retention must not be negative")));
+  }
+
+  /**
+   * Returns the minimum number of entries for which tombstones are retained in the log.
+   *
+   * @return The tombstone retention in entries.
+   */
+  public long getTombstoneRetention() {
+    return config.hasPath(STATE_LOG_TOMBSTONE_RETENTION) ? config.getLong(STATE_LOG_TOMBSTONE_RETENTION) : DEFAULT_STATE_LOG_TOMBSTONE_RETENTION;
+  }
+
+  /**
+   * Sets the minimum number of entries for which tombstones are retained in the log, returning the configuration for method
+   * chaining.
+   *
+   * @param retention The tombstone retention in entries.
+   * @return The state log configuration.
+   * @throws java.lang.IllegalArgumentException If the retention is negative
+   */
+  public StateLogConfig withTombstoneRetention(long retention) {
+    setTombstoneRetention(retention);
+    return this;
+  }
+
   @Override
   public CoordinatedResourceConfig resolve(ClusterConfig cluster) {
     return new CoordinatedResourceConfig(super.toMap())
       .withElectionTimeout(getElectionTimeout())
       .withHeartbeatInterval(getHeartbeatInterval())
+      .withReplicationWindow(getReplicationWindow())
+      .withCommitBatchSize(getCommitBatchSize())
+      .withCommitLinger(getCommitLinger())
+      .withLeaseClockDrift(getLeaseClockDrift())
       .withResourceType(DefaultStateLog.class)
       .withLog(new SnapshottableLog(getLog()))
       .withSerializer(getSerializer())
@@ -16,19 +16,34 @@
 package net.kuujo.copycat.state.internal;
 
 import net.kuujo.copycat.CopycatException;
+import net.kuujo.copycat.log.LogSegment;
 import net.kuujo.copycat.protocol.Consistency;
+import net.kuujo.copycat.protocol.Durability;
 import net.kuujo.copycat.resource.internal.AbstractResource;
 import net.kuujo.copycat.resource.internal.ResourceContext;
+import net.kuujo.copycat.state.Compaction;
 import net.kuujo.copycat.state.StateLog;
 import net.kuujo.copycat.state.StateLogConfig;
 import net.kuujo.copycat.util.concurrent.Futures;
+import net.kuujo.copycat.util.concurrent.NamedThreadFactory;
 import net.kuujo.copycat.util.internal.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -36,31 +51,64 @@ import java.util.function.Supplier;
 /**
  * Default state log partition implementation.
  *
+ * Commands registered with a key are compacted by a log cleaner that periodically rewrites sealed segments of the log,
+ * replacing commands that have been superseded by a later overwrite or tombstone for the same key with empty entries.
+ * Cleaned entries retain their index and term, so the log remains consistent with the logs of other replicas. Only
+ * entries that have been applied to the state log are cleaned. A tombstone is only removed once it has been stored in
+ * the logs of all members of the cluster, so that no member can miss the removal of a key, and the cluster's global
+ * index has passed the tombstone by at least the configured tombstone retention. Tombstones are never removed if the
+ * log contains a snapshot that may contain the key.
+ *
+ * Segments are read and rewritten by the cleaner on a background thread, and rewritten segments are swapped into the
+ * log on the resource's thread. Segments that have nothing left to clean are skipped until an entry in the segment is
+ * superseded.
+ *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
-@SuppressWarnings("rawtypes")
 public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements StateLog<T> {
   private static final int SNAPSHOT_ENTRY = 0;
   private static final int COMMAND_ENTRY = 1;
-  private final Map<Integer, OperationInfo> operations = new ConcurrentHashMap<>(128);
+  private static final int CLEANED_ENTRY = 2;
+  private static final Logger LOGGER = LoggerFactory.getLogger(DefaultStateLog.class);
+  private final Map<Integer, OperationInfo<T, ?>> operations = new ConcurrentHashMap<>(128);
   private final Consistency defaultConsistency;
+  private final long cleanerInterval;
+  private final long tombstoneRetention;
   private final SnapshottableLogManager log;
-  private Supplier snapshotter;
-  private Consumer installer;
+  private final Map<Object, Long> keys = new ConcurrentHashMap<>(1024);
+  private final TreeMap<Long, Long> cleanSegments = new TreeMap<>();
+  private final List<Long> supersededIndexes = new ArrayList<>();
+  private Long lastApplied;
+  private boolean cleaning;
+  private ScheduledExecutorService cleanerExecutor;
+  private Supplier<?> snapshotter;
+  private Consumer<Object> installer;
 
   public DefaultStateLog(ResourceContext context) {
     super(context);
     this.log = (SnapshottableLogManager) context.log();
-    defaultConsistency = context.config()
-      .<StateLogConfig>getResourceConfig()
-      .getDefaultConsistency();
+    StateLogConfig config = context.config().getResourceConfig();
+    defaultConsistency = config.getDefaultConsistency();
+    cleanerInterval = config.getCleanerInterval();
+    tombstoneRetention = config.getTombstoneRetention();
     context.consumer(this::consume);
   }
 
   @Override
   public <U extends T, V> StateLog<T> registerCommand(String name, Function<U, V> command) {
     Assert.state(isClosed(), "Cannot register command on open state log");
-    operations.put(name.hashCode(), new OperationInfo<>(command, false));
+    register(name, new OperationInfo<>(command, false));
+    return this;
+  }
+
+  @Override
+  public <U extends T, V> StateLog<T> registerCommand(String name, Function<U, V> command, Function<U, ?> key, Compaction compaction) {
+    Assert.state(isClosed(), "Cannot register command on open state log");
+    Assert.isNotNull(name, "name");
+    Assert.isNotNull(command, "command");
+    Assert.isNotNull(key, "key");
+    Assert.isNotNull(compaction, "compaction");
+    register(name, new OperationInfo<>(command, key, compaction));
     return this;
   }
 
@@ -76,7 +124,7 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
     Assert.state(isClosed(), "Cannot register command on open state log");
     Assert.isNotNull(name, "name");
     Assert.isNotNull(query, "query");
-    operations.put(name.hashCode(), new OperationInfo<>(query, true, defaultConsistency));
+    register(name, new OperationInfo<>(query, true, defaultConsistency));
     return this;
   }
 
@@ -85,10 +133,21 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
     Assert.state(isClosed(), "Cannot register command on open state log");
     Assert.isNotNull(name, "name");
     Assert.isNotNull(query, "query");
-    operations.put(name.hashCode(), new OperationInfo<>(query, true, consistency == null || consistency == Consistency.DEFAULT ? defaultConsistency : consistency));
+    register(name, new OperationInfo<>(query, true, consistency == null || consistency == Consistency.DEFAULT ? defaultConsistency : consistency));
     return this;
   }
 
+  /**
+   * Registers an operation.
+   *
+   * Entries are read from the log as {@code T}, but an operation registered for a subtype of {@code T} is only called
+   * with entries submitted to that operation.
+   */
+  @SuppressWarnings("unchecked")
+  private void register(String name, OperationInfo<? extends T, ?> operation) {
+    operations.put(name.hashCode(), (OperationInfo<T, ?>) operation);
+  }
+
   @Override
   public StateLog<T> unregisterQuery(String name) {
     Assert.state(isClosed(), "Cannot unregister command on open state log");
@@ -111,17 +170,23 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public <V> StateLog<T> installWith(Consumer<V> installer) {
     Assert.state(isClosed(), "Cannot modify state log once opened");
-    this.installer = installer;
+    this.installer = (Consumer<Object>) installer;
     return this;
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public <U> CompletableFuture<U> submit(String command, T entry) {
+    return submit(command, entry, Durability.DEFAULT);
+  }
+
+  @Override
+  public <U> CompletableFuture<U> submit(String command, T entry, Durability durability) {
     Assert.state(isOpen(), "State log not open");
-    OperationInfo<T, U> operationInfo = operations.get(command.hashCode());
+    Assert.isNotNull(durability, "durability");
+    OperationInfo<T, ?> operationInfo = operations.get(command.hashCode());
     if (operationInfo == null) {
       return Futures.exceptionalFutureAsync(new CopycatException(String.format("Invalid state log command %s", command)), executor);
     }
@@ -138,7 +203,7 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
     if (operationInfo.readOnly) {
       return context.query(commandEntry, operationInfo.consistency).thenApplyAsync(serializer::readObject, executor);
     } else {
-      return context.commit(commandEntry).thenApplyAsync(serializer::readObject, executor);
+      return context.commit(commandEntry, durability).thenApplyAsync(serializer::readObject, executor);
     }
   }
 
@@ -146,11 +211,21 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
   public synchronized CompletableFuture<StateLog<T>> open() {
     return runStartupTasks()
       .thenComposeAsync(v -> context.open(), executor)
+      .thenRun(() -> {
+        if (operations.values().stream().anyMatch(operation -> operation.compaction != Compaction.NONE)) {
+          cleanerExecutor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("copycat-state-log-cleaner-%d"));
+          cleanerExecutor.scheduleWithFixedDelay(() -> context.execute(this::clean), cleanerInterval, cleanerInterval, TimeUnit.MILLISECONDS);
+        }
+      })
       .thenApply(v -> this);
   }
 
   @Override
   public synchronized CompletableFuture<Void> close() {
+    if (cleanerExecutor != null) {
+      cleanerExecutor.shutdown();
+      cleanerExecutor = null;
+    }
     return context.close()
       .thenComposeAsync(v -> runShutdownTasks(), executor);
   }
@@ -162,7 +237,6 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
    * @param entry The log entry.
    * @return The entry output.
    */
-  @SuppressWarnings({"unchecked"})
   private ByteBuffer consume(Long index, ByteBuffer entry) {
     int entryType = entry.getInt();
     switch (entryType) {
@@ -171,17 +245,189 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
         return ByteBuffer.allocate(0);
       case COMMAND_ENTRY: // Command entry
         int commandCode = entry.getInt();
-        OperationInfo operationInfo = operations.get(commandCode);
+        OperationInfo<T, ?> operationInfo = operations.get(commandCode);
         if (operationInfo != null) {
           T value = serializer.readObject(entry.slice());
+          if (index != null && !operationInfo.readOnly) {
+            applied(index, operationInfo, value);
+          }
           return serializer.writeObject(operationInfo.execute(index, value));
         }
         throw new IllegalStateException("Invalid state log operation");
+      case CLEANED_ENTRY: // Cleaned entry
+        if (index != null) {
+          lastApplied = index;
+        }
+        return ByteBuffer.allocate(0);
       default:
         throw new IllegalArgumentException("Invalid entry type");
     }
   }
 
+  /**
+   * Records an applied command for the log cleaner.
+   */
+  private void applied(long index, OperationInfo<T, ?> operationInfo, T value) {
+    lastApplied = index;
+    if (operationInfo.compaction != Compaction.OVERWRITE && operationInfo.compaction != Compaction.TOMBSTONE) {
+      return;
+    }
+
+    Object key = operationInfo.key(value);
+    if (key == null) {
+      return;
+    }
+
+    Long supersededIndex = keys.put(key, index);
+    if (supersededIndex != null) {
+      superseded(supersededIndex);
+    }
+  }
+
+  /**
+   * Marks the segment containing a superseded entry as needing to be cleaned.
+   */
+  private void superseded(long index) {
+    Map.Entry<Long, Long> cleanSegment = cleanSegments.floorEntry(index);
+    if (cleanSegment != null && cleanSegment.getValue() >= index) {
+      cleanSegments.remove(cleanSegment.getKey());
+    }
+    if (cleaning) {
+      supersededIndexes.add(index);
+    }
+  }
+
+  /**
+   * Cleans sealed segments of the log.
+   *
+   * Each segment that precedes the current segment, has been fully applied, and may have entries to clean is passed to
+   * the cleaner thread to be rewritten. Only one cleaning runs at a time.
+   */
+  private void clean() {
+    if (cleaning || lastApplied == null || !log.isOpen() || log.segments().isEmpty()) {
+      return;
+    }
+
+    cleanSegments.headMap(log.segments().firstKey()).clear();
+    List<LogSegment> segments = new ArrayList<>();
+    for (Map.Entry<Long, LogSegment> entry : log.segments().entrySet()) {
+      LogSegment segment = entry.getValue();
+      if (segment == log.lastSegment() || segment.lastIndex() == null || segment.lastIndex() > lastApplied) {
+        break;
+      }
+      if (!segment.lastIndex().equals(cleanSegments.get(entry.getKey()))) {
+        segments.add(segment);
+      }
+    }
+
+    ScheduledExecutorService executor = cleanerExecutor;
+    if (!segments.isEmpty() && executor != null) {
+      cleaning = true;
+      boolean snapshot = log.hasSnapshot();
+      Long globalIndex = context.globalIndex();
+      long expiration = globalIndex != null ? globalIndex - tombstoneRetention : 0;
+      executor.execute(() -> {
+        for (LogSegment segment : segments) {
+          try {
+            Cleaning cleaning = cleanSegment(segment, snapshot, expiration);
+            context.execute(() -> cleaned(cleaning));
+          } catch (IOException | RuntimeException e) {
+            LOGGER.warn("{} - Failed to clean segment {}", context.name(), segment.id(), e);
+          }
+        }
+        context.execute(() -> {
+          cleaning = false;
+          supersededIndexes.clear();
+        });
+      });
+    }
+  }
+
+  /**
+   * Rewrites a segment of the log on the cleaner thread.
+   *
+   * Removed commands are replaced with empty entries that retain the entry's term so that the log's indexes and terms
+   * are unchanged.
+   */
+  private Cleaning cleanSegment(LogSegment segment, boolean snapshot, long expiration) throws IOException {
+    long firstIndex = segment.firstIndex();
+    long lastIndex = segment.lastIndex();
+    Set<Long> removals = new HashSet<>();
+    Map<Object, Long> expiredKeys = new HashMap<>();
+    boolean clean = true;
+    for (long index = firstIndex; index <= lastIndex; index++) {
+      ByteBuffer logEntry = segment.getEntry(index);
+      if (logEntry.limit() < 16 || logEntry.getInt(8) != COMMAND_ENTRY) {
+        continue;
+      }
+      OperationInfo<T, ?> operationInfo = operations.get(logEntry.getInt(12));
+      if (operationInfo == null || operationInfo.compaction == Compaction.NONE) {
+        continue;
+      }
+
+      logEntry.position(16);
+      T value = serializer.readObject(logEntry.slice());
+      Object key = operationInfo.key(value);
+      Long keyIndex = key != null ? keys.get(key) : null;
+      if (keyIndex != null && keyIndex > index) {
+        removals.add(index);
+      } else if (keyIndex != null && keyIndex == index && operationInfo.compaction == Compaction.TOMBSTONE && !snapshot) {
+        if (index <= expiration) {
+          removals.add(index);
+          expiredKeys.put(key, index);
+        } else {
+          clean = false;
+        }
+      }
+    }
+
+    LogSegment rewrittenSegment = null;
+    if (!removals.isEmpty()) {
+      rewrittenSegment = log.rewriteSegment(segment, (index, logEntry) -> removals.contains(index) ? cleanedEntry(logEntry) : logEntry);
+    }
+    return new Cleaning(segment, firstIndex, lastIndex, rewrittenSegment, removals.size(), expiredKeys, clean);
+  }
+
+  /**
+   * Swaps a cleaned segment into the log.
+   */
+  private void cleaned(Cleaning cleaning) {
+    if (cleaning.rewrittenSegment != null) {
+      try {
+        if (!log.isOpen() || !log.replaceSegment(cleaning.segment, cleaning.rewrittenSegment)) {
+          if (!log.isOpen()) {
+            cleaning.rewrittenSegment.close();
+            cleaning.rewrittenSegment.delete();
+          }
+          return;
+        }
+      } catch (IOException e) {
+        LOGGER.warn("{} - Failed to replace cleaned segment {}", context.name(), cleaning.segment.id(), e);
+        return;
+      }
+      for (Map.Entry<Object, Long> entry : cleaning.expiredKeys.entrySet()) {
+        keys.remove(entry.getKey(), entry.getValue());
+      }
+      LOGGER.debug("{} - Cleaned {} entries from segment {}", context.name(), cleaning.removals, cleaning.segment.id());
+    }
+
+    // If an entry in the segment was superseded while the segment was being cleaned, the segment must be cleaned again.
+    if (cleaning.clean && supersededIndexes.stream().noneMatch(index -> index >= cleaning.firstIndex && index <= cleaning.lastIndex)) {
+      cleanSegments.put(cleaning.firstIndex, cleaning.lastIndex);
+    }
+  }
+
+  /**
+   * Returns an empty entry that replaces the given entry.
+   */
+  private static ByteBuffer cleanedEntry(ByteBuffer entry) {
+    ByteBuffer cleanedEntry = ByteBuffer.allocate(12);
+    cleanedEntry.putLong(entry.getLong(0)); // Entry term
+    cleanedEntry.putInt(CLEANED_ENTRY);
+    cleanedEntry.flip();
+    return cleanedEntry;
+  }
+
   /**
    * Checks whether to take a snapshot.
    */
@@ -214,11 +460,9 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
   /**
    * Installs a snapshot.
    */
-  @SuppressWarnings("unchecked")
   private void installSnapshot(ByteBuffer snapshot) {
     if (installer != null) {
-      Object value = serializer.readObject(snapshot);
-      installer.accept(value);
+      installer.accept(serializer.readObject(snapshot));
     }
   }
 
@@ -227,6 +471,29 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
     return String.format("%s[name=%s]", getClass().getSimpleName(), context.name());
   }
 
+  /**
+   * Segment cleaned by the log cleaner.
+   */
+  private static class Cleaning {
+    private final LogSegment segment;
+    private final long firstIndex;
+    private final long lastIndex;
+    private final LogSegment rewrittenSegment;
+    private final int removals;
+    private final Map<Object, Long> expiredKeys;
+    private final boolean clean;
+
+    private Cleaning(LogSegment segment, long firstIndex, long lastIndex, LogSegment rewrittenSegment, int removals, Map<Object, Long> expiredKeys, boolean clean) {
+      this.segment = segment;
+      this.firstIndex = firstIndex;
+      this.lastIndex = lastIndex;
+      this.rewrittenSegment = rewrittenSegment;
+      this.removals = removals;
+      this.expiredKeys = expiredKeys;
+      this.clean = clean;
+    }
+  }
+
   /**
    * State command info.
    */
@@ -234,6 +501,8 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
     private final Function<TT, U> function;
     private final boolean readOnly;
     private final Consistency consistency;
+    private final Function<TT, ?> key;
+    private final Compaction compaction;
 
     private OperationInfo(Function<TT, U> function, boolean readOnly) {
       this(function, readOnly, Consistency.DEFAULT);
@@ -243,6 +512,20 @@ public class DefaultStateLog<T> extends AbstractResource<StateLog<T>> implements
       this.function = function;
       this.readOnly = readOnly;
       this.consistency = consistency;
+      this.key = null;
+      this.compaction = Compaction.NONE;
+    }
+
+    private OperationInfo(Function<TT, U> function, Function<TT, ?> key, Compaction compaction) {
+      this.function = function;
+      this.readOnly = false;
+      this.consistency = Consistency.DEFAULT;
+      this.key = key;
+      this.compaction = compaction;
+    }
+
+    private Object key(TT entry) {
+      return key.apply(entry);
     }
 
     private U execute(Long index, TT entry) {
@@ -22,9 +22,12 @@ import net.kuujo.copycat.log.LogSegment;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
 
 /**
  * Snapshottable log manager.
@@ -74,6 +77,18 @@ public class SnapshottableLogManager implements LogManager {
   public void open() throws IOException {
     snapshotManager.open();
     logManager.open();
+
+    // Segments are deleted in the background once a snapshot has been taken, so if the log failed before segments
+    // preceding the snapshot were deleted, remove them now.
+    Long snapshotIndex = snapshotManager.lastIndex();
+    if (snapshotIndex != null) {
+      for (Map.Entry<Long, LogSegment> entry : new ArrayList<>(logManager.segments().entrySet())) {
+        LogSegment segment = entry.getValue();
+        if (segment != logManager.lastSegment() && segment.lastIndex() != null && segment.lastIndex() <= snapshotIndex) {
+          logManager.removeSegment(entry.getKey());
+        }
+      }
+    }
   }
 
   @Override
@@ -96,6 +111,15 @@ public class SnapshottableLogManager implements LogManager {
     return snapshotManager.entryCount() + logManager.entryCount();
   }
 
+  /**
+   * Returns a boolean value indicating whether the log contains a snapshot.
+   *
+   * @return Indicates whether the log contains a snapshot.
+   */
+  public boolean hasSnapshot() {
+    return !snapshotManager.isEmpty();
+  }
+
   /**
    * Returns a boolean value indicating whether the given index is a snapshottable index.
    *
@@ -145,18 +169,12 @@ public class SnapshottableLogManager implements LogManager {
 
   /**
    * Compacts the given log, removing all segments except for the last segment.
+   *
+   * Removed segments are closed and deleted in the background.
    */
   private void compact(LogManager log) {
-    for (Iterator<Map.Entry<Long, LogSegment>> iterator = log.segments().entrySet().iterator(); iterator.hasNext(); ) {
-      LogSegment segment = iterator.next().getValue();
-      if (log.lastSegment() != segment) {
-        iterator.remove();
-        try {
-          segment.close();
-          segment.delete();
-        } catch (IOException e) {
-        }
-      }
+    for (Long index : new ArrayList<>(log.segments().headMap(log.segments().lastKey()).keySet())) {
+      log.removeSegment(index);
     }
   }
 
@@ -165,6 +183,11 @@ public class SnapshottableLogManager implements LogManager {
     return logManager.appendEntry(entry);
   }
 
+  @Override
+  public List<Long> appendEntries(List<ByteBuffer> entries) throws IOException {
+    return logManager.appendEntries(entries);
+  }
+
   @Override
   public Long firstIndex() {
     return !snapshotManager.isEmpty() ? snapshotManager.firstIndex() : logManager.firstIndex();
@@ -192,6 +215,17 @@ public class SnapshottableLogManager implements LogManager {
     throw new IndexOutOfBoundsException("No entry at index " + index);
   }
 
+  @Override
+  public long getTerm(long index) {
+    Assert.state(isOpen(), "Log is not open");
+    if (logManager.containsIndex(index)) {
+      return logManager.getTerm(index);
+    } else if (snapshotManager.containsIndex(index)) {
+      return snapshotManager.getTerm(index);
+    }
+    throw new IndexOutOfBoundsException("No entry at index " + index);
+  }
+
   @Override
   public void removeAfter(long index) {
     Assert.state(isOpen(), "Log is not open");
@@ -210,11 +244,51 @@ public class SnapshottableLogManager implements LogManager {
     snapshotManager.compact(index);
   }
 
+  @Override
+  public void removeSegment(long index) {
+    logManager.removeSegment(index);
+  }
+
+  @Override
+  public boolean tierSegment(long index) {
+    return logManager.tierSegment(index);
+  }
+
+  @Override
+  public void rewrite(long index, BiFunction<Long, ByteBuffer, ByteBuffer> rewriter) throws IOException {
+    logManager.rewrite(index, rewriter);
+  }
+
+  @Override
+  public LogSegment rewriteSegment(LogSegment segment, BiFunction<Long, ByteBuffer, ByteBuffer> rewriter) throws IOException {
+    return logManager.rewriteSegment(segment, rewriter);
+  }
+
+  @Override
+  public boolean replaceSegment(LogSegment segment, LogSegment rewrittenSegment) throws IOException {
+    return logManager.replaceSegment(segment, rewrittenSegment);
+  }
+
   @Override
   public void flush() {
     logManager.flush();
   }
 
+  @Override
+  public CompletableFuture<Long> flush(long index) {
+    return logManager.flush(index);
+  }
+
+  @Override
+  public void flush(boolean force) {
+    logManager.flush(force);
+  }
+
+  @Override
+  public CompletableFuture<Long> flush(long index, boolean force) {
+    return logManager.flush(index, force);
+  }
+
   @Override
   public void close() throws IOException {
     logManager.close();
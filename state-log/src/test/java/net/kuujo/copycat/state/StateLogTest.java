@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 the original author or authors.
+ * Copyright 2014 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,13 +15,118 @@
  */
 package net.kuujo.copycat.state;
 
+import net.jodah.concurrentunit.ConcurrentTestCase;
+import net.kuujo.copycat.cluster.ClusterConfig;
+import net.kuujo.copycat.log.BufferedLog;
+import net.kuujo.copycat.protocol.Consistency;
+import net.kuujo.copycat.protocol.LocalProtocol;
+import net.kuujo.copycat.test.TestCluster;
 import org.testng.annotations.Test;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * State log test.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 @Test
-public class StateLogTest {
+public class StateLogTest extends ConcurrentTestCase {
+
+  /**
+   * Tests that concurrent strong queries read the state written by a prior command.
+   */
+  public void testStrongQueries() throws Throwable {
+    TestCluster<StateLog<String>> cluster = TestCluster.<StateLog<String>>builder()
+      .withActiveMembers(3)
+      .withUriFactory(id -> String.format("local://strong%d", id))
+      .withClusterFactory(members -> new ClusterConfig().withProtocol(new LocalProtocol()).withMembers(members))
+      .withResourceFactory((uri, config) -> {
+        AtomicReference<String> value = new AtomicReference<>();
+        return StateLog.<String>create("test", uri, config, new StateLogConfig()
+          .withLog(new BufferedLog())
+          .withDefaultConsistency(Consistency.STRONG))
+          .registerCommand("set", (String entry) -> {
+            value.set(entry);
+            return entry;
+          })
+          .registerQuery("get", (String entry) -> value.get(), Consistency.STRONG);
+      })
+      .build();
+    expectResume();
+    cluster.open().thenRun(this::resume);
+    await(15000);
+
+    StateLog<String> stateLog = cluster.activeResources().iterator().next();
+    expectResume();
+    stateLog.submit("set", "Hello world!").whenComplete((result, error) -> {
+      threadAssertNull(error);
+      resume();
+    });
+    await(5000);
+
+    expectResumes(100);
+    for (int i = 0; i < 100; i++) {
+      stateLog.<String>submit("get", "").whenComplete((result, error) -> {
+        threadAssertNull(error);
+        threadAssertEquals(result, "Hello world!");
+        resume();
+      });
+    }
+    await(10000);
+
+    expectResume();
+    cluster.close().thenRun(this::resume);
+    await(5000);
+  }
+
+  /**
+   * Tests that lease queries read the state written by prior commands.
+   */
+  public void testLeaseQueries() throws Throwable {
+    TestCluster<StateLog<String>> cluster = TestCluster.<StateLog<String>>builder()
+      .withActiveMembers(3)
+      .withUriFactory(id -> String.format("local://lease%d", id))
+      .withClusterFactory(members -> new ClusterConfig().withProtocol(new LocalProtocol()).withMembers(members))
+      .withResourceFactory((uri, config) -> {
+        AtomicReference<String> value = new AtomicReference<>();
+        return StateLog.<String>create("test", uri, config, new StateLogConfig()
+          .withLog(new BufferedLog())
+          .withDefaultConsistency(Consistency.LEASE))
+          .registerCommand("set", (String entry) -> {
+            value.set(entry);
+            return entry;
+          })
+          .registerQuery("get", (String entry) -> value.get(), Consistency.LEASE);
+      })
+      .build();
+    expectResume();
+    cluster.open().thenRun(this::resume);
+    await(15000);
+
+    StateLog<String> stateLog = cluster.activeResources().iterator().next();
+    for (String value : new String[]{"foo", "bar"}) {
+      expectResume();
+      stateLog.submit("set", value).whenComplete((result, error) -> {
+        threadAssertNull(error);
+        resume();
+      });
+      await(5000);
+
+      expectResumes(100);
+      for (int i = 0; i < 100; i++) {
+        stateLog.<String>submit("get", "").whenComplete((result, error) -> {
+          threadAssertNull(error);
+          threadAssertEquals(result, value);
+          resume();
+        });
+      }
+      await(10000);
+    }
+
+    expectResume();
+    cluster.close().thenRun(this::resume);
+    await(5000);
+  }
+
 }
@@ -21,11 +21,26 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * State machine command annotation.
+ * State machine command annotation.<p>
+ *
+ * Commands that modify the state of a single key may identify the argument containing the key along with the
+ * command's {@link Compaction}. Keyed commands are removed from the log once they have been superseded by a later
+ * overwrite or tombstone for the same key.
  *
  * @author <a href="http://github.com/kuujo">Jordan Halterman</a>
  */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Command {
+
+  /**
+   * The index of the argument containing the key modified by the command, or {@code -1} if the command is not keyed.
+   */
+  int key() default -1;
+
+  /**
+   * The keyed command compaction.
+   */
+  Compaction compaction() default Compaction.NONE;
+
 }
@@ -253,6 +253,42 @@ public class StateMachineConfig extends StateLogConfig {
     return this;
   }
 
+  @Override
+  public StateMachineConfig withReplicationWindow(int window) {
+    setReplicationWindow(window);
+    return this;
+  }
+
+  @Override
+  public StateMachineConfig withCommitBatchSize(int batchSize) {
+    setCommitBatchSize(batchSize);
+    return this;
+  }
+
+  @Override
+  public StateMachineConfig withCommitLinger(long linger) {
+    setCommitLinger(linger);
+    return this;
+  }
+
+  @Override
+  public StateMachineConfig withCommitLinger(long linger, TimeUnit unit) {
+    setCommitLinger(linger, unit);
+    return this;
+  }
+
+  @Override
+  public StateMachineConfig withLeaseClockDrift(long clockDrift) {
+    setLeaseClockDrift(clockDrift);
+    return this;
+  }
+
+  @Override
+  public StateMachineConfig withLeaseClockDrift(long clockDrift, TimeUnit unit) {
+    setLeaseClockDrift(clockDrift, unit);
+    return this;
+  }
+
   @Override
   public StateMachineConfig withReplicas(String... replicas) {
     setReplicas(Arrays.asList(replicas));
@@ -301,6 +337,18 @@ public class StateMachineConfig extends StateLogConfig {
     return this;
   }
 
+  @Override
+  public StateMachineConfig withCleanerInterval(long interval) {
+    setCleanerInterval(interval);
+    return this;
+  }
+
+  @Override
+  public StateMachineConfig withTombstoneRetention(long retention) {
+    setTombstoneRetention(retention);
+    return this;
+  }
+
   @Override
   public CoordinatedResourceConfig resolve(ClusterConfig cluster) {
     return new StateLogConfig(toMap())
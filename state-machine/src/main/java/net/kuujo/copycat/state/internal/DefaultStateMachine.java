@@ -168,7 +168,10 @@ public class DefaultStateMachine<T> extends AbstractResource<StateMachine<T>> im
         log.registerQuery(getOperationName(method), wrapOperation(method), query.consistency());
       } else {
         Command command = method.getAnnotation(Command.class);
-        if (command != null || Modifier.isPublic(method.getModifiers())) {
+        if (command != null && command.key() >= 0 && command.compaction() != Compaction.NONE) {
+          int key = Assert.arg(command.key(), command.key() < method.getParameterCount(), "invalid key argument for %s", method);
+          log.registerCommand(getOperationName(method), wrapOperation(method), values -> values.get(key), command.compaction());
+        } else if (command != null || Modifier.isPublic(method.getModifiers())) {
           log.registerCommand(getOperationName(method), wrapOperation(method));
         }
       }
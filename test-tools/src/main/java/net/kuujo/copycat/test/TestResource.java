@@ -69,6 +69,10 @@ public class TestResource extends AbstractResource<TestResource> {
       return new CoordinatedResourceConfig(super.toMap())
         .withElectionTimeout(getElectionTimeout())
         .withHeartbeatInterval(getHeartbeatInterval())
+        .withReplicationWindow(getReplicationWindow())
+        .withCommitBatchSize(getCommitBatchSize())
+        .withCommitLinger(getCommitLinger())
+        .withLeaseClockDrift(getLeaseClockDrift())
         .withResourceType(TestResource.class)
         .withLog(getLog())
         .withSerializer(getSerializer())